@@ -85,6 +85,7 @@ __BENCHMARKS__ = [
 	"dgemm",
 	"mandelbrot",
 	"dft",
+	"batchpipeline",
 ]
 
 def getSize():
@@ -43,6 +43,17 @@ class TestEntry:
 __TEST_THE_WORLD__ = [
     TestEntry("uk.ac.manchester.tornado.unittests.TestHello"),
     TestEntry("uk.ac.manchester.tornado.unittests.arrays.TestArrays"),
+    TestEntry("uk.ac.manchester.tornado.unittests.arrays.TestOffHeapArrays"),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.arrays.TestOffHeapArrays",
+              testParameters=["-Dtornado.opencl.zerocopy=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.arrays.TestZeroCopy",
+              testParameters=["-Dtornado.opencl.zerocopy=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.arrays.TestZeroCopy",
+              testParameters=["-Dtornado.opencl.zerocopy=True", "-Dtornado.opencl.zerocopy.fallback=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.arrays.TestArrays",
+              testParameters=["-Dtornado.opencl.buffers.perobject=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.arrays.TestOffHeapArrays",
+              testParameters=["-Dtornado.opencl.buffers.perobject=True"]),
     TestEntry("uk.ac.manchester.tornado.unittests.functional.TestLambdas"),
     TestEntry("uk.ac.manchester.tornado.unittests.vectortypes.TestFloats"),
     TestEntry("uk.ac.manchester.tornado.unittests.vectortypes.TestDoubles"),
@@ -52,20 +63,58 @@ __TEST_THE_WORLD__ = [
     TestEntry("uk.ac.manchester.tornado.unittests.virtualization.TestsVirtualLayer"),
     TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestSingleTaskSingleDevice"),
     TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestMultipleTasksSingleDevice"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestAsyncCompilation"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestStreamInElision"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestSharedObjects"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestRangeTransfers"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestCoExecution"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestTaskFusion"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestJavaDevice"),
+    TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestCommandQueues"),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.tasks.TestCommandQueues",
+              testParameters=["-Dtornado.opencl.multiqueue.enable=True"]),
     TestEntry("uk.ac.manchester.tornado.unittests.images.TestImages"),
     TestEntry("uk.ac.manchester.tornado.unittests.images.TestResizeImage"),
     TestEntry("uk.ac.manchester.tornado.unittests.branching.TestConditionals"),
     TestEntry("uk.ac.manchester.tornado.unittests.loops.TestLoops"),
     TestEntry("uk.ac.manchester.tornado.unittests.loops.TestParallelDimensions"),
+    TestEntry("uk.ac.manchester.tornado.unittests.loops.TestThreadCoarsening"),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.loops.TestAutoVectorisation",
+              testParameters=["-Dtornado.experimental.vectorize=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.loops.TestAutoVectorisation",
+              testParameters=["-Dtornado.experimental.vectorize=True", "-Dtornado.experimental.vectorize.width=16"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.loops.TestLocalMemoryTiling",
+              testParameters=["-Dtornado.experimental.tiling=True"]),
     TestEntry("uk.ac.manchester.tornado.unittests.matrices.TestMatrices"),
     TestEntry("uk.ac.manchester.tornado.unittests.reductions.TestReductionsIntegers"),
     TestEntry("uk.ac.manchester.tornado.unittests.reductions.TestReductionsFloats"),
     TestEntry("uk.ac.manchester.tornado.unittests.reductions.TestReductionsDoubles"),
     TestEntry("uk.ac.manchester.tornado.unittests.reductions.TestReductionsLong"),
     TestEntry("uk.ac.manchester.tornado.unittests.reductions.InstanceReduction"),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.reductions.TestReductionsIntegers",
+              testParameters=["-Dtornado.reduce.singlepass=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.reductions.TestReductionsFloats",
+              testParameters=["-Dtornado.reduce.singlepass=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.reductions.TestReductionsDoubles",
+              testParameters=["-Dtornado.reduce.singlepass=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.reductions.TestReductionsLong",
+              testParameters=["-Dtornado.reduce.singlepass=True"]),
     TestEntry("uk.ac.manchester.tornado.unittests.instances.TestInstances"),
     TestEntry("uk.ac.manchester.tornado.unittests.matrices.TestMatrixTypes"),
     TestEntry("uk.ac.manchester.tornado.unittests.api.TestAPI"),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.api.TestAPI",
+              testParameters=["-Dtornado.opencl.buffers.perobject=True"]),
+    TestEntry("uk.ac.manchester.tornado.unittests.mm.TestFreeListAllocator"),
+    TestEntry("uk.ac.manchester.tornado.unittests.mm.TestHeapReset"),
+    TestEntry("uk.ac.manchester.tornado.unittests.cache.TestPersistentKernelCache"),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.cache.TestKernelCacheKey",
+              testParameters=["-Dtornado.kernel.cache.enable=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.cache.TestKernelCacheKey",
+              testParameters=["-Dtornado.kernel.cache.enable=True", "-Dtornado.experimental.tiling=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.cache.TestKernelCacheKey",
+              testParameters=["-Dtornado.kernel.cache.enable=True", "-Dtornado.experimental.vectorize=True"]),
+    TestEntry(testName="uk.ac.manchester.tornado.unittests.mm.TestHeapEviction",
+              testParameters=["-Dtornado.heap.eviction=True", "-Dtornado.heap.allocation=64MB"]),
     TestEntry("uk.ac.manchester.tornado.unittests.tornadovmcontext.api.TestCombinedTaskSchedule"),
     TestEntry("uk.ac.manchester.tornado.unittests.tornadovmcontext.api.TestVectorAdditionTornadoVMContext"),
     TestEntry("uk.ac.manchester.tornado.unittests.tornadovmcontext.matrices.TestMatrixMultiplicationTornadoVMContext"),
@@ -81,6 +130,8 @@ __TEST_THE_WORLD__ = [
     TestEntry("uk.ac.manchester.tornado.unittests.reductions.TestReductionsAutomatic"),
     TestEntry("uk.ac.manchester.tornado.unittests.fields.TestFields"),
     TestEntry("uk.ac.manchester.tornado.unittests.profiler.TestProfiler"),
+    TestEntry("uk.ac.manchester.tornado.unittests.profiler.TestLocalWorkTuner"),
+    TestEntry("uk.ac.manchester.tornado.unittests.profiler.TestDevicePerformanceModel"),
     TestEntry("uk.ac.manchester.tornado.unittests.reductions.MultipleReductions"),
     TestEntry("uk.ac.manchester.tornado.unittests.bitsets.BitSetTests"),
     TestEntry("uk.ac.manchester.tornado.unittests.fails.TestFails"),
@@ -98,6 +149,7 @@ __TEST_THE_WORLD__ = [
     TestEntry("uk.ac.manchester.tornado.unittests.grid.TestGridScheduler"),
     TestEntry("uk.ac.manchester.tornado.unittests.atomics.TestAtomics"),
     TestEntry("uk.ac.manchester.tornado.unittests.dynamic.TestDynamic"),
+    TestEntry("uk.ac.manchester.tornado.unittests.dynamic.TestDeviceKey"),
     TestEntry(testName="uk.ac.manchester.tornado.unittests.virtual.TestVirtualDeviceKernel",
               testMethods=["testVirtualDeviceKernelGPU"],
               testParameters=[
@@ -12,6 +12,7 @@ module tornado.benchmarks {
     exports uk.ac.manchester.tornado.benchmarks;
     exports uk.ac.manchester.tornado.benchmarks.addImage;
     exports uk.ac.manchester.tornado.benchmarks.addImage.generated;
+    exports uk.ac.manchester.tornado.benchmarks.batchpipeline;
     exports uk.ac.manchester.tornado.benchmarks.blackscholes;
     exports uk.ac.manchester.tornado.benchmarks.blackscholes.generated;
     exports uk.ac.manchester.tornado.benchmarks.blurFilter;
@@ -55,4 +56,6 @@ module tornado.benchmarks {
     exports uk.ac.manchester.tornado.benchmarks.spmv.generated;
     exports uk.ac.manchester.tornado.benchmarks.stencil;
     exports uk.ac.manchester.tornado.benchmarks.stencil.generated;
+    exports uk.ac.manchester.tornado.benchmarks.vmoverhead;
+    exports uk.ac.manchester.tornado.benchmarks.vmoverhead.generated;
 }
@@ -48,6 +48,15 @@ public abstract class BenchmarkRunner {
         return null;
     }
 
+    /**
+     * Baseline of the Tornado driver on the same device. When it is defined, it
+     * runs on every device after the Tornado driver, and the speedup of the
+     * Tornado driver over it is reported.
+     */
+    protected BenchmarkDriver getDeviceReferenceDriver() {
+        return null;
+    }
+
     protected int iterations;
 
     public void run() {
@@ -122,6 +131,7 @@ public abstract class BenchmarkRunner {
                 System.out.printf("bm=%-15s, device=%-5s, %s, speedupAvg=%.4f, speedupMedian=%.4f, speedupFirstIteration=%.4f, CV=%.4f%%, deviceName=%s\n", id, driverIndex + ":" + deviceIndex,
                         deviceTest.getPreciseSummary(), refElapsed / deviceTest.getMean(), refElapsedMedian / deviceTest.getMedian(), refFirstIteration / deviceTest.getFirstIteration(),
                         deviceTest.getCV(), driver.getDevice(deviceIndex));
+                benchmarkDeviceReference(id, driverIndex + ":" + deviceIndex, tornadoDevice, deviceTest);
 
             }
         }
@@ -143,7 +153,18 @@ public abstract class BenchmarkRunner {
             System.out.printf("bm=%-15s, device=%-5s, %s, speedupAvg=%.4f, speedupMedian=%.4f, speedupFirstIteration=%.4f, CV=%.4f, deviceName=%s\n", id, driverIndex + ":" + deviceIndex,
                     deviceTest.getPreciseSummary(), refElapsed / deviceTest.getMean(), refElapsedMedian / deviceTest.getMedian(), refFirstIteration / deviceTest.getFirstIteration(),
                     deviceTest.getCV(), driver.getDevice(deviceIndex));
+            benchmarkDeviceReference(id, driverIndex + ":" + deviceIndex, tornadoDevice, deviceTest);
+        }
+    }
+
+    private void benchmarkDeviceReference(String id, String deviceId, TornadoDevice tornadoDevice, BenchmarkDriver deviceTest) {
+        final BenchmarkDriver referenceTest = getDeviceReferenceDriver();
+        if (referenceTest == null) {
+            return;
         }
+        referenceTest.benchmark(tornadoDevice);
+        System.out.printf("bm=%-15s, device=%-5s, id=%-20s, %s, speedupAvg=%.4f, speedupMedian=%.4f, CV=%.4f%%\n", id, deviceId, "device-reference", referenceTest.getPreciseSummary(),
+                referenceTest.getMean() / deviceTest.getMean(), referenceTest.getMedian() / deviceTest.getMedian(), referenceTest.getCV());
     }
 
     public abstract void parseArgs(String[] args);
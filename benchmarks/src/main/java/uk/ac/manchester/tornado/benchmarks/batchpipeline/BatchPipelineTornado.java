@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package uk.ac.manchester.tornado.benchmarks.batchpipeline;
+
+import static uk.ac.manchester.tornado.api.collections.math.TornadoMath.abs;
+import static uk.ac.manchester.tornado.api.collections.math.TornadoMath.findULPDistance;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.ComputeKernels;
+import uk.ac.manchester.tornado.benchmarks.LinearAlgebraArrays;
+
+public class BatchPipelineTornado extends BenchmarkDriver {
+
+    private final int numElements;
+    private final int batchSize;
+    private final String kernel;
+    private final int pipelineDepth;
+
+    private float[] x;
+    private float[] y;
+    private float[] z;
+    private final float alpha = 2f;
+
+    private TaskSchedule graph;
+
+    public BatchPipelineTornado(int iterations, int numElements, int batchSize, String kernel, int pipelineDepth) {
+        super(iterations);
+        this.numElements = numElements;
+        this.batchSize = batchSize;
+        this.kernel = kernel;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    private boolean isBlackScholes() {
+        return "blackscholes".equals(kernel);
+    }
+
+    private TaskSchedule createTaskSchedule() {
+        // The depth of the pipeline is read from <schedule>.batch.pipeline
+        final String id = "pipeline" + pipelineDepth;
+        TornadoRuntime.setProperty(id + ".batch.pipeline", Integer.toString(pipelineDepth));
+
+        TaskSchedule ts = new TaskSchedule(id).batch(batchSize + "MB");
+        if (isBlackScholes()) {
+            ts.streamIn(x);
+            ts.task("t0", ComputeKernels::blackscholes, x, y, z);
+            ts.streamOut(y, z);
+        } else {
+            ts.streamIn(x);
+            ts.task("t0", LinearAlgebraArrays::saxpy, alpha, x, y);
+            ts.streamOut(y);
+        }
+        return ts;
+    }
+
+    @Override
+    public void setUp() {
+        x = new float[numElements];
+        y = new float[numElements];
+        z = new float[numElements];
+
+        for (int i = 0; i < numElements; i++) {
+            x[i] = isBlackScholes() ? (i * 1.0f) / numElements : i;
+        }
+
+        graph = createTaskSchedule();
+        graph.warmup();
+    }
+
+    @Override
+    public void tearDown() {
+        graph.dumpProfiles();
+
+        x = null;
+        y = null;
+        z = null;
+
+        graph.getDevice().reset();
+        super.tearDown();
+    }
+
+    @Override
+    public void benchmarkMethod(TornadoDevice device) {
+        if (device != null) {
+            graph.mapAllTo(device);
+        }
+        graph.execute();
+    }
+
+    @Override
+    public boolean validate(TornadoDevice device) {
+        final float[] resultY = new float[numElements];
+        final float[] resultZ = new float[numElements];
+
+        benchmarkMethod(device);
+        graph.clearProfiles();
+
+        if (isBlackScholes()) {
+            ComputeKernels.blackscholes(x, resultY, resultZ);
+            for (int i = 0; i < numElements; i++) {
+                if (abs(y[i] - resultY[i]) > 0.01 || abs(z[i] - resultZ[i]) > 0.01) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        LinearAlgebraArrays.saxpy(alpha, x, resultY);
+        return findULPDistance(y, resultY) < MAX_ULP;
+    }
+
+    public void printSummary() {
+        if (isValid()) {
+            System.out.printf("id=%s, pipeline=%d, elapsed=%f, per iteration=%f\n", TornadoRuntime.getProperty("benchmark.device"), pipelineDepth, getElapsed(), getElapsedPerIteration());
+        } else {
+            System.out.printf("id=%s produced invalid result\n", TornadoRuntime.getProperty("benchmark.device"));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package uk.ac.manchester.tornado.benchmarks.batchpipeline;
+
+import uk.ac.manchester.tornado.benchmarks.BenchmarkDriver;
+import uk.ac.manchester.tornado.benchmarks.BenchmarkRunner;
+
+/**
+ * Measures the speedup of pipelined batches over batches executed one after
+ * the other. Each device runs the batches with a double-buffered pipeline and
+ * then serially, and the speedup of the pipeline over the serial batches is
+ * reported as the device reference. The Java reference runs the kernel
+ * sequentially on the host.
+ *
+ * <p>
+ * Arguments: iterations, number of elements, batch size in MB and kernel
+ * (saxpy or blackscholes).
+ * </p>
+ */
+public class Benchmark extends BenchmarkRunner {
+
+    private int size;
+    private int batchSize;
+    private String kernel;
+
+    @Override
+    public void parseArgs(String[] args) {
+        iterations = 101;
+        size = 67108864;
+        batchSize = 32;
+        kernel = "saxpy";
+        if (args.length >= 2) {
+            iterations = Integer.parseInt(args[0]);
+            size = Integer.parseInt(args[1]);
+        }
+        if (args.length >= 3) {
+            batchSize = Integer.parseInt(args[2]);
+        }
+        if (args.length >= 4) {
+            kernel = args[3];
+        }
+    }
+
+    @Override
+    protected String getName() {
+        return "batchpipeline";
+    }
+
+    @Override
+    protected String getIdString() {
+        return String.format("%s-%s-%d-%d-%dMB", getName(), kernel, iterations, size, batchSize);
+    }
+
+    @Override
+    protected String getConfigString() {
+        return String.format("num elements=%d, batch=%dMB, kernel=%s", size, batchSize, kernel);
+    }
+
+    @Override
+    protected BenchmarkDriver getJavaDriver() {
+        return new BatchPipelineJava(iterations, size, kernel);
+    }
+
+    @Override
+    protected BenchmarkDriver getTornadoDriver() {
+        return new BatchPipelineTornado(iterations, size, batchSize, kernel, 2);
+    }
+
+    @Override
+    protected BenchmarkDriver getDeviceReferenceDriver() {
+        return new BatchPipelineTornado(iterations, size, batchSize, kernel, 1);
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.vmoverhead;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+
+/**
+ * Measures the cost of {@code TaskSchedule::execute} for tiny kernels, where
+ * the time is dominated by the TornadoVM interpreter and the driver calls
+ * rather than by the kernels. Run with {@code -Dtornado.virtual.device=True}
+ * to measure only the interpreter, since the virtual device skips the
+ * transfers and launches.
+ */
+public class JMHTornadoVMOverhead {
+
+    public static void empty(int[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i];
+        }
+    }
+
+    public static void add(float[] a, float[] b, float[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BenchmarkSetup {
+
+        private int numElements = Integer.parseInt(System.getProperty("x", "16"));
+
+        private int[] data;
+        private float[] a;
+        private float[] b;
+        private float[] c;
+        private float[] d;
+
+        private TaskSchedule emptySchedule;
+        private TaskSchedule streamSchedule;
+        private TaskSchedule chainSchedule;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            data = new int[numElements];
+            a = new float[numElements];
+            b = new float[numElements];
+            c = new float[numElements];
+            d = new float[numElements];
+
+            emptySchedule = new TaskSchedule("overhead0") //
+                    .task("t0", JMHTornadoVMOverhead::empty, data);
+            emptySchedule.warmup();
+
+            streamSchedule = new TaskSchedule("overhead1") //
+                    .streamIn(a, b) //
+                    .task("t0", JMHTornadoVMOverhead::add, a, b, c) //
+                    .streamOut(c);
+            streamSchedule.warmup();
+
+            chainSchedule = new TaskSchedule("overhead2") //
+                    .streamIn(a, b) //
+                    .task("t0", JMHTornadoVMOverhead::add, a, b, c) //
+                    .task("t1", JMHTornadoVMOverhead::add, c, b, d) //
+                    .task("t2", JMHTornadoVMOverhead::add, d, a, c) //
+                    .streamOut(c);
+            chainSchedule.warmup();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 30, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 30, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Fork(1)
+    public void executeEmptyKernel(BenchmarkSetup state, Blackhole blackhole) {
+        state.emptySchedule.execute();
+        blackhole.consume(state.data);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 30, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 30, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Fork(1)
+    public void executeStreamInOut(BenchmarkSetup state, Blackhole blackhole) {
+        state.streamSchedule.execute();
+        blackhole.consume(state.c);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 30, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 30, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Fork(1)
+    public void executeThreeTasks(BenchmarkSetup state, Blackhole blackhole) {
+        state.chainSchedule.execute();
+        blackhole.consume(state.c);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder() //
+                .include(JMHTornadoVMOverhead.class.getName() + ".*") //
+                .mode(Mode.AverageTime) //
+                .timeUnit(TimeUnit.NANOSECONDS) //
+                .warmupTime(TimeValue.seconds(30)) //
+                .warmupIterations(2) //
+                .measurementTime(TimeValue.seconds(30)) //
+                .measurementIterations(5) //
+                .forks(1) //
+                .build();
+        new Runner(opt).run();
+    }
+}
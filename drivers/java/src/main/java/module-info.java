@@ -0,0 +1,17 @@
+module tornado.drivers.java {
+    requires transitive jdk.internal.vm.ci;
+    requires transitive jdk.internal.vm.compiler;
+    requires transitive tornado.api;
+    requires transitive tornado.runtime;
+    requires tornado.drivers.common;
+    requires org.objectweb.asm;
+
+    exports uk.ac.manchester.tornado.drivers.java;
+    exports uk.ac.manchester.tornado.drivers.java.compiler;
+    exports uk.ac.manchester.tornado.drivers.java.graal;
+    exports uk.ac.manchester.tornado.drivers.java.mm;
+    exports uk.ac.manchester.tornado.drivers.java.runtime;
+
+    provides uk.ac.manchester.tornado.runtime.TornadoDriverProvider with
+            uk.ac.manchester.tornado.drivers.java.JavaTornadoDriverProvider;
+}
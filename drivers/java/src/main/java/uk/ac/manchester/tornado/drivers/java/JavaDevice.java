@@ -0,0 +1,122 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java;
+
+import java.util.concurrent.ForkJoinPool;
+
+import uk.ac.manchester.tornado.api.TornadoTargetDevice;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+
+/**
+ * The host CPU seen as a TornadoVM device. Kernels run on a dedicated
+ * {@link ForkJoinPool} with {@code tornado.java.threads} workers (by default,
+ * one per available processor).
+ */
+public class JavaDevice implements TornadoTargetDevice {
+
+    private static final int NUM_THREADS = Integer.parseInt(Tornado.getProperty("tornado.java.threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+    private final int deviceIndex;
+    private final int numThreads;
+    private ForkJoinPool pool;
+
+    public JavaDevice(int deviceIndex) {
+        this.deviceIndex = deviceIndex;
+        this.numThreads = Math.max(1, NUM_THREADS);
+    }
+
+    public int getDeviceIndex() {
+        return deviceIndex;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * The pool is created on the first launch, so applications that never use
+     * this device do not start its threads.
+     */
+    public synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(numThreads);
+        }
+        return pool;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return String.format("Java fork/join (%d threads)", numThreads);
+    }
+
+    @Override
+    public long getDeviceGlobalMemorySize() {
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    @Override
+    public long getDeviceLocalMemorySize() {
+        return 0;
+    }
+
+    @Override
+    public int getDeviceMaxComputeUnits() {
+        return numThreads;
+    }
+
+    @Override
+    public long[] getDeviceMaxWorkItemSizes() {
+        return new long[] { numThreads, 1, 1 };
+    }
+
+    @Override
+    public long[] getDeviceMaxWorkGroupSize() {
+        return new long[] { numThreads };
+    }
+
+    @Override
+    public int getDeviceMaxClockFrequency() {
+        return 0;
+    }
+
+    @Override
+    public long getDeviceMaxConstantBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public long getDeviceMaxAllocationSize() {
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    @Override
+    public Object getDeviceInfo() {
+        return String.format("%s %s (%s)", System.getProperty("java.vm.name"), System.getProperty("java.version"), System.getProperty("os.arch"));
+    }
+
+    @Override
+    public String toString() {
+        return getDeviceName();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import uk.ac.manchester.tornado.api.TornadoDeviceContext;
+import uk.ac.manchester.tornado.api.common.Event;
+import uk.ac.manchester.tornado.api.common.SchedulableTask;
+import uk.ac.manchester.tornado.drivers.java.mm.JavaMemoryManager;
+import uk.ac.manchester.tornado.drivers.java.runtime.JavaInstalledCode;
+import uk.ac.manchester.tornado.drivers.java.runtime.JavaTornadoDevice;
+import uk.ac.manchester.tornado.runtime.EmptyEvent;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+
+public class JavaDeviceContext extends TornadoLogger implements TornadoDeviceContext {
+
+    private static final int MAX_EVENTS = 1024;
+
+    private final JavaDevice device;
+    private final JavaMemoryManager memoryManager;
+    private final ConcurrentHashMap<String, JavaInstalledCode> codeCache;
+    private final Event[] events;
+    private int eventIndex;
+    private boolean wasReset;
+
+    public JavaDeviceContext(JavaDevice device) {
+        this.device = device;
+        this.memoryManager = new JavaMemoryManager();
+        this.codeCache = new ConcurrentHashMap<>();
+        this.events = new Event[MAX_EVENTS];
+    }
+
+    public JavaDevice getDevice() {
+        return device;
+    }
+
+    @Override
+    public JavaMemoryManager getMemoryManager() {
+        return memoryManager;
+    }
+
+    @Override
+    public boolean needsBump() {
+        return false;
+    }
+
+    @Override
+    public boolean wasReset() {
+        return wasReset;
+    }
+
+    @Override
+    public void setResetToFalse() {
+        wasReset = false;
+    }
+
+    @Override
+    public boolean isPlatformFPGA() {
+        return false;
+    }
+
+    @Override
+    public boolean useRelativeAddresses() {
+        return false;
+    }
+
+    @Override
+    public boolean isCached(String methodName, SchedulableTask task) {
+        return codeCache.containsKey(buildKernelName(methodName, task));
+    }
+
+    public JavaInstalledCode getInstalledCode(String methodName, SchedulableTask task) {
+        return codeCache.get(buildKernelName(methodName, task));
+    }
+
+    public void installCode(String methodName, SchedulableTask task, JavaInstalledCode code) {
+        codeCache.put(buildKernelName(methodName, task), code);
+    }
+
+    private static String buildKernelName(String methodName, SchedulableTask task) {
+        return task.getId() + "-" + methodName;
+    }
+
+    @Override
+    public int getDeviceIndex() {
+        return device.getDeviceIndex();
+    }
+
+    @Override
+    public int getDevicePlatform() {
+        return 0;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return device.getDeviceName();
+    }
+
+    @Override
+    public int getDriverIndex() {
+        return TornadoCoreRuntime.getTornadoRuntime().getDriverIndex(JavaDriver.class);
+    }
+
+    public JavaTornadoDevice asMapping() {
+        return new JavaTornadoDevice(device.getDeviceIndex());
+    }
+
+    /**
+     * Registers the event of a finished kernel and returns its identifier. The
+     * identifiers are recycled after {@link #MAX_EVENTS} events.
+     */
+    public synchronized int registerEvent(Event event) {
+        final int id = eventIndex;
+        events[id] = event;
+        eventIndex = (eventIndex + 1) % MAX_EVENTS;
+        return id;
+    }
+
+    public synchronized Event resolveEvent(int event) {
+        if (event < 0 || event >= MAX_EVENTS || events[event] == null) {
+            return new EmptyEvent();
+        }
+        return events[event];
+    }
+
+    public synchronized void flushEvents() {
+        for (int i = 0; i < MAX_EVENTS; i++) {
+            events[i] = null;
+        }
+        eventIndex = 0;
+    }
+
+    public synchronized void dumpEvents() {
+        for (Event event : events) {
+            if (event != null) {
+                info(event.toString());
+            }
+        }
+    }
+
+    public void reset() {
+        codeCache.clear();
+        flushEvents();
+        wasReset = true;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java;
+
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.util.Providers;
+import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.drivers.java.graal.JavaBackend;
+import uk.ac.manchester.tornado.drivers.java.graal.JavaHotSpotBackendFactory;
+import uk.ac.manchester.tornado.runtime.TornadoAcceleratorDriver;
+import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSuitesProvider;
+
+/**
+ * Driver that runs tasks on the host CPU as Java code. It exposes a single
+ * device whose kernels are executed by a fork/join pool, so TornadoVM programs
+ * run in parallel on machines without OpenCL or CUDA.
+ */
+public class JavaDriver extends TornadoLogger implements TornadoAcceleratorDriver {
+
+    private final JavaBackend backend;
+
+    public JavaDriver(final OptionValues options, final HotSpotJVMCIRuntime vmRuntime) {
+        final JavaDevice device = new JavaDevice(0);
+        info("Creating backend for %s", device.getDeviceName());
+        backend = JavaHotSpotBackendFactory.createBackend(options, vmRuntime, new JavaDeviceContext(device));
+    }
+
+    @Override
+    public Providers getProviders() {
+        return backend.getProviders();
+    }
+
+    @Override
+    public TornadoSuitesProvider getSuitesProvider() {
+        return backend.getTornadoSuites();
+    }
+
+    @Override
+    public JavaBackend getDefaultBackend() {
+        return backend;
+    }
+
+    public JavaBackend getBackend(int device) {
+        if (device != 0) {
+            throw new TornadoRuntimeException("[ERROR]-[JAVA-DRIVER] Device required not found: " + device + " - Max: 1");
+        }
+        return backend;
+    }
+
+    @Override
+    public TornadoAcceleratorDevice getDefaultDevice() {
+        return backend.getDeviceContext().asMapping();
+    }
+
+    @Override
+    public void setDefaultDevice(int index) {
+        getBackend(index);
+    }
+
+    @Override
+    public int getDeviceCount() {
+        return 1;
+    }
+
+    @Override
+    public TornadoAcceleratorDevice getDevice(int index) {
+        return getBackend(index).getDeviceContext().asMapping();
+    }
+
+    @Override
+    public TornadoDeviceType getTypeDefaultDevice() {
+        return TornadoDeviceType.CPU;
+    }
+
+    @Override
+    public String getName() {
+        return "Java";
+    }
+
+    @Override
+    public int getNumPlatforms() {
+        return 1;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java;
+
+import uk.ac.manchester.tornado.api.common.Event;
+import uk.ac.manchester.tornado.api.enums.TornadoExecutionStatus;
+import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
+
+/**
+ * Event of a kernel executed by the Java driver. Kernels run synchronously in
+ * the launch, so events are created once the work has finished and are always
+ * complete.
+ */
+public class JavaEvent implements Event {
+
+    private final String name;
+    private final long queuedTime;
+    private final long startTime;
+    private final long endTime;
+
+    public JavaEvent(String name, long queuedTime, long startTime, long endTime) {
+        this.name = name;
+        this.queuedTime = queuedTime;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public void waitForEvents() {
+    }
+
+    @Override
+    public void waitOn() {
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getQueuedTime() {
+        return queuedTime;
+    }
+
+    @Override
+    public long getSubmitTime() {
+        return queuedTime;
+    }
+
+    @Override
+    public long getStartTime() {
+        return startTime;
+    }
+
+    @Override
+    public long getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public long getExecutionTime() {
+        return endTime - startTime;
+    }
+
+    @Override
+    public long getDriverDispatchTime() {
+        return startTime - queuedTime;
+    }
+
+    @Override
+    public double getExecutionTimeInSeconds() {
+        return RuntimeUtilities.elapsedTimeInSeconds(startTime, endTime);
+    }
+
+    @Override
+    public TornadoExecutionStatus getStatus() {
+        return TornadoExecutionStatus.COMPLETE;
+    }
+
+    @Override
+    public double getTotalTimeInSeconds() {
+        return RuntimeUtilities.elapsedTimeInSeconds(queuedTime, endTime);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[JAVA] event: name=%s, status=%s, execution=%d ns", name, getStatus(), getExecutionTime());
+    }
+}
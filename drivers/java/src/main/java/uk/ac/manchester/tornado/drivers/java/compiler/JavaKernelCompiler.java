@@ -0,0 +1,824 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.compiler;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
+
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+
+/**
+ * Builds the kernels of the Java driver. A kernel is a copy of the bytecode of
+ * the task method in which the outermost {@link Parallel} loop runs over chunks
+ * of its iteration space:
+ *
+ * <pre>
+ * public static int run(&lt;receiver&gt;, &lt;parameters&gt;, AtomicInteger counter, int chunkSize)
+ * </pre>
+ *
+ * Each worker of the fork/join pool calls {@code run} once. The code before the
+ * loop runs once per worker; the loop then takes chunk after chunk from the
+ * shared counter and executes the iterations of each chunk, until the original
+ * loop condition fails. {@code run} returns the index of the chunk in which the
+ * loop finished.
+ *
+ * <p>
+ * Methods are only transformed when the rewrite is known to be safe: the loop
+ * is the last statement of the method, its index is only updated by a constant
+ * positive increment, the code before the loop has no side effects other than
+ * the initialisation of reduction variables, and everything the method uses is
+ * accessible from another package. Other methods return {@code null} and run
+ * sequentially.
+ * </p>
+ */
+public final class JavaKernelCompiler {
+
+    private static final String KERNEL_PACKAGE = "uk/ac/manchester/tornado/drivers/java/kernels/";
+    private static final String PARALLEL_DESCRIPTOR = Type.getDescriptor(Parallel.class);
+    private static final String COUNTER_NAME = Type.getInternalName(AtomicInteger.class);
+    private static final String COUNTER_DESCRIPTOR = Type.getDescriptor(AtomicInteger.class);
+    private static final long MAX_INDEX = Integer.MAX_VALUE;
+
+    private static final AtomicInteger kernelIds = new AtomicInteger();
+
+    private JavaKernelCompiler() {
+    }
+
+    /**
+     * Returns the {@code run} method of the kernel of {@code method}, or null if
+     * the method has to run sequentially.
+     *
+     * @param method
+     *            the task method
+     * @param hasReductions
+     *            whether the method has {@code @Reduce} parameters, whose
+     *            initialisation before the loop is repeated by every worker on
+     *            its own partial result
+     */
+    public static Method compile(Method method, boolean hasReductions) {
+        final Class<?> declaringClass = method.getDeclaringClass();
+        try {
+            final byte[] classFile = readClassFile(declaringClass);
+            if (classFile == null) {
+                debug("java kernel: class file of %s not found", declaringClass.getName());
+                return null;
+            }
+            final ClassReader reader = new ClassReader(classFile);
+            final LoopAnalysis analysis = new LoopAnalysis(method, hasReductions);
+            reader.accept(analysis, ClassReader.SKIP_FRAMES);
+            if (analysis.reason != null) {
+                debug("java kernel: %s runs sequentially: %s", method, analysis.reason);
+                return null;
+            }
+
+            final String kernelName = KERNEL_PACKAGE + declaringClass.getSimpleName() + "$" + method.getName() + "$" + kernelIds.incrementAndGet();
+            final byte[] kernelClass = generate(reader, analysis, kernelName);
+            final Class<?> kernel = new KernelClassLoader(declaringClass.getClassLoader()).define(kernelName.replace('/', '.'), kernelClass);
+            return kernel.getMethod("run", getKernelParameterTypes(method));
+        } catch (IOException | ReflectiveOperationException | LinkageError | RuntimeException e) {
+            debug("java kernel: unable to build the kernel of %s: %s", method, e);
+            return null;
+        }
+    }
+
+    private static byte[] readClassFile(Class<?> klass) throws IOException {
+        final String name = klass.getName();
+        final String resource = name.substring(name.lastIndexOf('.') + 1) + ".class";
+        try (InputStream stream = klass.getResourceAsStream(resource)) {
+            if (stream == null) {
+                return null;
+            }
+            final ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                classFile.write(buffer, 0, read);
+            }
+            return classFile.toByteArray();
+        }
+    }
+
+    private static Class<?>[] getKernelParameterTypes(Method method) {
+        final List<Class<?>> types = new ArrayList<>();
+        if (!Modifier.isStatic(method.getModifiers())) {
+            types.add(method.getDeclaringClass());
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            types.add(type);
+        }
+        types.add(AtomicInteger.class);
+        types.add(int.class);
+        return types.toArray(new Class<?>[0]);
+    }
+
+    private static String getKernelDescriptor(Method method) {
+        final StringBuilder sb = new StringBuilder("(");
+        if (!Modifier.isStatic(method.getModifiers())) {
+            sb.append(Type.getDescriptor(method.getDeclaringClass()));
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            sb.append(Type.getDescriptor(type));
+        }
+        return sb.append(COUNTER_DESCRIPTOR).append("I)I").toString();
+    }
+
+    /**
+     * An instruction of the task method, as seen by the {@link LoopAnalysis}.
+     * Labels are recorded with the opcode {@link #LABEL}.
+     */
+    private static final class Instruction {
+
+        private static final int LABEL = -1;
+
+        private final int opcode;
+        private final int var;
+        private final int increment;
+        private final Label label;
+        private final String owner;
+        private final String name;
+        private final String descriptor;
+
+        Instruction(int opcode, int var, int increment, Label label, String owner, String name, String descriptor) {
+            this.opcode = opcode;
+            this.var = var;
+            this.increment = increment;
+            this.label = label;
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        static Instruction of(int opcode) {
+            return new Instruction(opcode, -1, 0, null, null, null, null);
+        }
+
+        boolean isLabel() {
+            return opcode == LABEL;
+        }
+
+        boolean isArrayStore() {
+            return opcode >= Opcodes.IASTORE && opcode <= Opcodes.SASTORE;
+        }
+
+        boolean isInvoke() {
+            return opcode >= Opcodes.INVOKEVIRTUAL && opcode <= Opcodes.INVOKEDYNAMIC;
+        }
+    }
+
+    /**
+     * Finds the outermost parallel loop of the task method and checks that the
+     * method can be turned into a kernel. {@link #reason} holds the cause when
+     * it cannot.
+     */
+    private static final class LoopAnalysis extends ClassVisitor {
+
+        private final Method method;
+        private final String descriptor;
+        private final boolean hasReductions;
+        private final ClassLoader loader;
+
+        private final List<Instruction> instructions = new ArrayList<>();
+        private final List<Label[]> loops = new ArrayList<>();
+        private final List<Integer> loopIndexes = new ArrayList<>();
+
+        private String reason;
+        private int classVersion;
+        private int maxLocals;
+
+        // Results of the analysis, the labels are identified by the order in
+        // which they are visited
+        private int startLabel;
+        private int endLabel;
+        private int indexVar;
+        private int increment;
+
+        LoopAnalysis(Method method, boolean hasReductions) {
+            super(Opcodes.ASM7);
+            this.method = method;
+            this.descriptor = Type.getMethodDescriptor(method);
+            this.hasReductions = hasReductions;
+            this.loader = method.getDeclaringClass().getClassLoader();
+            this.reason = "method not found in the class file";
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            classVersion = version;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String methodDescriptor, String signature, String[] exceptions) {
+            if (!name.equals(method.getName()) || !methodDescriptor.equals(descriptor)) {
+                return null;
+            }
+            reason = null;
+            return new MethodVisitor(api) {
+
+                @Override
+                public void visitInsn(int opcode) {
+                    instructions.add(Instruction.of(opcode));
+                }
+
+                @Override
+                public void visitIntInsn(int opcode, int operand) {
+                    instructions.add(Instruction.of(opcode));
+                }
+
+                @Override
+                public void visitVarInsn(int opcode, int var) {
+                    instructions.add(new Instruction(opcode, var, 0, null, null, null, null));
+                }
+
+                @Override
+                public void visitTypeInsn(int opcode, String type) {
+                    instructions.add(new Instruction(opcode, -1, 0, null, type, null, null));
+                }
+
+                @Override
+                public void visitFieldInsn(int opcode, String owner, String fieldName, String fieldDescriptor) {
+                    instructions.add(new Instruction(opcode, -1, 0, null, owner, fieldName, fieldDescriptor));
+                }
+
+                @Override
+                public void visitMethodInsn(int opcode, String owner, String methodName, String invokeDescriptor, boolean isInterface) {
+                    instructions.add(new Instruction(opcode, -1, 0, null, owner, methodName, invokeDescriptor));
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(String methodName, String invokeDescriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+                    reject("invokedynamic");
+                }
+
+                @Override
+                public void visitJumpInsn(int opcode, Label label) {
+                    instructions.add(Instruction.of(opcode));
+                }
+
+                @Override
+                public void visitLabel(Label label) {
+                    instructions.add(new Instruction(Instruction.LABEL, -1, 0, label, null, null, null));
+                }
+
+                @Override
+                public void visitLdcInsn(Object value) {
+                    if (value instanceof ConstantDynamic || value instanceof Handle) {
+                        reject("dynamic constant");
+                    } else if (value instanceof Type && ((Type) value).getSort() != Type.METHOD) {
+                        instructions.add(new Instruction(Opcodes.LDC, -1, 0, null, ((Type) value).getInternalName(), null, null));
+                    } else {
+                        instructions.add(Instruction.of(Opcodes.LDC));
+                    }
+                }
+
+                @Override
+                public void visitIincInsn(int var, int incr) {
+                    instructions.add(new Instruction(Opcodes.IINC, var, incr, null, null, null, null));
+                }
+
+                @Override
+                public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+                    instructions.add(Instruction.of(Opcodes.TABLESWITCH));
+                }
+
+                @Override
+                public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+                    instructions.add(Instruction.of(Opcodes.LOOKUPSWITCH));
+                }
+
+                @Override
+                public void visitMultiANewArrayInsn(String arrayDescriptor, int numDimensions) {
+                    instructions.add(new Instruction(Opcodes.MULTIANEWARRAY, -1, 0, null, arrayDescriptor, null, null));
+                }
+
+                @Override
+                public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end, int[] index, String annotationDescriptor, boolean visible) {
+                    if (PARALLEL_DESCRIPTOR.equals(annotationDescriptor) && start.length > 0) {
+                        loops.add(new Label[] { start[0], end[0] });
+                        loopIndexes.add(index[0]);
+                    }
+                    return null;
+                }
+
+                @Override
+                public void visitMaxs(int maxStack, int locals) {
+                    maxLocals = locals;
+                }
+
+                @Override
+                public void visitEnd() {
+                    if (reason == null) {
+                        analyse();
+                    }
+                }
+            };
+        }
+
+        private void reject(String cause) {
+            if (reason == null) {
+                reason = cause;
+            }
+        }
+
+        private int indexOf(Label label) {
+            for (int i = 0; i < instructions.size(); i++) {
+                if (instructions.get(i).label == label) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int labelOrdinal(int position) {
+            int ordinal = 0;
+            for (int i = 0; i < position; i++) {
+                if (instructions.get(i).isLabel()) {
+                    ordinal++;
+                }
+            }
+            return ordinal;
+        }
+
+        private void analyse() {
+            if (Modifier.isSynchronized(method.getModifiers()) || method.getReturnType() != void.class) {
+                reject("only non-synchronized void methods are supported");
+                return;
+            }
+            if (loops.isEmpty()) {
+                reject("no parallel loop");
+                return;
+            }
+
+            // The outermost loop must contain all the other parallel loops
+            int outer = 0;
+            int[] starts = new int[loops.size()];
+            int[] ends = new int[loops.size()];
+            for (int i = 0; i < loops.size(); i++) {
+                starts[i] = indexOf(loops.get(i)[0]);
+                ends[i] = indexOf(loops.get(i)[1]);
+                if (starts[i] < 0 || ends[i] < 0) {
+                    reject("parallel loop without code range");
+                    return;
+                }
+                if (starts[i] < starts[outer]) {
+                    outer = i;
+                }
+            }
+            for (int i = 0; i < loops.size(); i++) {
+                if (starts[i] < starts[outer] || ends[i] > ends[outer]) {
+                    reject("parallel loops are not nested");
+                    return;
+                }
+            }
+
+            final int start = starts[outer];
+            final int end = ends[outer];
+            indexVar = loopIndexes.get(outer);
+
+            // The loop index is stored right before the loop
+            final Instruction init = previousInstruction(start);
+            if (init == null || init.opcode != Opcodes.ISTORE || init.var != indexVar) {
+                reject("unexpected initialisation of the loop index");
+                return;
+            }
+
+            // The loop is the last statement of the method
+            final Instruction last = nextInstruction(end);
+            if (last == null || last.opcode != Opcodes.RETURN) {
+                reject("the parallel loop is not the last statement");
+                return;
+            }
+
+            int numIncrements = 0;
+            for (int i = start; i < end; i++) {
+                final Instruction insn = instructions.get(i);
+                if (insn.opcode == Opcodes.IINC && insn.var == indexVar) {
+                    numIncrements++;
+                    increment = insn.increment;
+                } else if (insn.opcode == Opcodes.ISTORE && insn.var == indexVar) {
+                    reject("the loop index is assigned in the loop");
+                    return;
+                }
+            }
+            if (numIncrements != 1 || increment <= 0) {
+                reject("the loop index is not incremented by a positive constant");
+                return;
+            }
+
+            for (int i = 0; i < start; i++) {
+                if (hasSideEffects(instructions.get(i))) {
+                    reject("the code before the loop has side effects");
+                    return;
+                }
+            }
+
+            for (Instruction insn : instructions) {
+                if (!isAccessible(insn)) {
+                    reject("access to " + insn.owner + (insn.name != null ? "." + insn.name : "") + " from another package");
+                    return;
+                }
+            }
+
+            startLabel = labelOrdinal(start);
+            endLabel = labelOrdinal(end);
+        }
+
+        private Instruction previousInstruction(int position) {
+            for (int i = position - 1; i >= 0; i--) {
+                if (!instructions.get(i).isLabel()) {
+                    return instructions.get(i);
+                }
+            }
+            return null;
+        }
+
+        private Instruction nextInstruction(int position) {
+            for (int i = position + 1; i < instructions.size(); i++) {
+                if (!instructions.get(i).isLabel()) {
+                    return instructions.get(i);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The code before the loop runs once per worker, so it may only compute
+         * values and initialise reduction variables.
+         */
+        private boolean hasSideEffects(Instruction insn) {
+            switch (insn.opcode) {
+                case Opcodes.PUTFIELD:
+                case Opcodes.PUTSTATIC:
+                case Opcodes.MONITORENTER:
+                case Opcodes.MONITOREXIT:
+                    return true;
+                case Opcodes.INVOKESTATIC:
+                    return !"java/lang/Math".equals(insn.owner) && !"java/lang/StrictMath".equals(insn.owner);
+                default:
+                    if (insn.isInvoke()) {
+                        return true;
+                    }
+                    return insn.isArrayStore() && !hasReductions;
+            }
+        }
+
+        private boolean isAccessible(Instruction insn) {
+            if (insn.owner == null) {
+                return true;
+            }
+            final Type ownerType = insn.owner.startsWith("[") ? Type.getType(insn.owner) : Type.getObjectType(insn.owner);
+            final Type elementType = (ownerType.getSort() == Type.ARRAY) ? ownerType.getElementType() : ownerType;
+            if (elementType.getSort() != Type.OBJECT) {
+                // Arrays of primitives
+                return true;
+            }
+            try {
+                final Class<?> owner = Class.forName(elementType.getClassName(), false, loader);
+                if (!Modifier.isPublic(owner.getModifiers()) || !owner.getModule().isExported(owner.getPackageName())) {
+                    return false;
+                }
+                if (insn.name == null || ownerType.getSort() == Type.ARRAY) {
+                    return true;
+                }
+                if (insn.opcode >= Opcodes.GETSTATIC && insn.opcode <= Opcodes.PUTFIELD) {
+                    return Modifier.isPublic(owner.getField(insn.name).getModifiers());
+                } else if ("<init>".equals(insn.name)) {
+                    return hasPublicConstructor(owner, insn.descriptor);
+                } else {
+                    return hasPublicMethod(owner, insn.name, insn.descriptor);
+                }
+            } catch (ClassNotFoundException | NoSuchFieldException | LinkageError e) {
+                return false;
+            }
+        }
+
+        private boolean hasPublicConstructor(Class<?> owner, String constructorDescriptor) {
+            for (Constructor<?> constructor : owner.getConstructors()) {
+                if (Type.getConstructorDescriptor(constructor).equals(constructorDescriptor)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean hasPublicMethod(Class<?> owner, String name, String methodDescriptor) {
+            for (Method candidate : owner.getMethods()) {
+                if (candidate.getName().equals(name) && Type.getMethodDescriptor(candidate).equals(methodDescriptor)) {
+                    return true;
+                }
+            }
+            // Public methods of Object called on interfaces
+            return owner.isInterface() && hasPublicMethod(Object.class, name, methodDescriptor);
+        }
+    }
+
+    private static byte[] generate(ClassReader reader, LoopAnalysis analysis, String kernelName) {
+        final Method method = analysis.method;
+        final ClassWriter writer = new KernelClassWriter(analysis.loader);
+        writer.visit(analysis.classVersion, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, kernelName, null, "java/lang/Object", null);
+        final MethodVisitor run = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", getKernelDescriptor(method), null, null);
+        reader.accept(new ClassVisitor(Opcodes.ASM7) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (name.equals(method.getName()) && descriptor.equals(analysis.descriptor)) {
+                    return new KernelMethodAdapter(run, analysis);
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_FRAMES);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Rewrites the task method into the {@code run} method of the kernel. The
+     * counter and the chunk size are inserted after the parameters of the task
+     * method, so the other locals are shifted by two slots.
+     */
+    private static final class KernelMethodAdapter extends MethodVisitor {
+
+        private final LoopAnalysis analysis;
+        private final int numParameterSlots;
+        private final int counterVar;
+        private final int chunkSizeVar;
+        private final int chunkVar;
+        private final int limitVar;
+        private final int initVar;
+        private final int tmpVar;
+        private final int indexVar;
+        private final Label nextChunk;
+        private final Label stop;
+
+        private int labels;
+        private boolean inLoop;
+
+        KernelMethodAdapter(MethodVisitor methodVisitor, LoopAnalysis analysis) {
+            super(Opcodes.ASM7, methodVisitor);
+            this.analysis = analysis;
+            int slots = Modifier.isStatic(analysis.method.getModifiers()) ? 0 : 1;
+            for (Type type : Type.getArgumentTypes(analysis.descriptor)) {
+                slots += type.getSize();
+            }
+            this.numParameterSlots = slots;
+            this.counterVar = slots;
+            this.chunkSizeVar = slots + 1;
+            this.chunkVar = analysis.maxLocals + 2;
+            this.limitVar = analysis.maxLocals + 3;
+            this.initVar = analysis.maxLocals + 4;
+            this.tmpVar = analysis.maxLocals + 5;
+            this.indexVar = remap(analysis.indexVar);
+            this.nextChunk = new Label();
+            this.stop = new Label();
+        }
+
+        private int remap(int var) {
+            return (var < numParameterSlots) ? var : var + 2;
+        }
+
+        @Override
+        public void visitCode() {
+            super.visitCode();
+            super.visitInsn(Opcodes.ICONST_0);
+            super.visitVarInsn(Opcodes.ISTORE, chunkVar);
+            super.visitInsn(Opcodes.ICONST_0);
+            super.visitVarInsn(Opcodes.ISTORE, limitVar);
+            super.visitInsn(Opcodes.ICONST_0);
+            super.visitVarInsn(Opcodes.ISTORE, initVar);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            if (labels == analysis.startLabel) {
+                emitNextChunk();
+                inLoop = true;
+            } else if (labels == analysis.endLabel) {
+                inLoop = false;
+            }
+            labels++;
+            super.visitLabel(label);
+        }
+
+        /**
+         * Takes the next chunk and sets the loop index to its first iteration:
+         *
+         * <pre>
+         * chunk = counter.getAndIncrement();
+         * i = init + chunk * chunkSize * increment;
+         * limit = min(i + chunkSize * increment, Integer.MAX_VALUE);
+         * </pre>
+         *
+         * The computation is done in longs, and the kernel returns when the first
+         * iteration of the chunk does not fit in an int.
+         */
+        private void emitNextChunk() {
+            super.visitVarInsn(Opcodes.ILOAD, indexVar);
+            super.visitVarInsn(Opcodes.ISTORE, initVar);
+            super.visitLabel(nextChunk);
+            super.visitVarInsn(Opcodes.ALOAD, counterVar);
+            super.visitMethodInsn(Opcodes.INVOKEVIRTUAL, COUNTER_NAME, "getAndIncrement", "()I", false);
+            super.visitVarInsn(Opcodes.ISTORE, chunkVar);
+
+            super.visitVarInsn(Opcodes.ILOAD, chunkVar);
+            super.visitInsn(Opcodes.I2L);
+            super.visitVarInsn(Opcodes.ILOAD, chunkSizeVar);
+            super.visitInsn(Opcodes.I2L);
+            super.visitInsn(Opcodes.LMUL);
+            super.visitVarInsn(Opcodes.LSTORE, tmpVar);
+            emitStopIfOutOfRange();
+
+            super.visitVarInsn(Opcodes.LLOAD, tmpVar);
+            super.visitLdcInsn((long) analysis.increment);
+            super.visitInsn(Opcodes.LMUL);
+            super.visitVarInsn(Opcodes.ILOAD, initVar);
+            super.visitInsn(Opcodes.I2L);
+            super.visitInsn(Opcodes.LADD);
+            super.visitVarInsn(Opcodes.LSTORE, tmpVar);
+            emitStopIfOutOfRange();
+
+            super.visitVarInsn(Opcodes.LLOAD, tmpVar);
+            super.visitInsn(Opcodes.L2I);
+            super.visitVarInsn(Opcodes.ISTORE, indexVar);
+
+            super.visitVarInsn(Opcodes.LLOAD, tmpVar);
+            super.visitVarInsn(Opcodes.ILOAD, chunkSizeVar);
+            super.visitInsn(Opcodes.I2L);
+            super.visitLdcInsn((long) analysis.increment);
+            super.visitInsn(Opcodes.LMUL);
+            super.visitInsn(Opcodes.LADD);
+            super.visitLdcInsn(MAX_INDEX);
+            super.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "min", "(JJ)J", false);
+            super.visitInsn(Opcodes.L2I);
+            super.visitVarInsn(Opcodes.ISTORE, limitVar);
+        }
+
+        private void emitStopIfOutOfRange() {
+            super.visitVarInsn(Opcodes.LLOAD, tmpVar);
+            super.visitLdcInsn(MAX_INDEX);
+            super.visitInsn(Opcodes.LCMP);
+            super.visitJumpInsn(Opcodes.IFGT, stop);
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            super.visitIincInsn(remap(var), increment);
+            if (inLoop && var == analysis.indexVar) {
+                // End of the chunk
+                super.visitVarInsn(Opcodes.ILOAD, indexVar);
+                super.visitVarInsn(Opcodes.ILOAD, limitVar);
+                super.visitJumpInsn(Opcodes.IF_ICMPGE, nextChunk);
+            }
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            super.visitVarInsn(opcode, remap(var));
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            if (opcode == Opcodes.RETURN) {
+                super.visitVarInsn(Opcodes.ILOAD, chunkVar);
+                super.visitInsn(Opcodes.IRETURN);
+            } else {
+                super.visitInsn(opcode);
+            }
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            super.visitLabel(stop);
+            super.visitVarInsn(Opcodes.ILOAD, chunkVar);
+            super.visitInsn(Opcodes.IRETURN);
+            super.visitMaxs(0, 0);
+        }
+
+        // The debug information and annotations of the task method are dropped
+
+        @Override
+        public void visitParameter(String name, int access) {
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotationDefault() {
+            return null;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return null;
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return null;
+        }
+
+        @Override
+        public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+            return null;
+        }
+
+        @Override
+        public void visitAttribute(Attribute attribute) {
+        }
+
+        @Override
+        public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return null;
+        }
+
+        @Override
+        public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+            return null;
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+        }
+
+        @Override
+        public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end, int[] index, String descriptor, boolean visible) {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the stack map frames of the kernel with the classes visible from
+     * the task.
+     */
+    private static final class KernelClassWriter extends ClassWriter {
+
+        private final ClassLoader loader;
+
+        KernelClassWriter(ClassLoader loader) {
+            super(ClassWriter.COMPUTE_FRAMES);
+            this.loader = loader;
+        }
+
+        @Override
+        protected ClassLoader getClassLoader() {
+            return (loader != null) ? loader : ClassLoader.getSystemClassLoader();
+        }
+    }
+
+    /**
+     * Each kernel is defined by its own loader, a child of the loader of the
+     * task, so kernels are unloaded together with their code.
+     */
+    private static final class KernelClassLoader extends ClassLoader {
+
+        KernelClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.graal;
+
+import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.unimplemented;
+
+import org.graalvm.compiler.code.CompilationResult;
+import org.graalvm.compiler.core.common.alloc.RegisterAllocationConfig;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.tiers.SuitesProvider;
+import org.graalvm.compiler.phases.util.Providers;
+
+import jdk.vm.ci.code.CompilationRequest;
+import jdk.vm.ci.code.CompiledCode;
+import jdk.vm.ci.code.RegisterConfig;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.drivers.java.JavaDeviceContext;
+import uk.ac.manchester.tornado.runtime.graal.backend.TornadoBackend;
+
+/**
+ * Backend of the Java driver. Tasks are sketched with the providers of the host
+ * JVM, but no machine code is generated: kernels run as Java bytecode (see
+ * {@link uk.ac.manchester.tornado.drivers.java.compiler.JavaKernelCompiler}),
+ * so the code generation entry points of Graal are not supported.
+ */
+public class JavaBackend extends TornadoBackend<Providers> {
+
+    private final JavaDeviceContext deviceContext;
+    private final JavaSuitesProvider suites;
+
+    public JavaBackend(Providers providers, JavaSuitesProvider suites, JavaDeviceContext deviceContext) {
+        super(providers);
+        this.suites = suites;
+        this.deviceContext = deviceContext;
+    }
+
+    public JavaDeviceContext getDeviceContext() {
+        return deviceContext;
+    }
+
+    public JavaSuitesProvider getTornadoSuites() {
+        return suites;
+    }
+
+    @Override
+    public String decodeDeopt(long value) {
+        return "";
+    }
+
+    @Override
+    public SuitesProvider getSuites() {
+        throw unimplemented("Graal suites in the Java backend");
+    }
+
+    @Override
+    public RegisterAllocationConfig newRegisterAllocationConfig(RegisterConfig registerConfig, String[] allocationRestrictedTo) {
+        throw unimplemented("code generation in the Java backend");
+    }
+
+    @Override
+    protected CompiledCode createCompiledCode(ResolvedJavaMethod method, CompilationRequest compilationRequest, CompilationResult compilationResult, boolean isDefault, OptionValues options) {
+        throw unimplemented("code generation in the Java backend");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Backend: arch=%s, device=%s", getTarget().arch.getName(), deviceContext.getDeviceName());
+    }
+}
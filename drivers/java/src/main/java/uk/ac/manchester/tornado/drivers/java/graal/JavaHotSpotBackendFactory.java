@@ -0,0 +1,105 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.graal;
+
+import static jdk.vm.ci.common.InitTimer.timer;
+
+import org.graalvm.compiler.core.common.spi.MetaAccessExtensionProvider;
+import org.graalvm.compiler.hotspot.meta.HotSpotStampProvider;
+import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration;
+import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins;
+import org.graalvm.compiler.nodes.spi.Replacements;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.util.Providers;
+import org.graalvm.compiler.printer.GraalDebugHandlersFactory;
+import org.graalvm.compiler.replacements.StandardGraphBuilderPlugins;
+import org.graalvm.compiler.replacements.classfile.ClassfileBytecodeProvider;
+import org.graalvm.compiler.word.WordTypes;
+
+import jdk.vm.ci.code.CodeCacheProvider;
+import jdk.vm.ci.common.InitTimer;
+import jdk.vm.ci.hotspot.HotSpotConstantReflectionProvider;
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.hotspot.HotSpotMetaAccessProvider;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.runtime.JVMCIBackend;
+import uk.ac.manchester.tornado.drivers.graal.TornadoMetaAccessExtensionProvider;
+import uk.ac.manchester.tornado.drivers.graal.TornadoPlatformConfigurationProvider;
+import uk.ac.manchester.tornado.drivers.graal.TornadoWordTypes;
+import uk.ac.manchester.tornado.drivers.java.JavaDeviceContext;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoConstantFieldProvider;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoForeignCallsProvider;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoReplacements;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSnippetReflectionProvider;
+
+/**
+ * Creates the backend of the Java driver from the host JVMCI backend. There is
+ * no lowering provider, since the graphs of the Java driver stop at the sketch.
+ */
+public class JavaHotSpotBackendFactory {
+
+    private static final HotSpotStampProvider stampProvider = new HotSpotStampProvider();
+    private static final TornadoSnippetReflectionProvider snippetReflection = new TornadoSnippetReflectionProvider();
+    private static final TornadoForeignCallsProvider foreignCalls = new TornadoForeignCallsProvider();
+    private static final TornadoConstantFieldProvider constantFieldProvider = new TornadoConstantFieldProvider();
+
+    public static JavaBackend createBackend(OptionValues options, HotSpotJVMCIRuntime jvmciRuntime, JavaDeviceContext deviceContext) {
+        JVMCIBackend jvmci = jvmciRuntime.getHostJVMCIBackend();
+        HotSpotMetaAccessProvider metaAccess = (HotSpotMetaAccessProvider) jvmci.getMetaAccess();
+        HotSpotConstantReflectionProvider constantReflection = (HotSpotConstantReflectionProvider) jvmci.getConstantReflection();
+        CodeCacheProvider codeCache = jvmci.getCodeCache();
+
+        Providers providers;
+        JavaSuitesProvider suites;
+
+        try (InitTimer t = timer("create providers")) {
+            TornadoPlatformConfigurationProvider platformConfigurationProvider = new TornadoPlatformConfigurationProvider();
+            MetaAccessExtensionProvider metaAccessExtensionProvider = new TornadoMetaAccessExtensionProvider();
+            WordTypes wordTypes = new TornadoWordTypes(metaAccess, JavaKind.Long);
+            Providers p = new Providers(metaAccess, codeCache, constantReflection, constantFieldProvider, foreignCalls, null, null, stampProvider, platformConfigurationProvider, metaAccessExtensionProvider,
+                    snippetReflection, wordTypes);
+            ClassfileBytecodeProvider bytecodeProvider = new ClassfileBytecodeProvider(metaAccess, snippetReflection);
+            GraalDebugHandlersFactory graalDebugHandlersFactory = new GraalDebugHandlersFactory(snippetReflection);
+            TornadoReplacements replacements = new TornadoReplacements(graalDebugHandlersFactory, p, snippetReflection, bytecodeProvider, codeCache.getTarget());
+            GraphBuilderConfiguration.Plugins plugins = createGraphBuilderPlugins(metaAccess, replacements);
+
+            replacements.setGraphBuilderPlugins(plugins);
+
+            suites = new JavaSuitesProvider(options, plugins);
+            providers = new Providers(metaAccess, codeCache, constantReflection, constantFieldProvider, foreignCalls, null, replacements, stampProvider, platformConfigurationProvider,
+                    metaAccessExtensionProvider, snippetReflection, wordTypes);
+        }
+        try (InitTimer rt = timer("instantiate backend")) {
+            return new JavaBackend(providers, suites, deviceContext);
+        }
+    }
+
+    protected static GraphBuilderConfiguration.Plugins createGraphBuilderPlugins(HotSpotMetaAccessProvider metaAccess, Replacements replacements) {
+        InvocationPlugins invocationPlugins = new InvocationPlugins();
+        GraphBuilderConfiguration.Plugins plugins = new GraphBuilderConfiguration.Plugins(invocationPlugins);
+
+        StandardGraphBuilderPlugins.registerInvocationPlugins(metaAccess, snippetReflection, invocationPlugins, replacements, false, false, false);
+        return plugins;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.graal;
+
+import org.graalvm.compiler.java.GraphBuilderPhase;
+import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration;
+import org.graalvm.compiler.options.OptionValues;
+import org.graalvm.compiler.phases.PhaseSuite;
+import org.graalvm.compiler.phases.tiers.HighTierContext;
+
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSketchTier;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSuitesProvider;
+
+/**
+ * The Java driver only needs the sketch of each task (for the data-flow
+ * analysis and the reductions), since kernels run as Java bytecode.
+ */
+public class JavaSuitesProvider implements TornadoSuitesProvider {
+
+    private final PhaseSuite<HighTierContext> graphBuilderSuite;
+    private final TornadoSketchTier sketchTier;
+
+    public JavaSuitesProvider(OptionValues options, GraphBuilderConfiguration.Plugins plugins) {
+        graphBuilderSuite = createGraphBuilderSuite(plugins);
+        sketchTier = new TornadoSketchTier(options, null);
+    }
+
+    private PhaseSuite<HighTierContext> createGraphBuilderSuite(GraphBuilderConfiguration.Plugins plugins) {
+        PhaseSuite<HighTierContext> suite = new PhaseSuite<>();
+
+        GraphBuilderConfiguration config = GraphBuilderConfiguration.getSnippetDefault(plugins);
+        config.withEagerResolving(true);
+
+        suite.appendPhase(new GraphBuilderPhase(config));
+
+        return suite;
+    }
+
+    @Override
+    public PhaseSuite<HighTierContext> getGraphBuilderSuite() {
+        return graphBuilderSuite;
+    }
+
+    @Override
+    public TornadoSketchTier getSketchTier() {
+        return sketchTier;
+    }
+}
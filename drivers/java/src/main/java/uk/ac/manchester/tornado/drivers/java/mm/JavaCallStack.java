@@ -0,0 +1,108 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.mm;
+
+import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.guarantee;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import uk.ac.manchester.tornado.runtime.common.CallStack;
+import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
+
+/**
+ * Arguments of a kernel launched by the Java driver. Objects are passed by
+ * reference, since the kernel runs on the Java heap.
+ */
+public class JavaCallStack implements CallStack {
+
+    private final Object[] arguments;
+    private int numPushed;
+    private boolean onDevice;
+
+    public JavaCallStack(int numArgs) {
+        this.arguments = new Object[numArgs];
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(arguments, null);
+        numPushed = 0;
+        onDevice = false;
+    }
+
+    @Override
+    public long getDeoptValue() {
+        return 0;
+    }
+
+    @Override
+    public long getReturnValue() {
+        return 0;
+    }
+
+    @Override
+    public int getArgCount() {
+        return arguments.length;
+    }
+
+    @Override
+    public void push(Object arg) {
+        guarantee(numPushed < arguments.length, "call stack overflow: %d arguments", arguments.length);
+        arguments[numPushed++] = arg;
+    }
+
+    @Override
+    public void push(Object arg, DeviceObjectState state) {
+        push(arg);
+    }
+
+    /**
+     * The arguments do not change between launches, so they are only pushed in
+     * the first one.
+     */
+    @Override
+    public boolean isOnDevice() {
+        return onDevice;
+    }
+
+    public void setOnDevice() {
+        onDevice = true;
+    }
+
+    public Object[] getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public void dump() {
+        for (int i = 0; i < numPushed; i++) {
+            System.out.printf("[%d]: %s\n", i, arguments[i]);
+        }
+    }
+
+    @Override
+    public void setHeader(HashMap<Integer, Integer> map) {
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.mm;
+
+import uk.ac.manchester.tornado.api.mm.TornadoMemoryProvider;
+
+/**
+ * The Java driver has no device heap of its own: kernels work on the Java heap,
+ * so the sizes reported are the ones of the JVM.
+ */
+public class JavaMemoryManager implements TornadoMemoryProvider {
+
+    @Override
+    public long getCallStackSize() {
+        return 0;
+    }
+
+    @Override
+    public long getCallStackAllocated() {
+        return 0;
+    }
+
+    @Override
+    public long getCallStackRemaining() {
+        return 0;
+    }
+
+    @Override
+    public long getHeapSize() {
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    @Override
+    public long getHeapRemaining() {
+        return getHeapSize() - getHeapAllocated();
+    }
+
+    @Override
+    public long getHeapAllocated() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Override
+    public long getHeapLargestFreeBlock() {
+        return getHeapRemaining();
+    }
+
+    @Override
+    public int getHeapFreeBlocks() {
+        return 1;
+    }
+
+    @Override
+    public double getHeapFragmentation() {
+        return 0;
+    }
+
+    @Override
+    public boolean isInitialised() {
+        return true;
+    }
+
+    public JavaCallStack createCallStack(int numArgs) {
+        return new JavaCallStack(numArgs);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.mm;
+
+import java.lang.reflect.Array;
+import java.util.List;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+
+/**
+ * Buffer of an object used by the Java driver. Kernels work on the host object
+ * itself, so there is nothing to allocate and every transfer is a no-op.
+ */
+public class JavaObjectBuffer implements ObjectBuffer {
+
+    private long size;
+    private int[] intBuffer;
+
+    @Override
+    public long toBuffer() {
+        return 0;
+    }
+
+    @Override
+    public long getBufferOffset() {
+        return 0;
+    }
+
+    @Override
+    public long toAbsoluteAddress() {
+        return 0;
+    }
+
+    @Override
+    public long toRelativeAddress() {
+        return 0;
+    }
+
+    @Override
+    public void read(Object reference) {
+    }
+
+    @Override
+    public int read(Object reference, long hostOffset, int[] events, boolean useDeps) {
+        return -1;
+    }
+
+    @Override
+    public void write(Object reference) {
+    }
+
+    @Override
+    public int enqueueRead(Object reference, long hostOffset, int[] events, boolean useDeps) {
+        return -1;
+    }
+
+    @Override
+    public List<Integer> enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps) {
+        return null;
+    }
+
+    @Override
+    public void allocate(Object reference, long batchSize) {
+        size = sizeOf(reference);
+    }
+
+    private static long sizeOf(Object reference) {
+        final Class<?> type = reference.getClass();
+        if (type.isArray() && type.getComponentType().isPrimitive()) {
+            return (long) Array.getLength(reference) * JavaKind.fromJavaClass(type.getComponentType()).getByteCount();
+        }
+        return 0;
+    }
+
+    @Override
+    public void deallocate() {
+        size = 0;
+    }
+
+    @Override
+    public int getAlignment() {
+        return 8;
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void printHeapTrace() {
+        System.out.printf("0x%x\tJava heap, size=%d\n", hashCode(), size);
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int[] getIntBuffer() {
+        return intBuffer;
+    }
+
+    @Override
+    public void setIntBuffer(int[] arr) {
+        this.intBuffer = arr;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.runtime;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+import uk.ac.manchester.tornado.api.profiler.ProfilerType;
+import uk.ac.manchester.tornado.drivers.java.JavaDevice;
+import uk.ac.manchester.tornado.drivers.java.JavaDeviceContext;
+import uk.ac.manchester.tornado.drivers.java.JavaEvent;
+import uk.ac.manchester.tornado.drivers.java.mm.JavaCallStack;
+import uk.ac.manchester.tornado.runtime.analyzer.ReduceCodeAnalysis.REDUCE_OPERATION;
+import uk.ac.manchester.tornado.runtime.common.CallStack;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * A task installed on the Java driver. When the task has a kernel (see
+ * {@link uk.ac.manchester.tornado.drivers.java.compiler.JavaKernelCompiler}),
+ * every worker of the pool runs it and the iterations of the parallel loop are
+ * distributed in chunks. Otherwise the task method runs sequentially.
+ *
+ * <p>
+ * Unless {@code tornado.java.chunk.size} is set, the chunk size adapts to the
+ * iteration space measured in the previous launch, so that each worker takes
+ * about {@link #CHUNKS_PER_WORKER} chunks. Reduction variables get a partial
+ * result per worker, combined into the original array after the launch.
+ * </p>
+ */
+public class JavaInstalledCode implements TornadoInstalledCode {
+
+    private static final int CHUNK_SIZE = Integer.parseInt(Tornado.getProperty("tornado.java.chunk.size", "0"));
+    private static final int INITIAL_CHUNK_SIZE = 128;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final String name;
+    private final JavaDeviceContext deviceContext;
+    private final Method method;
+    private final Method kernel;
+    private final int[] reduceIndexes;
+    private final REDUCE_OPERATION[] reduceOperations;
+    private volatile int chunkSize;
+
+    /**
+     * @param method
+     *            the task method
+     * @param kernel
+     *            the kernel of the task, or null to run the method sequentially
+     * @param reduceIndexes
+     *            indexes in the call stack of the reduction variables
+     * @param reduceOperations
+     *            operation of each reduction variable
+     */
+    public JavaInstalledCode(String name, JavaDeviceContext deviceContext, Method method, Method kernel, int[] reduceIndexes, REDUCE_OPERATION[] reduceOperations) {
+        this.name = name;
+        this.deviceContext = deviceContext;
+        this.method = method;
+        this.kernel = kernel;
+        this.reduceIndexes = reduceIndexes;
+        this.reduceOperations = reduceOperations;
+        this.chunkSize = (CHUNK_SIZE > 0) ? CHUNK_SIZE : INITIAL_CHUNK_SIZE;
+        try {
+            this.method.setAccessible(true);
+        } catch (RuntimeException e) {
+            // Public methods of exported packages are invoked anyway
+        }
+    }
+
+    public boolean isParallel() {
+        return kernel != null;
+    }
+
+    @Override
+    public int launchWithDependencies(CallStack stack, ObjectBuffer atomicSpace, TaskMetaData meta, long batchThreads, int[] waitEvents) {
+        // All the events of the Java driver are complete when they are created
+        return launchWithoutDependencies(stack, atomicSpace, meta, batchThreads);
+    }
+
+    @Override
+    public int launchWithoutDependencies(CallStack stack, ObjectBuffer atomicSpace, TaskMetaData meta, long batchThreads) {
+        final JavaCallStack javaStack = (JavaCallStack) stack;
+        final Object[] arguments = javaStack.getArguments();
+
+        final long startTime = System.nanoTime();
+        if (kernel != null) {
+            runParallel(arguments);
+        } else {
+            runSequential(arguments);
+        }
+        final long endTime = System.nanoTime();
+        javaStack.setOnDevice();
+
+        final int event = deviceContext.registerEvent(new JavaEvent(name, startTime, startTime, endTime));
+        updateProfiler(endTime - startTime, meta);
+        return event;
+    }
+
+    private void runSequential(Object[] arguments) {
+        try {
+            if (Modifier.isStatic(method.getModifiers())) {
+                method.invoke(null, arguments);
+            } else {
+                method.invoke(arguments[0], Arrays.copyOfRange(arguments, 1, arguments.length));
+            }
+        } catch (InvocationTargetException e) {
+            throw wrap(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new TornadoRuntimeException(e);
+        }
+    }
+
+    private void runParallel(Object[] arguments) {
+        final JavaDevice device = deviceContext.getDevice();
+        final int numWorkers = device.getNumThreads();
+        final int chunk = chunkSize;
+        final AtomicInteger counter = new AtomicInteger();
+
+        final Object[][] workerArguments = new Object[numWorkers][];
+        for (int worker = 0; worker < numWorkers; worker++) {
+            workerArguments[worker] = Arrays.copyOf(arguments, arguments.length + 2);
+            workerArguments[worker][arguments.length] = counter;
+            workerArguments[worker][arguments.length + 1] = chunk;
+            // The first worker accumulates into the reduction variables
+            for (int i = 0; worker > 0 && i < reduceIndexes.length; i++) {
+                workerArguments[worker][reduceIndexes[i]] = createPartialResult(arguments[reduceIndexes[i]], reduceOperations[i]);
+            }
+        }
+
+        final List<ForkJoinTask<Object>> workers = new ArrayList<>(numWorkers);
+        for (Object[] args : workerArguments) {
+            workers.add(device.getPool().submit(() -> kernel.invoke(null, args)));
+        }
+
+        int lastChunk = Integer.MAX_VALUE;
+        Throwable failure = null;
+        for (ForkJoinTask<Object> worker : workers) {
+            try {
+                lastChunk = Math.min(lastChunk, (Integer) worker.get());
+            } catch (ExecutionException e) {
+                failure = (e.getCause() instanceof InvocationTargetException) ? e.getCause().getCause() : e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw wrap(failure);
+        }
+
+        for (int worker = 1; worker < numWorkers; worker++) {
+            for (int i = 0; i < reduceIndexes.length; i++) {
+                combine(arguments[reduceIndexes[i]], workerArguments[worker][reduceIndexes[i]], reduceOperations[i]);
+            }
+        }
+
+        if (CHUNK_SIZE <= 0) {
+            // The loop finished in the chunk lastChunk, so it has about
+            // (lastChunk + 1) * chunk iterations
+            final long iterations = (lastChunk + 1L) * chunk;
+            chunkSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, iterations / ((long) numWorkers * CHUNKS_PER_WORKER)));
+        }
+    }
+
+    private static RuntimeException wrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new TornadoRuntimeException((Exception) cause);
+    }
+
+    /**
+     * Returns true if the reductions of the given type can be split into partial
+     * results.
+     */
+    public static boolean isSupportedReduction(Class<?> type) {
+        return type == int[].class || type == long[].class || type == float[].class || type == double[].class;
+    }
+
+    private static Object createPartialResult(Object array, REDUCE_OPERATION operation) {
+        switch (operation) {
+            case MIN:
+            case MAX:
+                return copyOf(array);
+            case MUL:
+                return filledWith(array, 1);
+            default:
+                return filledWith(array, 0);
+        }
+    }
+
+    private static Object copyOf(Object array) {
+        if (array instanceof int[]) {
+            return ((int[]) array).clone();
+        } else if (array instanceof long[]) {
+            return ((long[]) array).clone();
+        } else if (array instanceof float[]) {
+            return ((float[]) array).clone();
+        } else {
+            return ((double[]) array).clone();
+        }
+    }
+
+    private static Object filledWith(Object array, int value) {
+        if (array instanceof int[]) {
+            int[] result = new int[((int[]) array).length];
+            Arrays.fill(result, value);
+            return result;
+        } else if (array instanceof long[]) {
+            long[] result = new long[((long[]) array).length];
+            Arrays.fill(result, value);
+            return result;
+        } else if (array instanceof float[]) {
+            float[] result = new float[((float[]) array).length];
+            Arrays.fill(result, value);
+            return result;
+        } else {
+            double[] result = new double[((double[]) array).length];
+            Arrays.fill(result, value);
+            return result;
+        }
+    }
+
+    private static void combine(Object result, Object partial, REDUCE_OPERATION operation) {
+        if (result instanceof int[]) {
+            final int[] a = (int[]) result;
+            final int[] b = (int[]) partial;
+            for (int i = 0; i < a.length; i++) {
+                switch (operation) {
+                    case ADD:
+                        a[i] += b[i];
+                        break;
+                    case MUL:
+                        a[i] *= b[i];
+                        break;
+                    case MIN:
+                        a[i] = Math.min(a[i], b[i]);
+                        break;
+                    default:
+                        a[i] = Math.max(a[i], b[i]);
+                }
+            }
+        } else if (result instanceof long[]) {
+            final long[] a = (long[]) result;
+            final long[] b = (long[]) partial;
+            for (int i = 0; i < a.length; i++) {
+                switch (operation) {
+                    case ADD:
+                        a[i] += b[i];
+                        break;
+                    case MUL:
+                        a[i] *= b[i];
+                        break;
+                    case MIN:
+                        a[i] = Math.min(a[i], b[i]);
+                        break;
+                    default:
+                        a[i] = Math.max(a[i], b[i]);
+                }
+            }
+        } else if (result instanceof float[]) {
+            final float[] a = (float[]) result;
+            final float[] b = (float[]) partial;
+            for (int i = 0; i < a.length; i++) {
+                switch (operation) {
+                    case ADD:
+                        a[i] += b[i];
+                        break;
+                    case MUL:
+                        a[i] *= b[i];
+                        break;
+                    case MIN:
+                        a[i] = Math.min(a[i], b[i]);
+                        break;
+                    default:
+                        a[i] = Math.max(a[i], b[i]);
+                }
+            }
+        } else {
+            final double[] a = (double[]) result;
+            final double[] b = (double[]) partial;
+            for (int i = 0; i < a.length; i++) {
+                switch (operation) {
+                    case ADD:
+                        a[i] += b[i];
+                        break;
+                    case MUL:
+                        a[i] *= b[i];
+                        break;
+                    case MIN:
+                        a[i] = Math.min(a[i], b[i]);
+                        break;
+                    default:
+                        a[i] = Math.max(a[i], b[i]);
+                }
+            }
+        }
+    }
+
+    private static void updateProfiler(long executionTime, TaskMetaData meta) {
+        if (TornadoOptions.isProfilerEnabled()) {
+            long timer = meta.getProfiler().getTimer(ProfilerType.TOTAL_KERNEL_TIME);
+            // Register globalTime
+            meta.getProfiler().setTimer(ProfilerType.TOTAL_KERNEL_TIME, timer + executionTime);
+            // Register the time for the task
+            meta.getProfiler().setTaskTimer(ProfilerType.TASK_KERNEL_TIME, meta.getId(), executionTime);
+        }
+    }
+}
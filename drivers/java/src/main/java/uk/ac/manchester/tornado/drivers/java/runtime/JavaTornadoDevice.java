@@ -0,0 +1,480 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.java.runtime;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.graalvm.compiler.graph.Graph;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.TornadoTargetDevice;
+import uk.ac.manchester.tornado.api.TornadoVMContext;
+import uk.ac.manchester.tornado.api.annotations.Reduce;
+import uk.ac.manchester.tornado.api.common.Access;
+import uk.ac.manchester.tornado.api.common.Event;
+import uk.ac.manchester.tornado.api.common.SchedulableTask;
+import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
+import uk.ac.manchester.tornado.api.enums.TornadoVMBackend;
+import uk.ac.manchester.tornado.api.exceptions.TornadoBailoutRuntimeException;
+import uk.ac.manchester.tornado.api.exceptions.TornadoInternalError;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+import uk.ac.manchester.tornado.api.mm.TornadoDeviceObjectState;
+import uk.ac.manchester.tornado.api.mm.TornadoMemoryProvider;
+import uk.ac.manchester.tornado.api.profiler.ProfilerType;
+import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
+import uk.ac.manchester.tornado.drivers.java.JavaDevice;
+import uk.ac.manchester.tornado.drivers.java.JavaDeviceContext;
+import uk.ac.manchester.tornado.drivers.java.JavaDriver;
+import uk.ac.manchester.tornado.drivers.java.compiler.JavaKernelCompiler;
+import uk.ac.manchester.tornado.drivers.java.graal.JavaBackend;
+import uk.ac.manchester.tornado.drivers.java.mm.JavaObjectBuffer;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.analyzer.ReduceCodeAnalysis;
+import uk.ac.manchester.tornado.runtime.analyzer.ReduceCodeAnalysis.REDUCE_OPERATION;
+import uk.ac.manchester.tornado.runtime.common.CallStack;
+import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
+import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
+import uk.ac.manchester.tornado.runtime.tasks.CompilableTask;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * The host CPU as a TornadoVM device. Kernels run on the Java heap, so objects
+ * are never copied: buffers only keep the state of the objects, and the
+ * transfers are no-ops.
+ */
+public class JavaTornadoDevice implements TornadoAcceleratorDevice {
+
+    private static JavaDriver driver = null;
+    private final int deviceIndex;
+
+    public static JavaDriver findDriver() {
+        if (driver == null) {
+            driver = TornadoCoreRuntime.getTornadoRuntime().getDriver(JavaDriver.class);
+            TornadoInternalError.guarantee(driver != null, "unable to find Java driver");
+        }
+        return driver;
+    }
+
+    public JavaTornadoDevice(final int deviceIndex) {
+        this.deviceIndex = deviceIndex;
+    }
+
+    @Override
+    public TornadoSchedulingStrategy getPreferredSchedule() {
+        return TornadoSchedulingStrategy.PER_BLOCK;
+    }
+
+    @Override
+    public CallStack createStack(int numArgs) {
+        return getDeviceContext().getMemoryManager().createCallStack(numArgs);
+    }
+
+    @Override
+    public ObjectBuffer createBuffer(int[] arr) {
+        throw new TornadoRuntimeException("[JAVA] Atomics not implemented !");
+    }
+
+    @Override
+    public ObjectBuffer createOrReuseBuffer(int[] arr) {
+        return null;
+    }
+
+    @Override
+    public int[] checkAtomicsForTask(SchedulableTask task) {
+        return null;
+    }
+
+    @Override
+    public int[] checkAtomicsForTask(SchedulableTask task, int[] array, int paramIndex, Object value) {
+        return null;
+    }
+
+    @Override
+    public int[] updateAtomicRegionAndObjectState(SchedulableTask task, int[] array, int paramIndex, Object value, DeviceObjectState objectState) {
+        return null;
+    }
+
+    @Override
+    public int getAtomicsGlobalIndexForTask(SchedulableTask task, int paramIndex) {
+        return -1;
+    }
+
+    @Override
+    public boolean checkAtomicsParametersForTask(SchedulableTask task) {
+        return false;
+    }
+
+    @Override
+    public TornadoInstalledCode installCode(SchedulableTask task) {
+        if (!(task instanceof CompilableTask)) {
+            throw new TornadoBailoutRuntimeException("[JAVA] Prebuilt tasks are not supported by the Java driver");
+        }
+        final JavaDeviceContext deviceContext = getDeviceContext();
+        final CompilableTask executable = (CompilableTask) task;
+        final Method method = executable.getMethod();
+        final ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(method);
+        final Sketch sketch = TornadoSketcher.lookup(resolvedMethod, task.meta().getDriverIndex(), task.meta().getDeviceIndex());
+
+        // copy meta data into task
+        final TaskMetaData sketchMeta = sketch.getMeta();
+        final TaskMetaData taskMeta = executable.meta();
+        final Access[] sketchAccess = sketchMeta.getArgumentsAccess();
+        final Access[] taskAccess = taskMeta.getArgumentsAccess();
+        System.arraycopy(sketchAccess, 0, taskAccess, 0, sketchAccess.length);
+
+        if (deviceContext.isCached(method.getName(), executable)) {
+            return deviceContext.getInstalledCode(method.getName(), executable);
+        }
+
+        for (Class<?> type : method.getParameterTypes()) {
+            if (type == TornadoVMContext.class) {
+                throw new TornadoBailoutRuntimeException("[JAVA] Tasks with a TornadoVMContext are not supported by the Java driver");
+            }
+        }
+
+        TornadoProfiler profiler = task.getProfiler();
+        profiler.registerDeviceID(ProfilerType.DEVICE_ID, taskMeta.getId(), taskMeta.getLogicDevice().getDriverIndex() + ":" + taskMeta.getDeviceIndex());
+        profiler.registerDeviceName(ProfilerType.DEVICE, taskMeta.getId(), taskMeta.getLogicDevice().getPhysicalDevice().getDeviceName());
+        profiler.start(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+
+        final int[] reduceIndexes = getReduceIndexes(method);
+        final REDUCE_OPERATION[] reduceOperations = getReduceOperations(method, sketch, reduceIndexes);
+        Method kernel = null;
+        if (reduceOperations != null && hasParallelLoop(sketch)) {
+            kernel = JavaKernelCompiler.compile(method, reduceIndexes.length > 0);
+        }
+        final JavaInstalledCode installedCode = new JavaInstalledCode(task.getId(), deviceContext, method, kernel, reduceIndexes,
+                (reduceOperations != null) ? reduceOperations : new REDUCE_OPERATION[0]);
+        deviceContext.installCode(method.getName(), executable, installedCode);
+
+        profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+        profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
+        return installedCode;
+    }
+
+    /**
+     * The kernels are built from the bytecode of the task method rather than from
+     * the sketch: there is no path back from the Graal graph to bytecode that
+     * HotSpot can load, and the bytecode is the code that HotSpot optimises
+     * best. The sketch still decides whether there is a loop to split, since the
+     * sketcher has already recognised the parallel loops of the task.
+     */
+    private static boolean hasParallelLoop(Sketch sketch) {
+        final Graph graph = sketch.getGraph().getReadonlyCopy();
+        return graph.getNodes().filter(ParallelRangeNode.class).isNotEmpty();
+    }
+
+    /**
+     * Returns the indexes in the call stack of the {@link Reduce} parameters. The
+     * receiver of non-static methods is the first element of the stack.
+     */
+    private static int[] getReduceIndexes(Method method) {
+        final int offset = Modifier.isStatic(method.getModifiers()) ? 0 : 1;
+        final List<Integer> indexes = new ArrayList<>();
+        final Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof Reduce) {
+                    indexes.add(i + offset);
+                }
+            }
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the operation of each reduction, or null if the reductions cannot
+     * be split into partial results per worker.
+     */
+    private static REDUCE_OPERATION[] getReduceOperations(Method method, Sketch sketch, int[] reduceIndexes) {
+        if (reduceIndexes.length == 0) {
+            return new REDUCE_OPERATION[0];
+        }
+        final int offset = Modifier.isStatic(method.getModifiers()) ? 0 : 1;
+        final ArrayList<Integer> parameterIndexes = new ArrayList<>();
+        for (int index : reduceIndexes) {
+            if (!JavaInstalledCode.isSupportedReduction(method.getParameterTypes()[index - offset])) {
+                return null;
+            }
+            parameterIndexes.add(index - offset);
+        }
+        try {
+            final List<REDUCE_OPERATION> operations = ReduceCodeAnalysis.getReduceOperatorFromSketch(sketch.getGraph(), parameterIndexes);
+            return (operations.size() == reduceIndexes.length) ? operations.toArray(new REDUCE_OPERATION[0]) : null;
+        } catch (TornadoRuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isFullJITMode(SchedulableTask task) {
+        return false;
+    }
+
+    @Override
+    public TornadoInstalledCode getCodeFromCache(SchedulableTask task) {
+        return getDeviceContext().getInstalledCode(((CompilableTask) task).getMethod().getName(), task);
+    }
+
+    @Override
+    public int ensureAllocated(Object object, long batchSize, TornadoDeviceObjectState state) {
+        if (batchSize > 0) {
+            throw new TornadoBailoutRuntimeException("[JAVA] Batch processing is not supported by the Java driver");
+        }
+        if (!state.hasBuffer()) {
+            final ObjectBuffer buffer = new JavaObjectBuffer();
+            buffer.allocate(object, batchSize);
+            state.setBuffer(buffer);
+        }
+        state.setValid(true);
+        return -1;
+    }
+
+    @Override
+    public List<Integer> ensurePresent(Object object, TornadoDeviceObjectState objectState, int[] events, long batchSize, long hostOffset) {
+        if (!objectState.isValid()) {
+            ensureAllocated(object, batchSize, objectState);
+        }
+        objectState.setContents(true);
+        return null;
+    }
+
+    @Override
+    public List<Integer> streamIn(Object object, long batchSize, long hostOffset, TornadoDeviceObjectState objectState, int[] events) {
+        return ensurePresent(object, objectState, events, batchSize, hostOffset);
+    }
+
+    @Override
+    public int streamOut(Object object, long hostOffset, TornadoDeviceObjectState objectState, int[] events) {
+        TornadoInternalError.guarantee(objectState.isValid(), "invalid variable");
+        return -1;
+    }
+
+    @Override
+    public int streamOutBlocking(Object object, long hostOffset, TornadoDeviceObjectState objectState, int[] events) {
+        TornadoInternalError.guarantee(objectState.isValid(), "invalid variable");
+        return -1;
+    }
+
+    @Override
+    public Event resolveEvent(int event) {
+        return getDeviceContext().resolveEvent(event);
+    }
+
+    @Override
+    public void ensureLoaded() {
+        getDeviceContext().flushEvents();
+    }
+
+    @Override
+    public void flushEvents() {
+        getDeviceContext().flushEvents();
+    }
+
+    @Override
+    public int enqueueBarrier() {
+        return -1;
+    }
+
+    @Override
+    public int enqueueBarrier(int[] events) {
+        return -1;
+    }
+
+    @Override
+    public int enqueueMarker() {
+        return -1;
+    }
+
+    @Override
+    public int enqueueMarker(int[] events) {
+        return -1;
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void reset() {
+        getDeviceContext().reset();
+    }
+
+    @Override
+    public void dumpEvents() {
+        getDeviceContext().dumpEvents();
+    }
+
+    @Override
+    public void dumpMemory(String file) {
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof JavaTornadoDevice) {
+            final JavaTornadoDevice other = (JavaTornadoDevice) obj;
+            return (other.deviceIndex == deviceIndex);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 89 * hash + this.deviceIndex;
+        return hash;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "java-" + deviceIndex;
+    }
+
+    @Override
+    public String getDescription() {
+        return String.format("%s %s", getPhysicalDevice().getDeviceName(), getDeviceType());
+    }
+
+    @Override
+    public String getPlatformName() {
+        return "Java";
+    }
+
+    @Override
+    public JavaDeviceContext getDeviceContext() {
+        return getBackend().getDeviceContext();
+    }
+
+    public JavaBackend getBackend() {
+        return findDriver().getBackend(deviceIndex);
+    }
+
+    @Override
+    public JavaDevice getPhysicalDevice() {
+        return getDeviceContext().getDevice();
+    }
+
+    @Override
+    public TornadoMemoryProvider getMemoryProvider() {
+        return getDeviceContext().getMemoryManager();
+    }
+
+    @Override
+    public TornadoDeviceType getDeviceType() {
+        return TornadoDeviceType.CPU;
+    }
+
+    @Override
+    public long getMaxAllocMemory() {
+        return getPhysicalDevice().getDeviceMaxAllocationSize();
+    }
+
+    @Override
+    public long getMaxGlobalMemory() {
+        return getPhysicalDevice().getDeviceGlobalMemorySize();
+    }
+
+    @Override
+    public long getDeviceLocalMemorySize() {
+        return getPhysicalDevice().getDeviceLocalMemorySize();
+    }
+
+    @Override
+    public long[] getDeviceMaxWorkgroupDimensions() {
+        return getPhysicalDevice().getDeviceMaxWorkItemSizes();
+    }
+
+    @Override
+    public String getDeviceOpenCLCVersion() {
+        return "N/A";
+    }
+
+    @Override
+    public Object getDeviceInfo() {
+        return getPhysicalDevice().getDeviceInfo();
+    }
+
+    @Override
+    public int getDriverIndex() {
+        return TornadoCoreRuntime.getTornadoRuntime().getDriverIndex(JavaDriver.class);
+    }
+
+    @Override
+    public int getAvailableProcessors() {
+        return getPhysicalDevice().getNumThreads();
+    }
+
+    @Override
+    public Object getAtomic() {
+        return null;
+    }
+
+    @Override
+    public void setAtomicsMapping(ConcurrentHashMap<Object, Integer> mappingAtomics) {
+
+    }
+
+    @Override
+    public TornadoVMBackend getTornadoVMBackend() {
+        return TornadoVMBackend.JAVA;
+    }
+
+    @Override
+    public void enableThreadSharing() {
+    }
+
+    @Override
+    public void enableCopyQueues() {
+    }
+
+    @Override
+    public boolean hasCopyQueues() {
+        return false;
+    }
+
+    @Override
+    public void setAtomicRegion(ObjectBuffer bufferAtomics) {
+
+    }
+
+    @Override
+    public String toString() {
+        return getPlatformName() + " -- " + getPhysicalDevice().getDeviceName();
+    }
+}
@@ -422,3 +422,123 @@ JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQ
          jlong offset, jlong numBytes, jlong devicePtr, jlongArray javaArrayEvents) {
     return transfersFromDeviceToHost(env, clazz, commandQueue, reinterpret_cast<jbyteArray>(hostArray), hostOffset, blocking, offset, numBytes, devicePtr, javaArrayEvents);
 }
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    writeDirectBufferToDevice
+ * Signature: (JLjava/nio/ByteBuffer;JZJJJ[J)J
+ *
+ * The host memory of a direct buffer is never moved by the Java GC, so the
+ * copy does not need a critical region and is not waited for unless the caller
+ * asks for a blocking transfer.
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_writeDirectBufferToDevice
+        (JNIEnv *env, jclass klass, jlong commandQueue, jobject hostBuffer, jlong hostOffset, jboolean blocking,
+         jlong offset, jlong numBytes, jlong devicePtr, jlongArray javaArrayEvents) {
+    cl_bool blocking_write = blocking ? CL_TRUE : CL_FALSE;
+    jlong *arrayEvents = static_cast<jlong *>((javaArrayEvents != NULL) ? env->GetPrimitiveArrayCritical(javaArrayEvents, NULL) : NULL);
+    jlong *events = (javaArrayEvents != NULL) ? &arrayEvents[1] : NULL;
+    jsize numberOfEvents = (javaArrayEvents != NULL) ? arrayEvents[0] : 0;
+
+    jbyte *buffer = static_cast<jbyte *>(env->GetDirectBufferAddress(hostBuffer));
+    if (PRINT_DATA_SIZES) {
+        std::cout << "[TornadoVM JNI] writeDirectBufferToDevice from " << offset << " (" << numBytes << ") from buffer: " << buffer << std::endl;
+    }
+    cl_event event;
+    cl_int status = clEnqueueWriteBuffer((cl_command_queue) commandQueue, (cl_mem) devicePtr, blocking_write,
+                                         (size_t) offset, (size_t) numBytes, &buffer[hostOffset], (cl_uint) numberOfEvents,
+                                         (cl_event *) events, &event);
+    LOG_OCL_AND_VALIDATE("clEnqueueWriteBuffer", status);
+    if (PRINT_DATA_TIMES) {
+        long writeTime = getElapsedTimeEvent(event);
+        std::cout << "[TornadoVM-JNI] H2D time: " << writeTime << " (ns)" << std::endl;
+    }
+    if (javaArrayEvents != NULL) {
+        env->ReleasePrimitiveArrayCritical(javaArrayEvents, arrayEvents, JNI_ABORT);
+    }
+    return (jlong) event;
+}
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    readDirectBufferFromDevice
+ * Signature: (JLjava/nio/ByteBuffer;JZJJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_readDirectBufferFromDevice
+        (JNIEnv *env, jclass klass, jlong commandQueue, jobject hostBuffer, jlong hostOffset, jboolean blocking,
+         jlong offset, jlong numBytes, jlong devicePtr, jlongArray javaArrayEvents) {
+    cl_bool blocking_read = blocking ? CL_TRUE : CL_FALSE;
+    jlong *eventsArray = static_cast<jlong *>((javaArrayEvents != NULL) ? env->GetPrimitiveArrayCritical(javaArrayEvents, NULL) : NULL);
+    jlong *events = (javaArrayEvents != NULL) ? &eventsArray[1] : NULL;
+    jsize num_events = (javaArrayEvents != NULL) ? eventsArray[0] : 0;
+
+    jbyte *buffer = static_cast<jbyte *>(env->GetDirectBufferAddress(hostBuffer));
+    if (PRINT_DATA_SIZES) {
+        std::cout << "[TornadoVM JNI] readDirectBufferFromDevice from " << offset << " (" << numBytes << ") from buffer: " << buffer << std::endl;
+    }
+    cl_event readEvent;
+    cl_int status = clEnqueueReadBuffer((cl_command_queue) commandQueue, (cl_mem) devicePtr, blocking_read,
+                                        (size_t) offset, (size_t) numBytes, (void *) &buffer[hostOffset],
+                                        (cl_uint) num_events, (cl_event *) events, &readEvent);
+    LOG_OCL_AND_VALIDATE("clEnqueueReadBuffer", status);
+    if (PRINT_DATA_TIMES) {
+        long readTime = getElapsedTimeEvent(readEvent);
+        std::cout << "[TornadoVM-JNI] D2H time: " << readTime << " (ns)" << std::endl;
+    }
+    if (javaArrayEvents != NULL) {
+        env->ReleasePrimitiveArrayCritical(javaArrayEvents, eventsArray, JNI_ABORT);
+    }
+    return (jlong) readEvent;
+}
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    clEnqueueMapBuffer
+ * Signature: (JJZJJJ[J)J
+ *
+ * Returns the host address of the mapped region. Commands enqueued afterwards
+ * in the same queue are ordered after the map, so its event is released.
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueMapBuffer
+        (JNIEnv *env, jclass clazz, jlong commandQueue, jlong devicePtr, jboolean blocking, jlong mapFlags,
+         jlong offset, jlong numBytes, jlongArray javaArrayEvents) {
+    jlong *arrayEvents = static_cast<jlong *>((javaArrayEvents != NULL) ? env->GetPrimitiveArrayCritical(javaArrayEvents, NULL) : NULL);
+    jlong *events = (javaArrayEvents != NULL) ? &arrayEvents[1] : NULL;
+    jsize numberOfEvents = (javaArrayEvents != NULL) ? arrayEvents[0] : 0;
+
+    cl_event event;
+    cl_int status;
+    void *hostPtr = clEnqueueMapBuffer((cl_command_queue) commandQueue, (cl_mem) devicePtr, blocking ? CL_TRUE : CL_FALSE,
+                                       (cl_map_flags) mapFlags, (size_t) offset, (size_t) numBytes, (cl_uint) numberOfEvents,
+                                       (cl_event *) events, &event, &status);
+    LOG_OCL_AND_VALIDATE("clEnqueueMapBuffer", status);
+    if (javaArrayEvents != NULL) {
+        env->ReleasePrimitiveArrayCritical(javaArrayEvents, arrayEvents, JNI_ABORT);
+    }
+    if (status != CL_SUCCESS) {
+        return 0;
+    }
+    clReleaseEvent(event);
+    return (jlong) hostPtr;
+}
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    clEnqueueUnmapMemObject
+ * Signature: (JJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueUnmapMemObject
+        (JNIEnv *env, jclass clazz, jlong commandQueue, jlong devicePtr, jlong hostPtr, jlongArray javaArrayEvents) {
+    jlong *arrayEvents = static_cast<jlong *>((javaArrayEvents != NULL) ? env->GetPrimitiveArrayCritical(javaArrayEvents, NULL) : NULL);
+    jlong *events = (javaArrayEvents != NULL) ? &arrayEvents[1] : NULL;
+    jsize numberOfEvents = (javaArrayEvents != NULL) ? arrayEvents[0] : 0;
+
+    cl_event event;
+    cl_int status = clEnqueueUnmapMemObject((cl_command_queue) commandQueue, (cl_mem) devicePtr, (void *) hostPtr,
+                                            (cl_uint) numberOfEvents, (cl_event *) events, &event);
+    LOG_OCL_AND_VALIDATE("clEnqueueUnmapMemObject", status);
+    if (javaArrayEvents != NULL) {
+        env->ReleasePrimitiveArrayCritical(javaArrayEvents, arrayEvents, JNI_ABORT);
+    }
+    return (jlong) event;
+}
@@ -207,6 +207,38 @@ JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQ
 JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_readArrayFromDevice__J_3DJZJJJ_3J
         (JNIEnv *, jclass, jlong, jdoubleArray, jlong, jboolean, jlong, jlong, jlong, jlongArray);
 
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    writeDirectBufferToDevice
+ * Signature: (JLjava/nio/ByteBuffer;JZJJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_writeDirectBufferToDevice
+        (JNIEnv *, jclass, jlong, jobject, jlong, jboolean, jlong, jlong, jlong, jlongArray);
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    readDirectBufferFromDevice
+ * Signature: (JLjava/nio/ByteBuffer;JZJJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_readDirectBufferFromDevice
+        (JNIEnv *, jclass, jlong, jobject, jlong, jboolean, jlong, jlong, jlong, jlongArray);
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    clEnqueueMapBuffer
+ * Signature: (JJZJJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueMapBuffer
+        (JNIEnv *, jclass, jlong, jlong, jboolean, jlong, jlong, jlong, jlongArray);
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    clEnqueueUnmapMemObject
+ * Signature: (JJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueUnmapMemObject
+        (JNIEnv *, jclass, jlong, jlong, jlong, jlongArray);
+
 /*
  * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
  * Method:    clEnqueueWaitForEvents
@@ -636,6 +636,38 @@ public class OCLCodeCache {
         return code;
     }
 
+    /**
+     * Installs a binary that was built by the driver for this device in a
+     * previous run, such as an entry of the persistent kernel cache.
+     *
+     * @return the installed code, or null if the driver rejects the binary.
+     */
+    public OCLInstalledCode installBinary(TaskMetaData meta, String id, String entryPoint, byte[] binary) {
+        info("Installing cached binary for %s into code cache", entryPoint);
+        final OCLProgram program = deviceContext.createProgramWithBinary(binary, new long[] { binary.length });
+        if (program == null) {
+            return null;
+        }
+
+        program.build(meta.getCompilerFlags());
+        final OCLBuildStatus status = program.getStatus(deviceContext.getDeviceId());
+        debug("\tOpenCL compilation status = %s", status.toString());
+        if (status != CL_BUILD_SUCCESS) {
+            warn("\tunable to install cached binary for %s", entryPoint);
+            return null;
+        }
+
+        final OCLKernel kernel = program.getKernel(entryPoint);
+        if (kernel == null) {
+            return null;
+        }
+        kernelAvailable = true;
+
+        final OCLInstalledCode code = new OCLInstalledCode(entryPoint, binary, (OCLDeviceContext) deviceContext, program, kernel);
+        cache.put(id + "-" + entryPoint, code);
+        return code;
+    }
+
     private boolean shouldReuseProgramObject(String entryPoint) {
         return !entryPoint.equals(LOOKUP_BUFFER_KERNEL_NAME) && deviceContext.getDevice().getDeviceName().toLowerCase().startsWith("xilinx");
     }
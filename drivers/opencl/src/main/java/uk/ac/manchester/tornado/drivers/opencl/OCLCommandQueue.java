@@ -110,6 +110,14 @@ public class OCLCommandQueue extends TornadoLogger {
 
     native static long readArrayFromDevice(long queueId, double[] buffer, long hostOffset, boolean blocking, long offset, long bytes, long ptr, long[] events) throws OCLException;
 
+    native static long writeDirectBufferToDevice(long queueId, ByteBuffer buffer, long hostOffset, boolean blocking, long offset, long bytes, long ptr, long[] events) throws OCLException;
+
+    native static long readDirectBufferFromDevice(long queueId, ByteBuffer buffer, long hostOffset, boolean blocking, long offset, long bytes, long ptr, long[] events) throws OCLException;
+
+    native static long clEnqueueMapBuffer(long queueId, long ptr, boolean blocking, long mapFlags, long offset, long bytes, long[] events) throws OCLException;
+
+    native static long clEnqueueUnmapMemObject(long queueId, long ptr, long hostPtr, long[] events) throws OCLException;
+
     native static void clEnqueueWaitForEvents(long queueId, long[] events) throws OCLException;
 
     /*
@@ -269,6 +277,21 @@ public class OCLCommandQueue extends TornadoLogger {
         return -1;
     }
 
+    /**
+     * Copies a direct buffer to the device. The buffer lives outside the Java
+     * heap, so a non-blocking write returns as soon as the copy is enqueued and the
+     * buffer must not be modified until its event completes.
+     */
+    public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, ByteBuffer buffer, long hostOffset, long[] waitEvents) {
+        guarantee(buffer != null && buffer.isDirect(), "buffer is not direct");
+        try {
+            return writeDirectBufferToDevice(commandQueue, buffer, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return -1;
+    }
+
     public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, byte[] array, long hostOffset, long[] waitEvents) {
         guarantee(array != null, "null array");
         try {
@@ -339,6 +362,40 @@ public class OCLCommandQueue extends TornadoLogger {
         return -1;
     }
 
+    public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, ByteBuffer buffer, long hostOffset, long[] waitEvents) {
+        guarantee(buffer != null && buffer.isDirect(), "buffer is not direct");
+        try {
+            return readDirectBufferFromDevice(commandQueue, buffer, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Maps a region of a buffer in host memory.
+     *
+     * @return the host address of the region, or 0 if the region could not be
+     *         mapped.
+     */
+    public long enqueueMap(long devicePtr, boolean blocking, long mapFlags, long offset, long bytes, long[] waitEvents) {
+        try {
+            return clEnqueueMapBuffer(commandQueue, devicePtr, blocking, mapFlags, offset, bytes, waitEvents);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return 0;
+    }
+
+    public long enqueueUnmap(long devicePtr, long hostPtr, long[] waitEvents) {
+        try {
+            return clEnqueueUnmapMemObject(commandQueue, devicePtr, hostPtr, waitEvents);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return -1;
+    }
+
     public void finish() {
         try {
             clFinish(commandQueue);
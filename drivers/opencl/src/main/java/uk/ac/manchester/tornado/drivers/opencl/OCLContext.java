@@ -31,6 +31,7 @@ import static uk.ac.manchester.tornado.drivers.opencl.enums.OCLCommandQueuePrope
 import static uk.ac.manchester.tornado.drivers.opencl.enums.OCLCommandQueueProperties.CL_QUEUE_PROFILING_ENABLE;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_OOO_EXECUTION;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_PROFILING;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.OPENCL_MULTIPLE_QUEUES;
 import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.DUMP_EVENTS;
 
 import java.nio.ByteBuffer;
@@ -74,6 +75,7 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
     private final List<OCLTargetDevice> devices;
     private final List<OCLDeviceContext> deviceContexts;
     private final OCLCommandQueue[] queues;
+    private final List<OCLCommandQueue> additionalQueues;
     private final List<OCLProgram> programs;
     private final ArrayList<Long> allocatedRegions;
     private final OCLPlatform platform;
@@ -84,6 +86,7 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
         this.devices = devices;
         this.deviceContexts = new ArrayList<>(devices.size());
         this.queues = new OCLCommandQueue[devices.size()];
+        this.additionalQueues = new ArrayList<>();
         this.programs = new ArrayList<>();
         this.allocatedRegions = new ArrayList<>();
     }
@@ -125,22 +128,44 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
 
     public void createCommandQueue(int index, long properties) {
         OCLTargetDevice device = devices.get(index);
-        long queueId;
-        try {
-            queueId = clCreateCommandQueue(contextID, device.getId(), properties);
+        final int platformVersion = Integer.parseInt(platform.getVersion().split(" ")[1].replace(".", "")) * 10;
+        info("platform: version=%s (%s) on %s", platformVersion, platform.getVersion(), device.getDeviceName());
+        info("device  : version=%s (%s) on %s", getDeviceVersion(device), device.getVersion(), device.getDeviceName());
+        queues[index] = newCommandQueue(device, properties);
+    }
+
+    public void createCommandQueue(int index) {
+        createCommandQueue(index, getDefaultQueueProperties());
+    }
 
-            final int platformVersion = Integer.parseInt(platform.getVersion().split(" ")[1].replace(".", "")) * 10;
-            final int deviceVersion = Integer.parseInt(device.getVersion().split(" ")[1].replace(".", "")) * 10;
-            info("platform: version=%s (%s) on %s", platformVersion, platform.getVersion(), device.getDeviceName());
-            info("device  : version=%s (%s) on %s", deviceVersion, device.getVersion(), device.getDeviceName());
+    /**
+     * Creates an additional command queue for the device at {@code index}. These
+     * queues are used to overlap data transfers with the kernels submitted to the
+     * main queue of the device, and they are released with the context.
+     */
+    public OCLCommandQueue createAdditionalCommandQueue(int index) {
+        final OCLCommandQueue queue = newCommandQueue(devices.get(index), getDefaultQueueProperties());
+        if (queue != null) {
+            additionalQueues.add(queue);
+        }
+        return queue;
+    }
 
-            queues[index] = new OCLCommandQueue(queueId, properties, deviceVersion);
+    private OCLCommandQueue newCommandQueue(OCLTargetDevice device, long properties) {
+        try {
+            final long queueId = clCreateCommandQueue(contextID, device.getId(), properties);
+            return new OCLCommandQueue(queueId, properties, getDeviceVersion(device));
         } catch (OCLException e) {
             error(e.getMessage());
         }
+        return null;
     }
 
-    public void createCommandQueue(int index) {
+    private static int getDeviceVersion(OCLTargetDevice device) {
+        return Integer.parseInt(device.getVersion().split(" ")[1].replace(".", "")) * 10;
+    }
+
+    private static long getDefaultQueueProperties() {
         long properties = 0;
         if (ENABLE_PROFILING) {
             properties |= CL_QUEUE_PROFILING_ENABLE;
@@ -149,7 +174,7 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
         if (ENABLE_OOO_EXECUTION) {
             properties |= CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE;
         }
-        createCommandQueue(index, properties);
+        return properties;
     }
 
     public void createAllCommandQueues(long properties) {
@@ -217,6 +242,9 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
                     queue.cleanup();
                 }
             }
+            for (OCLCommandQueue queue : additionalQueues) {
+                queue.cleanup();
+            }
 
             long t3 = System.nanoTime();
             clReleaseContext(contextID);
@@ -243,11 +271,48 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
     public OCLDeviceContext createDeviceContext(int index) {
         debug("creating device context for device: %s", devices.get(index).toString());
         createCommandQueue(index);
-        final OCLDeviceContext deviceContext = new OCLDeviceContext(devices.get(index), queues[index], this);
+        final OCLDeviceContext deviceContext = new OCLDeviceContext(devices.get(index), createDeviceQueues(index), this);
         deviceContexts.add(deviceContext);
         return deviceContext;
     }
 
+    /**
+     * Queues used by a device context: the main queue of the device, followed by
+     * one queue for host-to-device and one for device-to-host copies when
+     * multiple queues are enabled.
+     */
+    private OCLCommandQueue[] createDeviceQueues(int index) {
+        final OCLCommandQueue[] deviceQueues = OPENCL_MULTIPLE_QUEUES ? createCopyQueues(index) : null;
+        return (deviceQueues != null) ? deviceQueues : new OCLCommandQueue[] { queues[index] };
+    }
+
+    /**
+     * Creates the queues for host-to-device and device-to-host copies of
+     * {@code device}. Ordering across queues requires wait lists on barriers and
+     * markers, so devices older than OpenCL 1.2 keep a single queue.
+     *
+     * @return the main queue of the device followed by the copy queues, or null
+     *         if the device cannot use copy queues.
+     */
+    public OCLCommandQueue[] createCopyQueues(OCLTargetDevice device) {
+        final int index = devices.indexOf(device);
+        return (index != -1) ? createCopyQueues(index) : null;
+    }
+
+    private OCLCommandQueue[] createCopyQueues(int index) {
+        final OCLCommandQueue queue = queues[index];
+        if (queue.getOpenclVersion() < 120) {
+            warn("multiple command queues require OpenCL 1.2: using a single queue on %s", devices.get(index).getDeviceName());
+            return null;
+        }
+        final OCLCommandQueue writeQueue = createAdditionalCommandQueue(index);
+        final OCLCommandQueue readQueue = createAdditionalCommandQueue(index);
+        if (writeQueue == null || readQueue == null) {
+            return null;
+        }
+        return new OCLCommandQueue[] { queue, writeQueue, readQueue };
+    }
+
     /**
      * Allocates off-heap memory.
      *
@@ -276,7 +341,11 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
         return createBuffer(flags, bytes, 0L);
     }
 
-    private long createBuffer(long flags, long bytes, long hostPointer) {
+    /**
+     * Creates a buffer. When {@code hostPointer} is not zero and the flags include
+     * CL_MEM_USE_HOST_PTR, the buffer uses the host memory at that address.
+     */
+    public long createBuffer(long flags, long bytes, long hostPointer) {
         long devicePtr = 0;
         try {
             final OCLBufferResult result = createBuffer(contextID, flags, bytes, hostPointer);
@@ -289,6 +358,19 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
         return devicePtr;
     }
 
+    /**
+     * Releases a buffer created with {@link #createBuffer(long, long)} before the
+     * context is released.
+     */
+    public void releaseBuffer(long bufferId) {
+        try {
+            clReleaseMemObject(bufferId);
+            allocatedRegions.remove(Long.valueOf(bufferId));
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+    }
+
     public int getPlatformIndex() {
         return platform.getIndex();
     }
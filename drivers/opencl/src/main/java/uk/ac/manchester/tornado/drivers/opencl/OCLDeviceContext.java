@@ -47,6 +47,7 @@ import static uk.ac.manchester.tornado.drivers.opencl.OCLEvent.DESC_WRITE_SHORT;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.USE_SYNC_FLUSH;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.getProperty;
 
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -57,6 +58,7 @@ import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.exceptions.TornadoBailoutRuntimeException;
 import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
 import uk.ac.manchester.tornado.drivers.opencl.enums.OCLDeviceType;
+import uk.ac.manchester.tornado.drivers.opencl.enums.OCLMapFlags;
 import uk.ac.manchester.tornado.drivers.opencl.enums.OCLMemFlags;
 import uk.ac.manchester.tornado.drivers.opencl.graal.OCLInstalledCode;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompilationResult;
@@ -65,6 +67,7 @@ import uk.ac.manchester.tornado.drivers.opencl.runtime.OCLTornadoDevice;
 import uk.ac.manchester.tornado.runtime.common.Initialisable;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 public class OCLDeviceContext extends TornadoLogger implements Initialisable, OCLDeviceContextInterface {
@@ -72,8 +75,21 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
     private static final long BUMP_BUFFER_SIZE = Long.decode(getProperty("tornado.opencl.bump.size", "0x100000"));
     private static final String[] BUMP_DEVICES = parseDevices(getProperty("tornado.opencl.bump.devices", "Iris Pro"));
 
+    /**
+     * Indexes of the command queues used for each kind of command. When the
+     * device has a single queue, all of them refer to the same queue.
+     */
+    static final int COMPUTE_QUEUE = 0;
+    static final int WRITE_QUEUE = 1;
+    static final int READ_QUEUE = 2;
+    private static final int NUM_QUEUE_KINDS = 3;
+
     private final OCLTargetDevice device;
-    private final OCLCommandQueue queue;
+    private final OCLCommandQueue[] queues;
+    private OCLCommandQueue[] deviceQueues;
+    private final int[] lastQueueEvents;
+    private final int[] implicitWaitEvents;
+    private final int[] fenceEvents;
     private final OCLContext context;
     private final OCLMemoryManager memoryManager;
     private boolean needsBump;
@@ -86,9 +102,17 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
 
     private final OCLEventsWrapper eventsWrapper;
 
-    protected OCLDeviceContext(OCLTargetDevice device, OCLCommandQueue queue, OCLContext context) {
+    protected OCLDeviceContext(OCLTargetDevice device, OCLCommandQueue[] deviceQueues, OCLContext context) {
         this.device = device;
-        this.queue = queue;
+        this.deviceQueues = deviceQueues;
+        this.queues = new OCLCommandQueue[NUM_QUEUE_KINDS];
+        for (int i = 0; i < NUM_QUEUE_KINDS; i++) {
+            queues[i] = deviceQueues[Math.min(i, deviceQueues.length - 1)];
+        }
+        this.lastQueueEvents = new int[NUM_QUEUE_KINDS];
+        Arrays.fill(lastQueueEvents, -1);
+        this.implicitWaitEvents = new int[NUM_QUEUE_KINDS];
+        this.fenceEvents = new int[1];
         this.context = context;
         this.memoryManager = new OCLMemoryManager(this);
         this.codeCache = new OCLCodeCache(this);
@@ -155,9 +179,13 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
 
     public void sync() {
         if (USE_SYNC_FLUSH) {
-            queue.flush();
+            for (OCLCommandQueue queue : deviceQueues) {
+                queue.flush();
+            }
+        }
+        for (OCLCommandQueue queue : deviceQueues) {
+            queue.finish();
         }
-        queue.finish();
     }
 
     public long getDeviceId() {
@@ -165,13 +193,93 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
     }
 
     public int enqueueBarrier() {
+        if (hasMultipleQueues()) {
+            return joinQueues(DESC_SYNC_BARRIER);
+        }
+        final OCLCommandQueue queue = queues[COMPUTE_QUEUE];
         long oclEvent = queue.enqueueBarrier();
-        return (queue.getOpenclVersion() < 120) ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG, queue);
+        return (queue.getOpenclVersion() < 120) ? -1 : registerEvent(COMPUTE_QUEUE, oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG);
     }
 
     public int enqueueMarker() {
+        if (hasMultipleQueues()) {
+            return joinQueues(DESC_SYNC_MARKER);
+        }
+        final OCLCommandQueue queue = queues[COMPUTE_QUEUE];
         long oclEvent = queue.enqueueMarker();
-        return queue.getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG, queue);
+        return queue.getOpenclVersion() < 120 ? -1 : registerEvent(COMPUTE_QUEUE, oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG);
+    }
+
+    /**
+     * Device-wide barrier when transfers and kernels use different queues: the
+     * compute queue waits for the last command of every copy queue, and the copy
+     * queues wait for the compute queue before they start any new command.
+     *
+     * @return the event of the compute queue, which completes when all commands
+     *         enqueued so far on the device have completed.
+     */
+    private int joinQueues(int descriptor) {
+        final int fence = registerEvent(COMPUTE_QUEUE, queues[COMPUTE_QUEUE].enqueueBarrier(waitEventsFor(null, COMPUTE_QUEUE)), descriptor, DEFAULT_TAG);
+        fenceEvents[0] = fence;
+        for (int kind = COMPUTE_QUEUE + 1; kind < NUM_QUEUE_KINDS; kind++) {
+            if (queues[kind] != queues[COMPUTE_QUEUE]) {
+                registerEvent(kind, queues[kind].enqueueBarrier(waitEventsFor(fenceEvents, kind)), DESC_SYNC_BARRIER, DEFAULT_TAG);
+            }
+        }
+        return fence;
+    }
+
+    public boolean hasMultipleQueues() {
+        return deviceQueues.length > 1;
+    }
+
+    /**
+     * Moves the transfers of the device to their own queues, so they can
+     * overlap with the kernels. It is used by the pipelined batches, whose wait
+     * lists only order the commands that depend on each other. Commands already
+     * submitted are not moved: the copy queues start after all of them.
+     */
+    public synchronized void enableCopyQueues() {
+        if (hasMultipleQueues()) {
+            return;
+        }
+        final OCLCommandQueue[] copyQueues = context.createCopyQueues(device);
+        if (copyQueues == null) {
+            return;
+        }
+        final int fence = registerEvent(COMPUTE_QUEUE, queues[COMPUTE_QUEUE].enqueueMarker(), DESC_SYNC_MARKER, DEFAULT_TAG);
+        deviceQueues = copyQueues;
+        for (int i = 0; i < NUM_QUEUE_KINDS; i++) {
+            queues[i] = deviceQueues[i];
+        }
+        Arrays.fill(lastQueueEvents, fence);
+        info("enabled copy queues on %s", device.getDeviceName());
+    }
+
+    private int registerEvent(int queueKind, long oclEvent, int descriptor, long tag) {
+        final int event = eventsWrapper.registerEvent(oclEvent, descriptor, tag, queues[queueKind]);
+        lastQueueEvents[queueKind] = event;
+        return event;
+    }
+
+    /**
+     * Wait list of a command enqueued in the queue of {@code queueKind}. Commands
+     * submitted without dependencies keep the ordering of a single in-order
+     * queue: they wait for the last command enqueued in each of the other queues
+     * of the device.
+     */
+    private long[] waitEventsFor(int[] waitEvents, int queueKind) {
+        final OCLCommandQueue queue = queues[queueKind];
+        if (waitEvents == null && hasMultipleQueues()) {
+            Arrays.fill(implicitWaitEvents, -1);
+            for (int kind = 0; kind < NUM_QUEUE_KINDS; kind++) {
+                if (queues[kind] != queue) {
+                    implicitWaitEvents[kind] = lastQueueEvents[kind];
+                }
+            }
+            waitEvents = implicitWaitEvents;
+        }
+        return eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null;
     }
 
     public OCLProgram createProgramWithSource(byte[] source, long[] lengths) {
@@ -183,9 +291,9 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
     }
 
     public int enqueueNDRangeKernel(OCLKernel kernel, int dim, long[] globalWorkOffset, long[] globalWorkSize, long[] localWorkSize, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueNDRangeKernel(kernel, dim, globalWorkOffset, globalWorkSize, localWorkSize, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_PARALLEL_KERNEL, kernel.getOclKernelID(), queue);
+        return registerEvent(COMPUTE_QUEUE,
+                queues[COMPUTE_QUEUE].enqueueNDRangeKernel(kernel, dim, globalWorkOffset, globalWorkSize, localWorkSize, waitEventsFor(waitEvents, COMPUTE_QUEUE)),
+                DESC_PARALLEL_KERNEL, kernel.getOclKernelID());
     }
 
     public ByteOrder getByteOrder() {
@@ -196,45 +304,51 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
      * Asynchronous writes to device
      */
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_BYTE, offset);
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_BYTE, offset);
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_INT, offset, queue);
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_INT, offset);
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_LONG, offset, queue);
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_LONG, offset);
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_SHORT, offset, queue);
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_SHORT, offset);
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_FLOAT, offset, queue);
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_FLOAT, offset);
     }
 
     public int enqueueWriteBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_DOUBLE, offset, queue);
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_DOUBLE, offset);
+    }
+
+    public int enqueueWriteBuffer(long bufferId, long offset, long bytes, ByteBuffer buffer, long hostOffset, int[] waitEvents) {
+        return registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.FALSE, offset, bytes, buffer, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_BYTE, offset);
     }
 
     /*
@@ -242,146 +356,202 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
      *
      */
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_BYTE, offset);
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_BYTE, offset);
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_INT, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_INT, offset);
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_LONG, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_LONG, offset);
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_FLOAT, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_FLOAT, offset);
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_DOUBLE, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_DOUBLE, offset);
     }
 
     public int enqueueReadBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_SHORT, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_SHORT, offset);
+    }
+
+    public int enqueueReadBuffer(long bufferId, long offset, long bytes, ByteBuffer buffer, long hostOffset, int[] waitEvents) {
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.FALSE, offset, bytes, buffer, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_BYTE, offset);
     }
 
     /*
      * Synchronous writes to device
      */
     public void writeBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
-        eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_BYTE, offset);
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
-        eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_BYTE, offset, queue);
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_BYTE, offset);
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
-        eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_INT, offset, queue);
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_INT, offset);
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
-        eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_LONG, offset, queue);
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_LONG, offset);
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
-        eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_SHORT, offset, queue);
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_SHORT, offset);
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
-        eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_FLOAT, offset, queue);
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_FLOAT, offset);
     }
 
     public void writeBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
-        eventsWrapper.registerEvent(
-                queue.enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_WRITE_DOUBLE, offset, queue);
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_DOUBLE, offset);
+    }
+
+    public void writeBuffer(long bufferId, long offset, long bytes, ByteBuffer buffer, long hostOffset, int[] waitEvents) {
+        registerEvent(WRITE_QUEUE,
+                queues[WRITE_QUEUE].enqueueWrite(bufferId, OpenCLBlocking.TRUE, offset, bytes, buffer, hostOffset, waitEventsFor(waitEvents, WRITE_QUEUE)),
+                DESC_WRITE_BYTE, offset);
     }
 
     /*
      * Synchronous reads from device
      */
     public int readBuffer(long bufferId, long offset, long bytes, byte[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_BYTE, offset);
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, char[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_BYTE, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_BYTE, offset);
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, int[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_INT, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_INT, offset);
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, long[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_LONG, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_LONG, offset);
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, float[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_FLOAT, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_FLOAT, offset);
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, double[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_DOUBLE, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_DOUBLE, offset);
 
     }
 
     public int readBuffer(long bufferId, long offset, long bytes, short[] array, long hostOffset, int[] waitEvents) {
-        return eventsWrapper.registerEvent(
-                queue.enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, eventsWrapper.serialiseEvents(waitEvents, queue) ? eventsWrapper.waitEventsBuffer : null),
-                DESC_READ_SHORT, offset, queue);
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, array, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_SHORT, offset);
+    }
+
+    public int readBuffer(long bufferId, long offset, long bytes, ByteBuffer buffer, long hostOffset, int[] waitEvents) {
+        return registerEvent(READ_QUEUE,
+                queues[READ_QUEUE].enqueueRead(bufferId, OpenCLBlocking.TRUE, offset, bytes, buffer, hostOffset, waitEventsFor(waitEvents, READ_QUEUE)),
+                DESC_READ_BYTE, offset);
+    }
+
+    /**
+     * Maps a region of a buffer for reading and writing, and waits until the host
+     * can access it.
+     *
+     * @return the host address of the region, or 0 if it could not be mapped.
+     */
+    public long mapBuffer(long bufferId, long offset, long bytes, int[] waitEvents) {
+        return queues[READ_QUEUE].enqueueMap(bufferId, OpenCLBlocking.TRUE, OCLMapFlags.CL_MAP_READ | OCLMapFlags.CL_MAP_WRITE, offset, bytes, waitEventsFor(waitEvents, READ_QUEUE));
+    }
+
+    public int unmapBuffer(long bufferId, long hostPtr, int[] waitEvents) {
+        return registerEvent(WRITE_QUEUE, queues[WRITE_QUEUE].enqueueUnmap(bufferId, hostPtr, waitEventsFor(waitEvents, WRITE_QUEUE)), DESC_WRITE_BYTE, DEFAULT_TAG);
+    }
+
+    /**
+     * Makes the host writes to a region of a buffer that uses host memory visible
+     * to the device, by mapping the region for writing and unmapping it. Devices
+     * that share memory with the host do not copy any data.
+     */
+    public int enqueueSyncToDevice(long bufferId, long offset, long bytes, int[] waitEvents) {
+        final OCLCommandQueue queue = queues[WRITE_QUEUE];
+        final long hostPtr = queue.enqueueMap(bufferId, OpenCLBlocking.FALSE, OCLMapFlags.CL_MAP_WRITE, offset, bytes, waitEventsFor(waitEvents, WRITE_QUEUE));
+        return registerEvent(WRITE_QUEUE, queue.enqueueUnmap(bufferId, hostPtr, null), DESC_WRITE_BYTE, offset);
+    }
+
+    /**
+     * Makes the device writes to a region of a buffer that uses host memory
+     * visible to the host, by mapping the region for reading and unmapping it.
+     * Returns once the region has been mapped.
+     */
+    public int syncToHost(long bufferId, long offset, long bytes, int[] waitEvents) {
+        final OCLCommandQueue queue = queues[READ_QUEUE];
+        final long hostPtr = queue.enqueueMap(bufferId, OpenCLBlocking.TRUE, OCLMapFlags.CL_MAP_READ, offset, bytes, waitEventsFor(waitEvents, READ_QUEUE));
+        return registerEvent(READ_QUEUE, queue.enqueueUnmap(bufferId, hostPtr, null), DESC_READ_BYTE, offset);
     }
 
     public int enqueueBarrier(int[] events) {
-        long oclEvent = queue.enqueueBarrier(eventsWrapper.serialiseEvents(events, queue) ? eventsWrapper.waitEventsBuffer : null);
-        return queue.getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG, queue);
+        final OCLCommandQueue queue = queues[COMPUTE_QUEUE];
+        long oclEvent = queue.enqueueBarrier(waitEventsFor(events, COMPUTE_QUEUE));
+        return queue.getOpenclVersion() < 120 ? -1 : registerEvent(COMPUTE_QUEUE, oclEvent, DESC_SYNC_BARRIER, DEFAULT_TAG);
     }
 
     public int enqueueMarker(int[] events) {
-        long oclEvent = queue.enqueueMarker(eventsWrapper.serialiseEvents(events, queue) ? eventsWrapper.waitEventsBuffer : null);
-        return queue.getOpenclVersion() < 120 ? -1 : eventsWrapper.registerEvent(oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG, queue);
+        final OCLCommandQueue queue = queues[COMPUTE_QUEUE];
+        long oclEvent = queue.enqueueMarker(waitEventsFor(events, COMPUTE_QUEUE));
+        return queue.getOpenclVersion() < 120 ? -1 : registerEvent(COMPUTE_QUEUE, oclEvent, DESC_SYNC_MARKER, DEFAULT_TAG);
     }
 
     @Override
@@ -391,6 +561,7 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
 
     public void reset() {
         eventsWrapper.reset();
+        Arrays.fill(lastQueueEvents, -1);
         memoryManager.reset();
         codeCache.reset();
         wasReset = true;
@@ -452,6 +623,11 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
         return useRelativeAddresses;
     }
 
+    @Override
+    public boolean usePerObjectBuffers() {
+        return TornadoOptions.OPENCL_PER_OBJECT_BUFFERS && !useRelativeAddresses;
+    }
+
     @Override
     public int getDeviceIndex() {
         return device.getIndex();
@@ -474,19 +650,25 @@ public class OCLDeviceContext extends TornadoLogger implements Initialisable, OC
         if (event == -1) {
             return EMPTY_EVENT;
         }
-        return new OCLEvent(eventsWrapper, queue, event, eventsWrapper.getOCLEvent(event));
+        return new OCLEvent(eventsWrapper, eventsWrapper.getQueue(event), event, eventsWrapper.getOCLEvent(event));
     }
 
     public void flush() {
-        queue.flush();
+        for (OCLCommandQueue queue : deviceQueues) {
+            queue.flush();
+        }
     }
 
     public void finish() {
-        queue.finish();
+        for (OCLCommandQueue queue : deviceQueues) {
+            queue.finish();
+        }
     }
 
     public void flushEvents() {
-        queue.flushEvents();
+        for (OCLCommandQueue queue : deviceQueues) {
+            queue.flushEvents();
+        }
     }
 
     public boolean isKernelAvailable() {
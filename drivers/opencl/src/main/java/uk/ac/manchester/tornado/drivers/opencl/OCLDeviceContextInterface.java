@@ -58,6 +58,13 @@ public interface OCLDeviceContextInterface extends TornadoDeviceContext {
 
     OCLMemoryManager getMemoryManager();
 
+    /**
+     * Whether every object has its own device buffer, which is passed to the
+     * kernels as an argument, instead of living in the device heap. Relative
+     * addresses are offsets into the heap, so they use the heap.
+     */
+    boolean usePerObjectBuffers();
+
     void sync();
 
     int enqueueBarrier();
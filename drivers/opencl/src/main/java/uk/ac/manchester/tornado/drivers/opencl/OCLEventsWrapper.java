@@ -110,21 +110,34 @@ class OCLEventsWrapper {
         guarantee(eventIndex != -1, "event window is full (retained=%d, capacity=%d)", retain.cardinality(), EVENT_WINDOW);
     }
 
+    /**
+     * Builds the wait list of a command that is going to be enqueued in
+     * {@code queue}. Events of an in-order queue are only added when they come
+     * from a different queue of the device, since the queue already orders its
+     * own commands. Queues that produce these events are flushed, so the command
+     * cannot wait on work that has not been submitted to the device.
+     */
     protected boolean serialiseEvents(int[] dependencies, OCLCommandQueue queue) {
-        boolean outOfOrderQueue = (queue.getProperties() & CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE) == 1;
-        if (dependencies == null || dependencies.length == 0 || !outOfOrderQueue) {
+        if (dependencies == null || dependencies.length == 0) {
             return false;
         }
+        boolean outOfOrderQueue = (queue.getProperties() & CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE) == 1;
 
         Arrays.fill(waitEventsBuffer, 0);
 
         int index = 0;
         for (final int value : dependencies) {
-            if (value != -1) {
+            if (value == -1 || events[value] <= 0) {
+                continue;
+            }
+            final boolean crossQueue = eventQueues[value] != queue;
+            if (outOfOrderQueue || crossQueue) {
                 index++;
                 waitEventsBuffer[index] = events[value];
                 debug("[%d] 0x%x - %s 0x%x\n", index, events[value], EVENT_DESCRIPTIONS[descriptors[value]], tags[value]);
-
+                if (crossQueue) {
+                    eventQueues[value].flush();
+                }
             }
         }
         waitEventsBuffer[0] = index;
@@ -167,4 +180,8 @@ class OCLEventsWrapper {
     protected long getTag(int localEventID) {
         return tags[localEventID];
     }
+
+    protected OCLCommandQueue getQueue(int localEventID) {
+        return eventQueues[localEventID];
+    }
 }
@@ -41,6 +41,7 @@ public class OCLFPGAScheduler extends OCLKernelScheduler {
         final long[] globalWork = meta.getGlobalWork();
         for (int i = 0; i < meta.getDims(); i++) {
             long value = (batchThreads <= 0) ? (long) (meta.getDomain().get(i).cardinality()) : batchThreads;
+            value = meta.getCoarsenedGlobalWork(i, value);
             if (value % WARP != 0) {
                 value = ((value / WARP) + 1) * WARP;
             }
@@ -25,6 +25,14 @@
  */
 package uk.ac.manchester.tornado.drivers.opencl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.manchester.tornado.api.common.Event;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.profiler.LocalWorkTuner;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 public class OCLGPUScheduler extends OCLKernelScheduler {
@@ -33,10 +41,17 @@ public class OCLGPUScheduler extends OCLKernelScheduler {
     private long[] maxWorkGroupSize;
 
     private static final int WARP_SIZE = 32;
+    private static final int MIN_TUNED_GROUP_SIZE = 16;
     private boolean ADJUST_IRREGULAR = false;
 
     private final long[] maxWorkItemSizes;
 
+    /**
+     * Tuner of the local work, when {@link TornadoOptions#OPENCL_AUTOTUNE} is
+     * enabled. Tuning needs the execution times of the kernels.
+     */
+    private final LocalWorkTuner tuner;
+
     public OCLGPUScheduler(final OCLDeviceContext context) {
         super(context);
         OCLTargetDevice device = context.getDevice();
@@ -44,6 +59,7 @@ public class OCLGPUScheduler extends OCLKernelScheduler {
         maxWorkItemSizes = device.getDeviceMaxWorkItemSizes();
         maxComputeUnits = device.getDeviceMaxComputeUnits();
         maxWorkGroupSize = device.getDeviceMaxWorkGroupSize();
+        tuner = (TornadoOptions.OPENCL_AUTOTUNE && Tornado.ENABLE_PROFILING) ? LocalWorkTuner.getInstance() : null;
     }
 
     @Override
@@ -52,6 +68,7 @@ public class OCLGPUScheduler extends OCLKernelScheduler {
 
         for (int i = 0; i < meta.getDims(); i++) {
             long value = (batchThreads <= 0) ? (long) (meta.getDomain().get(i).cardinality()) : batchThreads;
+            value = meta.getCoarsenedGlobalWork(i, value);
             if (ADJUST_IRREGULAR && (value % WARP_SIZE != 0)) {
                 value = ((value / WARP_SIZE) + 1) * WARP_SIZE;
             }
@@ -81,6 +98,81 @@ public class OCLGPUScheduler extends OCLKernelScheduler {
         }
     }
 
+    /**
+     * With the autotuner, the local work of the heuristic is replaced by the
+     * tuned one, or by the candidate being measured while the kernel is tuned.
+     * Tuned sizes that are not valid for the current global size are ignored.
+     */
+    @Override
+    protected void calculateLocalWork(final OCLKernel kernel, final TaskMetaData meta) {
+        calculateLocalWork(meta);
+        if (tuner == null || usesLocalMemory() || meta.shouldUseOpenCLDriverScheduling()) {
+            return;
+        }
+        final long[] localWork = meta.getLocalWork();
+        final String key = getTuningKey(kernel, meta);
+        final long[] selected = tuner.selectLocalWork(key, () -> getLocalWorkCandidates(meta));
+        if (isValidLocalWork(selected, meta)) {
+            System.arraycopy(selected, 0, localWork, 0, meta.getDims());
+        }
+    }
+
+    @Override
+    protected void kernelLaunched(final OCLKernel kernel, final TaskMetaData meta, final int taskEvent) {
+        if (tuner == null || usesLocalMemory() || meta.shouldUseOpenCLDriverScheduling()) {
+            return;
+        }
+        final String key = getTuningKey(kernel, meta);
+        if (tuner.isTuning(key)) {
+            Event event = deviceContext.resolveEvent(taskEvent);
+            event.waitForEvents();
+            tuner.record(key, Arrays.copyOf(meta.getLocalWork(), meta.getDims()), event.getExecutionTime());
+        }
+    }
+
+    private String getTuningKey(final OCLKernel kernel, final TaskMetaData meta) {
+        return LocalWorkTuner.getKey(kernel.getName(), deviceContext.getDeviceName(), meta.getDims(), meta.getGlobalWork());
+    }
+
+    /**
+     * Local sizes tried by the autotuner: the one given by the heuristic, and the
+     * powers of two in the first two dimensions that divide the global size and
+     * fit in the device. The third dimension, if any, keeps a local size of 1.
+     */
+    private long[][] getLocalWorkCandidates(final TaskMetaData meta) {
+        final int dims = meta.getDims();
+        final List<long[]> candidates = new ArrayList<>();
+        candidates.add(Arrays.copyOf(meta.getLocalWork(), dims));
+
+        final long maxY = (dims > 1) ? maxWorkItemSizes[1] : 1;
+        for (long x = 1; x <= maxWorkItemSizes[0]; x <<= 1) {
+            for (long y = 1; y <= maxY; y <<= 1) {
+                final long[] localWork = new long[dims];
+                Arrays.fill(localWork, 1);
+                localWork[0] = x;
+                if (dims > 1) {
+                    localWork[1] = y;
+                }
+                if (x * y >= MIN_TUNED_GROUP_SIZE && isValidLocalWork(localWork, meta) && candidates.stream().noneMatch(c -> Arrays.equals(c, localWork))) {
+                    candidates.add(localWork);
+                }
+            }
+        }
+        return candidates.toArray(new long[0][]);
+    }
+
+    private boolean isValidLocalWork(final long[] localWork, final TaskMetaData meta) {
+        if (localWork.length != meta.getDims()) {
+            return false;
+        }
+        for (int i = 0; i < localWork.length; i++) {
+            if (localWork[i] < 1 || localWork[i] > maxWorkItemSizes[i] || meta.getGlobalWork()[i] % localWork[i] != 0) {
+                return false;
+            }
+        }
+        return new OCLGridInfo(deviceContext, localWork).checkGridDimensions();
+    }
+
     private int calculateGroupSize(long maxBlockSize, long globalWorkSize) {
         if (maxBlockSize == globalWorkSize) {
             maxBlockSize /= 4;
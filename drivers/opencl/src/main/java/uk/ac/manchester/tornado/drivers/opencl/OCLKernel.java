@@ -41,6 +41,7 @@ public class OCLKernel extends TornadoLogger {
     private final OCLDeviceContext deviceContext;
     private final ByteBuffer buffer;
     private String kernelName;
+    private int numArgs = -1;
 
     public OCLKernel(long id, OCLDeviceContext deviceContext) {
         this.oclKernelID = id;
@@ -125,6 +126,20 @@ public class OCLKernel extends TornadoLogger {
         }
     }
 
+    public int getNumArgs() {
+        if (numArgs == -1) {
+            Arrays.fill(buffer.array(), (byte) 0);
+            buffer.clear();
+            try {
+                clGetKernelInfo(oclKernelID, OCLKernelInfo.CL_KERNEL_NUM_ARGS.getValue(), buffer.array());
+                numArgs = buffer.getInt(0);
+            } catch (OCLException e) {
+                error(e.getMessage());
+            }
+        }
+        return numArgs;
+    }
+
     public long getOclKernelID() {
         return oclKernelID;
     }
@@ -39,6 +39,8 @@ public abstract class OCLKernelScheduler {
     protected double min;
     protected double max;
 
+    private boolean usesLocalMemory;
+
     public static final String WARNING_FPGA_THREAD_LOCAL = "[TornadoVM OCL] Warning: TornadoVM changed the user-defined local size to: " + Arrays.toString(OCLFPGAScheduler.LOCAL_WORK_SIZE) + ".";
 
     public static final String WARNING_THREAD_LOCAL = "[TornadoVM OCL] Warning: TornadoVM changed the user-defined local size to null. Now, the OpenCL driver will select the best configuration.";
@@ -47,10 +49,38 @@ public abstract class OCLKernelScheduler {
         deviceContext = context;
     }
 
+    /**
+     * Kernels that allocate local memory, such as the reductions, size it for
+     * the local work given by the scheduler heuristic, so their local work must
+     * not be changed by the autotuner.
+     */
+    public void setUsesLocalMemory(boolean usesLocalMemory) {
+        this.usesLocalMemory = usesLocalMemory;
+    }
+
+    protected boolean usesLocalMemory() {
+        return usesLocalMemory;
+    }
+
     public abstract void calculateGlobalWork(final TaskMetaData meta, long batchThreads);
 
     public abstract void calculateLocalWork(final TaskMetaData meta);
 
+    /**
+     * Computes the local work of {@code kernel}. Schedulers that select the
+     * local work per kernel override this method.
+     */
+    protected void calculateLocalWork(final OCLKernel kernel, final TaskMetaData meta) {
+        calculateLocalWork(meta);
+    }
+
+    /**
+     * Called after launching {@code kernel} with the local work computed by the
+     * scheduler.
+     */
+    protected void kernelLaunched(final OCLKernel kernel, final TaskMetaData meta, final int taskEvent) {
+    }
+
     public int submit(final OCLKernel kernel, final TaskMetaData meta, long batchThreads) {
         return submit(kernel, meta, null, batchThreads);
     }
@@ -115,7 +145,7 @@ public abstract class OCLKernelScheduler {
                 calculateGlobalWork(meta, batchThreads);
             }
             if (!meta.isLocalWorkDefined()) {
-                calculateLocalWork(meta);
+                calculateLocalWork(kernel, meta);
             }
         } else {
             checkLocalWorkGroupFitsOnDevice(meta);
@@ -125,6 +155,9 @@ public abstract class OCLKernelScheduler {
             meta.printThreadDims();
         }
         final int taskEvent = launch(kernel, meta, waitEvents, batchThreads);
+        if (!meta.isWorkerGridAvailable() && !meta.isLocalWorkDefined()) {
+            kernelLaunched(kernel, meta, taskEvent);
+        }
         updateProfiler(taskEvent, meta);
         return taskEvent;
     }
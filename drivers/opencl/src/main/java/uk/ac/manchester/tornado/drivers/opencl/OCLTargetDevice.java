@@ -34,6 +34,8 @@ public interface OCLTargetDevice extends TornadoTargetDevice {
 
     String getVersion();
 
+    String getDriverVersion();
+
     int getIndex();
 
     int getWordSize();
@@ -53,4 +55,6 @@ public interface OCLTargetDevice extends TornadoTargetDevice {
     String getDeviceOpenCLCVersion();
 
     boolean isLittleEndian();
+
+    boolean hasDeviceUnifiedMemory();
 }
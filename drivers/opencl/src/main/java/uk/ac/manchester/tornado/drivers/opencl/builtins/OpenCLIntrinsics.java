@@ -63,6 +63,26 @@ public class OpenCLIntrinsics {
      */
     public static native void globalBarrier();
 
+    /**
+     * <p>
+     * <code>
+     *  mem_fence(CLK_GLOBAL_MEM_FENCE);
+     * </code>
+     * </p>
+     */
+    public static native void globalMemFence();
+
+    /**
+     * Atomically increments the 32-bit counter stored in {@code array[index]},
+     * whatever the element type of the array, and returns its previous value.
+     * <p>
+     * <code>
+     *  atomic_inc((__global int *) &array[index]);
+     * </code>
+     * </p>
+     */
+    public static native int atomic_inc_counter(Object array, int index);
+
     public static native void printf();
 
     public static native void printEmpty();
@@ -37,11 +37,11 @@ import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
 import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
 import uk.ac.manchester.tornado.api.profiler.ProfilerType;
 import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
-import uk.ac.manchester.tornado.drivers.opencl.OCLGPUScheduler;
 import uk.ac.manchester.tornado.drivers.opencl.OCLKernel;
 import uk.ac.manchester.tornado.drivers.opencl.OCLKernelScheduler;
 import uk.ac.manchester.tornado.drivers.opencl.OCLProgram;
 import uk.ac.manchester.tornado.drivers.opencl.OCLScheduler;
+import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLByteBuffer;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLCallStack;
 import uk.ac.manchester.tornado.drivers.opencl.runtime.OCLTornadoDevice;
@@ -53,8 +53,6 @@ import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 public class OCLInstalledCode extends InstalledCode implements TornadoInstalledCode {
 
-    private final OCLKernelScheduler DEFAULT_SCHEDULER;
-
     private static final int CL_MEM_SIZE = 8;
 
     private final ByteBuffer buffer = ByteBuffer.allocate(CL_MEM_SIZE);
@@ -75,7 +73,10 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         this.code = code;
         this.deviceContext = deviceContext;
         this.scheduler = OCLScheduler.create(deviceContext);
-        this.DEFAULT_SCHEDULER = new OCLGPUScheduler(deviceContext);
+        final boolean usesLocalMemory = code != null && new String(code).contains(OCLAssemblerConstants.LOCAL_MEM_MODIFIER);
+        if (scheduler != null) {
+            scheduler.setUsesLocalMemory(usesLocalMemory);
+        }
         this.kernel = kernel;
         this.program = program;
         valid = kernel != null;
@@ -125,11 +126,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
             deviceContext.finish();
         } else {
             if (meta.isParallel()) {
-                if (meta.enableThreadCoarsener()) {
-                    task = DEFAULT_SCHEDULER.submit(kernel, meta, null, 0);
-                } else {
-                    task = scheduler.submit(kernel, meta, null, 0);
-                }
+                task = scheduler.submit(kernel, meta, null, 0);
             } else {
                 task = deviceContext.enqueueNDRangeKernel(kernel, 1, null, singleThreadGlobalWorkSize, singleThreadLocalWorkSize, null);
             }
@@ -227,6 +224,24 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         kernel.setArg(index, buffer);
         index++;
 
+        // Buffers of the objects
+        if (stack instanceof OCLCallStack && deviceContext.usePerObjectBuffers()) {
+            setObjectBufferArgs((OCLCallStack) stack, index);
+        }
+    }
+
+    private void setObjectBufferArgs(final OCLCallStack stack, final int firstIndex) {
+        final int numArgs = kernel.getNumArgs();
+        if (numArgs == firstIndex) {
+            // Pre-built kernels access the objects by their address
+            stack.useAbsoluteAddresses();
+            return;
+        }
+        for (int index = firstIndex; index < numArgs; index++) {
+            buffer.clear();
+            buffer.putLong(stack.getObjectBuffer(index - firstIndex));
+            kernel.setArg(index, buffer);
+        }
     }
 
     public int submitWithEvents(final OCLCallStack stack, final ObjectBuffer atomicSpace, final TaskMetaData meta, final int[] events, long batchThreads) {
@@ -254,11 +269,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
             task = deviceContext.enqueueNDRangeKernel(kernel, 1, null, singleThreadGlobalWorkSize, singleThreadLocalWorkSize, waitEvents);
         } else {
             if (meta.isParallel()) {
-                if (meta.enableThreadCoarsener()) {
-                    task = DEFAULT_SCHEDULER.submit(kernel, meta, waitEvents, batchThreads);
-                } else {
-                    task = scheduler.submit(kernel, meta, waitEvents, batchThreads);
-                }
+                task = scheduler.submit(kernel, meta, waitEvents, batchThreads);
             } else {
                 if (meta.isDebug()) {
                     System.out.println("Running on: ");
@@ -321,13 +332,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
     }
 
     private int submitParallel(final TaskMetaData meta, long batchThreads) {
-        final int task;
-        if (meta.enableThreadCoarsener()) {
-            task = DEFAULT_SCHEDULER.submit(kernel, meta, batchThreads);
-        } else {
-            task = scheduler.submit(kernel, meta, batchThreads);
-        }
-        return task;
+        return scheduler.submit(kernel, meta, batchThreads);
     }
 
     private void launchKernel(final OCLCallStack stack, final TaskMetaData meta, long batchThreads) {
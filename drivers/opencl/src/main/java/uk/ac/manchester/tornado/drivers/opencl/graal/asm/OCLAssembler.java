@@ -31,6 +31,7 @@ import static uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerCons
 import static uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants.GLOBAL_REGION_NAME;
 import static uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants.HEAP_REF_NAME;
 import static uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants.LOCAL_REGION_NAME;
+import static uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants.OBJECT_BUFFER_NAME;
 import static uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssemblerConstants.PRIVATE_REGION_NAME;
 import static uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLKind.FLOAT;
 import static uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLKind.LONG;
@@ -293,6 +294,22 @@ public final class OCLAssembler extends Assembler {
         public static final OCLUnaryTemplate LOAD_PARAM_UINT = new OCLUnaryTemplate("param", "(uint) " + FRAME_REF_NAME + "[%s]");
         public static final OCLUnaryTemplate SLOT_ADDRESS = new OCLUnaryTemplate("param", "(ulong) &" + FRAME_REF_NAME + "[%s]");
 
+        /**
+         * Loads the address of an object parameter. With per-object buffers, the
+         * slot keeps the offset of the object within the buffer passed to the
+         * kernel for the slot.
+         */
+        public static final OCLUnaryTemplate LOAD_PARAM_OBJECT = new OCLUnaryTemplate("param", "(ulong) " + OBJECT_BUFFER_NAME + "%1$s + " + FRAME_REF_NAME + "[%1$s]") {
+            @Override
+            public void emit(OCLCompilationResultBuilder crb, Value value) {
+                if (crb.getDeviceContext().usePerObjectBuffers()) {
+                    super.emit(crb, value);
+                } else {
+                    LOAD_PARAM_ULONG.emit(crb, value);
+                }
+            }
+        };
+
         public static final OCLUnaryTemplate MEM_CHECK = new OCLUnaryTemplate("mem check", "MEM_CHECK(%s)");
         public static final OCLUnaryTemplate INDIRECTION = new OCLUnaryTemplate("deref", "*(%s)");
         public static final OCLUnaryTemplate CAST_TO_POINTER = new OCLUnaryTemplate("cast ptr", "(%s *)");
@@ -46,6 +46,7 @@ public class OCLAssemblerConstants {
     public static final String HEAP_REF_NAME = "_heap_base";
     public static final String FRAME_BASE_NAME = "_frame_base";
     public static final String FRAME_REF_NAME = "_frame";
+    public static final String OBJECT_BUFFER_NAME = "_buffer";
 
     public static final String STMT_DELIMITER = ";";
     public static final String EXPR_DELIMITER = ",";
@@ -142,6 +142,7 @@ public class OCLBackend extends TornadoBackend<OCLProviders> implements FrameMap
     final OCLDeviceContextInterface deviceContext;
     final OCLCodeProvider codeCache;
     OCLInstalledCode lookupCode;
+    private TaskMetaData lookupMeta;
 
     final ScheduleMetaData scheduleMeta;
 
@@ -208,15 +209,30 @@ public class OCLBackend extends TornadoBackend<OCLProviders> implements FrameMap
 
     public long readHeapBaseAddress(TaskMetaData meta) {
         final OCLByteBuffer parameters = deviceContext.getMemoryManager().getSubBuffer(0, 16);
+        final long address = runLookupKernel(parameters, meta);
+        Tornado.info("Heap address @ 0x%x on %s ", address, deviceContext.getDevice().getDeviceName());
+        return address;
+    }
+
+    /**
+     * Reads the device address of the OpenCL buffer that contains
+     * {@code parameters}, which is used as the heap of the lookup kernel. The
+     * address is written at the start of {@code parameters}.
+     */
+    public long readBufferAddress(OCLByteBuffer parameters) {
+        // The buffer is not initialised yet
+        parameters.write();
+        return runLookupKernel(parameters, lookupMeta);
+    }
+
+    private long runLookupKernel(OCLByteBuffer parameters, TaskMetaData meta) {
         parameters.putLong(0);
 
         int task = lookupCode.executeTask(parameters, null, meta);
         lookupCode.readValue(parameters, meta, task);
         lookupCode.resolveEvent(parameters, meta, task);
 
-        final long address = parameters.getLong(0);
-        Tornado.info("Heap address @ 0x%x on %s ", address, deviceContext.getDevice().getDeviceName());
-        return address;
+        return parameters.getLong(0);
     }
 
     /**
@@ -344,6 +360,7 @@ public class OCLBackend extends TornadoBackend<OCLProviders> implements FrameMap
     }
 
     private void runAndReadLookUpKernel(TaskMetaData meta) {
+        lookupMeta = meta;
         deviceContext.getMemoryManager().init(this, readHeapBaseAddress(meta));
     }
 
@@ -491,6 +508,20 @@ public class OCLBackend extends TornadoBackend<OCLProviders> implements FrameMap
         asm.emitLine("}");
     }
 
+    /**
+     * With per-object buffers, the kernel receives the buffer of the object in
+     * every slot of the call stack after the ABI arguments. The slot keeps the
+     * offset of the object within its buffer.
+     */
+    private static String getObjectBufferParameters(ResolvedJavaMethod method) {
+        final StringBuilder sb = new StringBuilder();
+        final int numArgs = method.getSignature().getParameterCount(!method.isStatic());
+        for (int i = 0; i < numArgs; i++) {
+            sb.append(String.format(", %s uchar *%s%d", OCLAssemblerConstants.GLOBAL_MEM_MODIFIER, OCLAssemblerConstants.OBJECT_BUFFER_NAME, OCLAssemblerConstants.STACK_BASE_OFFSET + i));
+        }
+        return sb.toString();
+    }
+
     private void emitPrologue(OCLCompilationResultBuilder crb, OCLAssembler asm, ResolvedJavaMethod method, LIR lir) {
 
         String methodName = crb.compilationResult.getName();
@@ -510,7 +541,9 @@ public class OCLBackend extends TornadoBackend<OCLProviders> implements FrameMap
 
             final String bumpBuffer = (deviceContext.needsBump()) ? String.format("%s void *dummy, ", OCLAssemblerConstants.GLOBAL_MEM_MODIFIER) : "";
 
-            asm.emitLine("%s void %s(%s%s)", OCLAssemblerConstants.KERNEL_MODIFIER, methodName, bumpBuffer, architecture.getABI());
+            final String objectBuffers = (deviceContext.usePerObjectBuffers() && method != null) ? getObjectBufferParameters(method) : "";
+
+            asm.emitLine("%s void %s(%s%s%s)", OCLAssemblerConstants.KERNEL_MODIFIER, methodName, bumpBuffer, architecture.getABI(), objectBuffers);
             asm.beginScope();
             emitVariableDefs(crb, asm, lir);
             asm.eol();
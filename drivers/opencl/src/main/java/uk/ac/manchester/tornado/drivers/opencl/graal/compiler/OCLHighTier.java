@@ -49,11 +49,14 @@ import org.graalvm.compiler.virtual.phases.ea.PartialEscapePhase;
 
 import jdk.vm.ci.meta.MetaAccessProvider;
 import uk.ac.manchester.tornado.api.TornadoDeviceContext;
+import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoAutoVectoriser;
+import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoLocalMemoryTiling;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoNewArrayDevirtualizationReplacement;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoOpenCLIntrinsicsReplacements;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoParallelScheduler;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoPragmaUnroll;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoTaskSpecialisation;
+import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoThreadCoarsener;
 import uk.ac.manchester.tornado.drivers.opencl.graal.phases.TornadoThreadScheduler;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoHighTier;
@@ -112,7 +115,12 @@ public class OCLHighTier extends TornadoHighTier {
 
         appendPhase(new TornadoShapeAnalysis());
         appendPhase(canonicalizer);
+        if (!deviceContext.isPlatformFPGA()) {
+            appendPhase(new TornadoLocalMemoryTiling());
+        }
+        appendPhase(new TornadoAutoVectoriser());
         appendPhase(new TornadoParallelScheduler());
+        appendPhase(new TornadoThreadCoarsener());
         appendPhase(new SchedulePhase(SchedulePhase.SchedulingStrategy.EARLIEST));
         if (deviceContext.isPlatformFPGA()) {
             appendPhase(new TornadoPragmaUnroll());
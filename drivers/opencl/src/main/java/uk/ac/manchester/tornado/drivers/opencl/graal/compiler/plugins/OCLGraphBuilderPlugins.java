@@ -93,6 +93,7 @@ public class OCLGraphBuilderPlugins {
 
         OCLMathPlugins.registerTornadoMathPlugins(plugins);
         VectorPlugins.registerPlugins(ps, plugins);
+        OffHeapArrayPlugins.registerPlugins(plugins);
 
         // Register TornadoAtomicInteger
         registerTornadoAtomicInteger(ps, plugins);
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.graal.compiler.plugins;
+
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderContext;
+import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugin;
+import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugin.Receiver;
+import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins;
+import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins.Registration;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.collections.arrays.DoubleArray;
+import uk.ac.manchester.tornado.api.collections.arrays.FloatArray;
+import uk.ac.manchester.tornado.api.collections.arrays.IntArray;
+import uk.ac.manchester.tornado.api.collections.arrays.LongArray;
+import uk.ac.manchester.tornado.api.collections.arrays.OffHeapArray;
+
+/**
+ * The device buffer of an off-heap array has the layout of a Java array, so the
+ * accessors of the off-heap arrays are compiled to array accesses on the
+ * receiver.
+ */
+public class OffHeapArrayPlugins {
+
+    public static void registerPlugins(InvocationPlugins plugins) {
+        registerSizePlugin(new Registration(plugins, OffHeapArray.class));
+        registerAccessPlugins(new Registration(plugins, FloatArray.class), JavaKind.Float);
+        registerAccessPlugins(new Registration(plugins, IntArray.class), JavaKind.Int);
+        registerAccessPlugins(new Registration(plugins, DoubleArray.class), JavaKind.Double);
+        registerAccessPlugins(new Registration(plugins, LongArray.class), JavaKind.Long);
+    }
+
+    private static void registerSizePlugin(Registration r) {
+        r.register1("getSize", Receiver.class, new InvocationPlugin() {
+            @Override
+            public boolean apply(GraphBuilderContext b, ResolvedJavaMethod targetMethod, Receiver receiver) {
+                b.addPush(JavaKind.Int, new ArrayLengthNode(receiver.get()));
+                return true;
+            }
+        });
+    }
+
+    private static void registerAccessPlugins(Registration r, JavaKind kind) {
+        r.register2("get", Receiver.class, int.class, new InvocationPlugin() {
+            @Override
+            public boolean apply(GraphBuilderContext b, ResolvedJavaMethod targetMethod, Receiver receiver, ValueNode index) {
+                b.addPush(kind, new LoadIndexedNode(null, receiver.get(), index, null, kind));
+                return true;
+            }
+        });
+
+        r.register3("set", Receiver.class, int.class, kind.toJavaClass(), new InvocationPlugin() {
+            @Override
+            public boolean apply(GraphBuilderContext b, ResolvedJavaMethod targetMethod, Receiver receiver, ValueNode index, ValueNode value) {
+                b.add(new StoreIndexedNode(receiver.get(), index, null, null, kind, value));
+                return true;
+            }
+        });
+    }
+}
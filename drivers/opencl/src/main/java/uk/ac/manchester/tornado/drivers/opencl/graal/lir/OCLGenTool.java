@@ -82,7 +82,11 @@ public class OCLGenTool {
         OCLTargetDescription oclTarget = gen.target();
 
         Variable result = (oclKind.isVector()) ? gen.newVariable(LIRKind.value(oclTarget.getOCLKind(JavaKind.Object))) : gen.newVariable(lirKind);
-        emitParameterLoad(result, index);
+        if (paramNode.getStackKind().isObject()) {
+            emitObjectParameterLoad(result, index);
+        } else {
+            emitParameterLoad(result, index);
+        }
 
         if (oclKind.isVector()) {
 
@@ -126,6 +130,11 @@ public class OCLGenTool {
         return null;
     }
 
+    private void emitObjectParameterLoad(AllocatableValue dst, int index) {
+        gen.append(new AssignStmt(dst, new OCLUnary.Expr(OCLUnaryTemplate.LOAD_PARAM_OBJECT, LIRKind.value(dst.getPlatformKind()),
+                new ConstantValue(LIRKind.value(OCLKind.INT), JavaConstant.forInt(index + OCLAssemblerConstants.STACK_BASE_OFFSET)))));
+    }
+
     private void emitParameterLoad(AllocatableValue dst, int index) {
         OCLKind oclKind = (OCLKind) dst.getPlatformKind();
         LIRKind lirKind = LIRKind.value(oclKind);
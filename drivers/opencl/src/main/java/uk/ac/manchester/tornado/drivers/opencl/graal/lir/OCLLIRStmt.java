@@ -23,6 +23,7 @@
  */
 package uk.ac.manchester.tornado.drivers.opencl.graal.lir;
 
+import org.graalvm.compiler.core.common.LIRKind;
 import org.graalvm.compiler.lir.LIRInstruction;
 import org.graalvm.compiler.lir.LIRInstructionClass;
 import org.graalvm.compiler.lir.Opcode;
@@ -33,6 +34,7 @@ import jdk.vm.ci.meta.Value;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler.OCLBinaryIntrinsic;
 import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler.OCLTernaryIntrinsic;
+import uk.ac.manchester.tornado.drivers.opencl.graal.asm.OCLAssembler.OCLUnaryIntrinsic;
 import uk.ac.manchester.tornado.drivers.opencl.graal.compiler.OCLCompilationResultBuilder;
 import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLUnary.MemoryAccess;
 import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLUnary.OCLAddressCast;
@@ -798,6 +800,51 @@ public class OCLLIRStmt {
         }
     }
 
+    @Opcode("ATOMIC_INC")
+    public static class AtomicIncrementStmt extends AbstractInstruction {
+
+        public static final LIRInstructionClass<AtomicIncrementStmt> TYPE = LIRInstructionClass.create(AtomicIncrementStmt.class);
+
+        @Def
+        protected AllocatableValue result;
+        @Use
+        protected OCLAddressCast cast;
+        @Use
+        protected MemoryAccess address;
+
+        public AtomicIncrementStmt(AllocatableValue result, MemoryAccess address) {
+            super(TYPE);
+            this.result = result;
+            this.cast = new OCLAddressCast(address.getBase(), LIRKind.value(OCLKind.INT));
+            this.address = address;
+        }
+
+        @Override
+        public void emitCode(OCLCompilationResultBuilder crb, OCLAssembler asm) {
+            asm.indent();
+            asm.emitValue(crb, result);
+            asm.space();
+            asm.assign();
+            asm.space();
+            asm.emit(OCLUnaryIntrinsic.ATOMIC_INC.toString());
+            asm.emit("( & (*(");
+            cast.emit(crb, asm);
+            asm.space();
+            address.emit(crb, asm);
+            asm.emit(")))");
+            asm.delimiter();
+            asm.eol();
+        }
+
+        public AllocatableValue getResult() {
+            return result;
+        }
+
+        public MemoryAccess getAddress() {
+            return address;
+        }
+    }
+
     @Opcode("VSTORE")
     public static class VectorStoreStmt extends AbstractInstruction {
 
@@ -56,14 +56,20 @@ public class LocalArrayNode extends FixedNode implements LIRLowerable, MarkLocal
     protected OCLArchitecture.OCLMemoryBase memoryRegister;
     protected ResolvedJavaType elementType;
     protected OCLAssembler.OCLBinaryTemplate arrayTemplate;
+    protected boolean fixedLength;
 
     public LocalArrayNode(OCLArchitecture.OCLMemoryBase memoryRegister, ResolvedJavaType elementType, ConstantNode length) {
+        this(memoryRegister, elementType, length, false);
+    }
+
+    public LocalArrayNode(OCLArchitecture.OCLMemoryBase memoryRegister, ResolvedJavaType elementType, ConstantNode length, boolean fixedLength) {
         super(TYPE, StampFactory.objectNonNull(TypeReference.createTrustedWithoutAssumptions(elementType.getArrayClass())));
         this.memoryRegister = memoryRegister;
         this.length = length;
         this.elementType = elementType;
         this.elementKind = OCLKind.fromResolvedJavaType(elementType);
         this.arrayTemplate = OCLKind.resolveTemplateType(elementType);
+        this.fixedLength = fixedLength;
     }
 
     public LocalArrayNode(OCLArchitecture.OCLMemoryBase memoryRegister, JavaKind elementType, ConstantNode length) {
@@ -85,6 +91,11 @@ public class LocalArrayNode extends FixedNode implements LIRLowerable, MarkLocal
         return length;
     }
 
+    @Override
+    public boolean hasFixedLength() {
+        return fixedLength;
+    }
+
     @Override
     public void generate(NodeLIRBuilderTool gen) {
         final Value lengthValue = gen.operand(length);
@@ -0,0 +1,552 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.graal.phases;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopFragmentWhole;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractMergeNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.BinaryArithmeticNode;
+import org.graalvm.compiler.nodes.calc.FloatDivNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.extended.GuardingNode;
+import org.graalvm.compiler.nodes.java.AccessIndexedNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.drivers.opencl.graal.lir.OCLKind;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorAddNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorDivNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorLoadNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorMulNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorStoreNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.vector.VectorSubNode;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
+import uk.ac.manchester.tornado.runtime.domain.IntDomain;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelOffsetNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelStrideNode;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoHighTierContext;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Widens the unit-stride parallel loops over primitive arrays into loops over
+ * OpenCL vectors ({@code -Dtornado.experimental.vectorize=True}). Each
+ * iteration of the vectorised loop processes
+ * {@link TornadoOptions#VECTORIZE_WIDTH} consecutive elements with
+ * {@code vloadN}/{@code vstoreN} and vector arithmetic, and a copy of the
+ * original loop executes the remaining elements.
+ *
+ * <p>
+ * Only the innermost parallel loops with constant bounds whose body is a
+ * straight sequence of loads and stores of {@code int}, {@code float} or
+ * {@code double} elements at {@code i} (or {@code base + i}, with a
+ * loop-invariant {@code base}) are vectorised. The stored values can only be
+ * computed with additions, subtractions, multiplications and floating-point
+ * divisions of the loaded values and of loop-invariant scalars. The iterations
+ * of a parallel loop are independent, so no dependence analysis is needed.
+ * </p>
+ *
+ * <p>
+ * Both loops are left as parallel loops starting at 0 with stride 1, so the
+ * parallel scheduler and the thread coarsener handle them as any other loop,
+ * and the domain of the task is reduced to the iterations of the longest one.
+ * </p>
+ */
+public class TornadoAutoVectoriser extends BasePhase<TornadoHighTierContext> {
+
+    private static final class VectorisableLoop {
+        private final ParallelRangeNode range;
+        private final LoopBeginNode loopBegin;
+        private final ValuePhiNode phi;
+        private final ValueNode increment;
+        private final IntegerLessThanNode condition;
+        private final List<LoadIndexedNode> loads;
+        private final List<StoreIndexedNode> stores;
+        private final Set<ValueNode> vectorValues;
+        private final JavaKind elementKind;
+        private final int offset;
+        private final int limit;
+
+        VectorisableLoop(ParallelRangeNode range, LoopBeginNode loopBegin, ValuePhiNode phi, ValueNode increment, IntegerLessThanNode condition, List<LoadIndexedNode> loads,
+                List<StoreIndexedNode> stores, Set<ValueNode> vectorValues, JavaKind elementKind, int offset, int limit) {
+            this.range = range;
+            this.loopBegin = loopBegin;
+            this.phi = phi;
+            this.increment = increment;
+            this.condition = condition;
+            this.loads = loads;
+            this.stores = stores;
+            this.vectorValues = vectorValues;
+            this.elementKind = elementKind;
+            this.offset = offset;
+            this.limit = limit;
+        }
+    }
+
+    private static boolean isSupportedWidth(int width) {
+        return width == 4 || width == 8 || width == 16;
+    }
+
+    private static OCLKind resolveVectorKind(JavaKind elementKind, int width) {
+        switch (elementKind) {
+            case Int:
+                return (width == 4) ? OCLKind.INT4 : (width == 8) ? OCLKind.INT8 : OCLKind.INT16;
+            case Float:
+                return (width == 4) ? OCLKind.FLOAT4 : (width == 8) ? OCLKind.FLOAT8 : OCLKind.FLOAT16;
+            case Double:
+                return (width == 4) ? OCLKind.DOUBLE4 : (width == 8) ? OCLKind.DOUBLE8 : OCLKind.DOUBLE16;
+            default:
+                return OCLKind.ILLEGAL;
+        }
+    }
+
+    private static int resolveInt(ValueNode value) {
+        if (value instanceof ConstantNode && value.getStackKind() == JavaKind.Int) {
+            return ((ConstantNode) value).asJavaConstant().asInt();
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    private static ConstantNode intConstant(StructuredGraph graph, int value) {
+        return graph.addOrUnique(ConstantNode.forInt(value));
+    }
+
+    private static ValueNode add(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUnique(new AddNode(x, y));
+    }
+
+    private static boolean isInputPair(BinaryArithmeticNode<?> node, ValueNode a, ValueNode b) {
+        return (node.getX() == a && node.getY() == b) || (node.getX() == b && node.getY() == a);
+    }
+
+    /**
+     * An index is either the induction variable or the induction variable plus a
+     * loop-invariant value.
+     */
+    private static boolean isUnitStrideIndex(ValueNode index, ValuePhiNode phi, LoopEx loop) {
+        if (index == phi) {
+            return true;
+        }
+        if (index instanceof AddNode) {
+            AddNode add = (AddNode) index;
+            return (add.getX() == phi && loop.isOutsideLoop(add.getY())) || (add.getY() == phi && loop.isOutsideLoop(add.getX()));
+        }
+        return false;
+    }
+
+    private static boolean isGuardCondition(Node node) {
+        return node instanceof LogicNode && node.usages().filter(usage -> !(usage instanceof GuardNode)).isEmpty();
+    }
+
+    /**
+     * Collects into {@code vectorValues} the values computed from the loaded
+     * elements. Returns false if {@code value} cannot be computed with vectors.
+     */
+    private static boolean collectVectorValues(ValueNode value, JavaKind elementKind, List<LoadIndexedNode> loads, LoopEx loop, Set<ValueNode> vectorValues) {
+        if (vectorValues.contains(value)) {
+            return true;
+        } else if (loads.contains(value)) {
+            vectorValues.add(value);
+            return true;
+        } else if (loop.isOutsideLoop(value)) {
+            return value.getStackKind() == elementKind.getStackKind();
+        } else if (value instanceof AddNode || value instanceof SubNode || value instanceof MulNode || value instanceof FloatDivNode) {
+            BinaryArithmeticNode<?> binary = (BinaryArithmeticNode<?>) value;
+            if (value.getStackKind() != elementKind.getStackKind() || !collectVectorValues(binary.getX(), elementKind, loads, loop, vectorValues)
+                    || !collectVectorValues(binary.getY(), elementKind, loads, loop, vectorValues)) {
+                return false;
+            }
+            vectorValues.add(value);
+            return true;
+        }
+        return false;
+    }
+
+    private static VectorisableLoop analyse(LoopsData data, ParallelRangeNode range) {
+        final int offset = resolveInt(range.offset().value());
+        final int limit = resolveInt(range.value());
+        if (resolveInt(range.stride().value()) != 1 || offset == Integer.MIN_VALUE || limit == Integer.MIN_VALUE) {
+            return null;
+        }
+
+        final List<ValuePhiNode> phis = range.offset().usages().filter(ValuePhiNode.class).snapshot();
+        if (phis.size() != 1) {
+            return null;
+        }
+        final ValuePhiNode phi = phis.get(0);
+        if (!(phi.merge() instanceof LoopBeginNode) || phi.valueCount() != 2 || phi.valueAt(0) != range.offset()) {
+            return null;
+        }
+
+        final LoopBeginNode loopBegin = (LoopBeginNode) phi.merge();
+        final LoopEx loop = data.loop(loopBegin);
+        if (loop == null || !loop.loop().getChildren().isEmpty() || loopBegin.phis().count() != 1 || loopBegin.loopEnds().count() != 1 || loopBegin.loopExits().count() != 1) {
+            return null;
+        }
+        final LoopExitNode loopExit = loopBegin.loopExits().first();
+        if (loopExit.proxies().isNotEmpty()) {
+            return null;
+        }
+
+        final ValueNode increment = phi.valueAt(1);
+        if (!(increment instanceof AddNode) || !isInputPair((AddNode) increment, phi, range.stride())) {
+            return null;
+        }
+
+        if (!(loopBegin.next() instanceof IfNode)) {
+            return null;
+        }
+        final IfNode loopTest = (IfNode) loopBegin.next();
+        if (!(loopTest.condition() instanceof IntegerLessThanNode) || loopTest.falseSuccessor() != loopExit) {
+            return null;
+        }
+        final IntegerLessThanNode condition = (IntegerLessThanNode) loopTest.condition();
+        if (condition.getX() != phi || condition.getY() != range) {
+            return null;
+        }
+
+        // The body must be a straight sequence of array accesses
+        final List<LoadIndexedNode> loads = new ArrayList<>();
+        final List<StoreIndexedNode> stores = new ArrayList<>();
+        JavaKind elementKind = null;
+        FixedNode node = loopTest.trueSuccessor().next();
+        while (!(node instanceof LoopEndNode)) {
+            if (node instanceof LoadIndexedNode) {
+                loads.add((LoadIndexedNode) node);
+            } else if (node instanceof StoreIndexedNode) {
+                stores.add((StoreIndexedNode) node);
+            } else {
+                return null;
+            }
+            AccessIndexedNode access = (AccessIndexedNode) node;
+            if (elementKind == null) {
+                elementKind = access.elementKind();
+            }
+            if (access.elementKind() != elementKind || !isUnitStrideIndex(access.index(), phi, loop) || !loop.isOutsideLoop(access.array())) {
+                return null;
+            }
+            node = access.next();
+        }
+        if (stores.isEmpty() || (elementKind != JavaKind.Int && elementKind != JavaKind.Float && elementKind != JavaKind.Double)) {
+            return null;
+        }
+
+        // Every stored value has to be computed with vectors
+        final Set<ValueNode> vectorValues = new HashSet<>();
+        for (StoreIndexedNode store : stores) {
+            if (!collectVectorValues(store.value(), elementKind, loads, loop, vectorValues) || !vectorValues.contains(store.value())) {
+                return null;
+            }
+        }
+        for (LoadIndexedNode load : loads) {
+            if (!vectorValues.contains(load)) {
+                return null;
+            }
+        }
+        for (ValueNode value : vectorValues) {
+            for (Node usage : value.usages()) {
+                if (!vectorValues.contains(usage) && !(usage instanceof FrameState) && !(usage instanceof StoreIndexedNode && ((StoreIndexedNode) usage).value() == value)) {
+                    return null;
+                }
+            }
+        }
+
+        // The induction variable can only be used to index the accesses
+        final Set<Node> indexes = new HashSet<>();
+        for (LoadIndexedNode load : loads) {
+            indexes.add(load.index());
+        }
+        for (StoreIndexedNode store : stores) {
+            indexes.add(store.index());
+        }
+        for (Node usage : phi.usages()) {
+            if (usage != condition && usage != increment && !(usage instanceof FrameState) && !indexes.contains(usage) && !isGuardCondition(usage)) {
+                return null;
+            }
+        }
+        for (Node index : indexes) {
+            if (index == phi) {
+                continue;
+            }
+            for (Node usage : index.usages()) {
+                if (!(usage instanceof AccessIndexedNode && ((AccessIndexedNode) usage).index() == index) && !(usage instanceof FrameState) && !isGuardCondition(usage)) {
+                    return null;
+                }
+            }
+        }
+
+        return new VectorisableLoop(range, loopBegin, phi, increment, condition, loads, stores, vectorValues, elementKind, offset, limit);
+    }
+
+    private static ParallelRangeNode createRange(StructuredGraph graph, int index, int iterations) {
+        final ParallelOffsetNode offset = graph.addWithoutUnique(new ParallelOffsetNode(index, intConstant(graph, 0)));
+        final ParallelStrideNode stride = graph.addWithoutUnique(new ParallelStrideNode(index, intConstant(graph, 1)));
+        return graph.addWithoutUnique(new ParallelRangeNode(index, intConstant(graph, iterations), offset, stride));
+    }
+
+    /**
+     * Makes the loop iterate over {@code [0, range)} with stride 1.
+     */
+    private static void normalise(ValuePhiNode phi, ValueNode increment, IntegerLessThanNode condition, ParallelRangeNode oldRange, ParallelRangeNode range) {
+        phi.setValueAt(0, range.offset());
+        increment.replaceFirstInput(oldRange.stride(), range.stride());
+        condition.replaceFirstInput(oldRange, range);
+    }
+
+    private static ValueNode relocateIndex(StructuredGraph graph, ValueNode index, ValuePhiNode phi, ValueNode newIndex) {
+        if (index == phi) {
+            return newIndex;
+        }
+        final AddNode add = (AddNode) index;
+        return (add.getX() == phi) ? add(graph, newIndex, add.getY()) : add(graph, add.getX(), newIndex);
+    }
+
+    private static ValueNode vectorise(StructuredGraph graph, ValueNode value, OCLKind vectorKind, Set<ValueNode> vectorValues, Map<ValueNode, ValueNode> vectors) {
+        if (!vectorValues.contains(value)) {
+            // Loop-invariant scalars are promoted by the OpenCL C operators
+            return value;
+        } else if (vectors.containsKey(value)) {
+            return vectors.get(value);
+        }
+
+        final BinaryArithmeticNode<?> binary = (BinaryArithmeticNode<?>) value;
+        final ValueNode x = vectorise(graph, binary.getX(), vectorKind, vectorValues, vectors);
+        final ValueNode y = vectorise(graph, binary.getY(), vectorKind, vectorValues, vectors);
+
+        final ValueNode vector;
+        if (value instanceof AddNode) {
+            // The stamp of a vector addition is taken from its first input
+            vector = vectorValues.contains(binary.getX()) ? new VectorAddNode(vectorKind, x, y) : new VectorAddNode(vectorKind, y, x);
+        } else if (value instanceof SubNode) {
+            vector = new VectorSubNode(vectorKind, x, y);
+        } else if (value instanceof MulNode) {
+            vector = new VectorMulNode(vectorKind, x, y);
+        } else {
+            vector = new VectorDivNode(vectorKind, x, y);
+        }
+        final ValueNode result = graph.addWithoutUnique(vector);
+        vectors.put(value, result);
+        return result;
+    }
+
+    private static EndNode getBlockEnd(FixedNode node) {
+        FixedNode current = node;
+        while (current instanceof FixedWithNextNode) {
+            current = ((FixedWithNextNode) current).next();
+        }
+        return (EndNode) current;
+    }
+
+    private static void cleanupMerge(AbstractMergeNode merge, LoopExitNode landing) {
+        for (EndNode end : merge.cfgPredecessors().snapshot()) {
+            merge.removeEnd(end);
+            end.safeDelete();
+        }
+        merge.prepareDelete(landing);
+        merge.safeDelete();
+    }
+
+    private static void killGuard(GuardingNode guard) {
+        if (guard instanceof GuardNode && ((GuardNode) guard).isAlive() && ((GuardNode) guard).hasNoUsages()) {
+            GraphUtil.killWithUnusedFloatingInputs((GuardNode) guard, true);
+        }
+    }
+
+    /**
+     * Inserts a copy of the scalar loop after the loop, which executes the
+     * {@code remainder} last iterations.
+     */
+    private static void insertEpilogue(StructuredGraph graph, LoopsData data, VectorisableLoop candidate, int firstElement, int remainder) {
+        final LoopEx loop = data.loop(candidate.loopBegin);
+        final LoopExitNode mainExit = candidate.loopBegin.loopExits().first();
+        final FixedNode continuation = mainExit.next();
+
+        final LoopFragmentWhole epilogue = loop.whole().duplicate();
+        final LoopBeginNode epilogueBegin = epilogue.getDuplicatedNode(candidate.loopBegin);
+        final LoopExitNode epilogueExit = epilogueBegin.loopExits().first();
+        final AbstractMergeNode merge = getBlockEnd(epilogueExit.next()).merge();
+
+        mainExit.setNext(epilogueBegin.forwardEnd());
+        continuation.predecessor().clearSuccessors();
+        epilogueExit.setNext(continuation);
+        cleanupMerge(merge, epilogueExit);
+
+        final ValuePhiNode phi = epilogue.getDuplicatedNode(candidate.phi);
+        final ValueNode increment = epilogue.getDuplicatedNode(candidate.increment);
+        final IntegerLessThanNode condition = epilogue.getDuplicatedNode(candidate.condition);
+        normalise(phi, increment, condition, candidate.range, createRange(graph, candidate.range.index(), remainder));
+
+        final ValueNode index = add(graph, intConstant(graph, firstElement), phi);
+        for (Node usage : phi.usages().snapshot()) {
+            if (usage != index && usage != increment && usage != condition && !(usage instanceof FrameState)) {
+                usage.replaceAllInputs(phi, index);
+            }
+        }
+    }
+
+    /**
+     * Replaces the scalar accesses and arithmetic of the loop by vector ones, so
+     * that each iteration processes {@code width} elements.
+     */
+    private static void vectoriseLoop(StructuredGraph graph, VectorisableLoop candidate, int width, int iterations) {
+        final ParallelRangeNode range = createRange(graph, candidate.range.index(), iterations);
+        normalise(candidate.phi, candidate.increment, candidate.condition, candidate.range, range);
+
+        final OCLKind vectorKind = resolveVectorKind(candidate.elementKind, width);
+        final ValueNode base = add(graph, intConstant(graph, candidate.offset), graph.addOrUnique(new MulNode(candidate.phi, intConstant(graph, width))));
+        final Map<ValueNode, ValueNode> vectors = new HashMap<>();
+
+        for (LoadIndexedNode load : candidate.loads) {
+            final ValueNode index = relocateIndex(graph, load.index(), candidate.phi, base);
+            final VectorLoadNode vectorLoad = graph.add(new VectorLoadNode(vectorKind, load.array(), index));
+            graph.addBeforeFixed(load, vectorLoad);
+            vectors.put(load, vectorLoad);
+        }
+
+        for (StoreIndexedNode store : candidate.stores) {
+            final ValueNode index = relocateIndex(graph, store.index(), candidate.phi, base);
+            final ValueNode value = vectorise(graph, store.value(), vectorKind, candidate.vectorValues, vectors);
+            final FrameState stateAfter = store.stateAfter();
+            final GuardingNode guard = store.getBoundsCheck();
+            final VectorStoreNode vectorStore = graph.add(new VectorStoreNode(vectorKind, store.array(), index, value));
+            graph.replaceFixedWithFixed(store, vectorStore);
+            if (stateAfter != null && stateAfter.isAlive() && stateAfter.hasNoUsages()) {
+                GraphUtil.killWithUnusedFloatingInputs(stateAfter);
+            }
+            killGuard(guard);
+        }
+
+        for (ValueNode value : candidate.vectorValues) {
+            if (!(value instanceof LoadIndexedNode) && value.isAlive() && value.hasNoUsages()) {
+                GraphUtil.killWithUnusedFloatingInputs(value);
+            }
+        }
+        for (LoadIndexedNode load : candidate.loads) {
+            final GuardingNode guard = load.getBoundsCheck();
+            // Only frame states can still refer to the scalar load
+            load.replaceAtUsages(vectors.get(load));
+            graph.removeFixed(load);
+            killGuard(guard);
+        }
+
+        if (candidate.range.hasNoUsages()) {
+            GraphUtil.killWithUnusedFloatingInputs(candidate.range);
+        }
+    }
+
+    /**
+     * Launches one work-item per vector iteration. The domain is stored with the
+     * kernel in the persistent cache, so kernels loaded from it are launched with
+     * the same domain.
+     */
+    private static void updateDomain(TaskMetaData meta, int index, int threads) {
+        final DomainTree domain = meta.getDomain();
+        if (domain != null && index < domain.getDepth() && domain.get(index) instanceof IntDomain) {
+            domain.set(index, new IntDomain(0, 1, threads));
+        }
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        final TaskMetaData meta = context.getMeta();
+        if (!TornadoOptions.VECTORIZE || meta == null || !meta.hasDomain() || !graph.hasLoops()) {
+            return;
+        }
+
+        final int width = TornadoOptions.VECTORIZE_WIDTH;
+        if (!isSupportedWidth(width)) {
+            Tornado.warn("unsupported vector width %d: loops will not be vectorised", width);
+            return;
+        }
+        if (meta.enableThreadCoarsener() && meta.canAssumeExact()) {
+            // The exact coarsening factor would not hold for both loops
+            return;
+        }
+
+        final List<ParallelRangeNode> ranges = graph.getNodes().filter(ParallelRangeNode.class).snapshot();
+        for (ParallelRangeNode range : ranges) {
+            if (ranges.stream().filter(other -> other.index() == range.index()).count() > 1) {
+                // The loops sharing the dimension would need the same domain
+                continue;
+            }
+            final LoopsData data = new LoopsData(graph);
+            final VectorisableLoop candidate = analyse(data, range);
+            if (candidate == null) {
+                continue;
+            }
+
+            final int elements = candidate.limit - candidate.offset;
+            final int iterations = elements / width;
+            final int remainder = elements - iterations * width;
+            if (iterations == 0) {
+                continue;
+            }
+
+            final int index = range.index();
+            if (remainder > 0) {
+                insertEpilogue(graph, data, candidate, candidate.offset + iterations * width, remainder);
+            }
+            vectoriseLoop(graph, candidate, width, iterations);
+            updateDomain(meta, index, Math.max(iterations, remainder));
+
+            Tornado.debug("vectorised parallel loop index=%d with width %d (%d vector iterations, %d scalar)", index, width, iterations, remainder);
+            getDebugContext().dump(DebugContext.BASIC_LEVEL, graph, "after vectorising loop index=" + index);
+        }
+        graph.clearLastSchedule();
+    }
+}
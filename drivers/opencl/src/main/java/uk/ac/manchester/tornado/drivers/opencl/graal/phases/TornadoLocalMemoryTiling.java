@@ -0,0 +1,914 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.graal.phases;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.loop.LoopEx;
+import org.graalvm.compiler.loop.LoopsData;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.BeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.GuardNode;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LogicNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.MergeNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.AndNode;
+import org.graalvm.compiler.nodes.calc.BinaryArithmeticNode;
+import org.graalvm.compiler.nodes.calc.IntegerEqualsNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.LeftShiftNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.NegateNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.nodes.extended.GuardingNode;
+import org.graalvm.compiler.nodes.java.LoadFieldNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.nodes.util.GraphUtil;
+import org.graalvm.compiler.phases.BasePhase;
+
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import uk.ac.manchester.tornado.api.TornadoTargetDevice;
+import uk.ac.manchester.tornado.drivers.opencl.graal.OCLArchitecture;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.LocalArrayNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.LocalThreadIdNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLBarrierNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLBarrierNode.OCLMemFenceFlags;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLIntBinaryIntrinsicNode;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
+import uk.ac.manchester.tornado.runtime.domain.IntDomain;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoHighTierContext;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Stages in local memory the elements that neighbouring work-items of a 2D
+ * parallel loop nest read from global memory
+ * ({@code -Dtornado.experimental.tiling=True}). The kernel is launched with
+ * square work-groups of {@code TS x TS} work-items, and each work-group
+ * cooperatively copies the elements it needs into tiles of {@code __local}
+ * memory before reading them from there.
+ *
+ * <p>
+ * Two loop nests are tiled, both with constant bounds and unit strides, and
+ * with array indexes that are affine functions of the induction variables:
+ * <ul>
+ * <li>Stencils, where the body of the inner parallel loop is a straight
+ * sequence of loads and stores, and an array is read at
+ * {@code (i + di) * rowStride + (j + dj)} for several small offsets
+ * {@code (di, dj)}. The tile holds the block of the work-group with its
+ * halo.</li>
+ * <li>Matrix products, where the body of the inner parallel loop is a
+ * sequential loop over {@code k} that only loads, followed by the stores of
+ * the results. The arrays indexed by {@code i} and {@code k}, or by {@code j}
+ * and {@code k}, are staged in {@code TS x TS} tiles every {@code TS}
+ * iterations of {@code k}.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * The iteration space is padded to a multiple of the tile size, so that every
+ * work-item of a work-group reaches the barriers. The additional work-items
+ * only help to fill the tiles, with indexes clamped into the range read by the
+ * original loop nest, and do not execute the stores. The tile size is selected
+ * from the work-group and local memory limits of the device, unless it is set
+ * with {@link TornadoOptions#LOCAL_MEMORY_TILE_SIZE}.
+ * </p>
+ */
+public class TornadoLocalMemoryTiling extends BasePhase<TornadoHighTierContext> {
+
+    private static final int[] TILE_SIZES = { 16, 8 };
+
+    private static final int MAX_HALO = 4;
+
+    private static final double VALID_PROBABILITY = 0.9;
+
+    /**
+     * The affine function {@code c0 + ci * i + cj * j + ck * k} of the induction
+     * variables of the loop nest.
+     */
+    private static final class Affine {
+        private final long c0;
+        private final long ci;
+        private final long cj;
+        private final long ck;
+
+        Affine(long c0, long ci, long cj, long ck) {
+            this.c0 = c0;
+            this.ci = ci;
+            this.cj = cj;
+            this.ck = ck;
+        }
+
+        Affine add(Affine other) {
+            return new Affine(c0 + other.c0, ci + other.ci, cj + other.cj, ck + other.ck);
+        }
+
+        Affine scale(long factor) {
+            return new Affine(c0 * factor, ci * factor, cj * factor, ck * factor);
+        }
+
+        boolean isConstant() {
+            return ci == 0 && cj == 0 && ck == 0;
+        }
+
+        boolean fitsInt() {
+            return isInt(c0) && isInt(ci) && isInt(cj) && isInt(ck);
+        }
+
+        boolean sameAs(Affine other) {
+            return c0 == other.c0 && ci == other.ci && cj == other.cj && ck == other.ck;
+        }
+
+        private static long extreme(long coefficient, long lower, long upper, boolean maximum) {
+            return maximum ? Math.max(coefficient * lower, coefficient * upper) : Math.min(coefficient * lower, coefficient * upper);
+        }
+
+        /**
+         * Smallest or largest value over the box {@code [lower, upper]} of the
+         * induction variables {@code (i, j, k)}.
+         */
+        long bound(long[] lower, long[] upper, boolean maximum) {
+            return c0 + extreme(ci, lower[0], upper[0], maximum) + extreme(cj, lower[1], upper[1], maximum) + extreme(ck, lower[2], upper[2], maximum);
+        }
+    }
+
+    private static final class ParallelLoop {
+        private final ParallelRangeNode range;
+        private final LoopBeginNode loopBegin;
+        private final ValuePhiNode phi;
+        private final IfNode loopTest;
+        private final int offset;
+        private final int limit;
+
+        ParallelLoop(ParallelRangeNode range, LoopBeginNode loopBegin, ValuePhiNode phi, IfNode loopTest, int offset, int limit) {
+            this.range = range;
+            this.loopBegin = loopBegin;
+            this.phi = phi;
+            this.loopTest = loopTest;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        AbstractBeginNode body() {
+            return loopTest.trueSuccessor();
+        }
+
+        LoopExitNode exit() {
+            return loopBegin.loopExits().first();
+        }
+
+        LoopEndNode loopEnd() {
+            return loopBegin.loopEnds().first();
+        }
+
+        int extent() {
+            return limit - offset;
+        }
+    }
+
+    private static final class SequentialLoop {
+        private final LoopBeginNode loopBegin;
+        private final ValuePhiNode phi;
+        private final IfNode loopTest;
+        private final int start;
+        private final int limit;
+
+        SequentialLoop(LoopBeginNode loopBegin, ValuePhiNode phi, IfNode loopTest, int start, int limit) {
+            this.loopBegin = loopBegin;
+            this.phi = phi;
+            this.loopTest = loopTest;
+            this.start = start;
+            this.limit = limit;
+        }
+
+        AbstractBeginNode body() {
+            return loopTest.trueSuccessor();
+        }
+
+        LoopExitNode exit() {
+            return loopBegin.loopExits().first();
+        }
+
+        LoopEndNode loopEnd() {
+            return loopBegin.loopEnds().first();
+        }
+    }
+
+    private abstract static class Tiling {
+        protected final ParallelLoop loopI;
+        protected final ParallelLoop loopJ;
+
+        Tiling(ParallelLoop loopI, ParallelLoop loopJ) {
+            this.loopI = loopI;
+            this.loopJ = loopJ;
+        }
+
+        abstract long localMemorySize(int tileSize);
+
+        /**
+         * Rewrites the loop nest, whose stores have to be executed only when
+         * {@code valid} holds ({@code null} if the iteration space is not padded).
+         */
+        abstract void apply(StructuredGraph graph, TornadoHighTierContext context, int tileSize, LogicNode valid);
+    }
+
+    /**
+     * The loads of an array at {@code (i + di) * rowStride + (j + dj)}.
+     */
+    private static final class StencilGroup {
+        private final ValueNode array;
+        private final JavaKind elementKind;
+        private final long rowStride;
+        private final List<LoadIndexedNode> loads = new ArrayList<>();
+        private final List<int[]> offsets = new ArrayList<>();
+        private int diMin;
+        private int diMax;
+        private int djMin;
+        private int djMax;
+        private long lower = Long.MAX_VALUE;
+        private long upper = Long.MIN_VALUE;
+
+        StencilGroup(ValueNode array, JavaKind elementKind, long rowStride) {
+            this.array = array;
+            this.elementKind = elementKind;
+            this.rowStride = rowStride;
+        }
+
+        void add(LoadIndexedNode load, int di, int dj, long minIndex, long maxIndex) {
+            if (loads.isEmpty()) {
+                diMin = diMax = di;
+                djMin = djMax = dj;
+            }
+            loads.add(load);
+            offsets.add(new int[] { di, dj });
+            diMin = Math.min(diMin, di);
+            diMax = Math.max(diMax, di);
+            djMin = Math.min(djMin, dj);
+            djMax = Math.max(djMax, dj);
+            lower = Math.min(lower, minIndex);
+            upper = Math.max(upper, maxIndex);
+        }
+
+        boolean hasReuse() {
+            return diMin != diMax || djMin != djMax;
+        }
+
+        int rows(int tileSize) {
+            return tileSize + diMax - diMin;
+        }
+
+        int columns(int tileSize) {
+            return tileSize + djMax - djMin;
+        }
+    }
+
+    private static final class StencilTiling extends Tiling {
+        private final List<StencilGroup> groups;
+
+        StencilTiling(ParallelLoop loopI, ParallelLoop loopJ, List<StencilGroup> groups) {
+            super(loopI, loopJ);
+            this.groups = groups;
+        }
+
+        @Override
+        long localMemorySize(int tileSize) {
+            long size = 0;
+            for (StencilGroup group : groups) {
+                size += (long) group.rows(tileSize) * group.columns(tileSize) * group.elementKind.getByteCount();
+            }
+            return size;
+        }
+
+        @Override
+        void apply(StructuredGraph graph, TornadoHighTierContext context, int tileSize, LogicNode valid) {
+            final AbstractBeginNode start = loopJ.body();
+            if (valid != null) {
+                insertCondition(graph, start, loopJ.loopEnd(), valid, VALID_PROBABILITY);
+            }
+            final OCLBarrierNode barrier = graph.add(new OCLBarrierNode(OCLMemFenceFlags.LOCAL));
+            graph.addAfterFixed(start, barrier);
+
+            final ValueNode lx = localId(graph, 0);
+            final ValueNode ly = localId(graph, 1);
+            final ValueNode firstRow = sub(graph, loopI.phi, lx);
+            final ValueNode firstColumn = sub(graph, loopJ.phi, ly);
+
+            for (StencilGroup group : groups) {
+                final int rows = group.rows(tileSize);
+                final int columns = group.columns(tileSize);
+                final LocalArrayNode tile = createTile(graph, context, group.elementKind, rows * columns);
+
+                // Consecutive work-items copy consecutive elements of a row
+                for (int rowBlock = 0; rowBlock < rows; rowBlock += tileSize) {
+                    ValueNode row = add(graph, ly, intConstant(graph, rowBlock));
+                    if (rowBlock + tileSize > rows) {
+                        row = min(graph, row, intConstant(graph, rows - 1));
+                    }
+                    for (int columnBlock = 0; columnBlock < columns; columnBlock += tileSize) {
+                        ValueNode column = add(graph, lx, intConstant(graph, columnBlock));
+                        if (columnBlock + tileSize > columns) {
+                            column = min(graph, column, intConstant(graph, columns - 1));
+                        }
+                        final ValueNode globalRow = add(graph, firstRow, add(graph, row, intConstant(graph, group.diMin)));
+                        final ValueNode globalColumn = add(graph, firstColumn, add(graph, column, intConstant(graph, group.djMin)));
+                        final ValueNode index = clamp(graph, add(graph, mul(graph, globalRow, (int) group.rowStride), globalColumn), group.lower, group.upper);
+                        copyToTile(graph, barrier, group.array, index, tile, add(graph, mul(graph, row, columns), column), group.elementKind);
+                    }
+                }
+
+                for (int n = 0; n < group.loads.size(); n++) {
+                    final int[] offset = group.offsets.get(n);
+                    final ValueNode row = add(graph, lx, intConstant(graph, offset[0] - group.diMin));
+                    final ValueNode column = add(graph, ly, intConstant(graph, offset[1] - group.djMin));
+                    replaceLoad(graph, group.loads.get(n), tile, add(graph, mul(graph, row, columns), column));
+                }
+            }
+        }
+    }
+
+    /**
+     * The loads of an array indexed by {@code k} and by either {@code i} or
+     * {@code j}, staged in a tile of {@code TS} values of {@code i} (or
+     * {@code j}) by {@code TS} iterations of {@code k}.
+     */
+    private static final class Panel {
+        private final ValueNode array;
+        private final JavaKind elementKind;
+        private final Affine index;
+        private final long lower;
+        private final long upper;
+        private final List<LoadIndexedNode> loads = new ArrayList<>();
+
+        Panel(ValueNode array, JavaKind elementKind, Affine index, long lower, long upper) {
+            this.array = array;
+            this.elementKind = elementKind;
+            this.index = index;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        boolean alongI() {
+            return index.ci != 0;
+        }
+    }
+
+    private static final class MatrixProductTiling extends Tiling {
+        private final SequentialLoop loopK;
+        private final List<Panel> panels;
+
+        MatrixProductTiling(ParallelLoop loopI, ParallelLoop loopJ, SequentialLoop loopK, List<Panel> panels) {
+            super(loopI, loopJ);
+            this.loopK = loopK;
+            this.panels = panels;
+        }
+
+        @Override
+        long localMemorySize(int tileSize) {
+            long size = 0;
+            for (Panel panel : panels) {
+                size += (long) tileSize * tileSize * panel.elementKind.getByteCount();
+            }
+            return size;
+        }
+
+        @Override
+        void apply(StructuredGraph graph, TornadoHighTierContext context, int tileSize, LogicNode valid) {
+            if (valid != null) {
+                insertCondition(graph, loopK.exit(), loopJ.loopEnd(), valid, VALID_PROBABILITY);
+            }
+
+            // The tiles are filled in the first of every tileSize iterations
+            final AbstractBeginNode start = loopK.body();
+            final ValueNode step = graph.addOrUnique(new AndNode(sub(graph, loopK.phi, intConstant(graph, loopK.start)), intConstant(graph, tileSize - 1)));
+            final LogicNode firstStep = graph.addOrUnique(new IntegerEqualsNode(step, intConstant(graph, 0)));
+            final IfNode fill = insertCondition(graph, start, start.next(), firstStep, 1.0 / tileSize);
+            final EndNode fillEnd = (EndNode) fill.trueSuccessor().next();
+            graph.addBeforeFixed(fillEnd, graph.add(new OCLBarrierNode(OCLMemFenceFlags.LOCAL)));
+
+            final ValueNode lx = localId(graph, 0);
+            final ValueNode ly = localId(graph, 1);
+            for (Panel panel : panels) {
+                final LocalArrayNode tile = createTile(graph, context, panel.elementKind, tileSize * tileSize);
+                final ValueNode ownId = panel.alongI() ? lx : ly;
+                final ValueNode first = sub(graph, panel.alongI() ? loopI.phi : loopJ.phi, ownId);
+
+                // Consecutive work-items copy the elements with the closest addresses
+                final long ownCoefficient = panel.alongI() ? panel.index.ci : panel.index.cj;
+                final boolean kFirst = Math.abs(panel.index.ck) <= Math.abs(ownCoefficient);
+                final ValueNode ownOffset = kFirst ? ly : lx;
+                final ValueNode kOffset = kFirst ? lx : ly;
+
+                final ValueNode own = add(graph, first, ownOffset);
+                final ValueNode k = add(graph, loopK.phi, kOffset);
+                final ValueNode address = panel.alongI() ? evaluate(graph, panel.index, own, null, k) : evaluate(graph, panel.index, null, own, k);
+                final ValueNode index = clamp(graph, address, panel.lower, panel.upper);
+                copyToTile(graph, fillEnd, panel.array, index, tile, add(graph, mul(graph, kOffset, tileSize), ownOffset), panel.elementKind);
+
+                for (LoadIndexedNode load : panel.loads) {
+                    replaceLoad(graph, load, tile, add(graph, mul(graph, step, tileSize), ownId));
+                }
+            }
+            graph.addBeforeFixed(fillEnd, graph.add(new OCLBarrierNode(OCLMemFenceFlags.LOCAL)));
+        }
+    }
+
+    private static boolean isInt(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+    private static int resolveInt(ValueNode value) {
+        if (value instanceof ConstantNode && value.getStackKind() == JavaKind.Int) {
+            return ((ConstantNode) value).asJavaConstant().asInt();
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    private static ConstantNode intConstant(StructuredGraph graph, int value) {
+        return graph.addOrUnique(ConstantNode.forInt(value));
+    }
+
+    private static ValueNode add(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUnique(new AddNode(x, y));
+    }
+
+    private static ValueNode sub(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUnique(new SubNode(x, y));
+    }
+
+    private static ValueNode mul(StructuredGraph graph, ValueNode x, int factor) {
+        return graph.addOrUnique(new MulNode(x, intConstant(graph, factor)));
+    }
+
+    private static ValueNode min(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUnique(OCLIntBinaryIntrinsicNode.create(x, y, OCLIntBinaryIntrinsicNode.Operation.MIN, JavaKind.Int));
+    }
+
+    private static ValueNode clamp(StructuredGraph graph, ValueNode value, long lower, long upper) {
+        final ValueNode max = graph.addOrUnique(OCLIntBinaryIntrinsicNode.create(value, intConstant(graph, (int) lower), OCLIntBinaryIntrinsicNode.Operation.MAX, JavaKind.Int));
+        return min(graph, max, intConstant(graph, (int) upper));
+    }
+
+    private static ValueNode localId(StructuredGraph graph, int dimension) {
+        return graph.addOrUnique(new LocalThreadIdNode(intConstant(graph, dimension)));
+    }
+
+    private static ValueNode addTerm(StructuredGraph graph, ValueNode sum, long coefficient, ValueNode value) {
+        if (coefficient == 0) {
+            return sum;
+        }
+        return add(graph, sum, (coefficient == 1) ? value : mul(graph, value, (int) coefficient));
+    }
+
+    private static ValueNode evaluate(StructuredGraph graph, Affine function, ValueNode i, ValueNode j, ValueNode k) {
+        ValueNode result = intConstant(graph, (int) function.c0);
+        result = addTerm(graph, result, function.ci, i);
+        result = addTerm(graph, result, function.cj, j);
+        return addTerm(graph, result, function.ck, k);
+    }
+
+    /**
+     * Returns the index as an affine function of {@code i}, {@code j} and
+     * {@code k} ({@code k} can be null), or null if it is not affine.
+     */
+    private static Affine analyseIndex(ValueNode value, ValueNode i, ValueNode j, ValueNode k) {
+        if (value.getStackKind() != JavaKind.Int) {
+            return null;
+        }
+
+        Affine result = null;
+        if (value == i) {
+            result = new Affine(0, 1, 0, 0);
+        } else if (value == j) {
+            result = new Affine(0, 0, 1, 0);
+        } else if (k != null && value == k) {
+            result = new Affine(0, 0, 0, 1);
+        } else if (value instanceof ConstantNode) {
+            result = new Affine(resolveInt(value), 0, 0, 0);
+        } else if (value instanceof AddNode || value instanceof SubNode || value instanceof MulNode) {
+            final BinaryArithmeticNode<?> binary = (BinaryArithmeticNode<?>) value;
+            final Affine x = analyseIndex(binary.getX(), i, j, k);
+            final Affine y = analyseIndex(binary.getY(), i, j, k);
+            if (x == null || y == null) {
+                return null;
+            } else if (value instanceof AddNode) {
+                result = x.add(y);
+            } else if (value instanceof SubNode) {
+                result = x.add(y.scale(-1));
+            } else if (x.isConstant()) {
+                result = y.scale(x.c0);
+            } else if (y.isConstant()) {
+                result = x.scale(y.c0);
+            }
+        } else if (value instanceof LeftShiftNode) {
+            final LeftShiftNode shift = (LeftShiftNode) value;
+            final Affine x = analyseIndex(shift.getX(), i, j, k);
+            final int distance = resolveInt(shift.getY());
+            if (x != null && distance >= 0 && distance < 31) {
+                result = x.scale(1L << distance);
+            }
+        } else if (value instanceof NegateNode) {
+            final Affine x = analyseIndex(((NegateNode) value).getValue(), i, j, k);
+            if (x != null) {
+                result = x.scale(-1);
+            }
+        }
+        return (result != null && result.fitsInt()) ? result : null;
+    }
+
+    private static ParallelLoop analyseLoop(ParallelRangeNode range) {
+        final int offset = resolveInt(range.offset().value());
+        final int limit = resolveInt(range.value());
+        if (resolveInt(range.stride().value()) != 1 || offset == Integer.MIN_VALUE || limit == Integer.MIN_VALUE || limit <= offset) {
+            return null;
+        }
+
+        final List<ValuePhiNode> phis = range.offset().usages().filter(ValuePhiNode.class).snapshot();
+        if (phis.size() != 1) {
+            return null;
+        }
+        final ValuePhiNode phi = phis.get(0);
+        if (!(phi.merge() instanceof LoopBeginNode) || phi.valueCount() != 2 || phi.valueAt(0) != range.offset()) {
+            return null;
+        }
+
+        final LoopBeginNode loopBegin = (LoopBeginNode) phi.merge();
+        if (loopBegin.phis().count() != 1 || loopBegin.loopEnds().count() != 1 || loopBegin.loopExits().count() != 1 || loopBegin.loopExits().first().proxies().isNotEmpty()) {
+            return null;
+        }
+        if (!(loopBegin.next() instanceof IfNode)) {
+            return null;
+        }
+        final IfNode loopTest = (IfNode) loopBegin.next();
+        if (!(loopTest.condition() instanceof IntegerLessThanNode) || loopTest.falseSuccessor() != loopBegin.loopExits().first()) {
+            return null;
+        }
+        final IntegerLessThanNode condition = (IntegerLessThanNode) loopTest.condition();
+        if (condition.getX() != phi || condition.getY() != range) {
+            return null;
+        }
+        return new ParallelLoop(range, loopBegin, phi, loopTest, offset, limit);
+    }
+
+    private static SequentialLoop analyseSequentialLoop(LoopBeginNode loopBegin) {
+        if (loopBegin.loopEnds().count() != 1 || loopBegin.loopExits().count() != 1 || !(loopBegin.next() instanceof IfNode)) {
+            return null;
+        }
+        final IfNode loopTest = (IfNode) loopBegin.next();
+        if (!(loopTest.condition() instanceof IntegerLessThanNode) || loopTest.falseSuccessor() != loopBegin.loopExits().first()) {
+            return null;
+        }
+        final IntegerLessThanNode condition = (IntegerLessThanNode) loopTest.condition();
+        if (!(condition.getX() instanceof ValuePhiNode) || ((ValuePhiNode) condition.getX()).merge() != loopBegin) {
+            return null;
+        }
+
+        final ValuePhiNode phi = (ValuePhiNode) condition.getX();
+        final int start = resolveInt(phi.valueAt(0));
+        final int limit = resolveInt(condition.getY());
+        if (phi.valueCount() != 2 || start == Integer.MIN_VALUE || limit == Integer.MIN_VALUE || limit <= start) {
+            return null;
+        }
+        final ValueNode increment = phi.valueAt(1);
+        if (!(increment instanceof AddNode)) {
+            return null;
+        }
+        final AddNode add = (AddNode) increment;
+        if (!((add.getX() == phi && resolveInt(add.getY()) == 1) || (add.getY() == phi && resolveInt(add.getX()) == 1))) {
+            return null;
+        }
+        return new SequentialLoop(loopBegin, phi, loopTest, start, limit);
+    }
+
+    /**
+     * Collects the array accesses from {@code first} up to {@code last}
+     * (excluded). Returns false if the nodes in between are not only array
+     * accesses.
+     */
+    private static boolean collectAccesses(FixedNode first, FixedNode last, List<LoadIndexedNode> loads, List<StoreIndexedNode> stores) {
+        FixedNode node = first;
+        while (node != last) {
+            if (node instanceof LoadIndexedNode) {
+                loads.add((LoadIndexedNode) node);
+            } else if (node instanceof StoreIndexedNode) {
+                stores.add((StoreIndexedNode) node);
+            } else {
+                return false;
+            }
+            node = ((FixedWithNextNode) node).next();
+        }
+        return true;
+    }
+
+    /**
+     * Moves the loads of final fields of loop-invariant objects, such as the
+     * storage of the matrix types, in front of the loop nest, so that the arrays
+     * are available where the tiles are filled.
+     */
+    private static void hoistInvariantFieldLoads(StructuredGraph graph, LoopEx loop) {
+        final List<LoadFieldNode> hoisted = new ArrayList<>();
+        for (LoadFieldNode load : graph.getNodes().filter(LoadFieldNode.class).snapshot()) {
+            if (load.isStatic() || !load.field().isFinal() || loop.isOutsideLoop(load) || !loop.isOutsideLoop(load.object())) {
+                continue;
+            }
+            final LoadFieldNode existing = hoisted.stream().filter(other -> other.object() == load.object() && other.field().equals(load.field())).findFirst().orElse(null);
+            if (existing != null) {
+                load.replaceAtUsages(existing);
+                graph.removeFixed(load);
+            } else {
+                final FixedNode next = load.next();
+                load.setNext(null);
+                load.replaceAtPredecessor(next);
+                graph.addBeforeFixed(loop.loopBegin().forwardEnd(), load);
+                hoisted.add(load);
+            }
+        }
+    }
+
+    private static Tiling analyseStencil(LoopEx outer, ParallelLoop loopI, ParallelLoop loopJ) {
+        final List<LoadIndexedNode> loads = new ArrayList<>();
+        final List<StoreIndexedNode> stores = new ArrayList<>();
+        if (!collectAccesses(loopJ.body().next(), loopJ.loopEnd(), loads, stores) || stores.isEmpty()) {
+            return null;
+        }
+
+        final long[] lower = { loopI.offset, loopJ.offset, 0 };
+        final long[] upper = { loopI.limit - 1, loopJ.limit - 1, 0 };
+        final List<StencilGroup> groups = new ArrayList<>();
+        for (LoadIndexedNode load : loads) {
+            final Affine index = analyseIndex(load.index(), loopI.phi, loopJ.phi, null);
+            if (index == null || index.cj != 1 || index.ci <= 2 * MAX_HALO || !outer.isOutsideLoop(load.array())) {
+                continue;
+            }
+            final long di = Math.round((double) index.c0 / index.ci);
+            final long dj = index.c0 - di * index.ci;
+            if (Math.abs(di) > MAX_HALO || Math.abs(dj) > MAX_HALO) {
+                continue;
+            }
+
+            StencilGroup group = groups.stream().filter(g -> g.array == load.array() && g.elementKind == load.elementKind() && g.rowStride == index.ci).findFirst().orElse(null);
+            if (group == null) {
+                group = new StencilGroup(load.array(), load.elementKind(), index.ci);
+                groups.add(group);
+            }
+            group.add(load, (int) di, (int) dj, index.bound(lower, upper, false), index.bound(lower, upper, true));
+        }
+
+        // A tile would not see the values stored by the work-item itself
+        groups.removeIf(group -> !group.hasReuse() || !isInt(group.lower) || !isInt(group.upper) || stores.stream().anyMatch(store -> store.array() == group.array));
+        return groups.isEmpty() ? null : new StencilTiling(loopI, loopJ, groups);
+    }
+
+    private static Tiling analyseMatrixProduct(LoopEx outer, ParallelLoop loopI, ParallelLoop loopJ) {
+        final EndNode forwardEnd = (EndNode) loopJ.body().next();
+        if (!(forwardEnd.merge() instanceof LoopBeginNode)) {
+            return null;
+        }
+        final SequentialLoop loopK = analyseSequentialLoop((LoopBeginNode) forwardEnd.merge());
+        if (loopK == null) {
+            return null;
+        }
+
+        final List<LoadIndexedNode> loads = new ArrayList<>();
+        final List<StoreIndexedNode> stores = new ArrayList<>();
+        if (!collectAccesses(loopK.body().next(), loopK.loopEnd(), loads, stores) || !stores.isEmpty()) {
+            return null;
+        }
+        final List<LoadIndexedNode> tailLoads = new ArrayList<>();
+        final List<StoreIndexedNode> tailStores = new ArrayList<>();
+        if (!collectAccesses(loopK.exit().next(), loopJ.loopEnd(), tailLoads, tailStores) || tailStores.isEmpty()) {
+            return null;
+        }
+
+        final long[] lower = { loopI.offset, loopJ.offset, loopK.start };
+        final long[] upper = { loopI.limit - 1, loopJ.limit - 1, loopK.limit - 1 };
+        final List<Panel> panels = new ArrayList<>();
+        for (LoadIndexedNode load : loads) {
+            final Affine index = analyseIndex(load.index(), loopI.phi, loopJ.phi, loopK.phi);
+            if (index == null || !outer.isOutsideLoop(load.array())) {
+                return null;
+            }
+            if (index.ck != 0 && ((index.ci != 0) != (index.cj != 0))) {
+                Panel panel = panels.stream().filter(p -> p.array == load.array() && p.elementKind == load.elementKind() && p.index.sameAs(index)).findFirst().orElse(null);
+                if (panel == null) {
+                    final long minIndex = index.bound(lower, upper, false);
+                    final long maxIndex = index.bound(lower, upper, true);
+                    if (!isInt(minIndex) || !isInt(maxIndex)) {
+                        return null;
+                    }
+                    panel = new Panel(load.array(), load.elementKind(), index, minIndex, maxIndex);
+                    panels.add(panel);
+                }
+                panel.loads.add(load);
+            } else if (index.ci != 0 || index.cj != 0) {
+                // The work-items added by the padding would read out of bounds
+                return null;
+            }
+        }
+
+        if (panels.isEmpty() || tailStores.stream().anyMatch(store -> panels.stream().anyMatch(panel -> panel.array == store.array()))) {
+            return null;
+        }
+        return new MatrixProductTiling(loopI, loopJ, loopK, panels);
+    }
+
+    /**
+     * Makes the fixed nodes from the successor of {@code start} up to
+     * {@code end} (excluded) conditional on {@code condition}.
+     */
+    private static IfNode insertCondition(StructuredGraph graph, FixedWithNextNode start, FixedNode end, LogicNode condition, double probability) {
+        final FixedNode first = start.next();
+        final BeginNode trueBegin = graph.add(new BeginNode());
+        final BeginNode falseBegin = graph.add(new BeginNode());
+        final EndNode trueEnd = graph.add(new EndNode());
+        final EndNode falseEnd = graph.add(new EndNode());
+        final MergeNode merge = graph.add(new MergeNode());
+
+        start.setNext(null);
+        if (first == end) {
+            trueBegin.setNext(trueEnd);
+        } else {
+            final FixedWithNextNode last = (FixedWithNextNode) end.predecessor();
+            last.setNext(null);
+            trueBegin.setNext(first);
+            last.setNext(trueEnd);
+        }
+        falseBegin.setNext(falseEnd);
+        merge.addForwardEnd(trueEnd);
+        merge.addForwardEnd(falseEnd);
+        merge.setNext(end);
+
+        final IfNode ifNode = graph.add(new IfNode(condition, trueBegin, falseBegin, probability));
+        start.setNext(ifNode);
+        return ifNode;
+    }
+
+    private static LocalArrayNode createTile(StructuredGraph graph, TornadoHighTierContext context, JavaKind elementKind, int length) {
+        final ResolvedJavaType elementType = context.getMetaAccess().lookupJavaType(elementKind.toJavaClass());
+        return graph.addWithoutUnique(new LocalArrayNode(OCLArchitecture.localSpace, elementType, ConstantNode.forInt(length, graph), true));
+    }
+
+    private static void copyToTile(StructuredGraph graph, FixedNode before, ValueNode array, ValueNode index, LocalArrayNode tile, ValueNode tileIndex, JavaKind elementKind) {
+        final LoadIndexedNode element = graph.add(new LoadIndexedNode(null, array, index, null, elementKind));
+        graph.addBeforeFixed(before, element);
+        final StoreIndexedNode store = graph.add(new StoreIndexedNode(tile, tileIndex, null, null, elementKind, element));
+        graph.addBeforeFixed(before, store);
+    }
+
+    private static void replaceLoad(StructuredGraph graph, LoadIndexedNode load, LocalArrayNode tile, ValueNode index) {
+        final GuardingNode guard = load.getBoundsCheck();
+        final LoadIndexedNode localLoad = graph.add(new LoadIndexedNode(null, tile, index, null, load.elementKind()));
+        graph.replaceFixedWithFixed(load, localLoad);
+        if (guard instanceof GuardNode && ((GuardNode) guard).isAlive() && ((GuardNode) guard).hasNoUsages()) {
+            GraphUtil.killWithUnusedFloatingInputs((GuardNode) guard, true);
+        }
+    }
+
+    /**
+     * Extends the iteration space of the loop to a multiple of the tile size,
+     * with one work-item per iteration.
+     */
+    private static void pad(StructuredGraph graph, TaskMetaData meta, ParallelLoop loop, int tileSize) {
+        final int threads = ((loop.extent() + tileSize - 1) / tileSize) * tileSize;
+        loop.range.replaceFirstInput(loop.range.value(), intConstant(graph, loop.offset + threads));
+        meta.getDomain().set(loop.range.index(), new IntDomain(loop.offset, 1, threads));
+    }
+
+    private static LogicNode validCondition(StructuredGraph graph, ParallelLoop loopI, ParallelLoop loopJ, int tileSize) {
+        final boolean paddedI = loopI.extent() % tileSize != 0;
+        final boolean paddedJ = loopJ.extent() % tileSize != 0;
+        if (paddedI && paddedJ) {
+            // Both differences are negative if, and only if, their conjunction is
+            final ValueNode i = sub(graph, loopI.phi, intConstant(graph, loopI.limit));
+            final ValueNode j = sub(graph, loopJ.phi, intConstant(graph, loopJ.limit));
+            return graph.addOrUnique(new IntegerLessThanNode(graph.addOrUnique(new AndNode(i, j)), intConstant(graph, 0)));
+        } else if (paddedI) {
+            return graph.addOrUnique(new IntegerLessThanNode(loopI.phi, intConstant(graph, loopI.limit)));
+        } else if (paddedJ) {
+            return graph.addOrUnique(new IntegerLessThanNode(loopJ.phi, intConstant(graph, loopJ.limit)));
+        }
+        return null;
+    }
+
+    private static int selectTileSize(TornadoHighTierContext context, Tiling tiling, int extent) {
+        final TornadoTargetDevice device = context.getDeviceMapping().getPhysicalDevice();
+        final long[] maxWorkItemSizes = device.getDeviceMaxWorkItemSizes();
+        final long maxWorkGroupSize = device.getDeviceMaxWorkGroupSize()[0];
+        final long localMemorySize = device.getDeviceLocalMemorySize();
+
+        final int[] candidates = (TornadoOptions.LOCAL_MEMORY_TILE_SIZE > 0) ? new int[] { TornadoOptions.LOCAL_MEMORY_TILE_SIZE } : TILE_SIZES;
+        for (int tileSize : candidates) {
+            if (Integer.bitCount(tileSize) == 1 && tileSize <= extent && tileSize <= maxWorkItemSizes[0] && tileSize <= maxWorkItemSizes[1] && (long) tileSize * tileSize <= maxWorkGroupSize
+                    && tiling.localMemorySize(tileSize) <= localMemorySize) {
+                return tileSize;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isTileable(TornadoHighTierContext context, TaskMetaData meta) {
+        final TornadoAcceleratorDevice device = context.getDeviceMapping();
+        final long[] maxWorkItemSizes = device.getPhysicalDevice().getDeviceMaxWorkItemSizes();
+        if (!meta.hasDomain() || meta.getDomain().getDepth() != 2 || !meta.enableParallelization() || maxWorkItemSizes.length < 2 || maxWorkItemSizes[0] <= 1 || maxWorkItemSizes[1] <= 1) {
+            return false;
+        }
+        // The launch configuration has to be the one chosen by this phase
+        return device.getPreferredSchedule() == TornadoSchedulingStrategy.PER_ITERATION && !meta.enableThreadCoarsener() && !meta.isWorkerGridAvailable() && !meta.isLocalWorkDefined()
+                && !meta.isGlobalWorkDefined() && !meta.shouldUseOpenCLDriverScheduling() && context.getBatchThreads() <= 0 && !context.isGridSchedulerEnabled();
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        final TaskMetaData meta = context.getMeta();
+        if (!TornadoOptions.LOCAL_MEMORY_TILING || meta == null || !graph.hasLoops() || !isTileable(context, meta)) {
+            return;
+        }
+
+        final List<ParallelRangeNode> ranges = graph.getNodes().filter(ParallelRangeNode.class).snapshot();
+        if (ranges.size() != 2) {
+            return;
+        }
+        final ParallelRangeNode rangeI = (ranges.get(0).index() == 0) ? ranges.get(0) : ranges.get(1);
+        final ParallelRangeNode rangeJ = (ranges.get(0).index() == 0) ? ranges.get(1) : ranges.get(0);
+        if (rangeI.index() != 0 || rangeJ.index() != 1) {
+            return;
+        }
+        final ParallelLoop loopI = analyseLoop(rangeI);
+        final ParallelLoop loopJ = analyseLoop(rangeJ);
+        if (loopI == null || loopJ == null) {
+            return;
+        }
+
+        final LoopEx outer = new LoopsData(graph).loop(loopI.loopBegin);
+        if (outer == null) {
+            return;
+        }
+        hoistInvariantFieldLoads(graph, outer);
+        if (loopI.body().next() != loopJ.loopBegin.forwardEnd() || loopJ.exit().next() != loopI.loopEnd()) {
+            // Only perfectly nested parallel loops are tiled
+            return;
+        }
+
+        final LoopEx nest = new LoopsData(graph).loop(loopI.loopBegin);
+        final Tiling tiling = (loopJ.body().next() instanceof EndNode) ? analyseMatrixProduct(nest, loopI, loopJ) : analyseStencil(nest, loopI, loopJ);
+        if (tiling == null) {
+            return;
+        }
+        final int tileSize = selectTileSize(context, tiling, Math.min(loopI.extent(), loopJ.extent()));
+        if (tileSize == 0) {
+            Tornado.debug("no tile size fits the device: the loop nest will not be tiled");
+            return;
+        }
+
+        final LogicNode valid = validCondition(graph, loopI, loopJ, tileSize);
+        pad(graph, meta, loopI, tileSize);
+        pad(graph, meta, loopJ, tileSize);
+        tiling.apply(graph, context, tileSize, valid);
+        // The padded domain and the local work are stored with the kernel in the persistent cache
+        meta.setLocalWork(new long[] { tileSize, tileSize });
+
+        Tornado.debug("tiled %s loop nest in local memory with %dx%d tiles", (tiling instanceof StencilTiling) ? "stencil" : "matrix product", tileSize, tileSize);
+        getDebugContext().dump(DebugContext.BASIC_LEVEL, graph, "after tiling in local memory");
+        graph.clearLastSchedule();
+    }
+}
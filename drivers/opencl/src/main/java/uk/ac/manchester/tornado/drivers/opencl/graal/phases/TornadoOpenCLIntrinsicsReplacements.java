@@ -35,8 +35,11 @@ import org.graalvm.compiler.nodes.ConstantNode;
 import org.graalvm.compiler.nodes.InvokeNode;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.memory.address.AddressNode;
+import org.graalvm.compiler.nodes.type.StampTool;
 import org.graalvm.compiler.nodes.util.GraphUtil;
 import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.replacements.DefaultJavaLoweringProvider;
 
 import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.MetaAccessProvider;
@@ -51,7 +54,9 @@ import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.GroupIdNode;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.LocalArrayNode;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.LocalGroupSizeNode;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.LocalThreadIDFixedNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLAtomicCounterNode;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLBarrierNode;
+import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLMemFenceNode;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OpenCLPrintf;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoHighTierContext;
 
@@ -64,6 +69,21 @@ public class TornadoOpenCLIntrinsicsReplacements extends BasePhase<TornadoHighTi
         this.metaAccess = metaAccess;
     }
 
+    /**
+     * Address of the counter {@code array[index]} of the atomic_inc_counter
+     * intrinsic, computed with the element size of the array.
+     */
+    private static AddressNode createCounterAddress(StructuredGraph graph, InvokeNode invoke, TornadoHighTierContext context) {
+        NodeInputList<ValueNode> arguments = invoke.callTarget().arguments();
+        ValueNode array = arguments.get(0);
+        ResolvedJavaType arrayType = StampTool.typeOrNull(array);
+        if (arrayType == null || !arrayType.isArray()) {
+            throw shouldNotReachHere("atomic counters are only supported in arrays: %s", array);
+        }
+        JavaKind elementKind = arrayType.getComponentType().getJavaKind();
+        return ((DefaultJavaLoweringProvider) context.getLowerer()).createArrayAddress(graph, array, elementKind, arguments.get(1));
+    }
+
     private ConstantNode getConstantNodeFromArguments(InvokeNode invoke, int index) {
         NodeInputList<ValueNode> arguments = invoke.callTarget().arguments();
         return (ConstantNode) arguments.get(index);
@@ -91,6 +111,17 @@ public class TornadoOpenCLIntrinsicsReplacements extends BasePhase<TornadoHighTi
                     graph.replaceFixed(invoke, barrier);
                     break;
                 }
+                case "Direct#OpenCLIntrinsics.globalMemFence": {
+                    OCLMemFenceNode fence = graph.add(new OCLMemFenceNode(OCLBarrierNode.OCLMemFenceFlags.GLOBAL));
+                    graph.replaceFixed(invoke, fence);
+                    break;
+                }
+                case "Direct#OpenCLIntrinsics.atomic_inc_counter": {
+                    AddressNode address = createCounterAddress(graph, invoke, context);
+                    OCLAtomicCounterNode counter = graph.add(new OCLAtomicCounterNode(address));
+                    graph.replaceFixed(invoke, counter);
+                    break;
+                }
                 case "Direct#OpenCLIntrinsics.get_local_id": {
                     ConstantNode dimension = getConstantNodeFromArguments(invoke, 0);
                     LocalThreadIDFixedNode localIDNode = graph.addOrUnique(new LocalThreadIDFixedNode(dimension));
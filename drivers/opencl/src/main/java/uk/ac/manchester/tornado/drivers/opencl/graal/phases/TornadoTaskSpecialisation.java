@@ -55,6 +55,7 @@ import org.graalvm.compiler.phases.common.DeadCodeEliminationPhase;
 
 import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.ResolvedJavaField;
+import uk.ac.manchester.tornado.api.collections.arrays.OffHeapArray;
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLStackAccessNode;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
@@ -174,7 +175,7 @@ public class TornadoTaskSpecialisation extends BasePhase<TornadoHighTierContext>
     private void evaluate(final StructuredGraph graph, final Node node, final Object value) {
         if (node instanceof ArrayLengthNode) {
             ArrayLengthNode arrayLength = (ArrayLengthNode) node;
-            int length = Array.getLength(value);
+            int length = (value instanceof OffHeapArray) ? ((OffHeapArray) value).getSize() : Array.getLength(value);
             final ConstantNode constant;
 
             if (gridScheduling) {
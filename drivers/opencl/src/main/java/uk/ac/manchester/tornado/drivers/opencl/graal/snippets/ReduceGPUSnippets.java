@@ -26,6 +26,7 @@
 package uk.ac.manchester.tornado.drivers.opencl.graal.snippets;
 
 import org.graalvm.compiler.api.replacements.Snippet;
+import org.graalvm.compiler.api.replacements.Snippet.ConstantParameter;
 import org.graalvm.compiler.api.replacements.SnippetReflectionProvider;
 import org.graalvm.compiler.debug.DebugHandlersFactory;
 import org.graalvm.compiler.nodes.StructuredGraph;
@@ -49,6 +50,7 @@ import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLFPBinaryIntrinsicN
 import uk.ac.manchester.tornado.drivers.opencl.graal.nodes.OCLIntBinaryIntrinsicNode;
 import uk.ac.manchester.tornado.runtime.graal.nodes.TornadoReduceAddNode;
 import uk.ac.manchester.tornado.runtime.graal.nodes.TornadoReduceMulNode;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.nodes.StoreAtomicIndexedNode;
 
 /**
@@ -62,8 +64,17 @@ public class ReduceGPUSnippets implements Snippets {
      */
     private static int LOCAL_WORK_GROUP_SIZE = 223;
 
+    /**
+     * Operations of the single-pass finalisation of the reductions (see
+     * {@link TornadoOptions#REDUCE_SINGLE_PASS}).
+     */
+    private static final int OP_ADD = 0;
+    private static final int OP_MUL = 1;
+    private static final int OP_MAX = 2;
+    private static final int OP_MIN = 3;
+
     @Snippet
-    public static void partialReduceIntAdd(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntAdd(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int[] localArray = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
@@ -83,10 +94,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntAddCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value) {
+    public static void partialReduceIntAddCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value, @ConstantParameter boolean singlePass) {
 
         int[] localArray = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
 
@@ -106,10 +121,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongAdd(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongAdd(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         long[] localArray = (long[]) NewArrayNode.newUninitializedArray(long.class, LOCAL_WORK_GROUP_SIZE);
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
@@ -129,10 +148,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongAddCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value) {
+    public static void partialReduceLongAddCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -153,10 +176,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = inputArray[myID];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatAdd(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatAdd(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         float[] localArray = (float[]) NewArrayNode.newUninitializedArray(float.class, LOCAL_WORK_GROUP_SIZE);
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
@@ -176,10 +203,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatAddCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value) {
+    public static void partialReduceFloatAddCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value, @ConstantParameter boolean singlePass) {
 
         float[] localArray = (float[]) NewArrayNode.newUninitializedArray(float.class, LOCAL_WORK_GROUP_SIZE);
 
@@ -200,10 +231,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleAdd(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleAdd(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -224,10 +259,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleAddCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value) {
+    public static void partialReduceDoubleAddCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -247,10 +286,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMult(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntMult(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -271,10 +314,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMultCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value) {
+    public static void partialReduceIntMultCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -294,10 +341,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMult(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongMult(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -318,10 +369,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMultCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value) {
+    public static void partialReduceLongMultCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -341,10 +396,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = inputArray[myID];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMult(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatMult(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -365,10 +424,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMultCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value) {
+    public static void partialReduceFloatMultCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -389,10 +452,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMult(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleMult(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -413,10 +480,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMultCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value) {
+    public static void partialReduceDoubleMultCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value, @ConstantParameter boolean singlePass) {
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
         int groupID = OpenCLIntrinsics.get_group_id(0);
@@ -436,10 +507,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMax(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntMax(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
         int groupID = OpenCLIntrinsics.get_group_id(0);
@@ -458,10 +533,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMaxCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra) {
+    public static void partialReduceIntMaxCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra, @ConstantParameter boolean singlePass) {
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
         int groupID = OpenCLIntrinsics.get_group_id(0);
@@ -480,10 +559,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMax(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongMax(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -504,10 +587,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMaxCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra) {
+    public static void partialReduceLongMaxCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -528,10 +615,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMax(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatMax(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -551,10 +642,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMaxCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra) {
+    public static void partialReduceFloatMaxCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -574,10 +669,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMax(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleMax(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
         int groupID = OpenCLIntrinsics.get_group_id(0);
@@ -596,10 +695,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMaxCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra) {
+    public static void partialReduceDoubleMaxCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra, @ConstantParameter boolean singlePass) {
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
         int groupID = OpenCLIntrinsics.get_group_id(0);
@@ -618,10 +721,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMin(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntMin(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -641,10 +748,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMinCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra) {
+    public static void partialReduceIntMinCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -664,10 +775,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMin(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongMin(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -688,10 +803,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMinCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra) {
+    public static void partialReduceLongMinCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -712,10 +831,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMin(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatMin(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -735,10 +858,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMinCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra) {
+    public static void partialReduceFloatMinCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
@@ -758,10 +885,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMin(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleMin(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
         int groupID = OpenCLIntrinsics.get_group_id(0);
@@ -780,10 +911,14 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMinCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra) {
+    public static void partialReduceDoubleMinCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra, @ConstantParameter boolean singlePass) {
         int localIdx = OpenCLIntrinsics.get_local_id(0);
         int localGroupSize = OpenCLIntrinsics.get_local_size(0);
         int groupID = OpenCLIntrinsics.get_group_id(0);
@@ -802,6 +937,227 @@ public class ReduceGPUSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
+    }
+
+    /**
+     * Counts the work-groups that have written their partial result and returns
+     * true, in all the work-items of the group, for the last one to finish.
+     * The fence before the increment makes the partial result of the group
+     * visible before the counter, and the fence after it keeps the last group
+     * from reading the partial results before it has seen the counter.
+     */
+    private static boolean isLastGroup(Object outputArray, int counterIndex, int localIdx, int numGroups) {
+        int[] ticket = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
+        if (localIdx == 0) {
+            OpenCLIntrinsics.globalMemFence();
+            ticket[0] = OpenCLIntrinsics.atomic_inc_counter(outputArray, counterIndex);
+        }
+        OpenCLIntrinsics.localBarrier();
+        boolean last = ticket[0] == numGroups - 1;
+        if (last) {
+            OpenCLIntrinsics.globalMemFence();
+        }
+        return last;
+    }
+
+    private static int operateInt(int a, int b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last work-group to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the work-groups
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished work-groups, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceInt(int[] outputArray, int localIdx, int localGroupSize, int operation) {
+        int[] localArray = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = OpenCLIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                int value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateInt(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                OpenCLIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateInt(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0;
+            }
+        }
+    }
+
+    private static long operateLong(long a, long b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last work-group to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the work-groups
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished work-groups, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceLong(long[] outputArray, int localIdx, int localGroupSize, int operation) {
+        long[] localArray = (long[]) NewArrayNode.newUninitializedArray(long.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = OpenCLIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                long value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateLong(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                OpenCLIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateLong(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0L;
+            }
+        }
+    }
+
+    private static float operateFloat(float a, float b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last work-group to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the work-groups
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished work-groups, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceFloat(float[] outputArray, int localIdx, int localGroupSize, int operation) {
+        float[] localArray = (float[]) NewArrayNode.newUninitializedArray(float.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = OpenCLIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                float value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateFloat(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                OpenCLIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateFloat(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0.0f;
+            }
+        }
+    }
+
+    private static double operateDouble(double a, double b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last work-group to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the work-groups
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished work-groups, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceDouble(double[] outputArray, int localIdx, int localGroupSize, int operation) {
+        double[] localArray = (double[]) NewArrayNode.newUninitializedArray(double.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = OpenCLIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                double value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateDouble(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                OpenCLIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateDouble(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0.0;
+            }
+        }
     }
 
     public static class Templates extends AbstractTemplates implements TornadoSnippetTypeInference {
@@ -993,6 +1349,7 @@ public class ReduceGPUSnippets implements Snippets {
             if (extra != null) {
                 args.add("value", extra);
             }
+            args.addConst("singlePass", TornadoOptions.REDUCE_SINGLE_PASS);
 
             SnippetTemplate template = template(storeAtomicIndexed, args);
             template.instantiate(providers.getMetaAccess(), storeAtomicIndexed, SnippetTemplate.DEFAULT_REPLACER, args);
@@ -115,6 +115,11 @@ public class AtomicsBuffer implements ObjectBuffer {
 
     }
 
+    @Override
+    public void deallocate() {
+        // The atomics region is not part of the device heap
+    }
+
     @Override
     public void printHeapTrace() {
         throw new TornadoRuntimeException("Not implemented");
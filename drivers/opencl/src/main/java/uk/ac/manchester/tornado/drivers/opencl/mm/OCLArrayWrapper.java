@@ -50,15 +50,23 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
 
     private final int arrayLengthOffset;
 
+    private long bufferId;
     private long bufferOffset;
 
     private long bytesToAllocate;
+    private long allocatedBytes;
 
     protected final OCLDeviceContext deviceContext;
 
     private final JavaKind kind;
     private boolean onDevice;
     private boolean isFinal;
+
+    /**
+     * Events of the last write. The list is reused by every write, so callers
+     * must consume it before writing this buffer again.
+     */
+    private final ArrayList<Integer> writeEvents = new ArrayList<>(2);
     private long batchSize;
 
     public OCLArrayWrapper(final OCLDeviceContext device, final JavaKind kind, long batchSize) {
@@ -99,8 +107,13 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
             newBufferSize = sizeOfBatch(batchSize);
         }
 
-        if ((batchSize > 0) && (bufferOffset != -1) && (newBufferSize < bytesToAllocate)) {
-            bytesToAllocate = newBufferSize;
+        if ((batchSize > 0) && (bufferOffset != -1)) {
+            if (newBufferSize <= allocatedBytes) {
+                bytesToAllocate = newBufferSize;
+            } else {
+                // The batch does not fit in the space reserved for a smaller one
+                deallocate();
+            }
         }
 
         if (bufferOffset == -1) {
@@ -115,7 +128,15 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
                 throw new TornadoMemoryException("[ERROR] Bytes Allocated <= 0: " + bytesToAllocate);
             }
 
-            bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, arrayHeaderSize, getAlignment());
+            final OCLMemoryManager memoryManager = deviceContext.getMemoryManager();
+            if (memoryManager.isPerObjectBuffers()) {
+                bufferOffset = OCLMemoryManager.objectBufferOffset(arrayHeaderSize, getAlignment());
+                bufferId = memoryManager.createObjectBuffer(bufferOffset + bytesToAllocate, this);
+            } else {
+                bufferOffset = memoryManager.tryAllocate(bytesToAllocate, arrayHeaderSize, getAlignment(), this);
+                bufferId = memoryManager.toBuffer();
+            }
+            allocatedBytes = bytesToAllocate;
 
             if (Tornado.FULL_DEBUG) {
                 info("allocated: array kind=%s, size=%s, length offset=%d, header size=%d, bo=0x%x", kind.getJavaName(), humanReadableByteCount(bytesToAllocate, true), arrayLengthOffset,
@@ -192,7 +213,7 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
     @Override
     public List<Integer> enqueueWrite(final Object value, long batchSize, long hostOffset, final int[] events, boolean useDeps) {
         final T array = cast(value);
-        ArrayList<Integer> listEvents = new ArrayList<>();
+        writeEvents.clear();
 
         if (array == null) {
             throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
@@ -200,6 +221,7 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         final int returnEvent;
         if (isFinal && onDevice) {
             returnEvent = enqueueWriteArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
+            writeEvents.add(returnEvent);
         } else {
             // We first write the header for the object and then we write actual
             // buffer
@@ -213,10 +235,35 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
             onDevice = true;
             // returnEvent = deviceContext.enqueueMarker(internalEvents);
 
-            listEvents.add(headerEvent);
-            listEvents.add(returnEvent);
+            writeEvents.add(headerEvent);
+            writeEvents.add(returnEvent);
+        }
+        return useDeps ? writeEvents : null;
+    }
+
+    @Override
+    public List<Integer> enqueueWriteRange(final Object value, long offset, long size, final int[] events, boolean useDeps) {
+        if (!onDevice) {
+            // The header has not been written yet
+            return enqueueWrite(value, 0, 0, events, useDeps);
+        }
+        final T array = cast(value);
+        if (array == null) {
+            throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
+        }
+        writeEvents.clear();
+        writeEvents.add(enqueueWriteArrayData(toBuffer(), bufferOffset + arrayHeaderSize + offset, size, array, offset, (useDeps) ? events : null));
+        return useDeps ? writeEvents : null;
+    }
+
+    @Override
+    public int enqueueReadRange(final Object value, long offset, long size, final int[] events, boolean useDeps) {
+        final T array = cast(value);
+        if (array == null) {
+            throw new TornadoRuntimeException("[ERROR] output data is NULL");
         }
-        return useDeps ? listEvents : null;
+        final int returnEvent = enqueueReadArrayData(toBuffer(), bufferOffset + arrayHeaderSize + offset, size, array, offset, (useDeps) ? events : null);
+        return useDeps ? returnEvent : -1;
     }
 
     /**
@@ -243,7 +290,7 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
     }
 
     private OCLByteBuffer getArrayHeader() {
-        final OCLByteBuffer header = deviceContext.getMemoryManager().getSubBuffer((int) bufferOffset, arrayHeaderSize);
+        final OCLByteBuffer header = deviceContext.getMemoryManager().getSubBuffer(bufferId, (int) bufferOffset, arrayHeaderSize);
         header.buffer.clear();
         return header;
     }
@@ -263,6 +310,15 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         onDevice = false;
     }
 
+    @Override
+    public void deallocate() {
+        if (bufferOffset != -1) {
+            deviceContext.getMemoryManager().free(bufferId, bufferOffset, this);
+            bufferOffset = -1;
+        }
+        onDevice = false;
+    }
+
     /*
      * Retrieves a buffer that will contain the contents of the array header. This
      * also re-sizes the buffer.
@@ -324,12 +380,12 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
 
     @Override
     public long toAbsoluteAddress() {
-        return deviceContext.getMemoryManager().toAbsoluteDeviceAddress(bufferOffset);
+        return deviceContext.getMemoryManager().toAbsoluteDeviceAddress(bufferId, bufferOffset);
     }
 
     @Override
     public long toBuffer() {
-        return deviceContext.getMemoryManager().toBuffer();
+        return bufferId;
     }
 
     @Override
@@ -45,12 +45,22 @@ public class OCLByteBuffer {
 
     protected long offset;
 
+    /**
+     * OpenCL buffer that contains this buffer, or -1 for the device heap.
+     */
+    private long bufferId = -1;
+
     protected OCLByteBuffer(final OCLDeviceContext device) {
         this.deviceContext = device;
     }
 
     public OCLByteBuffer(final OCLDeviceContext device, final long offset, final long numBytes) {
+        this(device, -1, offset, numBytes);
+    }
+
+    OCLByteBuffer(final OCLDeviceContext device, final long bufferId, final long offset, final long numBytes) {
         this(device);
+        this.bufferId = bufferId;
         this.offset = offset;
         this.bytes = numBytes;
         buffer = ByteBuffer.allocate((int) numBytes);
@@ -287,11 +297,11 @@ public class OCLByteBuffer {
     }
 
     public long toAbsoluteAddress() {
-        return deviceContext.getMemoryManager().toAbsoluteDeviceAddress(offset);
+        return deviceContext.getMemoryManager().toAbsoluteDeviceAddress(toBuffer(), offset);
     }
 
     public long toBuffer() {
-        return deviceContext.getMemoryManager().toBuffer();
+        return (bufferId == -1) ? deviceContext.getMemoryManager().toBuffer() : bufferId;
     }
 
     public long toConstantAddress() {
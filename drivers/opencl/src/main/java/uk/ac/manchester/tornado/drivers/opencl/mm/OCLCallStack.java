@@ -31,8 +31,10 @@ import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.isBoxedPr
 import static uk.ac.manchester.tornado.runtime.common.Tornado.DEBUG;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
 import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
@@ -45,12 +47,19 @@ public class OCLCallStack extends OCLByteBuffer implements CallStack {
     private final int numArgs;
     private OCLDeviceContext deviceContext;
 
+    /**
+     * OpenCL buffer of the object in every argument slot, or 0 if the slot does
+     * not keep an object, see {@link OCLMemoryManager#isPerObjectBuffers()}.
+     */
+    private final long[] objectBuffers;
+
     private boolean onDevice;
 
     OCLCallStack(long offset, int numArgs, OCLDeviceContext device) {
         super(device, offset, (numArgs + RESERVED_SLOTS) << 3);
         this.numArgs = numArgs;
         this.deviceContext = device;
+        this.objectBuffers = new long[numArgs];
 
         buffer.clear();
         onDevice = false;
@@ -91,9 +100,36 @@ public class OCLCallStack extends OCLByteBuffer implements CallStack {
     public void reset() {
         buffer.mark();
         buffer.reset();
+        Arrays.fill(objectBuffers, 0);
         onDevice = false;
     }
 
+    /**
+     * @return the OpenCL buffer of the object in the argument slot {@code index},
+     *         or 0 if the slot does not keep an object.
+     */
+    public long getObjectBuffer(int index) {
+        return (index < numArgs) ? objectBuffers[index] : 0;
+    }
+
+    /**
+     * Replaces the offsets of the objects within their buffers by their device
+     * addresses, for kernels that do not receive the buffers of the objects.
+     */
+    public void useAbsoluteAddresses() {
+        for (int i = 0; i < numArgs; i++) {
+            if (objectBuffers[i] != 0) {
+                final int index = (RESERVED_SLOTS + i) << 3;
+                buffer.putLong(index, deviceContext.getMemoryManager().toAbsoluteDeviceAddress(objectBuffers[i], buffer.getLong(index)));
+                objectBuffers[i] = 0;
+            }
+        }
+    }
+
+    private int getArgIndex() {
+        return (buffer.position() >> 3) - RESERVED_SLOTS;
+    }
+
     @Override
     public long getDeoptValue() {
         return buffer.getLong(8);
@@ -135,6 +171,7 @@ public class OCLCallStack extends OCLByteBuffer implements CallStack {
 
     @Override
     public void push(Object arg) {
+        objectBuffers[getArgIndex()] = 0;
         if (arg == null) {
             if (DEBUG) {
                 debug("arg : (null)");
@@ -156,12 +193,17 @@ public class OCLCallStack extends OCLByteBuffer implements CallStack {
             if (DEBUG) {
                 debug("arg : (null)");
             }
+            objectBuffers[getArgIndex()] = 0;
             buffer.putLong(0);
         } else {
             if (DEBUG) {
                 debug("arg : [0x%x] type=%s, value=%s, address=0x%x (0x%x)", arg.hashCode(), arg.getClass().getSimpleName(), arg, state.getAddress(), state.getOffset());
             }
-            if (deviceContext.useRelativeAddresses()) {
+            if (deviceContext.getMemoryManager().isPerObjectBuffers()) {
+                final ObjectBuffer objectBuffer = state.getBuffer();
+                objectBuffers[getArgIndex()] = (objectBuffer instanceof OCLObjectWrapper) ? ((OCLObjectWrapper) objectBuffer).toAddressedBuffer() : objectBuffer.toBuffer();
+                buffer.putLong(state.getOffset());
+            } else if (deviceContext.useRelativeAddresses()) {
                 buffer.putLong(state.getOffset());
             } else {
                 buffer.putLong(state.getAddress());
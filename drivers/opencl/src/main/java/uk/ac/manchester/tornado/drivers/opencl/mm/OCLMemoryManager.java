@@ -25,6 +25,13 @@ package uk.ac.manchester.tornado.drivers.opencl.mm;
 
 import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.guarantee;
 import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.OCL_CALL_STACK_LIMIT;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.OPENCL_ZERO_COPY;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import uk.ac.manchester.tornado.api.exceptions.TornadoOutOfMemoryException;
 import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
@@ -35,6 +42,8 @@ import uk.ac.manchester.tornado.drivers.opencl.graal.backend.OCLBackend;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.mm.DeviceMemoryEvictor;
+import uk.ac.manchester.tornado.runtime.mm.FreeListAllocator;
 import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
 
 public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProvider {
@@ -46,22 +55,54 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
     private long deviceBufferAddress;
     private final OCLDeviceContext deviceContext;
     private long deviceHeapPointer;
+    private long hostHeapAddress;
     private long constantPointer;
     private long atomicsRegion = -1;
     private long heapLimit;
-    private long heapPosition;
+    private final FreeListAllocator heapAllocator;
+    private final DeviceMemoryEvictor evictor;
     private boolean initialised;
 
+    /**
+     * Owners of the space allocated in the heap, indexed by its offset.
+     */
+    private final Map<Long, ObjectBuffer> heapAllocations = new HashMap<>();
+
+    /**
+     * Buffers of the objects, see {@link #isPerObjectBuffers()}.
+     */
+    private final Map<Long, ObjectAllocation> objectBuffers = new HashMap<>();
+    private long objectBufferBytes;
+    private boolean perObjectBuffers;
+    private OCLBackend backend;
+
     private static final int STACK_ALIGNMENT_SIZE = 128;
+    private static final int HEAP_BLOCK_GRANULARITY = 32;
+    private static final int HOST_PAGE_SIZE = 4096;
+    private static final int MIN_OBJECT_BUFFER_SIZE = 16;
 
     private static final int MAX_NUMBER_OF_ATOMICS_PER_KERNEL = 128;
     private static final int INTEGER_BYTES_SIZE = 4;
 
+    private static final class ObjectAllocation {
+        private final long address;
+        private final long bytes;
+        private final ObjectBuffer owner;
+
+        private ObjectAllocation(long address, long bytes, ObjectBuffer owner) {
+            this.address = address;
+            this.bytes = bytes;
+            this.owner = owner;
+        }
+    }
+
     public OCLMemoryManager(final OCLDeviceContext device) {
         deviceContext = device;
         callStackLimit = OCL_CALL_STACK_LIMIT;
         initialised = false;
         scheduleMeta = new ScheduleMetaData("mm-" + device.getDeviceId());
+        heapAllocator = new FreeListAllocator(callStackLimit, callStackLimit, HEAP_BLOCK_GRANULARITY);
+        evictor = new DeviceMemoryEvictor(device.getDevice().getDeviceName());
         reset();
     }
 
@@ -82,18 +123,36 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
 
     @Override
     public long getHeapAllocated() {
-        return heapPosition - callStackLimit;
+        return heapAllocator.getAllocatedBytes() + objectBufferBytes;
     }
 
     @Override
     public long getHeapRemaining() {
-        return heapLimit - heapPosition;
+        return heapAllocator.getFreeBytes();
+    }
+
+    @Override
+    public long getHeapLargestFreeBlock() {
+        return heapAllocator.getLargestFreeBlock();
+    }
+
+    @Override
+    public int getHeapFreeBlocks() {
+        return heapAllocator.getNumFreeBlocks();
+    }
+
+    @Override
+    public double getHeapFragmentation() {
+        return heapAllocator.getFragmentation();
     }
 
     public final void reset() {
+        // The memory of the heap is about to be reused
+        releaseHeapAllocations();
+        releaseObjectBuffers();
         callStackPosition = 0;
         deviceBufferPosition = 0;
-        heapPosition = callStackLimit;
+        heapAllocator.reset(callStackLimit, heapLimit);
         Tornado.info("Reset heap @ 0x%x (%s) on %s", deviceBufferAddress, RuntimeUtilities.humanReadableByteCount(heapLimit, true), deviceContext.getDevice().getDeviceName());
     }
 
@@ -106,19 +165,132 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
         return (address % alignment == 0) ? address : address + (alignment - address % alignment);
     }
 
-    long tryAllocate(final long bytes, final int headerSize, int alignment) {
-        final long alignedDataStart = align(heapPosition + headerSize, alignment);
-        final long headerStart = alignedDataStart - headerSize;
-        if (headerStart + bytes < heapLimit) {
-            heapPosition = headerStart + bytes;
-        } else {
+    long tryAllocate(final long bytes, final int headerSize, int alignment, final ObjectBuffer owner) {
+        final long headerStart = heapAllocator.allocate(bytes, headerSize, alignment);
+        if (headerStart == FreeListAllocator.NO_SPACE) {
             throw new TornadoOutOfMemoryException("Out of memory on the target device -> " + deviceContext.getDevice().getDeviceName() + ". [Heap Limit is: "
-                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: " + RuntimeUtilities.humanReadableByteCount(headerStart + bytes, true)
+                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: " + RuntimeUtilities.humanReadableByteCount(heapAllocator.getAllocatedBytes() + bytes, true)
+                    + ", largest free block: " + RuntimeUtilities.humanReadableByteCount(heapAllocator.getLargestFreeBlock(), true)
                     + "]\nUse flag -Dtornado.heap.allocation=<XGB> to tune the device heap. E.g., -Dtornado.heap.allocation=2GB\n");
         }
+        heapAllocations.put(headerStart, owner);
         return headerStart;
     }
 
+    /**
+     * Returns the space allocated at {@code headerStart} in {@code bufferId},
+     * which is either the device heap or the buffer of an object. Space that
+     * {@code owner} no longer owns, e.g. because the heap was {@link #reset()},
+     * is left untouched.
+     */
+    void free(final long bufferId, final long headerStart, final ObjectBuffer owner) {
+        final ObjectAllocation allocation = objectBuffers.get(bufferId);
+        if (allocation != null) {
+            if (allocation.owner == owner) {
+                releaseObjectBuffer(bufferId);
+                return;
+            }
+        } else if (heapAllocations.remove(headerStart, owner)) {
+            heapAllocator.free(headerStart);
+            return;
+        }
+        debug("Ignoring free of 0x%x on %s: not owned by %s", headerStart, deviceContext.getDevice().getDeviceName(), owner);
+    }
+
+    /**
+     * Deallocates the owners of all the space allocated in the heap, so they
+     * allocate it again the next time they are used.
+     */
+    private void releaseHeapAllocations() {
+        final List<ObjectBuffer> owners = new ArrayList<>(heapAllocations.values());
+        for (ObjectBuffer owner : owners) {
+            owner.deallocate();
+        }
+        heapAllocations.clear();
+    }
+
+    /**
+     * With {@code tornado.opencl.buffers.perobject}, every object is allocated in
+     * its own OpenCL buffer, which is passed to the kernels next to the heap. The
+     * heap only keeps the call stacks, so memory is only reserved on the device
+     * for the objects in use.
+     */
+    boolean isPerObjectBuffers() {
+        return perObjectBuffers;
+    }
+
+    /**
+     * Offset of an object within its own buffer, so the data after a header of
+     * {@code headerSize} bytes keeps the alignment used in the heap. Buffers are
+     * aligned to at least {@code CL_DEVICE_MEM_BASE_ADDR_ALIGN}.
+     */
+    static long objectBufferOffset(final int headerSize, final int alignment) {
+        return align(headerSize, alignment) - headerSize;
+    }
+
+    /**
+     * Creates the buffer of an object, see {@link #isPerObjectBuffers()}.
+     *
+     * @return the OpenCL buffer.
+     */
+    long createObjectBuffer(final long bytes, final ObjectBuffer owner) {
+        final long bufferBytes = Math.max(bytes, MIN_OBJECT_BUFFER_SIZE);
+        final long bufferId = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE, bufferBytes);
+        if (bufferId == 0) {
+            throw new TornadoOutOfMemoryException("Out of memory on the target device -> " + deviceContext.getDevice().getDeviceName() + ". [Unable to allocate "
+                    + RuntimeUtilities.humanReadableByteCount(bufferBytes, true) + ", allocated: " + RuntimeUtilities.humanReadableByteCount(objectBufferBytes, true) + "]");
+        }
+        // Objects reached through other objects are accessed by their address
+        final long address = backend.readBufferAddress(getSubBuffer(bufferId, 0, MIN_OBJECT_BUFFER_SIZE));
+        objectBuffers.put(bufferId, new ObjectAllocation(address, bufferBytes, owner));
+        objectBufferBytes += bufferBytes;
+        return bufferId;
+    }
+
+    private void releaseObjectBuffer(final long bufferId) {
+        final ObjectAllocation allocation = objectBuffers.remove(bufferId);
+        objectBufferBytes -= allocation.bytes;
+        deviceContext.getPlatformContext().releaseBuffer(bufferId);
+    }
+
+    /**
+     * Releases the buffers of all the objects. Their owners are deallocated
+     * first, so they allocate a new buffer the next time they are used.
+     */
+    private void releaseObjectBuffers() {
+        final List<ObjectAllocation> allocations = new ArrayList<>(objectBuffers.values());
+        for (ObjectAllocation allocation : allocations) {
+            allocation.owner.deallocate();
+        }
+        new ArrayList<>(objectBuffers.keySet()).forEach(this::releaseObjectBuffer);
+        objectBufferBytes = 0;
+    }
+
+    /**
+     * The heap of devices that share memory with the host is created from host
+     * memory when {@code tornado.opencl.zerocopy} is enabled. Off-heap arrays
+     * then keep their elements in the heap, and transfers only map and unmap
+     * them.
+     */
+    boolean isZeroCopy() {
+        return hostHeapAddress != 0;
+    }
+
+    /**
+     * Host address of the heap at {@code offset}, see {@link #isZeroCopy()}.
+     */
+    long toHostAddress(final long offset) {
+        return hostHeapAddress + offset;
+    }
+
+    ByteBuffer toHostBuffer(final long offset, final long bytes) {
+        return deviceContext.getPlatformContext().toByteBuffer(toHostAddress(offset), bytes);
+    }
+
+    public DeviceMemoryEvictor getEvictor() {
+        return evictor;
+    }
+
     public OCLCallStack createCallStack(final int maxArgs) {
 
         OCLCallStack callStack = new OCLCallStack(callStackPosition, maxArgs, deviceContext);
@@ -140,7 +312,7 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
     }
 
     public long getBytesRemaining() {
-        return heapLimit - heapPosition;
+        return heapAllocator.getFreeBytes();
     }
 
     /**
@@ -158,6 +330,14 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
         return new OCLByteBuffer(deviceContext, offset, length);
     }
 
+    /**
+     * Returns a sub-buffer of {@code length} bytes at {@code offset} within the
+     * OpenCL buffer {@code bufferId}.
+     */
+    public OCLByteBuffer getSubBuffer(final long bufferId, final int offset, final int length) {
+        return new OCLByteBuffer(deviceContext, bufferId, offset, length);
+    }
+
     /**
      * Allocate regions on the device.
      * 
@@ -165,13 +345,26 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
      *            Number of bytes to allocate in the global region.
      */
     public void allocateDeviceMemoryRegions(long numBytes) {
+        this.perObjectBuffers = deviceContext.usePerObjectBuffers();
+        if (perObjectBuffers) {
+            numBytes = callStackLimit;
+            info("Per-object buffers on %s: heap reduced to the call stacks", deviceContext.getDevice().getDeviceName());
+        }
         this.heapLimit = numBytes;
-        this.deviceHeapPointer = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, numBytes);
+        heapAllocator.reset(callStackLimit, heapLimit);
+        if (OPENCL_ZERO_COPY && !perObjectBuffers && deviceContext.getDevice().hasDeviceUnifiedMemory()) {
+            this.hostHeapAddress = deviceContext.getPlatformContext().allocate(numBytes, HOST_PAGE_SIZE);
+            this.deviceHeapPointer = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_USE_HOST_PTR, numBytes, hostHeapAddress);
+            info("Zero-copy heap @ 0x%x on %s", hostHeapAddress, deviceContext.getDevice().getDeviceName());
+        } else {
+            this.deviceHeapPointer = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, numBytes);
+        }
         this.constantPointer = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, 4);
         this.atomicsRegion = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, INTEGER_BYTES_SIZE * MAX_NUMBER_OF_ATOMICS_PER_KERNEL);
     }
 
     public void init(OCLBackend backend, long address) {
+        this.backend = backend;
         deviceBufferAddress = address;
         initialised = true;
         info("Located heap @ 0x%x (%s) on %s", deviceBufferAddress, RuntimeUtilities.humanReadableByteCount(heapLimit, false), deviceContext.getDevice().getDeviceName());
@@ -191,6 +384,15 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
         return result;
     }
 
+    /**
+     * Absolute device address of {@code offset} within {@code bufferId}, which is
+     * either the device heap or the buffer of an object.
+     */
+    long toAbsoluteDeviceAddress(final long bufferId, final long offset) {
+        final ObjectAllocation allocation = objectBuffers.get(bufferId);
+        return (allocation == null) ? toAbsoluteDeviceAddress(offset) : allocation.address + offset;
+    }
+
     long toBuffer() {
         return deviceHeapPointer;
     }
@@ -74,6 +74,12 @@ public class OCLMultiDimArrayWrapper<T, E> extends OCLArrayWrapper<T> {
         tableWrapper.invalidate();
     }
 
+    @Override
+    public void deallocate() {
+        deallocateElements();
+        tableWrapper.deallocate();
+    }
+
     @Override
     public boolean isValid() {
         return tableWrapper.isValid();
@@ -100,6 +106,7 @@ public class OCLMultiDimArrayWrapper<T, E> extends OCLArrayWrapper<T> {
         if (Array.getLength(value) < 0) {
             throw new TornadoMemoryException("[ERROR] Bytes Allocated < 0: " + Array.getLength(value));
         }
+        deallocateElements();
         addresses = new long[Array.getLength(value)];
         wrappers = new OCLArrayWrapper[Array.getLength(value)];
         tableWrapper.allocate(addresses, batchSize);
@@ -120,6 +127,17 @@ public class OCLMultiDimArrayWrapper<T, E> extends OCLArrayWrapper<T> {
         }
     }
 
+    private void deallocateElements() {
+        if (wrappers != null) {
+            for (OCLArrayWrapper<E> wrapper : wrappers) {
+                if (wrapper != null) {
+                    wrapper.deallocate();
+                }
+            }
+            wrappers = null;
+        }
+    }
+
     private int writeElements(T values) {
         final E[] elements = innerCast(values);
         for (int i = 0; i < elements.length; i++) {
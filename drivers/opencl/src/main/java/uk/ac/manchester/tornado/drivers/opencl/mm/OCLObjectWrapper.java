@@ -60,6 +60,7 @@ public class OCLObjectWrapper implements ObjectBuffer {
 
     private final boolean vectorObject;
     private int vectorStorageIndex;
+    private long bufferId;
     private long bufferOffset;
     private long bytesToAllocate;
     private ByteBuffer buffer;
@@ -184,7 +185,14 @@ public class OCLObjectWrapper implements ObjectBuffer {
         }
 
         if (bufferOffset == -1) {
-            bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, 32, getAlignment());
+            final OCLMemoryManager memoryManager = deviceContext.getMemoryManager();
+            if (memoryManager.isPerObjectBuffers()) {
+                bufferOffset = 0;
+                bufferId = memoryManager.createObjectBuffer(bytesToAllocate, this);
+            } else {
+                bufferOffset = memoryManager.tryAllocate(bytesToAllocate, 32, getAlignment(), this);
+                bufferId = memoryManager.toBuffer();
+            }
         }
 
         if (DEBUG) {
@@ -315,7 +323,15 @@ public class OCLObjectWrapper implements ObjectBuffer {
 
     @Override
     public long toBuffer() {
-        return deviceContext.getMemoryManager().toBuffer();
+        return bufferId;
+    }
+
+    /**
+     * @return the OpenCL buffer that contains {@link #toAbsoluteAddress()}, which
+     *         is the buffer of the storage array for vector types.
+     */
+    long toAddressedBuffer() {
+        return (vectorObject) ? wrappedFields[vectorStorageIndex].toBuffer() : bufferId;
     }
 
     @Override
@@ -370,7 +386,7 @@ public class OCLObjectWrapper implements ObjectBuffer {
 
     @Override
     public long toAbsoluteAddress() {
-        return (vectorObject) ? getVectorAddress(false) : deviceContext.getMemoryManager().toAbsoluteDeviceAddress(bufferOffset);
+        return (vectorObject) ? getVectorAddress(false) : deviceContext.getMemoryManager().toAbsoluteDeviceAddress(bufferId, bufferOffset);
     }
 
     private long getVectorAddress(boolean relative) {
@@ -514,6 +530,20 @@ public class OCLObjectWrapper implements ObjectBuffer {
         valid = false;
     }
 
+    @Override
+    public void deallocate() {
+        for (FieldBuffer fieldBuffer : wrappedFields) {
+            if (fieldBuffer != null) {
+                fieldBuffer.deallocate();
+            }
+        }
+        if (bufferOffset != -1) {
+            deviceContext.getMemoryManager().free(bufferId, bufferOffset, this);
+            bufferOffset = -1;
+        }
+        valid = false;
+    }
+
     @Override
     public String toString() {
         return String.format("object wrapper: type=%s, fields=%d, valid=%s\n", resolvedType.getName(), wrappedFields.length, valid);
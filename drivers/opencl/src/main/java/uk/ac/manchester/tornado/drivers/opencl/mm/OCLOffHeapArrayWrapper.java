@@ -0,0 +1,394 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.mm;
+
+import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.shouldNotReachHere;
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getVMConfig;
+import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.humanReadableByteCount;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.OPENCL_ARRAY_ALIGNMENT;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.OPENCL_ZERO_COPY_FALLBACK;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.collections.arrays.DoubleArray;
+import uk.ac.manchester.tornado.api.collections.arrays.FloatArray;
+import uk.ac.manchester.tornado.api.collections.arrays.IntArray;
+import uk.ac.manchester.tornado.api.collections.arrays.LongArray;
+import uk.ac.manchester.tornado.api.collections.arrays.OffHeapArray;
+import uk.ac.manchester.tornado.api.exceptions.TornadoMemoryException;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+
+/**
+ * Device buffer of an {@link OffHeapArray}. The buffer has the layout of a Java
+ * array, so kernels access it as any other array. The array header is built in
+ * the memory reserved in front of the elements of the host array, and the
+ * header and the elements are copied with a single non-blocking transfer.
+ *
+ * <p>
+ * Arrays mapped on a file have no memory reserved for the header, and batches
+ * only copy part of the elements. In both cases the header is written from a
+ * separate buffer, and the elements are copied from the mapped file or from the
+ * range of the batch.
+ * </p>
+ *
+ * <p>
+ * When the heap of the device is created from host memory (see
+ * {@code tornado.opencl.zerocopy}), the array is moved into the heap when the
+ * buffer is allocated, and transfers map and unmap the buffer instead of
+ * copying it.
+ * </p>
+ */
+public class OCLOffHeapArrayWrapper implements ObjectBuffer {
+
+    private final OCLDeviceContext deviceContext;
+    private final JavaKind kind;
+    private final int arrayHeaderSize;
+    private final int arrayLengthOffset;
+
+    private long bufferId;
+    private long allocationOffset;
+    private long bufferOffset;
+    private long bytesToAllocate;
+    private long allocatedBytes;
+    private boolean onDevice;
+
+    /**
+     * Header written separately from the elements, or null if the header is
+     * built in the memory of the host array.
+     */
+    private OCLByteBuffer separateHeader;
+
+    /**
+     * Array moved into the heap of the device, or null if the array is copied.
+     */
+    private OffHeapArray zeroCopyArray;
+
+    /**
+     * Events of the last write. The list is reused by every write, so callers
+     * must consume it before writing this buffer again.
+     */
+    private final ArrayList<Integer> writeEvents = new ArrayList<>(1);
+
+    public OCLOffHeapArrayWrapper(OCLDeviceContext deviceContext, OffHeapArray array) {
+        this.deviceContext = deviceContext;
+        this.kind = elementKind(array);
+        this.arrayHeaderSize = getVMConfig().getArrayBaseOffset(kind);
+        this.arrayLengthOffset = getVMConfig().arrayOopDescLengthOffset();
+        if (arrayHeaderSize > OffHeapArray.ARRAY_HEADER) {
+            throw new TornadoRuntimeException("[ERROR] Array header of " + arrayHeaderSize + " bytes does not fit in an off-heap array");
+        }
+        this.bufferOffset = -1;
+        this.onDevice = false;
+    }
+
+    private static JavaKind elementKind(OffHeapArray array) {
+        if (array instanceof FloatArray) {
+            return JavaKind.Float;
+        } else if (array instanceof IntArray) {
+            return JavaKind.Int;
+        } else if (array instanceof DoubleArray) {
+            return JavaKind.Double;
+        } else if (array instanceof LongArray) {
+            return JavaKind.Long;
+        }
+        throw new TornadoRuntimeException("[ERROR] Off-heap array not supported: " + array.getClass().getName());
+    }
+
+    private OffHeapArray cast(Object value) {
+        if (!(value instanceof OffHeapArray)) {
+            shouldNotReachHere("[ERROR] Unable to cast object: " + value);
+        }
+        return (OffHeapArray) value;
+    }
+
+    /**
+     * Offset, within the memory of the host array, of the header expected by the
+     * device.
+     */
+    private long headerOffset() {
+        return OffHeapArray.ARRAY_HEADER - arrayHeaderSize;
+    }
+
+    @Override
+    public void allocate(Object value, long batchSize) {
+        final OffHeapArray array = cast(value);
+        final boolean headerInPlace = batchSize <= 0 && array.hasReservedHeader();
+        final long newBufferSize = arrayHeaderSize + ((batchSize > 0) ? batchSize : array.getNumBytes());
+
+        if (bufferOffset != -1 && (headerInPlace != (separateHeader == null) || newBufferSize != bytesToAllocate)) {
+            if (!headerInPlace && separateHeader != null && newBufferSize <= allocatedBytes) {
+                // The last batch fits in the space reserved for the previous ones
+                bytesToAllocate = newBufferSize;
+            } else {
+                deallocate();
+            }
+        }
+
+        if (bufferOffset == -1) {
+            bytesToAllocate = newBufferSize;
+            allocatedBytes = newBufferSize;
+            final OCLMemoryManager memoryManager = deviceContext.getMemoryManager();
+            if (headerInPlace) {
+                // Reserve the memory of the whole segment, so the array can be moved into the heap
+                if (memoryManager.isPerObjectBuffers()) {
+                    allocationOffset = OCLMemoryManager.objectBufferOffset(OffHeapArray.ARRAY_HEADER, getAlignment());
+                    bufferId = memoryManager.createObjectBuffer(allocationOffset + segmentSize(array), this);
+                } else {
+                    allocationOffset = memoryManager.tryAllocate(segmentSize(array), OffHeapArray.ARRAY_HEADER, getAlignment(), this);
+                    bufferId = memoryManager.toBuffer();
+                }
+                bufferOffset = allocationOffset + headerOffset();
+            } else {
+                if (memoryManager.isPerObjectBuffers()) {
+                    allocationOffset = OCLMemoryManager.objectBufferOffset(arrayHeaderSize, getAlignment());
+                    bufferId = memoryManager.createObjectBuffer(allocationOffset + bytesToAllocate, this);
+                } else {
+                    allocationOffset = memoryManager.tryAllocate(bytesToAllocate, arrayHeaderSize, getAlignment(), this);
+                    bufferId = memoryManager.toBuffer();
+                }
+                bufferOffset = allocationOffset;
+                separateHeader = memoryManager.getSubBuffer(bufferId, (int) bufferOffset, arrayHeaderSize);
+            }
+            if (Tornado.FULL_DEBUG) {
+                info("allocated: off-heap array kind=%s, size=%s, header size=%d, bo=0x%x", kind.getJavaName(), humanReadableByteCount(bytesToAllocate, true), arrayHeaderSize, bufferOffset);
+            }
+        }
+
+        if (headerInPlace) {
+            final ByteBuffer segment = array.getSegment();
+            segment.putInt((int) headerOffset() + arrayLengthOffset, array.getSize());
+
+            if (zeroCopyArray == null && deviceContext.getMemoryManager().isZeroCopy()) {
+                moveToHeap(array);
+            }
+        }
+    }
+
+    /**
+     * Fills the separate header with the number of elements on the device.
+     */
+    private OCLByteBuffer buildSeparateHeader(OffHeapArray array) {
+        final ByteBuffer header = separateHeader.buffer;
+        header.clear();
+        for (int i = 0; i < arrayLengthOffset; i++) {
+            header.put((byte) 0);
+        }
+        header.putInt((int) ((bytesToAllocate - arrayHeaderSize) / array.getElementSize()));
+        return separateHeader;
+    }
+
+    private static long segmentSize(OffHeapArray array) {
+        return OffHeapArray.ARRAY_HEADER + array.getNumBytes();
+    }
+
+    private void moveToHeap(OffHeapArray array) {
+        final OCLMemoryManager memoryManager = deviceContext.getMemoryManager();
+        final long size = segmentSize(array);
+        final long hostPtr = deviceContext.mapBuffer(toBuffer(), allocationOffset, size, null);
+        if (hostPtr == 0) {
+            return;
+        }
+        if (hostPtr == memoryManager.toHostAddress(allocationOffset) && !OPENCL_ZERO_COPY_FALLBACK) {
+            array.relocate(memoryManager.toHostBuffer(allocationOffset, size));
+            zeroCopyArray = array;
+        } else if (Tornado.DEBUG) {
+            // The driver maps the buffer in a copy, so the array stays where it is
+            info("off-heap array mapped @ 0x%x instead of 0x%x, using copies", hostPtr, memoryManager.toHostAddress(allocationOffset));
+        }
+        deviceContext.unmapBuffer(toBuffer(), hostPtr, null);
+    }
+
+    /**
+     * Moves the array back to memory owned by the array before the memory of the
+     * heap is released.
+     */
+    private void moveFromHeap() {
+        final long size = segmentSize(zeroCopyArray);
+        final long hostPtr = deviceContext.mapBuffer(toBuffer(), allocationOffset, size, null);
+        zeroCopyArray.relocate(ByteBuffer.allocateDirect((int) size));
+        if (hostPtr != 0) {
+            deviceContext.unmapBuffer(toBuffer(), hostPtr, null);
+        }
+        zeroCopyArray = null;
+    }
+
+    @Override
+    public List<Integer> enqueueWrite(Object value, long batchSize, long hostOffset, int[] events, boolean useDeps) {
+        final OffHeapArray array = cast(value);
+        writeEvents.clear();
+        if (zeroCopyArray != null) {
+            writeEvents.add(deviceContext.enqueueSyncToDevice(toBuffer(), allocationOffset, segmentSize(array), (useDeps) ? events : null));
+        } else if (separateHeader != null) {
+            writeEvents.add(buildSeparateHeader(array).enqueueWrite((useDeps) ? events : null));
+            writeEvents.add(deviceContext.enqueueWriteBuffer(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array.getSegment(), array.getBaseOffset() + hostOffset,
+                    (useDeps) ? events : null));
+        } else {
+            writeEvents.add(deviceContext.enqueueWriteBuffer(toBuffer(), bufferOffset, bytesToAllocate, array.getSegment(), headerOffset(), (useDeps) ? events : null));
+        }
+        onDevice = true;
+        return useDeps ? writeEvents : null;
+    }
+
+    @Override
+    public List<Integer> enqueueWriteRange(Object value, long offset, long size, int[] events, boolean useDeps) {
+        if (!onDevice) {
+            // The header has not been written yet
+            return enqueueWrite(value, 0, 0, events, useDeps);
+        }
+        final OffHeapArray array = cast(value);
+        writeEvents.clear();
+        if (zeroCopyArray != null) {
+            writeEvents.add(deviceContext.enqueueSyncToDevice(toBuffer(), allocationOffset + OffHeapArray.ARRAY_HEADER + offset, size, (useDeps) ? events : null));
+        } else {
+            writeEvents.add(deviceContext.enqueueWriteBuffer(toBuffer(), bufferOffset + arrayHeaderSize + offset, size, array.getSegment(), array.getBaseOffset() + offset,
+                    (useDeps) ? events : null));
+        }
+        return useDeps ? writeEvents : null;
+    }
+
+    @Override
+    public void write(Object value) {
+        final OffHeapArray array = cast(value);
+        if (zeroCopyArray != null) {
+            deviceContext.resolveEvent(deviceContext.enqueueSyncToDevice(toBuffer(), allocationOffset, segmentSize(array), null)).waitOn();
+        } else if (separateHeader != null) {
+            buildSeparateHeader(array).write();
+            deviceContext.writeBuffer(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array.getSegment(), array.getBaseOffset(), null);
+        } else {
+            deviceContext.writeBuffer(toBuffer(), bufferOffset, bytesToAllocate, array.getSegment(), headerOffset(), null);
+        }
+        onDevice = true;
+    }
+
+    @Override
+    public int enqueueRead(Object value, long hostOffset, int[] events, boolean useDeps) {
+        final OffHeapArray array = cast(value);
+        final int returnEvent;
+        if (zeroCopyArray != null) {
+            returnEvent = deviceContext.syncToHost(toBuffer(), allocationOffset + OffHeapArray.ARRAY_HEADER, array.getNumBytes(), (useDeps) ? events : null);
+        } else {
+            returnEvent = deviceContext.enqueueReadBuffer(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array.getSegment(), array.getBaseOffset() + hostOffset,
+                    (useDeps) ? events : null);
+        }
+        return useDeps ? returnEvent : -1;
+    }
+
+    @Override
+    public int enqueueReadRange(Object value, long offset, long size, int[] events, boolean useDeps) {
+        final OffHeapArray array = cast(value);
+        final int returnEvent;
+        if (zeroCopyArray != null) {
+            returnEvent = deviceContext.syncToHost(toBuffer(), allocationOffset + OffHeapArray.ARRAY_HEADER + offset, size, (useDeps) ? events : null);
+        } else {
+            returnEvent = deviceContext.enqueueReadBuffer(toBuffer(), bufferOffset + arrayHeaderSize + offset, size, array.getSegment(), array.getBaseOffset() + offset,
+                    (useDeps) ? events : null);
+        }
+        return useDeps ? returnEvent : -1;
+    }
+
+    @Override
+    public void read(Object value) {
+        read(value, 0, null, false);
+    }
+
+    @Override
+    public int read(Object value, long hostOffset, int[] events, boolean useDeps) {
+        final OffHeapArray array = cast(value);
+        if (zeroCopyArray != null) {
+            return deviceContext.syncToHost(toBuffer(), allocationOffset + OffHeapArray.ARRAY_HEADER, array.getNumBytes(), (useDeps) ? events : null);
+        }
+        return deviceContext.readBuffer(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array.getSegment(), array.getBaseOffset() + hostOffset,
+                (useDeps) ? events : null);
+    }
+
+    @Override
+    public long toBuffer() {
+        return bufferId;
+    }
+
+    @Override
+    public long getBufferOffset() {
+        return bufferOffset;
+    }
+
+    @Override
+    public long toAbsoluteAddress() {
+        return deviceContext.getMemoryManager().toAbsoluteDeviceAddress(bufferId, bufferOffset);
+    }
+
+    @Override
+    public long toRelativeAddress() {
+        return bufferOffset;
+    }
+
+    @Override
+    public void deallocate() {
+        if (zeroCopyArray != null) {
+            moveFromHeap();
+        }
+        if (bufferOffset != -1) {
+            deviceContext.getMemoryManager().free(bufferId, allocationOffset, this);
+            bufferOffset = -1;
+            separateHeader = null;
+        }
+        onDevice = false;
+    }
+
+    @Override
+    public int getAlignment() {
+        return OPENCL_ARRAY_ALIGNMENT;
+    }
+
+    @Override
+    public boolean isValid() {
+        return onDevice;
+    }
+
+    @Override
+    public void invalidate() {
+        onDevice = false;
+    }
+
+    @Override
+    public void printHeapTrace() {
+        System.out.printf("0x%x\ttype=off-heap %s\n", toAbsoluteAddress(), kind.getJavaName());
+    }
+
+    @Override
+    public long size() {
+        return bytesToAllocate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("buffer<off-heap %s> %s @ 0x%x (0x%x)", kind.getJavaName(), humanReadableByteCount(bytesToAllocate, true), toAbsoluteAddress(), toRelativeAddress());
+    }
+}
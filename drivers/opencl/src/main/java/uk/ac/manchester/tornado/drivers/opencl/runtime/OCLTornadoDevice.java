@@ -38,6 +38,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.collections.arrays.OffHeapArray;
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.Event;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
@@ -77,14 +78,19 @@ import uk.ac.manchester.tornado.drivers.opencl.mm.OCLLongArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLMemoryManager;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLMultiDimArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLObjectWrapper;
+import uk.ac.manchester.tornado.drivers.opencl.mm.OCLOffHeapArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLShortArrayWrapper;
 import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.cache.CachedKernel;
+import uk.ac.manchester.tornado.runtime.cache.KernelCacheKey;
+import uk.ac.manchester.tornado.runtime.cache.PersistentKernelCache;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
@@ -245,6 +251,15 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         final Access[] taskAccess = taskMeta.getArgumentsAccess();
         System.arraycopy(sketchAccess, 0, taskAccess, 0, sketchAccess.length);
 
+        final String persistentKey = usePersistentKernelCache(deviceContext) ? KernelCacheKey.compute(getDeviceFingerprint(), getClass(), executable, resolvedMethod, sketch) : null;
+        if (persistentKey != null) {
+            final OCLInstalledCode cachedCode = loadFromPersistentKernelCache(executable, persistentKey, resolvedMethod.getName());
+            if (cachedCode != null) {
+                taskMeta.setCompiledGraph(resolvedMethod);
+                return cachedCode;
+            }
+        }
+
         try {
             OCLProviders providers = (OCLProviders) getBackend().getProviders();
             TornadoProfiler profiler = task.getProfiler();
@@ -285,6 +300,14 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
             profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
             profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
 
+            if (persistentKey != null && installedCode.isValid() && !usesGlobalAtomics(methods)) {
+                final byte[] binary = installedCode.getProgram().getBinary();
+                final CachedKernel cachedKernel = (binary != null) ? CachedKernel.of(binary, taskMeta) : null;
+                if (cachedKernel != null) {
+                    PersistentKernelCache.getInstance().store(persistentKey, cachedKernel);
+                }
+            }
+
             return installedCode;
         } catch (Exception e) {
             driver.fatal("unable to compile %s for device %s", task.getId(), getDeviceName());
@@ -294,6 +317,54 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         }
     }
 
+    /**
+     * The persistent kernel cache stores device binaries, so it is not used for
+     * virtual devices nor for FPGAs, which have their own bitstream flow.
+     */
+    private boolean usePersistentKernelCache(OCLDeviceContextInterface deviceContext) {
+        return PersistentKernelCache.isEnabled() && deviceContext instanceof OCLDeviceContext && !OCLBackend.isDeviceAnFPGAAccelerator(deviceContext);
+    }
+
+    private String getDeviceFingerprint() {
+        final OCLDeviceContextInterface deviceContext = getDeviceContext();
+        final OCLTargetDevice device = deviceContext.getDevice();
+        return String.join("|", "opencl", deviceContext.getPlatformContext().getPlatform().getName(), deviceContext.getPlatformContext().getPlatform().getVendor(), device.getDeviceVendor(),
+                device.getDeviceName(), device.getVersion(), device.getDriverVersion(), device.getDeviceOpenCLCVersion());
+    }
+
+    private OCLInstalledCode loadFromPersistentKernelCache(CompilableTask task, String key, String entryPoint) {
+        final CachedKernel cachedKernel = PersistentKernelCache.getInstance().lookup(key);
+        if (cachedKernel == null) {
+            return null;
+        }
+        final TaskMetaData taskMeta = task.meta();
+        final TornadoProfiler profiler = task.getProfiler();
+        profiler.registerDeviceID(ProfilerType.DEVICE_ID, taskMeta.getId(), taskMeta.getLogicDevice().getDriverIndex() + ":" + taskMeta.getDeviceIndex());
+        profiler.registerDeviceName(ProfilerType.DEVICE, taskMeta.getId(), taskMeta.getLogicDevice().getPhysicalDevice().getDeviceName());
+        profiler.start(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+        final OCLInstalledCode code = getDeviceContext().getCodeCache().installBinary(taskMeta, task.getId(), entryPoint, cachedKernel.getBinary());
+        profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+        profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
+        if (code != null) {
+            // The compiler phases that set the launch configuration did not run
+            cachedKernel.restore(taskMeta);
+        }
+        return code;
+    }
+
+    /**
+     * The atomics of a kernel are registered while compiling it, so
+     * kernels that use them cannot be restored from the persistent cache.
+     */
+    private static boolean usesGlobalAtomics(ResolvedJavaMethod[] methods) {
+        for (ResolvedJavaMethod method : methods) {
+            if (TornadoAtomicIntegerNode.globalAtomics.containsKey(method) || TornadoAtomicIntegerNode.globalAtomicsParameters.containsKey(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private TornadoInstalledCode compilePreBuiltTask(SchedulableTask task) {
         final OCLDeviceContextInterface deviceContext = getDeviceContext();
         final PrebuiltTask executable = (PrebuiltTask) task;
@@ -516,6 +587,8 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         } else if (!type.isPrimitive()) {
             if (object instanceof AtomicInteger) {
                 result = new AtomicsBuffer(new int[] {}, deviceContext);
+            } else if (object instanceof OffHeapArray) {
+                result = new OCLOffHeapArrayWrapper(deviceContext, (OffHeapArray) object);
             } else {
                 result = new OCLObjectWrapper(deviceContext, object, batchSize);
             }
@@ -531,9 +604,27 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         }
     }
 
+    /**
+     * Allocates the buffer on the device heap. If the heap is full, the least
+     * recently used objects that are not needed by the running task-schedule are
+     * evicted until the buffer fits.
+     */
+    private void allocateWithEviction(ObjectBuffer buffer, Object object, long batchSize) {
+        while (true) {
+            try {
+                buffer.allocate(object, batchSize);
+                return;
+            } catch (TornadoOutOfMemoryException e) {
+                if (!TornadoOptions.HEAP_EVICTION || !getDeviceContext().getMemoryManager().getEvictor().evict()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
     private void reserveMemory(Object object, long batchSize, TornadoDeviceObjectState state) {
         final ObjectBuffer buffer = createDeviceBuffer(object.getClass(), object, (OCLDeviceContext) getDeviceContext(), batchSize);
-        buffer.allocate(object, batchSize);
+        allocateWithEviction(buffer, object, batchSize);
         state.setBuffer(buffer);
 
         if (buffer.getClass() == AtomicsBuffer.class) {
@@ -552,7 +643,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         // We re-allocate if the buffer size has changed
         final ObjectBuffer buffer = state.getBuffer();
         try {
-            buffer.allocate(object, batchSize);
+            allocateWithEviction(buffer, object, batchSize);
         } catch (TornadoOutOfMemoryException | TornadoMemoryException e) {
             e.printStackTrace();
         }
@@ -560,7 +651,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
 
     private void reAllocateInvalidBuffer(Object object, long batchSize, TornadoDeviceObjectState state) {
         try {
-            state.getBuffer().allocate(object, batchSize);
+            allocateWithEviction(state.getBuffer(), object, batchSize);
             final Class<?> type = object.getClass();
             if (!type.isArray()) {
                 checkBatchSize(batchSize);
@@ -583,6 +674,10 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         if (!state.isValid()) {
             reAllocateInvalidBuffer(object, batchSize, state);
         }
+
+        if (TornadoOptions.HEAP_EVICTION && state.isValid()) {
+            getDeviceContext().getMemoryManager().getEvictor().touch(object, (DeviceObjectState) state);
+        }
         return -1;
     }
 
@@ -594,7 +689,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
 
         if (BENCHMARKING_MODE || !state.hasContents()) {
             state.setContents(true);
-            return state.getBuffer().enqueueWrite(object, batchSize, offset, events, events == null);
+            return state.getBuffer().enqueueWrite(object, batchSize, offset, events, true);
         }
         return null;
     }
@@ -605,17 +700,31 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
             ensureAllocated(object, batchSize, state);
         }
         state.setContents(true);
-        return state.getBuffer().enqueueWrite(object, batchSize, offset, events, events == null);
+        return state.getBuffer().enqueueWrite(object, batchSize, offset, events, true);
+    }
+
+    @Override
+    public List<Integer> streamInRange(Object object, long offset, long size, TornadoDeviceObjectState state, int[] events) {
+        if (!state.isValid() || !state.hasContents()) {
+            return streamIn(object, 0, 0, state, events);
+        }
+        return state.getBuffer().enqueueWriteRange(object, offset, size, events, true);
+    }
+
+    @Override
+    public int streamOutRange(Object object, long offset, long size, TornadoDeviceObjectState state, int[] events) {
+        TornadoInternalError.guarantee(state.isValid(), "invalid variable");
+        // The rest of the host copy is stale, so the object stays modified
+        return state.getBuffer().enqueueReadRange(object, offset, size, events, true);
     }
 
     @Override
     public int streamOut(Object object, long offset, TornadoDeviceObjectState state, int[] events) {
         TornadoInternalError.guarantee(state.isValid(), "invalid variable");
-        int event = state.getBuffer().enqueueRead(object, offset, events, events == null);
-        if (events != null) {
-            return event;
-        }
-        return -1;
+        int event = state.getBuffer().enqueueRead(object, offset, events, true);
+        // The host copy is up to date once the read completes
+        state.setModified(false);
+        return event;
     }
 
     @Override
@@ -630,7 +739,8 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
             return eventID;
         } else {
             TornadoInternalError.guarantee(state.isValid(), "invalid variable");
-            return state.getBuffer().read(object, hostOffset, events, events == null);
+            state.setModified(false);
+            return state.getBuffer().read(object, hostOffset, events, true);
         }
     }
 
@@ -792,6 +902,20 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         // OpenCL device context is shared by different threads, by default
     }
 
+    @Override
+    public void enableCopyQueues() {
+        final OCLDeviceContextInterface deviceContext = getDeviceContext();
+        if (deviceContext instanceof OCLDeviceContext) {
+            ((OCLDeviceContext) deviceContext).enableCopyQueues();
+        }
+    }
+
+    @Override
+    public boolean hasCopyQueues() {
+        final OCLDeviceContextInterface deviceContext = getDeviceContext();
+        return deviceContext instanceof OCLDeviceContext && ((OCLDeviceContext) deviceContext).hasMultipleQueues();
+    }
+
     @Override
     public void setAtomicRegion(ObjectBuffer bufferAtomics) {
         reuseBuffer = bufferAtomics;
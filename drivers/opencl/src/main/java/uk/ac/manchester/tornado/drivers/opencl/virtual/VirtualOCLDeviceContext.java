@@ -39,6 +39,7 @@ import uk.ac.manchester.tornado.runtime.EmptyEvent;
 import uk.ac.manchester.tornado.runtime.common.Initialisable;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 public class VirtualOCLDeviceContext extends TornadoLogger implements Initialisable, OCLDeviceContextInterface {
@@ -204,6 +205,11 @@ public class VirtualOCLDeviceContext extends TornadoLogger implements Initialisa
         return useRelativeAddresses;
     }
 
+    @Override
+    public boolean usePerObjectBuffers() {
+        return TornadoOptions.OPENCL_PER_OBJECT_BUFFERS && !useRelativeAddresses;
+    }
+
     public boolean isKernelAvailable() {
         return true;
     }
@@ -431,6 +431,16 @@ public class VirtualOCLTornadoDevice implements TornadoAcceleratorDevice {
         // OpenCL device context is shared by different threads, by default
     }
 
+    @Override
+    public void enableCopyQueues() {
+        // There are no commands to overlap on a virtual device
+    }
+
+    @Override
+    public boolean hasCopyQueues() {
+        return false;
+    }
+
     @Override
     public void setAtomicRegion(ObjectBuffer bufferAtomics) {
 
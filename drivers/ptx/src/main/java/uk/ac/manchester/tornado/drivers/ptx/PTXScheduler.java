@@ -49,6 +49,7 @@ public class PTXScheduler {
         final long[] globalWork = meta.getGlobalWork();
         for (int i = 0; i < meta.getDims(); i++) {
             long value = (batchThreads <= 0) ? (long) (meta.getDomain().get(i).cardinality()) : batchThreads;
+            value = meta.getCoarsenedGlobalWork(i, value);
             globalWork[i] = value;
         }
     }
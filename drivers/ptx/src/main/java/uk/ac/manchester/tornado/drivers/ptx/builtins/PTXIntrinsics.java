@@ -58,6 +58,26 @@ public class PTXIntrinsics {
      */
     public static native void globalBarrier();
 
+    /**
+     * <p>
+     * <code>
+     *  membar.gl;
+     * </code>
+     * </p>
+     */
+    public static native void globalMemFence();
+
+    /**
+     * Atomically increments the 32-bit counter stored in {@code array[index]},
+     * whatever the element type of the array, and returns its previous value.
+     * <p>
+     * <code>
+     *  atom.global.add.u32 result, [array + index], 1;
+     * </code>
+     * </p>
+     */
+    public static native int atomic_inc_counter(Object array, int index);
+
     public static native void printf();
 
     public static native void printEmpty();
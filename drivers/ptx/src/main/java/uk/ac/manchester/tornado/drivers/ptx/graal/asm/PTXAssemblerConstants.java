@@ -79,5 +79,8 @@ public class PTXAssemblerConstants {
 
     public static final String CALL = "call";
 
+    public static final String ATOMIC = "atom";
+    public static final String MEMORY_BARRIER_GLOBAL = "membar.gl";
+
     public static final int STACK_BASE_OFFSET = 3;
 }
@@ -51,6 +51,7 @@ import uk.ac.manchester.tornado.drivers.ptx.graal.phases.TornadoNewArrayDevirtua
 import uk.ac.manchester.tornado.drivers.ptx.graal.phases.TornadoPTXIntrinsicsReplacements;
 import uk.ac.manchester.tornado.drivers.ptx.graal.phases.TornadoParallelScheduler;
 import uk.ac.manchester.tornado.drivers.ptx.graal.phases.TornadoTaskSpecialisation;
+import uk.ac.manchester.tornado.drivers.ptx.graal.phases.TornadoThreadCoarsener;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoHighTier;
 import uk.ac.manchester.tornado.runtime.graal.phases.ExceptionSuppression;
@@ -109,6 +110,7 @@ public class PTXHighTier extends TornadoHighTier {
         appendPhase(new TornadoShapeAnalysis());
         appendPhase(canonicalizer);
         appendPhase(new TornadoParallelScheduler());
+        appendPhase(new TornadoThreadCoarsener());
         appendPhase(new SchedulePhase(SchedulePhase.SchedulingStrategy.EARLIEST));
 
         LoopPolicies loopPolicies = new DefaultLoopPolicies();
@@ -232,6 +232,65 @@ public class PTXLIRStmt {
         }
     }
 
+    @Opcode("MEMBAR")
+    public static class MemoryBarrierStmt extends AbstractInstruction {
+        public static final LIRInstructionClass<MemoryBarrierStmt> TYPE = LIRInstructionClass.create(MemoryBarrierStmt.class);
+
+        public MemoryBarrierStmt() {
+            super(TYPE);
+        }
+
+        @Override
+        public void emitCode(PTXCompilationResultBuilder crb, PTXAssembler asm) {
+            // membar.gl;
+            asm.emitSymbol(TAB);
+            asm.emit(MEMORY_BARRIER_GLOBAL);
+            asm.delimiter();
+            asm.eol();
+        }
+    }
+
+    @Opcode("ATOMIC_INC")
+    public static class AtomicIncrementStmt extends AbstractInstruction {
+        public static final LIRInstructionClass<AtomicIncrementStmt> TYPE = LIRInstructionClass.create(AtomicIncrementStmt.class);
+
+        @Def
+        protected Variable result;
+
+        @Use
+        PTXUnary.MemoryAccess address;
+
+        public AtomicIncrementStmt(Variable result, PTXUnary.MemoryAccess address) {
+            super(TYPE);
+            this.result = result;
+            this.address = address;
+        }
+
+        @Override
+        public void emitCode(PTXCompilationResultBuilder crb, PTXAssembler asm) {
+            // atom.global.add.u32 %r9, [%rd8], 1;
+            asm.emitSymbol(TAB);
+            asm.emit(ATOMIC);
+            asm.emitSymbol(DOT);
+            asm.emit(address.getBase().memorySpace.getName());
+            asm.emitSymbol(DOT);
+            asm.emit(PTXAssembler.PTXBinaryOp.ADD.toString());
+            asm.emitSymbol(DOT);
+            asm.emit(PTXKind.U32.toString());
+            asm.emitSymbol(TAB);
+
+            asm.emitValue(result);
+            asm.emitSymbol(COMMA);
+            asm.space();
+            address.emit(crb, asm, null);
+            asm.emitSymbol(COMMA);
+            asm.space();
+            asm.emit("1");
+            asm.delimiter();
+            asm.eol();
+        }
+    }
+
     @Opcode("VLOAD")
     public static class VectorLoadStmt extends AbstractInstruction {
 
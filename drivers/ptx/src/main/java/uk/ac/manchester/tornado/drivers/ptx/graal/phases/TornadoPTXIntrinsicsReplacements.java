@@ -32,8 +32,11 @@ import org.graalvm.compiler.nodes.ConstantNode;
 import org.graalvm.compiler.nodes.InvokeNode;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.memory.address.AddressNode;
+import org.graalvm.compiler.nodes.type.StampTool;
 import org.graalvm.compiler.nodes.util.GraphUtil;
 import org.graalvm.compiler.phases.BasePhase;
+import org.graalvm.compiler.replacements.DefaultJavaLoweringProvider;
 import uk.ac.manchester.tornado.drivers.ptx.graal.PTXArchitecture;
 import uk.ac.manchester.tornado.drivers.ptx.graal.PTXLoweringProvider;
 import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.FixedArrayNode;
@@ -43,7 +46,9 @@ import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.GroupIdNode;
 import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.LocalArrayNode;
 import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.LocalGroupSizeNode;
 import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.LocalThreadIDFixedNode;
+import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.PTXAtomicCounterNode;
 import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.PTXBarrierNode;
+import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.PTXMemoryBarrierNode;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoHighTierContext;
 
 import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.shouldNotReachHere;
@@ -58,6 +63,21 @@ public class TornadoPTXIntrinsicsReplacements extends BasePhase<TornadoHighTierC
         this.metaAccess = metaAccess;
     }
 
+    /**
+     * Address of the counter {@code array[index]} of the atomic_inc_counter
+     * intrinsic, computed with the element size of the array.
+     */
+    private static AddressNode createCounterAddress(StructuredGraph graph, InvokeNode invoke, TornadoHighTierContext context) {
+        NodeInputList<ValueNode> arguments = invoke.callTarget().arguments();
+        ValueNode array = arguments.get(0);
+        ResolvedJavaType arrayType = StampTool.typeOrNull(array);
+        if (arrayType == null || !arrayType.isArray()) {
+            throw shouldNotReachHere("atomic counters are only supported in arrays: %s", array);
+        }
+        JavaKind elementKind = arrayType.getComponentType().getJavaKind();
+        return ((DefaultJavaLoweringProvider) context.getLowerer()).createArrayAddress(graph, array, elementKind, arguments.get(1));
+    }
+
     private ConstantNode getConstantNodeFromArguments(InvokeNode invoke, int index) {
         NodeInputList<ValueNode> arguments = invoke.callTarget().arguments();
         return (ConstantNode) arguments.get(index);
@@ -85,6 +105,17 @@ public class TornadoPTXIntrinsicsReplacements extends BasePhase<TornadoHighTierC
                     graph.replaceFixed(invoke, barrier);
                     break;
                 }
+                case "Direct#PTXIntrinsics.globalMemFence": {
+                    PTXMemoryBarrierNode fence = graph.add(new PTXMemoryBarrierNode());
+                    graph.replaceFixed(invoke, fence);
+                    break;
+                }
+                case "Direct#PTXIntrinsics.atomic_inc_counter": {
+                    AddressNode address = createCounterAddress(graph, invoke, context);
+                    PTXAtomicCounterNode counter = graph.add(new PTXAtomicCounterNode(address));
+                    graph.replaceFixed(invoke, counter);
+                    break;
+                }
                 case "Direct#PTXIntrinsics.get_local_id": {
                     ConstantNode dimension = getConstantNodeFromArguments(invoke, 0);
                     LocalThreadIDFixedNode localIDNode = graph.addOrUnique(new LocalThreadIDFixedNode(dimension));
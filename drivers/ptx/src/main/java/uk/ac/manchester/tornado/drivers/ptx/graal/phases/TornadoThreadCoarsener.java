@@ -0,0 +1,189 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.ptx.graal.phases;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
+
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.MulNode;
+import org.graalvm.compiler.nodes.calc.SubNode;
+import org.graalvm.compiler.phases.BasePhase;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.GlobalThreadIdNode;
+import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.GlobalThreadSizeNode;
+import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.PTXIntBinaryIntrinsicNode;
+import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.calc.DivNode;
+import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
+import uk.ac.manchester.tornado.runtime.graal.nodes.AbstractParallelNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelOffsetNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelStrideNode;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoHighTierContext;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Schedules the parallel loops of the tasks that enable the thread coarsener
+ * ({@code <task>.coarsener=True}), so that each thread executes several
+ * iterations of the loop. The runtime launches one thread per
+ * {@link TaskMetaData#getCoarseningFactor} iterations.
+ *
+ * <p>
+ * On devices that prefer the {@link TornadoSchedulingStrategy#PER_BLOCK}
+ * schedule, or with {@code <task>.coarsener.ascpu=True}, each thread executes
+ * a block of consecutive iterations. Otherwise, the iterations of each thread
+ * are strided by the number of threads, so neighbouring threads still access
+ * neighbouring elements. Both forms cover the loop with any number of threads,
+ * so the kernels can also be launched with a {@code WorkerGrid}: each thread
+ * then executes as many iterations as needed. The only exception is the
+ * consecutive form with {@code <task>.coarsener.exact=True}, whose block is the
+ * coarsening factor, which is why {@link TaskMetaData#canAssumeExact} does not
+ * hold with a {@code WorkerGrid}.
+ * </p>
+ */
+public class TornadoThreadCoarsener extends BasePhase<TornadoHighTierContext> {
+
+    private static ConstantNode intConstant(StructuredGraph graph, int value) {
+        return graph.addOrUnique(ConstantNode.forInt(value));
+    }
+
+    private static ValueNode add(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUnique(new AddNode(x, y));
+    }
+
+    private static ValueNode sub(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUnique(new SubNode(x, y));
+    }
+
+    private static ValueNode mul(StructuredGraph graph, ValueNode x, ValueNode y) {
+        return graph.addOrUnique(new MulNode(x, y));
+    }
+
+    private static ValueNode ceilDiv(StructuredGraph graph, ValueNode x, ValueNode y) {
+        final ValueNode adjusted = add(graph, x, sub(graph, y, intConstant(graph, 1)));
+        return graph.addOrUnique(DivNode.create(adjusted, y));
+    }
+
+    /**
+     * Thread {@code gid} executes the iterations
+     * {@code [offset + gid * block * stride, offset + (gid + 1) * block * stride)},
+     * bounded by the range, with a step of {@code stride}. The block is
+     * {@code factor} when it can be assumed exact, which requires the runtime
+     * to launch one thread per {@code factor} iterations. Otherwise it is the
+     * iterations divided by the number of threads.
+     */
+    private void coarsenConsecutive(StructuredGraph graph, ParallelRangeNode range, int factor, boolean exact) {
+        final ParallelOffsetNode offset = range.offset();
+        final ParallelStrideNode stride = range.stride();
+        final ConstantNode index = intConstant(graph, range.index());
+
+        final ValueNode block;
+        if (exact) {
+            block = intConstant(graph, factor);
+        } else {
+            final ValueNode iterations = ceilDiv(graph, sub(graph, range.value(), offset.value()), stride.value());
+            final GlobalThreadSizeNode threadCount = graph.addOrUnique(new GlobalThreadSizeNode(index));
+            block = ceilDiv(graph, iterations, threadCount);
+        }
+        final ValueNode blockSize = mul(graph, block, stride.value());
+
+        final GlobalThreadIdNode threadId = graph.addOrUnique(new GlobalThreadIdNode(index));
+        final ValueNode start = add(graph, offset.value(), mul(graph, threadId, blockSize));
+        final ValueNode end = graph.addOrUnique(PTXIntBinaryIntrinsicNode.create(add(graph, start, blockSize), range.value(), PTXIntBinaryIntrinsicNode.Operation.MIN, JavaKind.Int));
+
+        replace(range, offset, stride, start, end, stride.value());
+    }
+
+    /**
+     * Thread {@code gid} executes the iterations
+     * {@code offset + (gid + k * threads) * stride} within the range.
+     */
+    private void coarsenStrided(StructuredGraph graph, ParallelRangeNode range) {
+        final ParallelOffsetNode offset = range.offset();
+        final ParallelStrideNode stride = range.stride();
+        final ConstantNode index = intConstant(graph, range.index());
+
+        final GlobalThreadIdNode threadId = graph.addOrUnique(new GlobalThreadIdNode(index));
+        final GlobalThreadSizeNode threadCount = graph.addOrUnique(new GlobalThreadSizeNode(index));
+        final ValueNode start = add(graph, offset.value(), mul(graph, threadId, stride.value()));
+        final ValueNode step = mul(graph, threadCount, stride.value());
+
+        replace(range, offset, stride, start, range.value(), step);
+    }
+
+    private void replace(ParallelRangeNode range, ParallelOffsetNode offset, ParallelStrideNode stride, ValueNode start, ValueNode end, ValueNode step) {
+        range.replaceAtUsages(end);
+        killNode(range);
+        offset.replaceAtUsages(start);
+        killNode(offset);
+        stride.replaceAtUsages(step);
+        killNode(stride);
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, TornadoHighTierContext context) {
+        final TaskMetaData meta = context.getMeta();
+        if (meta == null || !meta.enableThreadCoarsener()) {
+            return;
+        }
+
+        TornadoAcceleratorDevice device = context.getDeviceMapping();
+        final boolean consecutive = meta.shouldCoarsenWithCpuConfig() || device.getPreferredSchedule() == TornadoSchedulingStrategy.PER_BLOCK;
+        long[] maxWorkItemSizes = device.getPhysicalDevice().getDeviceMaxWorkItemSizes();
+
+        graph.getNodes().filter(ParallelRangeNode.class).forEach(node -> {
+            if (meta.enableParallelization() && maxWorkItemSizes[node.index()] > 1) {
+                if (consecutive) {
+                    coarsenConsecutive(graph, node, meta.getCoarseningFactor(node.index()), meta.canAssumeExact());
+                } else {
+                    coarsenStrided(graph, node);
+                }
+            } else {
+                serialiseLoop(node);
+            }
+            getDebugContext().dump(DebugContext.BASIC_LEVEL, graph, "after coarsening loop index=" + node.index());
+        });
+        graph.clearLastSchedule();
+    }
+
+    private void killNode(AbstractParallelNode node) {
+        if (node.inputs().isNotEmpty()) {
+            node.clearInputs();
+        }
+        if (!node.isDeleted()) {
+            node.safeDelete();
+        }
+    }
+
+    private void serialiseLoop(ParallelRangeNode range) {
+        ParallelOffsetNode offset = range.offset();
+        ParallelStrideNode stride = range.stride();
+        replace(range, offset, stride, offset.value(), range.value(), stride.value());
+    }
+}
@@ -22,6 +22,7 @@
 package uk.ac.manchester.tornado.drivers.ptx.graal.snippets;
 
 import org.graalvm.compiler.api.replacements.Snippet;
+import org.graalvm.compiler.api.replacements.Snippet.ConstantParameter;
 import org.graalvm.compiler.api.replacements.SnippetReflectionProvider;
 import org.graalvm.compiler.debug.DebugHandlersFactory;
 import org.graalvm.compiler.nodes.StructuredGraph;
@@ -44,6 +45,7 @@ import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.PTXFPBinaryIntrinsicNode
 import uk.ac.manchester.tornado.drivers.ptx.graal.nodes.PTXIntBinaryIntrinsicNode;
 import uk.ac.manchester.tornado.runtime.graal.nodes.TornadoReduceAddNode;
 import uk.ac.manchester.tornado.runtime.graal.nodes.TornadoReduceMulNode;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.nodes.StoreAtomicIndexedNode;
 
 /**
@@ -57,8 +59,17 @@ public class PTXGPUReduceSnippets implements Snippets {
      */
     private static int LOCAL_WORK_GROUP_SIZE = 223;
 
+    /**
+     * Operations of the single-pass finalisation of the reductions (see
+     * {@link TornadoOptions#REDUCE_SINGLE_PASS}).
+     */
+    private static final int OP_ADD = 0;
+    private static final int OP_MUL = 1;
+    private static final int OP_MAX = 2;
+    private static final int OP_MIN = 3;
+
     @Snippet
-    public static void partialReduceIntAdd(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntAdd(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int[] localArray = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
         
         int localIdx = PTXIntrinsics.get_local_id(0);
@@ -78,10 +89,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntAddCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value) {
+    public static void partialReduceIntAddCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value, @ConstantParameter boolean singlePass) {
 
         int[] localArray = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
 
@@ -101,10 +116,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongAdd(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongAdd(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         long[] localArray = (long[]) NewArrayNode.newUninitializedArray(long.class, LOCAL_WORK_GROUP_SIZE);
 
         int localIdx = PTXIntrinsics.get_local_id(0);
@@ -124,10 +143,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongAddCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value) {
+    public static void partialReduceLongAddCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -148,10 +171,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = inputArray[myID];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatAdd(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatAdd(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         float[] localArray = (float[]) NewArrayNode.newUninitializedArray(float.class, LOCAL_WORK_GROUP_SIZE);
 
         int localIdx = PTXIntrinsics.get_local_id(0);
@@ -171,10 +198,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatAddCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value) {
+    public static void partialReduceFloatAddCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value, @ConstantParameter boolean singlePass) {
 
         float[] localArray = (float[]) NewArrayNode.newUninitializedArray(float.class, LOCAL_WORK_GROUP_SIZE);
 
@@ -195,10 +226,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleAdd(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleAdd(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -219,10 +254,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleAddCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value) {
+    public static void partialReduceDoubleAddCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -242,10 +281,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_ADD);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMult(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntMult(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -266,10 +309,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMultCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value) {
+    public static void partialReduceIntMultCarrierValue(int[] inputArray, int[] outputArray, int gidx, int value, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -289,10 +336,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMult(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongMult(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -313,10 +364,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMultCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value) {
+    public static void partialReduceLongMultCarrierValue(long[] inputArray, long[] outputArray, int gidx, long value, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -336,10 +391,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = inputArray[myID];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMult(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatMult(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -360,10 +419,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMultCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value) {
+    public static void partialReduceFloatMultCarrierValue(float[] inputArray, float[] outputArray, int gidx, float value, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -384,10 +447,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMult(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleMult(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -408,10 +475,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMultCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value) {
+    public static void partialReduceDoubleMultCarrierValue(double[] inputArray, double[] outputArray, int gidx, double value, @ConstantParameter boolean singlePass) {
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
         int groupID = PTXIntrinsics.get_group_id(0);
@@ -431,10 +502,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MUL);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMax(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntMax(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
         int groupID = PTXIntrinsics.get_group_id(0);
@@ -453,10 +528,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMaxCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra) {
+    public static void partialReduceIntMaxCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra, @ConstantParameter boolean singlePass) {
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
         int groupID = PTXIntrinsics.get_group_id(0);
@@ -475,10 +554,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMax(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongMax(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -499,10 +582,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMaxCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra) {
+    public static void partialReduceLongMaxCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -523,10 +610,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMax(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatMax(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -546,10 +637,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMaxCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra) {
+    public static void partialReduceFloatMaxCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -569,10 +664,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMax(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleMax(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
         int groupID = PTXIntrinsics.get_group_id(0);
@@ -591,10 +690,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMaxCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra) {
+    public static void partialReduceDoubleMaxCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra, @ConstantParameter boolean singlePass) {
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
         int groupID = PTXIntrinsics.get_group_id(0);
@@ -613,10 +716,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MAX);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMin(int[] inputArray, int[] outputArray, int gidx) {
+    public static void partialReduceIntMin(int[] inputArray, int[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -636,10 +743,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceIntMinCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra) {
+    public static void partialReduceIntMinCarrierValue(int[] inputArray, int[] outputArray, int gidx, int extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -659,10 +770,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceInt(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMin(long[] inputArray, long[] outputArray, int gidx) {
+    public static void partialReduceLongMin(long[] inputArray, long[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -683,10 +798,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceLongMinCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra) {
+    public static void partialReduceLongMinCarrierValue(long[] inputArray, long[] outputArray, int gidx, long extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -707,10 +826,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceLong(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMin(float[] inputArray, float[] outputArray, int gidx) {
+    public static void partialReduceFloatMin(float[] inputArray, float[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -730,10 +853,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceFloatMinCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra) {
+    public static void partialReduceFloatMinCarrierValue(float[] inputArray, float[] outputArray, int gidx, float extra, @ConstantParameter boolean singlePass) {
 
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
@@ -753,10 +880,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceFloat(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMin(double[] inputArray, double[] outputArray, int gidx) {
+    public static void partialReduceDoubleMin(double[] inputArray, double[] outputArray, int gidx, @ConstantParameter boolean singlePass) {
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
         int groupID = PTXIntrinsics.get_group_id(0);
@@ -775,10 +906,14 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
     }
 
     @Snippet
-    public static void partialReduceDoubleMinCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra) {
+    public static void partialReduceDoubleMinCarrierValue(double[] inputArray, double[] outputArray, int gidx, double extra, @ConstantParameter boolean singlePass) {
         int localIdx = PTXIntrinsics.get_local_id(0);
         int localGroupSize = PTXIntrinsics.get_local_size(0);
         int groupID = PTXIntrinsics.get_group_id(0);
@@ -797,6 +932,227 @@ public class PTXGPUReduceSnippets implements Snippets {
         if (localIdx == 0) {
             outputArray[groupID + 1] = localArray[0];
         }
+
+        if (singlePass) {
+            finalReduceDouble(outputArray, localIdx, localGroupSize, OP_MIN);
+        }
+    }
+
+    /**
+     * Counts the thread blocks that have written their partial result and returns
+     * true, in all the threads of the group, for the last one to finish.
+     * The barrier before the increment makes the partial result of the block
+     * visible before the counter, and the barrier after it keeps the last block
+     * from reading the partial results before it has seen the counter.
+     */
+    private static boolean isLastGroup(Object outputArray, int counterIndex, int localIdx, int numGroups) {
+        int[] ticket = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
+        if (localIdx == 0) {
+            PTXIntrinsics.globalMemFence();
+            ticket[0] = PTXIntrinsics.atomic_inc_counter(outputArray, counterIndex);
+        }
+        PTXIntrinsics.localBarrier();
+        boolean last = ticket[0] == numGroups - 1;
+        if (last) {
+            PTXIntrinsics.globalMemFence();
+        }
+        return last;
+    }
+
+    private static int operateInt(int a, int b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last thread block to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the thread blocks
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished thread blocks, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceInt(int[] outputArray, int localIdx, int localGroupSize, int operation) {
+        int[] localArray = (int[]) NewArrayNode.newUninitializedArray(int.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = PTXIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                int value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateInt(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                PTXIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateInt(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0;
+            }
+        }
+    }
+
+    private static long operateLong(long a, long b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last thread block to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the thread blocks
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished thread blocks, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceLong(long[] outputArray, int localIdx, int localGroupSize, int operation) {
+        long[] localArray = (long[]) NewArrayNode.newUninitializedArray(long.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = PTXIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                long value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateLong(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                PTXIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateLong(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0L;
+            }
+        }
+    }
+
+    private static float operateFloat(float a, float b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last thread block to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the thread blocks
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished thread blocks, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceFloat(float[] outputArray, int localIdx, int localGroupSize, int operation) {
+        float[] localArray = (float[]) NewArrayNode.newUninitializedArray(float.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = PTXIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                float value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateFloat(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                PTXIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateFloat(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0.0f;
+            }
+        }
+    }
+
+    private static double operateDouble(double a, double b, int operation) {
+        switch (operation) {
+            case OP_ADD:
+                return a + b;
+            case OP_MUL:
+                return a * b;
+            case OP_MAX:
+                return TornadoMath.max(a, b);
+            default:
+                return TornadoMath.min(a, b);
+        }
+    }
+
+    /**
+     * Combines, in the last thread block to finish, the initial value in
+     * {@code outputArray[0]} with the partial results of all the thread blocks
+     * in {@code outputArray[1..numGroups]}. The last element of the output array
+     * is the counter of finished thread blocks, which is reset for the next
+     * execution.
+     */
+    private static void finalReduceDouble(double[] outputArray, int localIdx, int localGroupSize, int operation) {
+        double[] localArray = (double[]) NewArrayNode.newUninitializedArray(double.class, LOCAL_WORK_GROUP_SIZE);
+
+        int numGroups = PTXIntrinsics.get_global_size(0) / localGroupSize;
+        int counterIndex = outputArray.length - 1;
+
+        if (isLastGroup(outputArray, counterIndex, localIdx, numGroups)) {
+            if (localIdx <= numGroups) {
+                double value = outputArray[localIdx];
+                for (int i = localIdx + localGroupSize; i <= numGroups; i += localGroupSize) {
+                    value = operateDouble(value, outputArray[i], operation);
+                }
+                localArray[localIdx] = value;
+            }
+
+            for (int stride = (localGroupSize / 2); stride > 0; stride /= 2) {
+                PTXIntrinsics.localBarrier();
+                if (localIdx < stride && localIdx + stride <= numGroups) {
+                    localArray[localIdx] = operateDouble(localArray[localIdx], localArray[localIdx + stride], operation);
+                }
+            }
+
+            if (localIdx == 0) {
+                outputArray[0] = localArray[0];
+                outputArray[counterIndex] = 0.0;
+            }
+        }
     }
 
     public static class Templates extends AbstractTemplates implements TornadoSnippetTypeInference {
@@ -988,6 +1344,7 @@ public class PTXGPUReduceSnippets implements Snippets {
             if (extra != null) {
                 args.add("value", extra);
             }
+            args.addConst("singlePass", TornadoOptions.REDUCE_SINGLE_PASS);
 
             template(storeAtomicIndexed, args).instantiate(providers.getMetaAccess(), storeAtomicIndexed, SnippetTemplate.DEFAULT_REPLACER, args);
         }
@@ -46,6 +46,7 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
 
     private int arrayHeaderSize;
     private long bytesToAllocate;
+    private long allocatedBytes;
     private long bufferOffset;
     protected PTXDeviceContext deviceContext;
     private JavaKind kind;
@@ -53,6 +54,12 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
     private boolean onDevice;
     private boolean isFinal;
 
+    /**
+     * Events of the last write. The list is reused by every write, so callers
+     * must consume it before writing this buffer again.
+     */
+    private final ArrayList<Integer> writeEvents = new ArrayList<>(2);
+
     public PTXArrayWrapper(PTXDeviceContext deviceContext, JavaKind kind, boolean isFinal) {
         this.deviceContext = deviceContext;
         this.kind = kind;
@@ -177,7 +184,7 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
     @Override
     public List<Integer> enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps) {
         final T array = cast(reference);
-        ArrayList<Integer> listEvents = new ArrayList<>();
+        writeEvents.clear();
 
         if (array == null) {
             throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
@@ -185,7 +192,7 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
         final int returnEvent;
         if (isFinal && onDevice) {
             returnEvent = enqueueWriteArrayData(toBuffer() + bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
-            listEvents.add(returnEvent);
+            writeEvents.add(returnEvent);
         } else {
             // We first write the header for the object and then we write actual
             // buffer
@@ -199,10 +206,34 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
             onDevice = true;
             // returnEvent = deviceContext.enqueueMarker(internalEvents);
 
-            listEvents.add(headerEvent);
-            listEvents.add(returnEvent);
+            writeEvents.add(headerEvent);
+            writeEvents.add(returnEvent);
         }
-        return listEvents;
+        return writeEvents;
+    }
+
+    @Override
+    public List<Integer> enqueueWriteRange(Object reference, long offset, long size, int[] events, boolean useDeps) {
+        if (!onDevice) {
+            // The header has not been written yet
+            return enqueueWrite(reference, 0, 0, events, useDeps);
+        }
+        final T array = cast(reference);
+        if (array == null) {
+            throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
+        }
+        writeEvents.clear();
+        writeEvents.add(enqueueWriteArrayData(toBuffer() + bufferOffset + arrayHeaderSize + offset, size, array, offset, (useDeps) ? events : null));
+        return writeEvents;
+    }
+
+    @Override
+    public int enqueueReadRange(final Object value, long offset, long size, final int[] events, boolean useDeps) {
+        final T array = cast(value);
+        if (array == null) {
+            throw new TornadoRuntimeException("[ERROR] output data is NULL");
+        }
+        return enqueueReadArrayData(toBuffer() + bufferOffset + arrayHeaderSize + offset, size, array, offset, (useDeps) ? events : null);
     }
 
     private PTXByteBuffer buildArrayHeaderBatch(long arraySize) {
@@ -225,8 +256,13 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
             newBufferSize = sizeOfBatch;
         }
 
-        if ((batchSize > 0) && (bufferOffset != -1) && (newBufferSize < bytesToAllocate)) {
-            bytesToAllocate = newBufferSize;
+        if ((batchSize > 0) && (bufferOffset != -1)) {
+            if (newBufferSize <= allocatedBytes) {
+                bytesToAllocate = newBufferSize;
+            } else {
+                // The batch does not fit in the space reserved for a smaller one
+                deallocate();
+            }
         }
 
         if (bufferOffset == -1) {
@@ -241,7 +277,8 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
                 throw new TornadoMemoryException("[ERROR] Bytes Allocated <= 0: " + bytesToAllocate);
             }
             assert hostArray != null;
-            bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, arrayHeaderSize, getAlignment());
+            bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, arrayHeaderSize, getAlignment(), this);
+            allocatedBytes = bytesToAllocate;
 
             if (Tornado.FULL_DEBUG) {
                 info("allocated: array kind=%s, size=%s, length offset=%d, header size=%d, bo=0x%x", kind.getJavaName(), humanReadableByteCount(bytesToAllocate, true), arrayLengthOffset,
@@ -271,6 +308,15 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
         onDevice = false;
     }
 
+    @Override
+    public void deallocate() {
+        if (bufferOffset != -1) {
+            deviceContext.getMemoryManager().free(bufferOffset, this);
+            bufferOffset = -1;
+        }
+        onDevice = false;
+    }
+
     @Override
     public void printHeapTrace() {
         System.out.printf("0x%x\ttype=%s\n", toAbsoluteAddress(), kind.getJavaName());
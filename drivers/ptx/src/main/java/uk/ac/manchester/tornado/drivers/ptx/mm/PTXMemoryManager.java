@@ -26,19 +26,29 @@ package uk.ac.manchester.tornado.drivers.ptx.mm;
 import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.guarantee;
 import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.PTX_CALL_STACK_LIMIT;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import uk.ac.manchester.tornado.api.exceptions.TornadoOutOfMemoryException;
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
 import uk.ac.manchester.tornado.api.mm.TornadoMemoryProvider;
 import uk.ac.manchester.tornado.drivers.ptx.PTXDeviceContext;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.mm.DeviceMemoryEvictor;
+import uk.ac.manchester.tornado.runtime.mm.FreeListAllocator;
 import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
 
 public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProvider {
 
     private static final int STACK_ALIGNMENT_SIZE = 128;
+    private static final int HEAP_BLOCK_GRANULARITY = 32;
 
-    private long heapPosition;
+    private final FreeListAllocator heapAllocator;
+    private final DeviceMemoryEvictor evictor;
     private long heapLimit;
     private PTXDeviceContext deviceContext;
     private long callStackPosition;
@@ -47,17 +57,26 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
     private boolean initialised;
     private ScheduleMetaData scheduleMeta;
 
+    /**
+     * Owners of the space allocated in the heap, indexed by its offset.
+     */
+    private final Map<Long, ObjectBuffer> heapAllocations = new HashMap<>();
+
     public PTXMemoryManager(PTXDeviceContext deviceContext) {
         this.deviceContext = deviceContext;
         scheduleMeta = new ScheduleMetaData("mm-" + deviceContext.getDevice().getDeviceIndex());
         callStackLimit = PTX_CALL_STACK_LIMIT;
         initialised = false;
+        heapAllocator = new FreeListAllocator(callStackLimit, callStackLimit, HEAP_BLOCK_GRANULARITY);
+        evictor = new DeviceMemoryEvictor(deviceContext.getDevice().getDeviceName());
         reset();
     }
 
     public void reset() {
+        // The memory of the heap is about to be reused
+        releaseHeapAllocations();
         callStackPosition = 0;
-        heapPosition = callStackLimit;
+        heapAllocator.reset(callStackLimit, heapLimit);
         Tornado.info("Reset heap @ 0x%x (%s) on %s", deviceHeapPointer, RuntimeUtilities.humanReadableByteCount(heapLimit, true), deviceContext.getDevice().getDeviceName());
     }
 
@@ -83,12 +102,27 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
 
     @Override
     public long getHeapRemaining() {
-        return heapLimit - heapPosition;
+        return heapAllocator.getFreeBytes();
     }
 
     @Override
     public long getHeapAllocated() {
-        return heapPosition - callStackLimit;
+        return heapAllocator.getAllocatedBytes();
+    }
+
+    @Override
+    public long getHeapLargestFreeBlock() {
+        return heapAllocator.getLargestFreeBlock();
+    }
+
+    @Override
+    public int getHeapFreeBlocks() {
+        return heapAllocator.getNumFreeBlocks();
+    }
+
+    @Override
+    public double getHeapFragmentation() {
+        return heapAllocator.getFragmentation();
     }
 
     @Override
@@ -96,6 +130,10 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
         return initialised;
     }
 
+    public DeviceMemoryEvictor getEvictor() {
+        return evictor;
+    }
+
     public PTXCallStack createCallStack(final int maxArgs) {
         PTXCallStack callStack = new PTXCallStack(callStackPosition, maxArgs, deviceContext);
 
@@ -109,18 +147,46 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
         return callStack;
     }
 
-    public long tryAllocate(long bytes, int headerSize, int alignment) {
-        final long alignedDataStart = align(heapPosition + headerSize, alignment);
-        final long headerStart = alignedDataStart - headerSize;
-        if (headerStart + bytes < heapLimit) {
-            heapPosition = headerStart + bytes;
-        } else {
+    public long tryAllocate(long bytes, int headerSize, int alignment, ObjectBuffer owner) {
+        final long headerStart = heapAllocator.allocate(bytes, headerSize, alignment);
+        if (headerStart == FreeListAllocator.NO_SPACE) {
             throw new TornadoOutOfMemoryException("Out of memory on the target device -> " + deviceContext.getDevice().getDeviceName() + ". [Heap Limit is: "
-                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: " + RuntimeUtilities.humanReadableByteCount(headerStart + bytes, true) + "]");
+                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: " + RuntimeUtilities.humanReadableByteCount(heapAllocator.getAllocatedBytes() + bytes, true)
+                    + ", largest free block: " + RuntimeUtilities.humanReadableByteCount(heapAllocator.getLargestFreeBlock(), true) + "]");
         }
+        heapAllocations.put(headerStart, owner);
         return headerStart;
     }
 
+    /**
+     * Returns the space allocated at {@code headerStart} to the device heap.
+     * Space that {@code owner} no longer owns, e.g. because the heap was
+     * {@link #reset()}, is left untouched.
+     *
+     * @param headerStart
+     *            offset returned by
+     *            {@link #tryAllocate(long, int, int, ObjectBuffer)}.
+     */
+    public void free(long headerStart, ObjectBuffer owner) {
+        if (heapAllocations.remove(headerStart, owner)) {
+            heapAllocator.free(headerStart);
+        } else {
+            debug("Ignoring free of 0x%x on %s: not owned by %s", headerStart, deviceContext.getDevice().getDeviceName(), owner);
+        }
+    }
+
+    /**
+     * Deallocates the owners of all the space allocated in the heap, so they
+     * allocate it again the next time they are used.
+     */
+    private void releaseHeapAllocations() {
+        final List<ObjectBuffer> owners = new ArrayList<>(heapAllocations.values());
+        for (ObjectBuffer owner : owners) {
+            owner.deallocate();
+        }
+        heapAllocations.clear();
+    }
+
     /**
      * Allocate space on the device
      *
@@ -128,6 +194,7 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
      */
     public void allocateRegion(long numBytes) {
         this.heapLimit = numBytes;
+        heapAllocator.reset(callStackLimit, heapLimit);
         this.deviceHeapPointer = deviceContext.getDevice().getPTXContext().allocateMemory(numBytes);
     }
 
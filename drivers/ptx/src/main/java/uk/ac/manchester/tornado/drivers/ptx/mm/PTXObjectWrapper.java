@@ -180,7 +180,7 @@ public class PTXObjectWrapper implements ObjectBuffer {
         }
 
         if (bufferOffset == -1) {
-            bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, 32, getAlignment());
+            bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, 32, getAlignment(), this);
         }
 
         if (DEBUG) {
@@ -508,6 +508,20 @@ public class PTXObjectWrapper implements ObjectBuffer {
         valid = false;
     }
 
+    @Override
+    public void deallocate() {
+        for (FieldBuffer fieldBuffer : wrappedFields) {
+            if (fieldBuffer != null) {
+                fieldBuffer.deallocate();
+            }
+        }
+        if (bufferOffset != -1) {
+            deviceContext.getMemoryManager().free(bufferOffset, this);
+            bufferOffset = -1;
+        }
+        valid = false;
+    }
+
     @Override
     public String toString() {
         return String.format("object wrapper: type=%s, fields=%d, valid=%s\n", resolvedType.getName(), wrappedFields.length, valid);
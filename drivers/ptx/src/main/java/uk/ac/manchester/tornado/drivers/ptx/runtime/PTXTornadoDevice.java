@@ -51,6 +51,7 @@ import uk.ac.manchester.tornado.api.mm.TornadoDeviceObjectState;
 import uk.ac.manchester.tornado.api.mm.TornadoMemoryProvider;
 import uk.ac.manchester.tornado.api.profiler.ProfilerType;
 import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
+import uk.ac.manchester.tornado.drivers.ptx.CUDAComputeCapability;
 import uk.ac.manchester.tornado.drivers.ptx.PTX;
 import uk.ac.manchester.tornado.drivers.ptx.PTXDevice;
 import uk.ac.manchester.tornado.drivers.ptx.PTXDeviceContext;
@@ -71,12 +72,16 @@ import uk.ac.manchester.tornado.drivers.ptx.mm.PTXMemoryManager;
 import uk.ac.manchester.tornado.drivers.ptx.mm.PTXObjectWrapper;
 import uk.ac.manchester.tornado.drivers.ptx.mm.PTXShortArrayWrapper;
 import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.cache.CachedKernel;
+import uk.ac.manchester.tornado.runtime.cache.KernelCacheKey;
+import uk.ac.manchester.tornado.runtime.cache.PersistentKernelCache;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
@@ -180,7 +185,22 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
 
         try {
             PTXCompilationResult result;
+            String persistentKey = null;
             if (!deviceContext.isCached(resolvedMethod.getName(), executable)) {
+                if (usePersistentKernelCache(executable)) {
+                    persistentKey = KernelCacheKey.compute(getDeviceFingerprint(), getClass(), executable, resolvedMethod, sketch);
+                    final CachedKernel cachedKernel = (persistentKey != null) ? PersistentKernelCache.getInstance().lookup(persistentKey) : null;
+                    if (cachedKernel != null) {
+                        // The compiler phases that set the launch configuration do not run
+                        cachedKernel.restore(taskMeta);
+                        profiler.start(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+                        TornadoInstalledCode installedCode = deviceContext.installCode(buildKernelName(resolvedMethod.getName(), executable), cachedKernel.getBinary(), taskMeta,
+                                resolvedMethod.getName());
+                        profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+                        profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
+                        return installedCode;
+                    }
+                }
                 PTXProviders providers = (PTXProviders) getBackend().getProviders();
                 // profiler
                 profiler.registerDeviceID(ProfilerType.DEVICE_ID, taskMeta.getId(), taskMeta.getLogicDevice().getDriverIndex() + ":" + taskMeta.getDeviceIndex());
@@ -197,6 +217,10 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
             TornadoInstalledCode installedCode = deviceContext.installCode(result, resolvedMethod.getName());
             profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
             profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
+            final CachedKernel cachedKernel = (persistentKey != null) ? CachedKernel.of(result.getTargetCode(), taskMeta) : null;
+            if (cachedKernel != null) {
+                PersistentKernelCache.getInstance().store(persistentKey, cachedKernel);
+            }
             return installedCode;
         } catch (Exception e) {
             driver.fatal("unable to compile %s for device %s", task.getId(), getDeviceName());
@@ -206,6 +230,29 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         }
     }
 
+    /**
+     * The name of a PTX kernel includes the hash code of the objects passed as
+     * arguments, so only kernels whose arguments are scalars or primitive arrays
+     * can be reused from the persistent kernel cache in another run.
+     */
+    private boolean usePersistentKernelCache(CompilableTask task) {
+        if (!PersistentKernelCache.isEnabled()) {
+            return false;
+        }
+        for (Object argument : task.getArguments()) {
+            final Class<?> klass = argument.getClass();
+            if (!RuntimeUtilities.isBoxedPrimitiveClass(klass) && !(klass.isArray() && RuntimeUtilities.isPrimitiveArray(klass))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getDeviceFingerprint() {
+        final CUDAComputeCapability capability = device.getComputeCapability();
+        return String.join("|", "ptx", device.getDeviceName(), capability.getMajor() + "." + capability.getMinor(), device.getTargetArchitecture().toString(), device.getTargetPTXVersion());
+    }
+
     private TornadoInstalledCode compilePreBuiltTask(SchedulableTask task) {
         final PTXDeviceContext deviceContext = getDeviceContext();
         final PrebuiltTask executable = (PrebuiltTask) task;
@@ -275,13 +322,35 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         if (!state.isValid()) {
             reAllocateInvalidBuffer(object, batchSize, state);
         }
+
+        if (TornadoOptions.HEAP_EVICTION && state.isValid()) {
+            getDeviceContext().getMemoryManager().getEvictor().touch(object, (DeviceObjectState) state);
+        }
         return -1;
     }
 
+    /**
+     * Allocates the buffer on the device heap. If the heap is full, the least
+     * recently used objects that are not needed by the task-schedules being
+     * executed are evicted until the buffer fits.
+     */
+    private void allocateWithEviction(ObjectBuffer buffer, Object object, long batchSize) {
+        while (true) {
+            try {
+                buffer.allocate(object, batchSize);
+                return;
+            } catch (TornadoOutOfMemoryException e) {
+                if (!TornadoOptions.HEAP_EVICTION || !getDeviceContext().getMemoryManager().getEvictor().evict()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
     private void reserveMemory(Object object, long batchSize, TornadoDeviceObjectState state) {
 
         final ObjectBuffer buffer = createDeviceBuffer(object.getClass(), object, batchSize);
-        buffer.allocate(object, batchSize);
+        allocateWithEviction(buffer, object, batchSize);
         state.setBuffer(buffer);
 
         final Class<?> type = object.getClass();
@@ -296,7 +365,7 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         // We re-allocate if the buffer size has changed
         final ObjectBuffer buffer = state.getBuffer();
         try {
-            buffer.allocate(object, batchSize);
+            allocateWithEviction(buffer, object, batchSize);
         } catch (TornadoOutOfMemoryException | TornadoMemoryException e) {
             e.printStackTrace();
         }
@@ -304,7 +373,7 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
 
     private void reAllocateInvalidBuffer(Object object, long batchSize, TornadoDeviceObjectState state) {
         try {
-            state.getBuffer().allocate(object, batchSize);
+            allocateWithEviction(state.getBuffer(), object, batchSize);
             final Class<?> type = object.getClass();
             if (!type.isArray()) {
                 checkBatchSize(batchSize);
@@ -424,6 +493,24 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         return objectState.getBuffer().enqueueWrite(object, batchSize, hostOffset, events, events != null);
     }
 
+    @Override
+    public List<Integer> streamInRange(Object object, long offset, long size, TornadoDeviceObjectState objectState, int[] events) {
+        if (!objectState.isValid() || !objectState.hasContents()) {
+            return streamIn(object, 0, 0, objectState, events);
+        }
+        return objectState.getBuffer().enqueueWriteRange(object, offset, size, events, events != null);
+    }
+
+    @Override
+    public int streamOutRange(Object object, long offset, long size, TornadoDeviceObjectState objectState, int[] events) {
+        TornadoInternalError.guarantee(objectState.isValid(), "invalid variable");
+        int event = objectState.getBuffer().enqueueReadRange(object, offset, size, events, events != null);
+        if (events != null) {
+            return event;
+        }
+        return -1;
+    }
+
     /**
      * It copies a device buffer from the target device to the host. Copies are
      * non-blocking
@@ -662,6 +749,16 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         device.getPTXContext().enablePTXContext();
     }
 
+    @Override
+    public void enableCopyQueues() {
+        // Commands of a PTX device are submitted to a single stream
+    }
+
+    @Override
+    public boolean hasCopyQueues() {
+        return false;
+    }
+
     @Override
     public void setAtomicRegion(ObjectBuffer bufferAtomics) {
 
@@ -8,6 +8,7 @@ open module tornado.runtime {
 
     exports uk.ac.manchester.tornado.runtime;
     exports uk.ac.manchester.tornado.runtime.analyzer;
+    exports uk.ac.manchester.tornado.runtime.cache;
     exports uk.ac.manchester.tornado.runtime.common;
     exports uk.ac.manchester.tornado.runtime.common.enums;
     exports uk.ac.manchester.tornado.runtime.common.exceptions;
@@ -23,6 +24,7 @@ open module tornado.runtime {
     exports uk.ac.manchester.tornado.runtime.graal.phases.lir;
     exports uk.ac.manchester.tornado.runtime.graph;
     exports uk.ac.manchester.tornado.runtime.graph.nodes;
+    exports uk.ac.manchester.tornado.runtime.mm;
     exports uk.ac.manchester.tornado.runtime.profiler;
     exports uk.ac.manchester.tornado.runtime.sketcher;
     exports uk.ac.manchester.tornado.runtime.tasks;
@@ -242,6 +242,16 @@ public class JVMMapping implements TornadoAcceleratorDevice {
         TornadoInternalError.unimplemented();
     }
 
+    @Override
+    public void enableCopyQueues() {
+        // Transfers and tasks run on the host
+    }
+
+    @Override
+    public boolean hasCopyQueues() {
+        return false;
+    }
+
     @Override
     public void setAtomicRegion(ObjectBuffer bufferAtomics) {
 
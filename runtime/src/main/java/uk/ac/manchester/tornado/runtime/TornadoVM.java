@@ -27,6 +27,7 @@ package uk.ac.manchester.tornado.runtime;
 
 import static uk.ac.manchester.tornado.api.enums.TornadoExecutionStatus.COMPLETE;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.ENABLE_PROFILING;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.OPENCL_MULTIPLE_QUEUES;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.USE_VM_FLUSH;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.VM_USE_DEPS;
 import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.VIRTUAL_DEVICE_ENABLED;
@@ -56,6 +57,7 @@ import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
 import uk.ac.manchester.tornado.api.profiler.ProfilerType;
 import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
+import uk.ac.manchester.tornado.runtime.common.CallStackBindings;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
@@ -64,10 +66,13 @@ import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graph.TornadoExecutionContext;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
+import uk.ac.manchester.tornado.runtime.mm.DeviceMemoryEvictor;
+import uk.ac.manchester.tornado.runtime.mm.HostChecksum;
 import uk.ac.manchester.tornado.runtime.profiler.TimeProfiler;
 import uk.ac.manchester.tornado.runtime.tasks.GlobalObjectState;
 import uk.ac.manchester.tornado.runtime.tasks.PrebuiltTask;
 import uk.ac.manchester.tornado.runtime.tasks.TornadoTaskSchedule;
+import uk.ac.manchester.tornado.runtime.tasks.meta.StreamInElision;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 /**
@@ -80,6 +85,10 @@ import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
  * There is an instance of the {@link TornadoVM} per
  * {@link TornadoTaskSchedule}. Each TornadoVM contains the logic to orchestrate
  * the execution on the parallel device (e.g., a GPU).
+ * <p>
+ * The bytecodes are decoded once into {@link TornadoVMInstruction}s when the
+ * TornadoVM is created, so executing a task-schedule does not parse the code
+ * again and does not allocate on the interpreter path.
  */
 public class TornadoVM extends TornadoLogger {
 
@@ -95,6 +104,8 @@ public class TornadoVM extends TornadoLogger {
 
     private final GlobalObjectState[] globalStates;
     private final CallStack[] stacks;
+    private final CallStackBindings[] stackBindings;
+    private final DeviceMemoryEvictor.ExecutionScope evictionScope;
     private final int[][] events;
     private final int[] eventsIndexes;
     private final List<TornadoAcceleratorDevice> contexts;
@@ -103,7 +114,8 @@ public class TornadoVM extends TornadoLogger {
     private final List<Object> constants;
     private final List<SchedulableTask> tasks;
 
-    private final ByteBuffer buffer;
+    private final TornadoVMInstruction[] instructions;
+    private final HashMap<Integer, Integer> stackHeader;
 
     private double totalTime;
     private long invocations;
@@ -111,6 +123,12 @@ public class TornadoVM extends TornadoLogger {
     private boolean finishedWarmup;
     private boolean doUpdate;
 
+    /**
+     * True if the objects are processed in batches. Otherwise, a transfer with a
+     * size copies only the range {@code [offset, offset + size)} of the object.
+     */
+    private final boolean batched;
+
     private GridTask gridTask;
 
     public TornadoVM(TornadoExecutionContext graphContext, byte[] code, int limit, TornadoProfiler timeProfiler, GridTask gridTask) {
@@ -119,11 +137,10 @@ public class TornadoVM extends TornadoLogger {
         this.timeProfiler = timeProfiler;
         this.gridTask = gridTask;
 
-        useDependencies = graphContext.meta().enableOooExecution() | VM_USE_DEPS;
         totalTime = 0;
         invocations = 0;
 
-        buffer = ByteBuffer.wrap(code);
+        final ByteBuffer buffer = ByteBuffer.wrap(code);
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         buffer.limit(limit);
 
@@ -134,6 +151,7 @@ public class TornadoVM extends TornadoLogger {
         buffer.getInt();
         int taskCount = buffer.getInt();
         stacks = graphContext.getFrames();
+        stackBindings = new CallStackBindings[stacks.length];
         events = new int[buffer.getInt()][MAX_EVENTS];
         eventsIndexes = new int[events.length];
 
@@ -149,6 +167,7 @@ public class TornadoVM extends TornadoLogger {
         debug("created %d event lists", events.length);
 
         objects = graphContext.getObjects();
+        evictionScope = new DeviceMemoryEvictor.ExecutionScope(objects);
         globalStates = new GlobalObjectState[objects.size()];
         debug("fetching %d object states...", globalStates.length);
         for (int i = 0; i < objects.size(); i++) {
@@ -173,8 +192,20 @@ public class TornadoVM extends TornadoLogger {
         constants = graphContext.getConstants();
         tasks = graphContext.getTasks();
 
+        instructions = TornadoVMInstruction.decode(buffer);
+        batched = Arrays.stream(instructions).anyMatch(instruction -> instruction.bytecode == TornadoVMBytecodes.ALLOCATE && instruction.size > 0);
+
+        // Pipelined batches place the chunks in several slots. Their wait lists
+        // only order the commands that depend on each other, and the transfers
+        // overlap with the kernels when they are submitted to the copy queues
+        final boolean pipelined = Arrays.stream(instructions).anyMatch(instruction -> instruction.slot > 0);
+        if (pipelined) {
+            contexts.forEach(TornadoAcceleratorDevice::enableCopyQueues);
+        }
+        useDependencies = graphContext.meta().enableOooExecution() | VM_USE_DEPS | OPENCL_MULTIPLE_QUEUES | pipelined;
+        stackHeader = new HashMap<>();
+
         debug("%s - vm ready to go", graphContext.getId());
-        buffer.mark();
 
         mappingAtomics = new ConcurrentHashMap<>();
     }
@@ -187,8 +218,15 @@ public class TornadoVM extends TornadoLogger {
         return globalStates[index];
     }
 
-    private DeviceObjectState resolveObjectState(int index, int device) {
-        return globalStates[index].getDeviceState(contexts.get(device));
+    private DeviceObjectState resolveObjectState(int index, int device, int slot) {
+        return globalStates[index].getDeviceState(contexts.get(device), slot);
+    }
+
+    /**
+     * Broadcast objects use the same device buffer in every slot.
+     */
+    private int resolveSlot(int objectIndex, int slot) {
+        return (slot == 0 || graphContext.isBroadcast(objectIndex)) ? 0 : slot;
     }
 
     private CallStack resolveStack(int index, int numArgs, CallStack[] stacks, TornadoAcceleratorDevice device, boolean setNewDevice) {
@@ -207,6 +245,39 @@ public class TornadoVM extends TornadoLogger {
         }
     }
 
+    /**
+     * Waits for all pending work on the devices of this schedule and releases the
+     * device memory used by its objects.
+     */
+    public void freeDeviceMemory() {
+        for (TornadoAcceleratorDevice device : contexts) {
+            device.sync();
+        }
+        if (graphContext.meta().shouldShareDeviceObjects()) {
+            writeBackOwnedObjects();
+        }
+        invalidateObjects();
+    }
+
+    /**
+     * Copies back to the host the objects whose only up-to-date copy is on a
+     * device of this schedule, so other schedules do not lose them when the
+     * device memory is released.
+     */
+    private void writeBackOwnedObjects() {
+        for (int i = 0; i < objects.size(); i++) {
+            final Object object = objects.get(i);
+            final TornadoAcceleratorDevice owner = globalStates[i].getOwner();
+            if (owner == null || !contexts.contains(owner) || isObjectAtomic(object) || isObjectTornadoVMContext(object)) {
+                continue;
+            }
+            final DeviceObjectState ownerState = globalStates[i].getDeviceState(owner);
+            if (ownerState.isValid() && ownerState.isModified()) {
+                owner.streamOutBlocking(object, 0, ownerState, null);
+            }
+        }
+    }
+
     public void warmup() {
         execute(true);
         finishedWarmup = true;
@@ -216,6 +287,22 @@ public class TornadoVM extends TornadoLogger {
         execute(true);
     }
 
+    /**
+     * Compiles and installs the code of all tasks, recording the compilation
+     * times in {@code profiler} instead of the profiler of the task-schedule. This
+     * allows the compilation to run in a different thread while the task-schedule
+     * keeps executing without this TornadoVM instance: the call stacks, which are
+     * allocated by the memory manager of the device, are created by the first
+     * execution.
+     */
+    public void compile(TornadoProfiler profiler) {
+        for (final TornadoVMInstruction instruction : instructions) {
+            if (instruction.bytecode == TornadoVMBytecodes.LAUNCH) {
+                installCode(instruction.contextIndex, instruction.taskIndex, instruction.size, profiler);
+            }
+        }
+    }
+
     public Event execute() {
         return execute(false);
     }
@@ -230,7 +317,7 @@ public class TornadoVM extends TornadoLogger {
         Arrays.fill(installedCodes, null);
     }
 
-    private int executeAllocate(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final long sizeBatch) {
+    private int executeAllocate(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final int slot, final long sizeBatch) {
         final TornadoAcceleratorDevice device = contexts.get(contextIndex);
         final Object object = objects.get(objectIndex);
 
@@ -239,7 +326,7 @@ public class TornadoVM extends TornadoLogger {
             tornadoVMBytecodeList.append(verbose).append("\n");
         }
 
-        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
+        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex, slot);
         return device.ensureAllocated(object, sizeBatch, objectState);
     }
 
@@ -251,7 +338,8 @@ public class TornadoVM extends TornadoLogger {
         return object instanceof TornadoVMContext;
     }
 
-    private int executeCopyIn(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final long offset, final int eventList, final long sizeBatch, final int[] waitList) {
+    private int executeCopyIn(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final int slot, final long offset, final int eventList, final long sizeBatch,
+            final int[] waitList) {
         final TornadoAcceleratorDevice device = contexts.get(contextIndex);
         final Object object = objects.get(objectIndex);
 
@@ -259,13 +347,15 @@ public class TornadoVM extends TornadoLogger {
             return 0;
         }
 
-        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
+        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex, slot);
 
         if (TornadoOptions.printBytecodes & !isObjectAtomic(object)) {
             String verbose = String.format("vm: COPY_IN [Object Hash Code=0x%x] %s on %s, size=%d, offset=%d [event list=%d]", object.hashCode(), object, device, sizeBatch, offset, eventList);
             tornadoVMBytecodeList.append(verbose).append("\n");
         }
 
+        syncSharedOwner(objectIndex, object, device);
+
         List<Integer> allEvents;
         if (sizeBatch > 0) {
             // We need to stream-in when using batches, because the
@@ -274,6 +364,9 @@ public class TornadoVM extends TornadoLogger {
         } else {
             allEvents = device.ensurePresent(object, objectState, waitList, sizeBatch, offset);
         }
+        if (allEvents != null) {
+            objectState.setProducer(graphContext, resolveGlobalObjectState(objectIndex).getHostVersion());
+        }
 
         resetEventIndexes(eventList);
 
@@ -291,10 +384,10 @@ public class TornadoVM extends TornadoLogger {
                 timeProfiler.setTimer(ProfilerType.DISPATCH_TIME, dispatchValue);
             }
         }
-        return 0;
+        return lastEventOf(allEvents);
     }
 
-    private int executeStreamIn(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final long offset, final int eventList, final long sizeBatch,
+    private int executeStreamIn(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final int slot, final long offset, final int eventList, final long sizeBatch,
             final int[] waitList) {
         final TornadoAcceleratorDevice device = contexts.get(contextIndex);
         final Object object = objects.get(objectIndex);
@@ -308,8 +401,31 @@ public class TornadoVM extends TornadoLogger {
             tornadoVMBytecodeList.append(verbose).append("\n");
         }
 
-        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
-        List<Integer> allEvents = device.streamIn(object, sizeBatch, offset, objectState, waitList);
+        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex, slot);
+        final StreamInElision elision = graphContext.meta().getStreamInElision();
+        final long hostVersion = resolveGlobalObjectState(objectIndex).getHostVersion();
+        final long checksum = computeHostChecksum(elision, object);
+
+        if (canReuseSharedCopy(objectIndex, object, objectState, device, sizeBatch, hostVersion)
+                || canElideStreamIn(elision, objectIndex, object, objectState, sizeBatch, hostVersion, checksum)) {
+            if (TornadoOptions.isProfilerEnabled()) {
+                timeProfiler.addValueToMetric(ProfilerType.ELIDED_COPY_IN_SIZE_BYTES, tasks.get(contextIndex).getId(), objectState.getBuffer().size());
+            }
+            resetEventIndexes(eventList);
+            return -1;
+        }
+
+        syncSharedOwner(objectIndex, object, device);
+
+        final boolean isRange = isRangeTransfer(sizeBatch);
+        List<Integer> allEvents;
+        if (isRange) {
+            allEvents = device.streamInRange(object, offset, sizeBatch, objectState, waitList);
+        } else {
+            allEvents = device.streamIn(object, sizeBatch, offset, objectState, waitList);
+        }
+        objectState.setHostSnapshot(hostVersion, checksum);
+        objectState.setProducer(graphContext, hostVersion);
 
         resetEventIndexes(eventList);
 
@@ -320,17 +436,89 @@ public class TornadoVM extends TornadoLogger {
                 long copyInTimer = timeProfiler.getTimer(ProfilerType.COPY_IN_TIME);
                 copyInTimer += event.getExecutionTime();
                 timeProfiler.setTimer(ProfilerType.COPY_IN_TIME, copyInTimer);
-                timeProfiler.addValueToMetric(ProfilerType.TASK_COPY_IN_SIZE_BYTES, tasks.get(contextIndex).getId(), objectState.getBuffer().size());
+                timeProfiler.addValueToMetric(ProfilerType.TASK_COPY_IN_SIZE_BYTES, tasks.get(contextIndex).getId(), isRange ? sizeBatch : objectState.getBuffer().size());
 
                 long dispatchValue = timeProfiler.getTimer(ProfilerType.DISPATCH_TIME);
                 dispatchValue += event.getDriverDispatchTime();
                 timeProfiler.setTimer(ProfilerType.DISPATCH_TIME, dispatchValue);
             }
         }
+        return lastEventOf(allEvents);
+    }
+
+    private static long computeHostChecksum(StreamInElision elision, Object object) {
+        if ((elision == StreamInElision.CHECKSUM || elision == StreamInElision.SAMPLED) && HostChecksum.isSupported(object)) {
+            return HostChecksum.compute(object, elision == StreamInElision.SAMPLED);
+        }
         return 0;
     }
 
-    private int executeStreamOut(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final long offset, final int eventList, final long sizeBatch,
+    /**
+     * A stream-in can be skipped when the device already holds the current host
+     * copy of the whole object: the buffer is valid, it has not been written by
+     * a kernel since the last transfer, and the host has not changed according
+     * to the elision policy of the schedule.
+     */
+    private boolean canElideStreamIn(StreamInElision elision, int objectIndex, Object object, DeviceObjectState objectState, long sizeBatch, long hostVersion, long checksum) {
+        if (elision == StreamInElision.NONE || sizeBatch > 0 || graphContext.isForcedStreamIn(objectIndex) || isObjectAtomic(object)) {
+            return false;
+        }
+        if (!objectState.isValid() || !objectState.hasContents() || objectState.isModified() || objectState.getHostVersion() != hostVersion) {
+            return false;
+        }
+        switch (elision) {
+            case DIRTY:
+                return true;
+            case CHECKSUM:
+            case SAMPLED:
+                return HostChecksum.isSupported(object) && objectState.getHostChecksum() == checksum;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * With {@code <schedule>.objects.share}, a stream-in is skipped when the
+     * device already holds a copy of the object written by another schedule: the
+     * buffer is valid, the host has not been marked dirty since it was written,
+     * and, if a kernel modified it, this device owns the object. Copies written
+     * by this schedule follow its stream-in elision policy instead.
+     */
+    private boolean canReuseSharedCopy(int objectIndex, Object object, DeviceObjectState objectState, TornadoAcceleratorDevice device, long sizeBatch, long hostVersion) {
+        if (!graphContext.meta().shouldShareDeviceObjects() || sizeBatch > 0 || graphContext.isForcedStreamIn(objectIndex) || isObjectAtomic(object)) {
+            return false;
+        }
+        if (!objectState.isValid() || !objectState.hasContents()) {
+            return false;
+        }
+        final Object producer = objectState.getProducer();
+        if (producer == null || producer == graphContext || objectState.getProducerHostVersion() != hostVersion) {
+            return false;
+        }
+        return !objectState.isModified() || resolveGlobalObjectState(objectIndex).getOwner() == device;
+    }
+
+    /**
+     * With {@code <schedule>.objects.share}, an object last written by another
+     * schedule on a different device is copied back to the host before it is
+     * copied to this device, so the host copy is not stale.
+     */
+    private void syncSharedOwner(int objectIndex, Object object, TornadoAcceleratorDevice device) {
+        if (!graphContext.meta().shouldShareDeviceObjects() || isObjectAtomic(object)) {
+            return;
+        }
+        final GlobalObjectState globalState = resolveGlobalObjectState(objectIndex);
+        final TornadoAcceleratorDevice owner = globalState.getOwner();
+        if (owner == null || owner == device) {
+            return;
+        }
+        final DeviceObjectState ownerState = globalState.getDeviceState(owner);
+        if (ownerState.isValid() && ownerState.isModified() && ownerState.getProducer() != graphContext) {
+            owner.streamOutBlocking(object, 0, ownerState, null);
+        }
+    }
+
+    private int executeStreamOut(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final int slot, final long offset, final int eventList, final long sizeBatch,
             final int[] waitList) {
         final TornadoAcceleratorDevice device = contexts.get(contextIndex);
         final Object object = objects.get(objectIndex);
@@ -344,9 +532,15 @@ public class TornadoVM extends TornadoLogger {
             tornadoVMBytecodeList.append(verbose).append("\n");
         }
 
-        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
+        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex, slot);
 
-        int lastEvent = device.streamOutBlocking(object, offset, objectState, waitList);
+        final boolean isRange = isRangeTransfer(sizeBatch);
+        int lastEvent;
+        if (isRange) {
+            lastEvent = streamOutRange(device, object, offset, sizeBatch, objectState, waitList);
+        } else {
+            lastEvent = device.streamOutBlocking(object, offset, objectState, waitList);
+        }
 
         resetEventIndexes(eventList);
 
@@ -356,13 +550,29 @@ public class TornadoVM extends TornadoLogger {
             long value = timeProfiler.getTimer(ProfilerType.COPY_OUT_TIME);
             value += event.getExecutionTime();
             timeProfiler.setTimer(ProfilerType.COPY_OUT_TIME, value);
-            timeProfiler.addValueToMetric(ProfilerType.TASK_COPY_OUT_SIZE_BYTES, tasks.get(contextIndex).getId(), objectState.getBuffer().size());
+            timeProfiler.addValueToMetric(ProfilerType.TASK_COPY_OUT_SIZE_BYTES, tasks.get(contextIndex).getId(), isRange ? sizeBatch : objectState.getBuffer().size());
         }
         return lastEvent;
     }
 
-    private void executeStreamOutBlocking(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final long offset, final int eventList, final long sizeBatch,
-            final int[] waitList) {
+    private boolean isRangeTransfer(long size) {
+        return !batched && size > 0;
+    }
+
+    /**
+     * Copies a range of the object back to the host and waits for it, as the
+     * copies of whole objects do.
+     */
+    private static int streamOutRange(TornadoAcceleratorDevice device, Object object, long offset, long size, DeviceObjectState objectState, int[] waitList) {
+        final int event = device.streamOutRange(object, offset, size, objectState, waitList);
+        if (event != -1) {
+            device.resolveEvent(event).waitOn();
+        }
+        return event;
+    }
+
+    private void executeStreamOutBlocking(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final int slot, final long offset, final int eventList,
+            final long sizeBatch, final int[] waitList) {
 
         final TornadoAcceleratorDevice device = contexts.get(contextIndex);
         final Object object = objects.get(objectIndex);
@@ -376,9 +586,15 @@ public class TornadoVM extends TornadoLogger {
             tornadoVMBytecodeList.append(verbose).append("\n");
         }
 
-        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
+        final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex, slot);
 
-        final int tornadoEventID = device.streamOutBlocking(object, offset, objectState, waitList);
+        final boolean isRange = isRangeTransfer(sizeBatch);
+        final int tornadoEventID;
+        if (isRange) {
+            tornadoEventID = streamOutRange(device, object, offset, sizeBatch, objectState, waitList);
+        } else {
+            tornadoEventID = device.streamOutBlocking(object, offset, objectState, waitList);
+        }
 
         if (TornadoOptions.isProfilerEnabled() && tornadoEventID != -1) {
             Event event = device.resolveEvent(tornadoEventID);
@@ -386,41 +602,37 @@ public class TornadoVM extends TornadoLogger {
             long value = timeProfiler.getTimer(ProfilerType.COPY_OUT_TIME);
             value += event.getExecutionTime();
             timeProfiler.setTimer(ProfilerType.COPY_OUT_TIME, value);
-            timeProfiler.addValueToMetric(ProfilerType.TASK_COPY_OUT_SIZE_BYTES, tasks.get(contextIndex).getId(), objectState.getBuffer().size());
+            timeProfiler.addValueToMetric(ProfilerType.TASK_COPY_OUT_SIZE_BYTES, tasks.get(contextIndex).getId(), isRange ? sizeBatch : objectState.getBuffer().size());
         }
         resetEventIndexes(eventList);
     }
 
-    private static class ExecutionInfo {
-        CallStack stack;
-        int[] waitList;
-
-        public ExecutionInfo(CallStack stack, int[] waitList) {
-            this.stack = stack;
-            this.waitList = waitList;
+    private void profilerUpdateForPreCompiledTask(SchedulableTask task, TornadoProfiler profiler) {
+        if (task instanceof PrebuiltTask && profiler instanceof TimeProfiler) {
+            PrebuiltTask prebuiltTask = (PrebuiltTask) task;
+            profiler.registerDeviceID(ProfilerType.DEVICE_ID, task.getId(), prebuiltTask.meta().getLogicDevice().getDriverIndex() + ":" + prebuiltTask.meta().getDeviceIndex());
+            profiler.registerDeviceName(ProfilerType.DEVICE, task.getId(), prebuiltTask.meta().getLogicDevice().getPhysicalDevice().getDeviceName());
         }
     }
 
-    private void profilerUpdateForPreCompiledTask(SchedulableTask task) {
-        if (task instanceof PrebuiltTask && timeProfiler instanceof TimeProfiler) {
-            PrebuiltTask prebuiltTask = (PrebuiltTask) task;
-            timeProfiler.registerDeviceID(ProfilerType.DEVICE_ID, task.getId(), prebuiltTask.meta().getLogicDevice().getDriverIndex() + ":" + prebuiltTask.meta().getDeviceIndex());
-            timeProfiler.registerDeviceName(ProfilerType.DEVICE, task.getId(), prebuiltTask.meta().getLogicDevice().getPhysicalDevice().getDeviceName());
-        }
+    private CallStack compileTaskFromBytecodeToBinary(final int contextIndex, final int stackIndex, final int numArgs, final int taskIndex, final long batchThreads) {
+        final TornadoAcceleratorDevice device = contexts.get(contextIndex);
+        installCode(contextIndex, taskIndex, batchThreads, timeProfiler);
+
+        boolean redeployOnDevice = graphContext.redeployOnDevice();
+        return resolveStack(stackIndex, numArgs, stacks, device, redeployOnDevice);
     }
 
-    private ExecutionInfo compileTaskFromBytecodeToBinary(final int contextIndex, final int stackIndex, final int numArgs, final int eventList, final int taskIndex, final long batchThreads) {
+    /**
+     * Compiles and installs the code of a task, unless it is already installed.
+     */
+    private void installCode(final int contextIndex, final int taskIndex, final long batchThreads, final TornadoProfiler profiler) {
         final TornadoAcceleratorDevice device = contexts.get(contextIndex);
 
         if (device.getDeviceContext().wasReset() && finishedWarmup) {
             throw new TornadoFailureException("[ERROR] reset() was called after warmup()");
         }
 
-        boolean redeployOnDevice = graphContext.redeployOnDevice();
-
-        final CallStack stack = resolveStack(stackIndex, numArgs, stacks, device, redeployOnDevice);
-
-        final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
         final SchedulableTask task = tasks.get(taskIndex);
 
         // Set the batch size in the task information
@@ -434,7 +646,7 @@ public class TornadoVM extends TornadoLogger {
         if (installedCodes[taskIndex] == null) {
             task.mapTo(device);
             try {
-                task.attachProfiler(timeProfiler);
+                task.attachProfiler(profiler);
                 if (taskIndex == (tasks.size() - 1)) {
                     // If last task within the task-schedule -> we force compilation
                     // This is useful when compiling code for Xilinx/Altera FPGAs, that has to
@@ -445,33 +657,43 @@ public class TornadoVM extends TornadoLogger {
                     task.forceCompilation();
                 }
                 installedCodes[taskIndex] = device.installCode(task);
-                profilerUpdateForPreCompiledTask(task);
+                profilerUpdateForPreCompiledTask(task, profiler);
                 doUpdate = false;
             } catch (Exception e) {
                 throw new TornadoBailoutRuntimeException("Unable to compile task " + task.getFullName() + "\n" + Arrays.toString(e.getStackTrace()), e);
             }
         }
-        return new ExecutionInfo(stack, waitList);
     }
 
     private void setObjectOwnerShip(GlobalObjectState globalState, DeviceObjectState objectState, TornadoDevice device) {
         globalState.setOwner(device);
         objectState.setContents(true);
         objectState.setModified(true);
+        objectState.setProducer(graphContext, globalState.getHostVersion());
     }
 
     private boolean isObjectInAtomicRegion(DeviceObjectState objectState, TornadoAcceleratorDevice device, SchedulableTask task) {
         return objectState.isAtomicRegionPresent() && device.checkAtomicsParametersForTask(task);
     }
 
-    private int executeLaunch(StringBuilder tornadoVMBytecodeList, final int contextIndex, final int numArgs, final int eventList, final int taskIndex, final long batchThreads, final long offset,
-            ExecutionInfo info) {
+    private CallStackBindings resolveBindings(int stackIndex, int numArgs) {
+        if (stackBindings[stackIndex] == null) {
+            stackBindings[stackIndex] = new CallStackBindings(numArgs);
+        }
+        return stackBindings[stackIndex];
+    }
+
+    private int executeLaunch(StringBuilder tornadoVMBytecodeList, final TornadoVMInstruction launch, final CallStack stack, final int[] waitList) {
+        final int contextIndex = launch.contextIndex;
+        final int slot = launch.slot;
+        final int eventList = launch.eventList;
+        final int taskIndex = launch.taskIndex;
+        final long batchThreads = launch.size;
+        final long offset = launch.offset;
 
         final SchedulableTask task = tasks.get(taskIndex);
         final TornadoAcceleratorDevice device = contexts.get(contextIndex);
         boolean redeployOnDevice = graphContext.redeployOnDevice();
-        CallStack stack = info.stack;
-        int[] waitList = info.waitList;
 
         if (installedCodes[taskIndex] == null) {
             // After warming-up, it is possible to get a null pointer in the task-cache due
@@ -493,34 +715,45 @@ public class TornadoVM extends TornadoLogger {
         }
 
         final Access[] accesses = task.getArgumentsAccess();
-        if (redeployOnDevice || !stack.isOnDevice()) {
+        final boolean isNewBindings = stackBindings[launch.index] == null;
+        final CallStackBindings bindings = resolveBindings(launch.index, launch.getNumArgs());
+        // A stack that is already on the device is pushed again if the buffer of
+        // any of its objects has moved. Bindings created after the stack was
+        // pushed (by a TornadoVM that shares the stacks of the context) are empty
+        if (redeployOnDevice || !stack.isOnDevice() || isNewBindings || bindings.isStale()) {
             stack.reset();
+            bindings.clear();
         }
 
-        HashMap<Integer, Integer> map = new HashMap<>();
+        stackHeader.clear();
         if (gridTask != null && gridTask.get(task.getId()) != null) {
             WorkerGrid workerGrid = gridTask.get(task.getId());
             long[] global = workerGrid.getGlobalWork();
             int i = 0;
             for (long maxThread : global) {
-                map.put(i++, (int) maxThread);
+                stackHeader.put(i++, (int) maxThread);
             }
         }
-        stack.setHeader(map);
+        stack.setHeader(stackHeader);
 
         ObjectBuffer bufferAtomics = null;
 
+        final int numArgs = launch.getNumArgs();
         for (int i = 0; i < numArgs; i++) {
-            final byte argType = buffer.get();
-            final int argIndex = buffer.getInt();
+            final boolean isReference = launch.isReferenceArgument[i];
+            final int argIndex = launch.argumentIndexes[i];
 
-            if (argType == TornadoVMBytecodes.REFERENCE_ARGUMENT.value()) {
+            if (isReference) {
                 final GlobalObjectState globalState = resolveGlobalObjectState(argIndex);
-                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex));
+                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex), resolveSlot(argIndex, slot));
 
                 if (isObjectInAtomicRegion(objectState, device, task)) {
                     atomicsArray = device.updateAtomicRegionAndObjectState(task, atomicsArray, i, objects.get(argIndex), objectState);
                     setObjectOwnerShip(globalState, objectState, device);
+                } else if (accesses[i] == Access.WRITE || accesses[i] == Access.READ_WRITE) {
+                    // The stack is only pushed in the first execution, but the
+                    // device copy diverges from the host in every launch
+                    setObjectOwnerShip(globalState, objectState, device);
                 }
             }
 
@@ -528,27 +761,26 @@ public class TornadoVM extends TornadoLogger {
                 continue;
             }
 
-            if (argType == TornadoVMBytecodes.CONSTANT_ARGUMENT.value()) {
+            if (!isReference) {
                 stack.push(constants.get(argIndex));
-            } else if (argType == TornadoVMBytecodes.REFERENCE_ARGUMENT.value()) {
+            } else {
                 if (isObjectTornadoVMContext(objects.get(argIndex))) {
                     stack.push(null);
                     continue;
                 }
 
                 final GlobalObjectState globalState = resolveGlobalObjectState(argIndex);
-                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex));
+                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex), resolveSlot(argIndex, slot));
 
                 if (!isObjectInAtomicRegion(objectState, device, task)) {
                     final String ERROR_MESSAGE = "object is not valid: %s %s";
                     TornadoInternalError.guarantee(objectState.isValid(), ERROR_MESSAGE, objects.get(argIndex), objectState);
                     stack.push(objects.get(argIndex), objectState);
+                    bindings.record(objectState);
                     if (accesses[i] == Access.WRITE || accesses[i] == Access.READ_WRITE) {
                         setObjectOwnerShip(globalState, objectState, device);
                     }
                 }
-            } else {
-                TornadoInternalError.shouldNotReachHere();
             }
         }
 
@@ -605,6 +837,10 @@ public class TornadoVM extends TornadoLogger {
         return lastEvent;
     }
 
+    private static int lastEventOf(List<Integer> allEvents) {
+        return (allEvents == null || allEvents.isEmpty()) ? -1 : allEvents.get(allEvents.size() - 1);
+    }
+
     private void executeDependency(StringBuilder tornadoVMBytecodeList, int lastEvent, int eventList) {
         if (useDependencies && lastEvent != -1) {
             if (TornadoOptions.printBytecodes) {
@@ -633,11 +869,8 @@ public class TornadoVM extends TornadoLogger {
         return lastEvent;
     }
 
-    private void throwError(byte op) {
-        if (graphContext.meta().isDebug()) {
-            debug("vm: invalid op 0x%x(%d)", op, op);
-        }
-        throw new TornadoRuntimeException("[ERROR] TornadoVM Bytecode not recognized");
+    private int[] resolveWaitList(int eventList) {
+        return (useDependencies && eventList != -1) ? events[eventList] : null;
     }
 
     private Event execute(boolean isWarmup) {
@@ -648,101 +881,86 @@ public class TornadoVM extends TornadoLogger {
         int lastEvent = -1;
         initWaitEventList();
 
+        if (!isWarmup && useDependencies) {
+            // The wait lists only order the commands of this task-schedule. Other
+            // task-schedules may still use the same objects in other queues of the
+            // device, so all the queues wait for the commands enqueued before
+            contexts.stream().filter(TornadoAcceleratorDevice::hasCopyQueues).forEach(TornadoAcceleratorDevice::enqueueBarrier);
+        }
+
+        final boolean trackEviction = !isWarmup && TornadoOptions.HEAP_EVICTION;
+        if (trackEviction) {
+            DeviceMemoryEvictor.beginExecution(evictionScope);
+        }
+        final long evictions = DeviceMemoryEvictor.getEvictions();
+        final long spilledBytes = DeviceMemoryEvictor.getSpilledBytes();
+        final long reuploads = DeviceMemoryEvictor.getReuploads();
+
         StringBuilder tornadoVMBytecodeList = null;
         if (TornadoOptions.printBytecodes) {
             tornadoVMBytecodeList = new StringBuilder();
         }
 
-        while (buffer.hasRemaining()) {
-            final byte op = buffer.get();
-            if (op == TornadoVMBytecodes.ALLOCATE.value()) {
-                final int objectIndex = buffer.getInt();
-                final int contextIndex = buffer.getInt();
-                final long sizeBatch = buffer.getLong();
-                if (isWarmup) {
-                    continue;
-                }
-                lastEvent = executeAllocate(tornadoVMBytecodeList, objectIndex, contextIndex, sizeBatch);
-            } else if (op == TornadoVMBytecodes.COPY_IN.value()) {
-                final int objectIndex = buffer.getInt();
-                final int contextIndex = buffer.getInt();
-                final int eventList = buffer.getInt();
-                final long offset = buffer.getLong();
-                final long sizeBatch = buffer.getLong();
-                final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
-                if (isWarmup) {
-                    continue;
-                }
-                executeCopyIn(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
-            } else if (op == TornadoVMBytecodes.STREAM_IN.value()) {
-                final int objectIndex = buffer.getInt();
-                final int contextIndex = buffer.getInt();
-                final int eventList = buffer.getInt();
-                final long offset = buffer.getLong();
-                final long sizeBatch = buffer.getLong();
-                final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
-                if (isWarmup) {
-                    continue;
-                }
-                executeStreamIn(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
-            } else if (op == TornadoVMBytecodes.STREAM_OUT.value()) {
-                final int objectIndex = buffer.getInt();
-                final int contextIndex = buffer.getInt();
-                final int eventList = buffer.getInt();
-                final long offset = buffer.getLong();
-                final long sizeBatch = buffer.getLong();
-                final int[] waitList = (useDependencies) ? events[eventList] : null;
-                if (isWarmup) {
-                    continue;
-                }
-                lastEvent = executeStreamOut(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
-            } else if (op == TornadoVMBytecodes.STREAM_OUT_BLOCKING.value()) {
-                final int objectIndex = buffer.getInt();
-                final int contextIndex = buffer.getInt();
-                final int eventList = buffer.getInt();
-                final long offset = buffer.getLong();
-                final long sizeBatch = buffer.getLong();
-
-                final int[] waitList = (useDependencies) ? events[eventList] : null;
-                if (isWarmup) {
-                    continue;
-                }
-                executeStreamOutBlocking(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
-
-            } else if (op == TornadoVMBytecodes.LAUNCH.value()) {
-                final int stackIndex = buffer.getInt();
-                final int contextIndex = buffer.getInt();
-                final int taskIndex = buffer.getInt();
-                final int numArgs = buffer.getInt();
-                final int eventList = buffer.getInt();
-                final long offset = buffer.getLong();
-                final long batchThreads = buffer.getLong();
-                ExecutionInfo info = compileTaskFromBytecodeToBinary(contextIndex, stackIndex, numArgs, eventList, taskIndex, batchThreads);
-                if (isWarmup) {
-                    popArgumentsFromStack(numArgs);
-                    continue;
-                }
-                lastEvent = executeLaunch(tornadoVMBytecodeList, contextIndex, numArgs, eventList, taskIndex, batchThreads, offset, info);
-            } else if (op == TornadoVMBytecodes.ADD_DEP.value()) {
-                final int eventList = buffer.getInt();
-                if (isWarmup) {
-                    continue;
-                }
-                executeDependency(tornadoVMBytecodeList, lastEvent, eventList);
-            } else if (op == TornadoVMBytecodes.BARRIER.value()) {
-                final int eventList = buffer.getInt();
-                final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
-                if (isWarmup) {
-                    continue;
-                }
-                executeBarrier(tornadoVMBytecodeList, eventList, waitList, lastEvent);
-            } else if (op == TornadoVMBytecodes.END.value()) {
-                if (TornadoOptions.printBytecodes) {
-                    tornadoVMBytecodeList.append("END\n");
+        try {
+            for (final TornadoVMInstruction instruction : instructions) {
+                switch (instruction.bytecode) {
+                    case ALLOCATE:
+                        if (!isWarmup) {
+                            lastEvent = executeAllocate(tornadoVMBytecodeList, instruction.index, instruction.contextIndex, instruction.slot, instruction.size);
+                        }
+                        break;
+                    case COPY_IN:
+                        if (!isWarmup) {
+                            lastEvent = executeCopyIn(tornadoVMBytecodeList, instruction.index, instruction.contextIndex, instruction.slot, instruction.offset, instruction.eventList, instruction.size,
+                                    resolveWaitList(instruction.eventList));
+                        }
+                        break;
+                    case STREAM_IN:
+                        if (!isWarmup) {
+                            lastEvent = executeStreamIn(tornadoVMBytecodeList, instruction.index, instruction.contextIndex, instruction.slot, instruction.offset, instruction.eventList, instruction.size,
+                                    resolveWaitList(instruction.eventList));
+                        }
+                        break;
+                    case STREAM_OUT:
+                        if (!isWarmup) {
+                            lastEvent = executeStreamOut(tornadoVMBytecodeList, instruction.index, instruction.contextIndex, instruction.slot, instruction.offset, instruction.eventList, instruction.size,
+                                    resolveWaitList(instruction.eventList));
+                        }
+                        break;
+                    case STREAM_OUT_BLOCKING:
+                        if (!isWarmup) {
+                            executeStreamOutBlocking(tornadoVMBytecodeList, instruction.index, instruction.contextIndex, instruction.slot, instruction.offset, instruction.eventList, instruction.size,
+                                    resolveWaitList(instruction.eventList));
+                        }
+                        break;
+                    case LAUNCH:
+                        final CallStack stack = compileTaskFromBytecodeToBinary(instruction.contextIndex, instruction.index, instruction.getNumArgs(), instruction.taskIndex, instruction.size);
+                        if (!isWarmup) {
+                            lastEvent = executeLaunch(tornadoVMBytecodeList, instruction, stack, resolveWaitList(instruction.eventList));
+                        }
+                        break;
+                    case ADD_DEP:
+                        if (!isWarmup) {
+                            executeDependency(tornadoVMBytecodeList, lastEvent, instruction.eventList);
+                        }
+                        break;
+                    case BARRIER:
+                        if (!isWarmup) {
+                            executeBarrier(tornadoVMBytecodeList, instruction.eventList, resolveWaitList(instruction.eventList), lastEvent);
+                        }
+                        break;
+                    case END:
+                        if (TornadoOptions.printBytecodes) {
+                            tornadoVMBytecodeList.append("END\n");
+                        }
+                        break;
+                    default:
+                        throw new TornadoRuntimeException("[ERROR] TornadoVM Bytecode not recognized: " + instruction.bytecode);
                 }
-                break;
-            } else {
-                throwError(op);
+            }
+        } finally {
+            if (trackEviction) {
+                DeviceMemoryEvictor.endExecution(evictionScope);
             }
         }
 
@@ -767,12 +985,16 @@ public class TornadoVM extends TornadoLogger {
             invocations++;
         }
 
+        if (!isWarmup && TornadoOptions.isProfilerEnabled()) {
+            timeProfiler.sum(ProfilerType.EVICTIONS, DeviceMemoryEvictor.getEvictions() - evictions);
+            timeProfiler.sum(ProfilerType.EVICTION_SPILL_SIZE_BYTES, DeviceMemoryEvictor.getSpilledBytes() - spilledBytes);
+            timeProfiler.sum(ProfilerType.EVICTION_REUPLOADS, DeviceMemoryEvictor.getReuploads() - reuploads);
+        }
+
         if (graphContext.meta().isDebug()) {
             debug("vm: complete elapsed=%.9f s (%d iterations, %.9f s mean)", elapsed, invocations, (totalTime / invocations));
         }
 
-        buffer.reset();
-
         if (TornadoOptions.printBytecodes) {
             System.out.println(tornadoVMBytecodeList.toString());
         }
@@ -786,13 +1008,6 @@ public class TornadoVM extends TornadoLogger {
         }
     }
 
-    private void popArgumentsFromStack(int numArgs) {
-        for (int i = 0; i < numArgs; i++) {
-            buffer.get();
-            buffer.getInt();
-        }
-    }
-
     public void printTimes() {
         System.out.printf("vm: complete %d iterations - %.9f s mean and %.9f s total\n", invocations, (totalTime / invocations), totalTime);
     }
@@ -0,0 +1,155 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
+
+/**
+ * A TornadoVM bytecode decoded into its operands. The {@link TornadoVM} decodes
+ * the code of a task-schedule once, when it is created, and then executes the
+ * resulting instructions on every invocation without reading the byte buffer
+ * again.
+ */
+final class TornadoVMInstruction {
+
+    final TornadoVMBytecodes bytecode;
+
+    /**
+     * Object index for ALLOCATE and transfers, stack index for LAUNCH.
+     */
+    final int index;
+    final int contextIndex;
+    final int slot;
+    final int eventList;
+    final long offset;
+
+    /**
+     * Batch size for ALLOCATE and transfers, number of threads for LAUNCH.
+     */
+    final long size;
+
+    final int taskIndex;
+
+    /**
+     * Arguments of a LAUNCH: whether each argument is an object reference (or a
+     * constant) and its index in the objects (or constants) of the schedule.
+     */
+    final boolean[] isReferenceArgument;
+    final int[] argumentIndexes;
+
+    private TornadoVMInstruction(TornadoVMBytecodes bytecode, int index, int contextIndex, int slot, int eventList, long offset, long size, int taskIndex, boolean[] isReferenceArgument,
+            int[] argumentIndexes) {
+        this.bytecode = bytecode;
+        this.index = index;
+        this.contextIndex = contextIndex;
+        this.slot = slot;
+        this.eventList = eventList;
+        this.offset = offset;
+        this.size = size;
+        this.taskIndex = taskIndex;
+        this.isReferenceArgument = isReferenceArgument;
+        this.argumentIndexes = argumentIndexes;
+    }
+
+    int getNumArgs() {
+        return argumentIndexes.length;
+    }
+
+    /**
+     * Decodes the bytecodes from the current position of {@code buffer} up to,
+     * and including, the END bytecode.
+     */
+    static TornadoVMInstruction[] decode(ByteBuffer buffer) {
+        final List<TornadoVMInstruction> instructions = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            final TornadoVMInstruction instruction = decodeNext(buffer);
+            instructions.add(instruction);
+            if (instruction.bytecode == TornadoVMBytecodes.END) {
+                break;
+            }
+        }
+        return instructions.toArray(new TornadoVMInstruction[0]);
+    }
+
+    private static TornadoVMInstruction decodeNext(ByteBuffer buffer) {
+        final byte op = buffer.get();
+        if (op == TornadoVMBytecodes.ALLOCATE.value()) {
+            final int objectIndex = buffer.getInt();
+            final int contextIndex = buffer.getInt();
+            final int slot = buffer.getInt();
+            final long sizeBatch = buffer.getLong();
+            return new TornadoVMInstruction(TornadoVMBytecodes.ALLOCATE, objectIndex, contextIndex, slot, -1, 0, sizeBatch, -1, null, null);
+        } else if (op == TornadoVMBytecodes.COPY_IN.value() || op == TornadoVMBytecodes.STREAM_IN.value() || op == TornadoVMBytecodes.STREAM_OUT.value()
+                || op == TornadoVMBytecodes.STREAM_OUT_BLOCKING.value()) {
+            final int objectIndex = buffer.getInt();
+            final int contextIndex = buffer.getInt();
+            final int slot = buffer.getInt();
+            final int eventList = buffer.getInt();
+            final long offset = buffer.getLong();
+            final long sizeBatch = buffer.getLong();
+            return new TornadoVMInstruction(toBytecode(op), objectIndex, contextIndex, slot, eventList, offset, sizeBatch, -1, null, null);
+        } else if (op == TornadoVMBytecodes.LAUNCH.value()) {
+            final int stackIndex = buffer.getInt();
+            final int contextIndex = buffer.getInt();
+            final int slot = buffer.getInt();
+            final int taskIndex = buffer.getInt();
+            final int numArgs = buffer.getInt();
+            final int eventList = buffer.getInt();
+            final long offset = buffer.getLong();
+            final long batchThreads = buffer.getLong();
+            final boolean[] isReferenceArgument = new boolean[numArgs];
+            final int[] argumentIndexes = new int[numArgs];
+            for (int i = 0; i < numArgs; i++) {
+                final byte argType = buffer.get();
+                if (argType == TornadoVMBytecodes.REFERENCE_ARGUMENT.value()) {
+                    isReferenceArgument[i] = true;
+                } else if (argType != TornadoVMBytecodes.CONSTANT_ARGUMENT.value()) {
+                    throw new TornadoRuntimeException(String.format("[ERROR] Invalid TornadoVM argument type: 0x%x", argType));
+                }
+                argumentIndexes[i] = buffer.getInt();
+            }
+            return new TornadoVMInstruction(TornadoVMBytecodes.LAUNCH, stackIndex, contextIndex, slot, eventList, offset, batchThreads, taskIndex, isReferenceArgument, argumentIndexes);
+        } else if (op == TornadoVMBytecodes.ADD_DEP.value() || op == TornadoVMBytecodes.BARRIER.value()) {
+            final int eventList = buffer.getInt();
+            return new TornadoVMInstruction(toBytecode(op), -1, -1, 0, eventList, 0, 0, -1, null, null);
+        } else if (op == TornadoVMBytecodes.END.value()) {
+            return new TornadoVMInstruction(TornadoVMBytecodes.END, -1, -1, 0, -1, 0, 0, -1, null, null);
+        }
+        throw new TornadoRuntimeException(String.format("[ERROR] TornadoVM Bytecode not recognized: 0x%x", op));
+    }
+
+    private static TornadoVMBytecodes toBytecode(byte op) {
+        for (TornadoVMBytecodes bytecode : TornadoVMBytecodes.values()) {
+            if (bytecode.value() == op) {
+                return bytecode;
+            }
+        }
+        throw new TornadoRuntimeException(String.format("[ERROR] TornadoVM Bytecode not recognized: 0x%x", op));
+    }
+}
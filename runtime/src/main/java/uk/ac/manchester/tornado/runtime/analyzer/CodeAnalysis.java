@@ -42,8 +42,16 @@ import org.graalvm.compiler.hotspot.HotSpotGraalOptionValues;
 import org.graalvm.compiler.java.GraphBuilderPhase;
 import org.graalvm.compiler.lir.asm.CompilationResultBuilderFactory;
 import org.graalvm.compiler.lir.phases.LIRSuites;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.PhiNode;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.StructuredGraph.AllowAssumptions;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration;
 import org.graalvm.compiler.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
 import org.graalvm.compiler.nodes.graphbuilderconf.InvocationPlugins;
@@ -57,10 +65,13 @@ import org.graalvm.compiler.phases.util.Providers;
 import org.graalvm.compiler.runtime.RuntimeProvider;
 
 import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.MetaAccessProvider;
 import jdk.vm.ci.meta.ProfilingInfo;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 import jdk.vm.ci.runtime.JVMCI;
+import uk.ac.manchester.tornado.runtime.common.ParallelAnnotationProvider;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoApiReplacement;
 
 public class CodeAnalysis {
 
@@ -73,7 +84,18 @@ public class CodeAnalysis {
      *         input method in the Graal-IR format,
      */
     public static StructuredGraph buildHighLevelGraalGraph(Object taskInputCode) {
-        Method methodToCompile = TaskUtils.resolveMethodHandle(taskInputCode);
+        return buildHighLevelGraalGraph(TaskUtils.resolveMethodHandle(taskInputCode));
+    }
+
+    /**
+     * Build Graal-IR for a Java method
+     *
+     * @param methodToCompile
+     *            Java method to be compiled by Graal
+     * @return {@link StructuredGraph} Control Flow and DataFlow Graphs for the
+     *         input method in the Graal-IR format,
+     */
+    public static StructuredGraph buildHighLevelGraalGraph(Method methodToCompile) {
         GraalJVMCICompiler graalCompiler = (GraalJVMCICompiler) JVMCI.getRuntime().getCompiler();
         RuntimeProvider capability = graalCompiler.getGraalRuntime().getCapability(RuntimeProvider.class);
         Backend backend = capability.getHostBackend();
@@ -98,6 +120,88 @@ public class CodeAnalysis {
         return null;
     }
 
+    /**
+     * Restricts the {@code @Parallel} loop of the graph to the iterations
+     * {@code [low, high)}. The loop must start from a constant and exit when its
+     * induction variable is not less than the loop bound.
+     *
+     * @param graph
+     *            Graph of the method, as built by
+     *            {@link #buildHighLevelGraalGraph(Object)}
+     * @param low
+     *            First iteration, inclusive.
+     * @param high
+     *            Last iteration, exclusive.
+     * @return true if the loop has been rewritten.
+     */
+    public static boolean performLoopRangeSubstitution(StructuredGraph graph, int low, int high) {
+        IntegerLessThanNode condition = getParallelLoopCondition(graph);
+        if (condition == null) {
+            return false;
+        }
+        PhiNode phi = (PhiNode) condition.getX();
+
+        phi.setValueAt(0, graph.addOrUnique(ConstantNode.forInt(low)));
+        condition.replaceFirstInput(condition.getY(), graph.addOrUnique(ConstantNode.forInt(high)));
+        return true;
+    }
+
+    /**
+     * Returns the condition that keeps {@code loopBegin} iterating, if it is the
+     * first control-flow split of the loop and it compares an int induction
+     * variable that starts from a constant with the loop bound.
+     */
+    static IntegerLessThanNode getLoopCondition(LoopBeginNode loopBegin) {
+        FixedNode node = loopBegin.next();
+        while (node instanceof FixedWithNextNode) {
+            node = ((FixedWithNextNode) node).next();
+        }
+        if (!(node instanceof IfNode) || !(((IfNode) node).condition() instanceof IntegerLessThanNode)) {
+            return null;
+        }
+
+        IntegerLessThanNode condition = (IntegerLessThanNode) ((IfNode) node).condition();
+        if (!(condition.getX() instanceof PhiNode)) {
+            return null;
+        }
+        PhiNode phi = (PhiNode) condition.getX();
+        if (phi.merge() != loopBegin || phi.getStackKind() != JavaKind.Int || !(phi.valueAt(0) instanceof ConstantNode)) {
+            return null;
+        }
+        return condition;
+    }
+
+    /**
+     * Returns the condition of the loop whose induction variable is annotated
+     * with {@code @Parallel}, see {@link #getLoopCondition(LoopBeginNode)}.
+     */
+    static IntegerLessThanNode getParallelLoopCondition(StructuredGraph graph) {
+        for (LoopBeginNode loopBegin : graph.getNodes().filter(LoopBeginNode.class)) {
+            IntegerLessThanNode condition = getLoopCondition(loopBegin);
+            if (condition != null && isParallelLoopIndex(graph, (PhiNode) condition.getX())) {
+                return condition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if {@code loopIndex} is the value of a local variable annotated
+     *         with {@code @Parallel} in the method of the graph.
+     */
+    static boolean isParallelLoopIndex(StructuredGraph graph, PhiNode loopIndex) {
+        final ParallelAnnotationProvider[] annotations = TornadoApiReplacement.getParallelAnnotations(graph.method());
+        for (FrameState state : graph.getNodes().filter(FrameState.class)) {
+            for (ParallelAnnotationProvider annotation : annotations) {
+                if (state.bci >= annotation.getStart() && state.bci < annotation.getStart() + annotation.getLength() && annotation.getIndex() < state.localsSize()
+                        && state.localAt(annotation.getIndex()) == loopIndex) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * It compiles and installs the method that represents the object {@code graph}.
      * 
@@ -0,0 +1,276 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.analyzer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.ParameterNode;
+import org.graalvm.compiler.nodes.PhiNode;
+import org.graalvm.compiler.nodes.PiNode;
+import org.graalvm.compiler.nodes.ProxyNode;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.calc.AddNode;
+import org.graalvm.compiler.nodes.calc.IntegerLessThanNode;
+import org.graalvm.compiler.nodes.calc.IsNullNode;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+
+import uk.ac.manchester.tornado.api.annotations.Reduce;
+import uk.ac.manchester.tornado.api.common.TaskPackage;
+
+/**
+ * Finds the consecutive tasks of a task-schedule that can run as a single
+ * kernel.
+ *
+ * <p>
+ * A task can be fused if it is an element-wise task: a public static method
+ * with primitive and primitive-array parameters, whose only loop is a
+ * {@code @Parallel} loop {@code for (int i = 0; i < n; i++)}. Two element-wise
+ * tasks are fused if they iterate over the same range and every array that one
+ * of them writes and the other one accesses is only indexed by the loop
+ * variable in both tasks. Each iteration of the consumer then only reads the
+ * elements produced by the same iteration of the producer, so both loops can
+ * run in the same thread.
+ * </p>
+ */
+public final class TaskFusionAnalysis {
+
+    private TaskFusionAnalysis() {
+    }
+
+    /**
+     * Accesses of a task to an array argument.
+     */
+    private static final class ArrayAccess {
+        private boolean written;
+        private boolean indexedByLoop = true;
+    }
+
+    private static final class ElementWiseTask {
+        private final int iterations;
+        private final Map<Object, ArrayAccess> accesses;
+
+        ElementWiseTask(int iterations, Map<Object, ArrayAccess> accesses) {
+            this.iterations = iterations;
+            this.accesses = accesses;
+        }
+    }
+
+    /**
+     * Groups the tasks that can be fused, in the order of the task-schedule.
+     * Tasks that are not fused are in a group of their own.
+     */
+    public static List<List<TaskPackage>> computeFusionGroups(List<TaskPackage> taskPackages) {
+        final List<List<TaskPackage>> groups = new ArrayList<>();
+        List<ElementWiseTask> group = new ArrayList<>();
+        for (TaskPackage taskPackage : taskPackages) {
+            final ElementWiseTask task = analyse(taskPackage);
+            if (task != null && !group.isEmpty() && canFuse(group, task)) {
+                group.add(task);
+                groups.get(groups.size() - 1).add(taskPackage);
+            } else {
+                group = new ArrayList<>();
+                if (task != null) {
+                    group.add(task);
+                }
+                final List<TaskPackage> fusedPackages = new ArrayList<>();
+                fusedPackages.add(taskPackage);
+                groups.add(fusedPackages);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Finds the arrays that an element-wise task only accesses at the index of
+     * its loop, so iteration {@code i} only uses element {@code i} of them.
+     *
+     * @return the arrays, compared by identity, or null if the task is not an
+     *         element-wise task.
+     */
+    public static Set<Object> getArraysIndexedByLoop(TaskPackage taskPackage) {
+        final ElementWiseTask task = analyse(taskPackage);
+        if (task == null) {
+            return null;
+        }
+        final Set<Object> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Object, ArrayAccess> entry : task.accesses.entrySet()) {
+            if (entry.getValue().indexedByLoop) {
+                arrays.add(entry.getKey());
+            }
+        }
+        return arrays;
+    }
+
+    private static boolean canFuse(List<ElementWiseTask> group, ElementWiseTask task) {
+        if (task.iterations != group.get(0).iterations) {
+            return false;
+        }
+        for (Map.Entry<Object, ArrayAccess> entry : task.accesses.entrySet()) {
+            final ArrayAccess access = entry.getValue();
+            for (ElementWiseTask member : group) {
+                final ArrayAccess other = member.accesses.get(entry.getKey());
+                if (other != null && (access.written || other.written) && !(access.indexedByLoop && other.indexedByLoop)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static ElementWiseTask analyse(TaskPackage taskPackage) {
+        if (taskPackage.getNumThreadsToRun() != 0) {
+            return null;
+        }
+        final Object[] parameters = taskPackage.getTaskParameters();
+        final Method method = TaskUtils.resolveMethodHandle(parameters[0]);
+        final int modifiers = method.getModifiers();
+        if (!Modifier.isStatic(modifiers) || !Modifier.isPublic(modifiers) || !Modifier.isPublic(method.getDeclaringClass().getModifiers()) || method.getReturnType() != void.class
+                || method.getParameterCount() != taskPackage.getTaskType()) {
+            return null;
+        }
+
+        final Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            final boolean primitiveArray = types[i].isArray() && types[i].getComponentType().isPrimitive();
+            if (parameters[i + 1] == null || !(types[i].isPrimitive() || primitiveArray) || hasReduceAnnotation(method.getParameterAnnotations()[i])) {
+                return null;
+            }
+        }
+
+        final StructuredGraph graph = CodeAnalysis.buildHighLevelGraalGraph(method);
+        if (graph == null || graph.getNodes().filter(LoopBeginNode.class).count() != 1) {
+            return null;
+        }
+        final IntegerLessThanNode condition = CodeAnalysis.getLoopCondition(graph.getNodes().filter(LoopBeginNode.class).first());
+        if (condition == null) {
+            return null;
+        }
+        final PhiNode loopIndex = (PhiNode) condition.getX();
+        if (!isUnitStrideFromZero(loopIndex) || !CodeAnalysis.isParallelLoopIndex(graph, loopIndex)) {
+            return null;
+        }
+
+        final int iterations = evaluateBound(condition.getY(), parameters);
+        if (iterations < 0) {
+            return null;
+        }
+
+        final Map<Object, ArrayAccess> accesses = new IdentityHashMap<>();
+        for (ParameterNode parameter : graph.getNodes(ParameterNode.TYPE)) {
+            if (!types[parameter.index()].isArray()) {
+                continue;
+            }
+            final ArrayAccess access = accesses.computeIfAbsent(parameters[parameter.index() + 1], k -> new ArrayAccess());
+            if (!recordAccesses(parameter, loopIndex, access, Collections.newSetFromMap(new IdentityHashMap<>()))) {
+                return null;
+            }
+        }
+        return new ElementWiseTask(iterations, accesses);
+    }
+
+    private static boolean hasReduceAnnotation(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Reduce) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUnitStrideFromZero(PhiNode phi) {
+        if (phi.valueCount() != 2 || ((ConstantNode) phi.valueAt(0)).asJavaConstant().asInt() != 0 || !(phi.valueAt(1) instanceof AddNode)) {
+            return false;
+        }
+        final AddNode increment = (AddNode) phi.valueAt(1);
+        final ValueNode stride = (increment.getX() == phi) ? increment.getY() : increment.getX();
+        return (increment.getX() == phi || increment.getY() == phi) && stride instanceof ConstantNode && ((ConstantNode) stride).asJavaConstant().asInt() == 1;
+    }
+
+    /**
+     * @return the number of iterations, or -1 if the bound of the loop is not an
+     *         array length, a constant or a parameter of the task.
+     */
+    private static int evaluateBound(ValueNode bound, Object[] parameters) {
+        ValueNode value = bound;
+        if (value instanceof ArrayLengthNode) {
+            value = unwrap(((ArrayLengthNode) value).array());
+            return (value instanceof ParameterNode) ? Array.getLength(parameters[((ParameterNode) value).index() + 1]) : -1;
+        } else if (value instanceof ConstantNode) {
+            return ((ConstantNode) value).asJavaConstant().asInt();
+        } else if (value instanceof ParameterNode && parameters[((ParameterNode) value).index() + 1] instanceof Integer) {
+            return (Integer) parameters[((ParameterNode) value).index() + 1];
+        }
+        return -1;
+    }
+
+    private static ValueNode unwrap(ValueNode value) {
+        ValueNode node = value;
+        while (node instanceof PiNode) {
+            node = ((PiNode) node).object();
+        }
+        return node;
+    }
+
+    /**
+     * Records the loads and stores of the array {@code array}. Any other use of
+     * the array, such as passing it to another method, makes the task not
+     * fusible.
+     */
+    private static boolean recordAccesses(ValueNode array, PhiNode loopIndex, ArrayAccess access, Set<Node> visited) {
+        if (!visited.add(array)) {
+            return true;
+        }
+        for (Node usage : array.usages()) {
+            if (usage instanceof LoadIndexedNode && ((LoadIndexedNode) usage).array() == array) {
+                access.indexedByLoop &= ((LoadIndexedNode) usage).index() == loopIndex;
+            } else if (usage instanceof StoreIndexedNode && ((StoreIndexedNode) usage).array() == array && ((StoreIndexedNode) usage).value() != array) {
+                access.written = true;
+                access.indexedByLoop &= ((StoreIndexedNode) usage).index() == loopIndex;
+            } else if (usage instanceof PiNode || usage instanceof ProxyNode || usage instanceof PhiNode) {
+                if (!recordAccesses((ValueNode) usage, loopIndex, access, visited)) {
+                    return false;
+                }
+            } else if (!(usage instanceof FrameState || usage instanceof ArrayLengthNode || usage instanceof IsNullNode)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.cache;
+
+import java.nio.ByteBuffer;
+
+import uk.ac.manchester.tornado.runtime.domain.Domain;
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
+import uk.ac.manchester.tornado.runtime.domain.IntDomain;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Entry of the {@link PersistentKernelCache}: the binary of a kernel and the
+ * launch configuration that the compiler computed for it.
+ *
+ * <p>
+ * Loading a kernel from the cache skips the compiler phases that set the
+ * launch configuration of the task: the parallel domain found by the shape
+ * analysis, and the domain padding and local work of the local memory tiling.
+ * They are stored with the binary and restored on the task when the kernel is
+ * loaded.
+ * </p>
+ */
+public final class CachedKernel {
+
+    private static final int NO_DOMAIN = -1;
+    private static final int NO_LOCAL_WORK = -1;
+    private static final int MAX_DIMENSIONS = 3;
+
+    private final byte[] binary;
+    private final DomainTree domain;
+    private final long[] localWork;
+
+    public CachedKernel(byte[] binary, DomainTree domain, long[] localWork) {
+        this.binary = binary;
+        this.domain = domain;
+        this.localWork = localWork;
+    }
+
+    /**
+     * Captures the launch configuration of a compiled task.
+     *
+     * @return the entry, or null if the configuration of the task cannot be
+     *         stored.
+     */
+    public static CachedKernel of(byte[] binary, TaskMetaData meta) {
+        if (!meta.hasDomain()) {
+            return new CachedKernel(binary, null, null);
+        }
+        final DomainTree domain = copyOf(meta.getDomain());
+        if (domain == null) {
+            return null;
+        }
+        // The local work is only part of the kernel when the compiler sets it
+        final long[] localWork = (meta.isLocalWorkDefined() && meta.getLocalWork() != null) ? meta.getLocalWork().clone() : null;
+        return new CachedKernel(binary, domain, localWork);
+    }
+
+    /**
+     * @return a copy of {@code domain}, or null if it has domains other than
+     *         {@link IntDomain}.
+     */
+    private static DomainTree copyOf(DomainTree domain) {
+        final DomainTree copy = new DomainTree(domain.getDepth());
+        for (int i = 0; i < domain.getDepth(); i++) {
+            final Domain dimension = domain.get(i);
+            if (!(dimension instanceof IntDomain)) {
+                return null;
+            }
+            final IntDomain intDomain = (IntDomain) dimension;
+            copy.set(i, new IntDomain(intDomain.getOffset(), intDomain.getStep(), intDomain.cardinality()));
+        }
+        return copy;
+    }
+
+    public byte[] getBinary() {
+        return binary;
+    }
+
+    /**
+     * @return the parallel domain of the kernel, or null if it is sequential.
+     */
+    public DomainTree getDomain() {
+        return domain;
+    }
+
+    /**
+     * @return the local work the kernel was compiled for, or null if it is
+     *         selected when the kernel is launched.
+     */
+    public long[] getLocalWork() {
+        return localWork;
+    }
+
+    /**
+     * Sets the launch configuration of the kernel on the task that loads it.
+     */
+    public void restore(TaskMetaData meta) {
+        if (domain != null) {
+            meta.setDomain(copyOf(domain));
+        }
+        if (localWork != null) {
+            meta.setLocalWork(localWork.clone());
+        }
+    }
+
+    int getEncodedSize() {
+        final int domainSize = Integer.BYTES + ((domain != null) ? domain.getDepth() * 3 * Integer.BYTES : 0);
+        final int localWorkSize = Integer.BYTES + ((localWork != null) ? localWork.length * Long.BYTES : 0);
+        return domainSize + localWorkSize + Integer.BYTES + binary.length;
+    }
+
+    void encode(ByteBuffer buffer) {
+        if (domain == null) {
+            buffer.putInt(NO_DOMAIN);
+        } else {
+            buffer.putInt(domain.getDepth());
+            for (int i = 0; i < domain.getDepth(); i++) {
+                final IntDomain dimension = (IntDomain) domain.get(i);
+                buffer.putInt(dimension.getOffset());
+                buffer.putInt(dimension.getStep());
+                buffer.putInt(dimension.cardinality());
+            }
+        }
+        if (localWork == null) {
+            buffer.putInt(NO_LOCAL_WORK);
+        } else {
+            buffer.putInt(localWork.length);
+            for (long value : localWork) {
+                buffer.putLong(value);
+            }
+        }
+        buffer.putInt(binary.length);
+        buffer.put(binary);
+    }
+
+    /**
+     * @return the entry, or null if the buffer does not hold a valid entry.
+     */
+    static CachedKernel decode(ByteBuffer buffer) {
+        final int depth = buffer.getInt();
+        DomainTree domain = null;
+        if (depth != NO_DOMAIN) {
+            if (depth < 0 || depth > MAX_DIMENSIONS || buffer.remaining() < depth * 3 * Integer.BYTES) {
+                return null;
+            }
+            domain = new DomainTree(depth);
+            for (int i = 0; i < depth; i++) {
+                domain.set(i, new IntDomain(buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+        }
+        final int dimensions = buffer.getInt();
+        long[] localWork = null;
+        if (dimensions != NO_LOCAL_WORK) {
+            if (dimensions < 0 || dimensions > MAX_DIMENSIONS || buffer.remaining() < dimensions * Long.BYTES) {
+                return null;
+            }
+            localWork = new long[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                localWork[i] = buffer.getLong();
+            }
+        }
+        final int length = buffer.getInt();
+        if (length != buffer.remaining()) {
+            return null;
+        }
+        final byte[] binary = new byte[length];
+        buffer.get(binary);
+        return new CachedKernel(binary, domain, localWork);
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.cache;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.graalvm.compiler.graph.Graph;
+import org.graalvm.compiler.nodes.StructuredGraph;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.collections.arrays.OffHeapArray;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+import uk.ac.manchester.tornado.runtime.tasks.CompilableTask;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Content-addressed key of a compiled kernel. The key is a SHA-256 digest of
+ * everything that can change the code generated for a task:
+ *
+ * <ul>
+ * <li>the bytecode of the task method, of the methods inlined into its sketch,
+ * and the class file that declares the task;</li>
+ * <li>the inputs used to specialise the kernel: scalar argument values, array
+ * lengths and the primitive fields of argument objects, the batch size and the
+ * compilation flags of the {@link TaskMetaData};</li>
+ * <li>the TornadoVM options ({@code tornado.*}) and the options of the
+ * schedule and task;</li>
+ * <li>the device, platform and driver versions given by the backend;</li>
+ * <li>the digest of the jar files of the TornadoVM runtime and of the backend,
+ * which changes with the version and with every build.</li>
+ * </ul>
+ *
+ * <p>
+ * The key fails closed: if any of these inputs cannot be read, there is no key
+ * and the kernel is compiled without the cache.
+ * </p>
+ */
+public final class KernelCacheKey {
+
+    /**
+     * Bump when the layout of the key or the compiler changes in a way that is not
+     * visible from the inputs above.
+     */
+    private static final int KEY_VERSION = 1;
+
+    private static final String CACHE_PROPERTIES_PREFIX = "tornado.kernel.cache.";
+    private static final int MAX_OBJECT_DEPTH = 4;
+
+    /**
+     * Digests of the jar files, indexed by path. Jar files do not change while
+     * the JVM runs, so each one is only read once.
+     */
+    private static final Map<Path, String> JAR_DIGESTS = new ConcurrentHashMap<>();
+
+    private final MessageDigest digest;
+
+    private KernelCacheKey() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new TornadoRuntimeException(e);
+        }
+    }
+
+    /**
+     * Computes the key of a task compiled for the device described by
+     * {@code deviceFingerprint}.
+     *
+     * @param backendClass
+     *            a class of the backend that compiles the task.
+     * @return the key, or null if the kernel must not be cached.
+     */
+    public static String compute(String deviceFingerprint, Class<?> backendClass, CompilableTask task, ResolvedJavaMethod method, Sketch sketch) {
+        final KernelCacheKey key = new KernelCacheKey();
+        key.add("version", KEY_VERSION);
+        key.add("device", deviceFingerprint);
+        try {
+            key.add("tornado", digestJar(KernelCacheKey.class));
+            key.add("backend", digestJar(backendClass));
+        } catch (IOException e) {
+            debug("kernel cache disabled for %s: %s", task.getId(), e.getMessage());
+            return null;
+        }
+
+        key.addMethod(method);
+        final Graph graph = sketch.getGraph().getReadonlyCopy();
+        if (graph instanceof StructuredGraph) {
+            final List<ResolvedJavaMethod> inlined = ((StructuredGraph) graph).getMethods();
+            if (inlined != null) {
+                for (ResolvedJavaMethod inlinedMethod : inlined) {
+                    key.addMethod(inlinedMethod);
+                }
+            }
+        }
+        key.addClassFile(task.getMethod().getDeclaringClass());
+
+        final TaskMetaData meta = task.meta();
+        key.add("batch", task.getBatchThreads());
+        key.add("threads", meta.getNumThreads());
+        key.add("grid", meta.isGridSchedulerEnabled());
+        key.add("flags", meta.getCompilerFlags());
+        key.add("coarsener", meta.enableThreadCoarsener());
+        key.add("vectors", meta.enableVectors());
+        key.add("parallel", meta.enableParallelization());
+        key.add("bifs", meta.enableOpenCLBifs());
+        try {
+            key.addArguments(task.getArguments());
+        } catch (IllegalAccessException | RuntimeException e) {
+            // The fields we cannot read could change the generated code
+            debug("kernel cache disabled for %s: unable to inspect the arguments: %s", task.getId(), e);
+            return null;
+        }
+        key.addProperties(meta.getId());
+
+        return key.toHex();
+    }
+
+    private void add(String name, Object value) {
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '=');
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ';');
+    }
+
+    private void addMethod(ResolvedJavaMethod method) {
+        add("method", method.format("%H.%n(%P)%R"));
+        final byte[] code = method.getCode();
+        if (code != null) {
+            digest.update(code);
+        }
+    }
+
+    private void addClassFile(Class<?> klass) {
+        final String name = klass.getName();
+        final String resource = name.substring(name.lastIndexOf('.') + 1) + ".class";
+        try (InputStream stream = klass.getResourceAsStream(resource)) {
+            if (stream != null) {
+                add("class", name);
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        } catch (IOException e) {
+            // The bytecode of the task method is still part of the key
+        }
+    }
+
+    /**
+     * @return the SHA-256 digest of the jar file that contains {@code klass}.
+     */
+    static String digestJar(Class<?> klass) throws IOException {
+        final CodeSource codeSource = klass.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            throw new IOException("unknown location of " + klass.getName());
+        }
+        final Path jar;
+        try {
+            jar = Paths.get(codeSource.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new IOException("unknown location of " + klass.getName(), e);
+        }
+        if (!Files.isRegularFile(jar)) {
+            throw new IOException(klass.getName() + " is not loaded from a jar file: " + jar);
+        }
+
+        String jarDigest = JAR_DIGESTS.get(jar);
+        if (jarDigest == null) {
+            final KernelCacheKey key = new KernelCacheKey();
+            try (InputStream stream = new DigestInputStream(Files.newInputStream(jar), key.digest)) {
+                final byte[] buffer = new byte[8192];
+                while (stream.read(buffer) != -1) {
+                    // The digest is updated as the file is read
+                }
+            }
+            jarDigest = key.toHex();
+            JAR_DIGESTS.put(jar, jarDigest);
+        }
+        return jarDigest;
+    }
+
+    private void addArguments(Object[] arguments) throws IllegalAccessException {
+        for (int i = 0; i < arguments.length; i++) {
+            add("arg", i);
+            addValue(arguments[i], 0, new IdentityHashMap<>());
+        }
+    }
+
+    /**
+     * Adds the parts of an argument that the task specialisation folds into the
+     * kernel: the value of scalars, the length of arrays and the fields of
+     * objects, following final references up to {@link #MAX_OBJECT_DEPTH}.
+     */
+    private void addValue(Object value, int depth, Map<Object, Boolean> visited) throws IllegalAccessException {
+        if (value == null) {
+            add("value", "null");
+            return;
+        }
+        final Class<?> klass = value.getClass();
+        add("type", klass.getName());
+        if (RuntimeUtilities.isBoxedPrimitiveClass(klass)) {
+            add("value", value);
+        } else if (klass.isArray()) {
+            add("length", Array.getLength(value));
+        } else if (value instanceof OffHeapArray) {
+            add("length", ((OffHeapArray) value).getSize());
+        } else if (depth < MAX_OBJECT_DEPTH && visited.put(value, Boolean.TRUE) == null) {
+            for (Class<?> type = klass; type != null && type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        addField(value, field, depth, visited);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addField(Object object, Field field, int depth, Map<Object, Boolean> visited) throws IllegalAccessException {
+        add("field", field.getName());
+        field.setAccessible(true);
+        final Object fieldValue = field.get(object);
+        if (field.getType().isPrimitive() || Modifier.isFinal(field.getModifiers())) {
+            addValue(fieldValue, depth + 1, visited);
+        } else if (fieldValue != null && fieldValue.getClass().isArray()) {
+            add("length", Array.getLength(fieldValue));
+        }
+    }
+
+    private void addProperties(String taskId) {
+        final String scheduleId = taskId.contains(".") ? taskId.substring(0, taskId.indexOf('.')) : taskId;
+        final TreeMap<String, String> properties = new TreeMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            final boolean tornadoOption = name.startsWith("tornado.") && !name.startsWith(CACHE_PROPERTIES_PREFIX);
+            if (tornadoOption || name.startsWith(taskId + ".") || name.startsWith(scheduleId + ".")) {
+                properties.put(name, System.getProperty(name));
+            }
+        }
+        properties.forEach(this::add);
+    }
+
+    private String toHex() {
+        final StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.cache;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+
+/**
+ * On-disk cache of compiled kernels shared by all the JVMs that use the same
+ * directory. Entries are addressed by a {@link KernelCacheKey}, so they stay
+ * valid across runs and are never reused for different code, options or
+ * devices. Each entry holds the binary of a kernel and its launch
+ * configuration, see {@link CachedKernel}.
+ *
+ * <p>
+ * Each entry is written to a temporary file and atomically renamed, so readers
+ * in other processes never observe partial entries. The last access time of an
+ * entry is kept in its modification time, and the least recently used entries
+ * are removed when the directory grows beyond
+ * {@link TornadoOptions#KERNEL_CACHE_MAX_SIZE} bytes.
+ * </p>
+ */
+public class PersistentKernelCache {
+
+    private static final String ENTRY_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x544B4332; // "TKC2"
+    private static final int HEADER_SIZE = 16;
+
+    private static PersistentKernelCache instance;
+
+    private final Path directory;
+    private final long maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    public PersistentKernelCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    public static boolean isEnabled() {
+        return TornadoOptions.KERNEL_CACHE;
+    }
+
+    public static synchronized PersistentKernelCache getInstance() {
+        if (instance == null) {
+            instance = new PersistentKernelCache(Paths.get(TornadoOptions.KERNEL_CACHE_DIR), TornadoOptions.KERNEL_CACHE_MAX_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the kernel stored for {@code key}, or null if there is no valid
+     * entry.
+     */
+    public CachedKernel lookup(String key) {
+        final Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        try {
+            final byte[] contents = Files.readAllBytes(entry);
+            final CachedKernel kernel = decode(contents);
+            if (kernel == null) {
+                warn("discarding corrupted kernel cache entry %s", entry);
+                Files.deleteIfExists(entry);
+                misses.incrementAndGet();
+                return null;
+            }
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            debug("kernel cache hit: %s (%d bytes)", key, kernel.getBinary().length);
+            return kernel;
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException e) {
+            warn("unable to read kernel cache entry %s: %s", entry, e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores {@code kernel} under {@code key} and evicts the least recently used
+     * entries if the cache exceeds its size.
+     */
+    public void store(String key, CachedKernel kernel) {
+        final Path entry = directory.resolve(key + ENTRY_SUFFIX);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+            Files.write(temp, encode(kernel));
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+            debug("kernel cache store: %s (%d bytes)", key, kernel.getBinary().length);
+            evict();
+        } catch (IOException e) {
+            warn("unable to store kernel cache entry %s: %s", entry, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing else to clean up
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Path path;
+        private final long size;
+        private final long lastAccess;
+
+        Entry(Path path, long size, long lastAccess) {
+            this.path = path;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits in its size.
+     * Other processes may be evicting at the same time, so entries that are
+     * already gone are skipped.
+     */
+    void evict() throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        long totalSize = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path path : stream) {
+                try {
+                    final long size = Files.size(path);
+                    entries.add(new Entry(path, size, Files.getLastModifiedTime(path).toMillis()));
+                    totalSize += size;
+                } catch (NoSuchFileException e) {
+                    // Evicted by another process
+                }
+            }
+        }
+        if (totalSize <= maxSize) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong(e -> e.lastAccess));
+        for (Entry entry : entries) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            if (Files.deleteIfExists(entry.path)) {
+                debug("kernel cache evict: %s (%d bytes)", entry.path.getFileName(), entry.size);
+            }
+            totalSize -= entry.size;
+        }
+    }
+
+    private static byte[] encode(CachedKernel kernel) {
+        final int size = kernel.getEncodedSize();
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size);
+        buffer.position(HEADER_SIZE);
+        kernel.encode(buffer);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, size);
+        buffer.putLong(8, checksum(buffer.array(), HEADER_SIZE, size));
+        return buffer.array();
+    }
+
+    private static CachedKernel decode(byte[] contents) {
+        if (contents.length < HEADER_SIZE) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(contents);
+        final int size = contents.length - HEADER_SIZE;
+        if (buffer.getInt() != MAGIC || buffer.getInt() != size || buffer.getLong() != checksum(contents, HEADER_SIZE, size)) {
+            return null;
+        }
+        try {
+            return CachedKernel.decode(buffer);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(byte[] contents, int offset, int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(contents, offset, length);
+        return crc.getValue();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
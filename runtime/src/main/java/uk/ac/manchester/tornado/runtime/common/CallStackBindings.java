@@ -0,0 +1,89 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.common;
+
+import java.util.Arrays;
+
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+
+/**
+ * Device buffers of the objects pushed on a {@link CallStack}. A call stack is
+ * only pushed in the first launch of a task, but the buffer of an object can be
+ * released and allocated again somewhere else afterwards: when the device
+ * memory of a task-schedule is freed, when the object is evicted, or when the
+ * buffer is resized for a batch. Before every launch the bindings are compared
+ * with the current buffers of the objects, and the call stack is pushed again
+ * if any of them has moved.
+ */
+public final class CallStackBindings {
+
+    private final DeviceObjectState[] states;
+    private final long[] buffers;
+    private final long[] offsets;
+    private final long[] generations;
+    private int count;
+
+    public CallStackBindings(int numArgs) {
+        this.states = new DeviceObjectState[numArgs];
+        this.buffers = new long[numArgs];
+        this.offsets = new long[numArgs];
+        this.generations = new long[numArgs];
+        this.count = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(states, 0, count, null);
+        count = 0;
+    }
+
+    /**
+     * Records the buffer of an object as it is pushed on the call stack.
+     */
+    public void record(DeviceObjectState state) {
+        final ObjectBuffer buffer = state.getBuffer();
+        states[count] = state;
+        buffers[count] = buffer.toBuffer();
+        offsets[count] = buffer.toRelativeAddress();
+        generations[count] = state.getGeneration();
+        count++;
+    }
+
+    /**
+     * @return true if the buffer of any recorded object has been released or
+     *         replaced, or now lives in another buffer or at another offset.
+     */
+    public boolean isStale() {
+        for (int i = 0; i < count; i++) {
+            final DeviceObjectState state = states[i];
+            if (!state.isValid() || !state.hasBuffer() || state.getGeneration() != generations[i]) {
+                return true;
+            }
+            final ObjectBuffer buffer = state.getBuffer();
+            if (buffer.toBuffer() != buffers[i] || buffer.toRelativeAddress() != offsets[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
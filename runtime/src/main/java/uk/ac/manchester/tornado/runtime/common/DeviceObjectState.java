@@ -39,19 +39,43 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
     private ObjectBuffer buffer;
     private boolean atomicRegionPresent;
 
+    /**
+     * Host version and checksum of the data last copied into the buffer. They
+     * are used to skip stream-in transfers of unchanged objects.
+     */
+    private long hostVersion;
+    private long hostChecksum;
+
+    /**
+     * Execution context of the task-schedule that last wrote the buffer, with a
+     * transfer or a kernel, and the host version at that point. Used to share the
+     * buffer with other task-schedules.
+     */
+    private Object producer;
+    private long producerHostVersion;
+
+    /**
+     * Incremented every time the buffer is replaced or released, so call stacks
+     * that hold its address can tell it is no longer valid.
+     */
+    private long generation;
+
     public DeviceObjectState() {
         valid = false;
         modified = false;
         contents = false;
         buffer = null;
+        hostVersion = -1;
     }
 
     public void setBuffer(ObjectBuffer value) {
         buffer = value;
+        generation++;
     }
 
     public void setAtomicRegion(ObjectBuffer buffer) {
         this.buffer = buffer;
+        generation++;
         atomicRegionPresent = true;
     }
 
@@ -76,8 +100,22 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
         return modified;
     }
 
+    /**
+     * Marks the object as not present on the device and returns its buffer space
+     * to the device heap. The buffer is kept, so the next allocation on this
+     * device re-uses the same wrapper and copies the contents again.
+     */
     public void invalidate() {
         valid = false;
+        if (buffer != null) {
+            buffer.deallocate();
+            contents = false;
+            generation++;
+        }
+    }
+
+    public long getGeneration() {
+        return generation;
     }
 
     public boolean hasContents() {
@@ -119,6 +157,38 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
         return buffer.toRelativeAddress();
     }
 
+    public long getHostVersion() {
+        return hostVersion;
+    }
+
+    public long getHostChecksum() {
+        return hostChecksum;
+    }
+
+    /**
+     * Records the host data that has been copied into the buffer.
+     */
+    public void setHostSnapshot(long version, long checksum) {
+        hostVersion = version;
+        hostChecksum = checksum;
+    }
+
+    public Object getProducer() {
+        return producer;
+    }
+
+    public long getProducerHostVersion() {
+        return producerHostVersion;
+    }
+
+    /**
+     * Records the task-schedule that has written the buffer.
+     */
+    public void setProducer(Object context, long version) {
+        producer = context;
+        producerHostVersion = version;
+    }
+
     @Override
     public void setAtomicRegion() {
         this.atomicRegionPresent = true;
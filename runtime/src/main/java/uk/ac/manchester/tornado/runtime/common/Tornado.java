@@ -71,6 +71,12 @@ public final class Tornado implements TornadoCI {
      */
     public static final int OPENCL_BACKEND_PRIORITY = Integer.parseInt(Tornado.getProperty("tornado.opencl.priority", "1"));
 
+    /**
+     * Priority of the Java Backend, which runs tasks on the host CPU. The higher
+     * the number, the more priority over the rest of the backends.
+     */
+    public static final int JAVA_BACKEND_PRIORITY = Integer.parseInt(Tornado.getProperty("tornado.java.priority", "0"));
+
     public static final boolean VALIDATE_ARRAY_HEADERS = Boolean.parseBoolean(settings.getProperty("tornado.opencl.array.validate", "False"));
     public static final boolean TORNADO_LOOPS_REVERSE = Boolean.parseBoolean(settings.getProperty("tornado.loops.reverse", "True"));
     public static final boolean MARKER_USE_BARRIER = Boolean.parseBoolean(settings.getProperty("tornado.opencl.marker.asbarrier", "False"));
@@ -87,6 +93,14 @@ public final class Tornado implements TornadoCI {
     public static final boolean ENABLE_OOO_EXECUTION = Boolean.parseBoolean(settings.getProperty("tornado.ooo-execution.enable", "False"));
     public static final boolean VM_USE_DEPS = Boolean.parseBoolean(Tornado.getProperty("tornado.vm.deps", "False"));
 
+    /**
+     * Uses separate command queues for host-to-device copies, kernels and
+     * device-to-host copies on each OpenCL device. Commands in different queues
+     * are ordered through the events of the TornadoVM, so it implies
+     * {@code tornado.vm.deps}.
+     */
+    public static final boolean OPENCL_MULTIPLE_QUEUES = Boolean.parseBoolean(settings.getProperty("tornado.opencl.multiqueue.enable", "False"));
+
     public static final int UNROLL_FACTOR = Integer.parseInt(getProperty("tornado.unroll.factor", "2"));
 
     public static boolean FORCE_BLOCKING_API_CALLS = false;
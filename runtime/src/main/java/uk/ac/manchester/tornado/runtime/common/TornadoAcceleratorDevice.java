@@ -62,5 +62,17 @@ public interface TornadoAcceleratorDevice extends TornadoDevice {
      */
     void enableThreadSharing();
 
+    /**
+     * Uses separate queues for data transfers and kernels, if the device supports
+     * them, so transfers can overlap with kernels that do not depend on them.
+     */
+    void enableCopyQueues();
+
+    /**
+     * Whether data transfers and kernels are submitted to different queues, see
+     * {@link #enableCopyQueues()}.
+     */
+    boolean hasCopyQueues();
+
     void setAtomicRegion(ObjectBuffer bufferAtomics);
 }
@@ -47,6 +47,16 @@ public class TornadoOptions {
      */
     public static final boolean EXPERIMENTAL_REDUCE = getBooleanValue("tornado.experimental.reduce", "True");
 
+    /**
+     * Option to finalise the reductions on GPUs and FPGAs in a single kernel. The
+     * last work-group to finish, detected with an atomic counter, combines the
+     * partial results of all the work-groups, so only the final value is copied
+     * back to the host.
+     * <p>
+     * Use `-Dtornado.reduce.singlepass=True`.
+     */
+    public static final boolean REDUCE_SINGLE_PASS = getBooleanValue("tornado.reduce.singlepass", "False");
+
     /**
      * Option to load FPGA pre-compiled binaries.
      */
@@ -113,6 +123,27 @@ public class TornadoOptions {
      */
     public static final int OPENCL_ARRAY_ALIGNMENT = Integer.parseInt(getProperty("tornado.opencl.array.align", "128"));
 
+    /**
+     * Places the heap of OpenCL devices that share memory with the host
+     * (CL_DEVICE_HOST_UNIFIED_MEMORY) in host memory, so off-heap arrays are
+     * accessed by the device without copies. Default is False.
+     */
+    public static final boolean OPENCL_ZERO_COPY = getBooleanValue("tornado.opencl.zerocopy", "False");
+
+    /**
+     * Handles every off-heap array of a zero-copy heap as if the driver mapped
+     * the heap somewhere other than the host memory, so the arrays keep using
+     * copies. Used to test the fallback of drivers that do. Default is False.
+     */
+    public static final boolean OPENCL_ZERO_COPY_FALLBACK = getBooleanValue("tornado.opencl.zerocopy.fallback", "False");
+
+    /**
+     * Allocates a separate OpenCL buffer for every object instead of carving the
+     * objects out of the device heap, and passes the buffers to the kernels as
+     * arguments. The heap only keeps the call stacks. Default is False.
+     */
+    public static final boolean OPENCL_PER_OBJECT_BUFFERS = getBooleanValue("tornado.opencl.buffers.perobject", "False");
+
     /**
      * Enables OpenCL code generation based on a virtual device. Default is False.
      */
@@ -172,6 +203,125 @@ public class TornadoOptions {
         return Boolean.parseBoolean(Tornado.getProperty(property, defaultValue));
     }
 
+    /**
+     * Evict the least recently used objects from the device heap when it runs out
+     * of memory, instead of failing. False by default.
+     * <p>
+     * Use `-Dtornado.heap.eviction=True`.
+     */
+    public static final boolean HEAP_EVICTION = getBooleanValue("tornado.heap.eviction", "False");
+
+    /**
+     * Stores the binaries of compiled kernels on disk and reuses them in later
+     * runs, skipping the Graal and driver compilations. False by default.
+     * <p>
+     * Use `-Dtornado.kernel.cache.enable=True`.
+     */
+    public static final boolean KERNEL_CACHE = getBooleanValue("tornado.kernel.cache.enable", "False");
+
+    /**
+     * Directory of the persistent kernel cache. It can be shared by several JVMs.
+     */
+    public static final String KERNEL_CACHE_DIR = getProperty("tornado.kernel.cache.dir", System.getProperty("user.home") + "/.tornadovm/kernel-cache");
+
+    /**
+     * Maximum size in bytes of the persistent kernel cache. The least recently
+     * used kernels are removed when it is exceeded. Default is 512MB.
+     */
+    public static final long KERNEL_CACHE_MAX_SIZE = Long.parseLong(getProperty("tornado.kernel.cache.size", "536870912"));
+
+    /**
+     * Selects the device of the dynamic reconfiguration with a performance model
+     * trained with the previous executions, instead of profiling every device.
+     * The devices are still profiled while the model is not confident. False by
+     * default.
+     * <p>
+     * Use `-Dtornado.dynamic.predictor=True`.
+     */
+    public static final boolean DYNAMIC_PREDICTOR = getBooleanValue("tornado.dynamic.predictor", "False");
+
+    /**
+     * File where the performance model of the dynamic reconfiguration is kept
+     * across runs.
+     */
+    public static final String DYNAMIC_PREDICTOR_FILE = getProperty("tornado.dynamic.predictor.file", System.getProperty("user.home") + "/.tornadovm/device-model.properties");
+
+    /**
+     * Minimum number of measured executions of a device before its predictions
+     * are used.
+     */
+    public static final int DYNAMIC_PREDICTOR_SAMPLES = Integer.parseInt(getProperty("tornado.dynamic.predictor.samples", "10"));
+
+    /**
+     * Maximum average prediction error, as the absolute difference of the
+     * logarithms of the predicted and measured times, for a device to be
+     * selected without profiling. The default, 0.4, is about a 1.5x error.
+     */
+    public static final double DYNAMIC_PREDICTOR_ERROR = Double.parseDouble(getProperty("tornado.dynamic.predictor.error", "0.4"));
+
+    /**
+     * Tunes the local work size of the kernels launched by the OpenCL GPU
+     * scheduler: the first executions of each kernel try several local sizes and
+     * the fastest one is used from then on. False by default.
+     * <p>
+     * Use `-Dtornado.opencl.autotune=True`.
+     */
+    public static final boolean OPENCL_AUTOTUNE = getBooleanValue("tornado.opencl.autotune", "False");
+
+    /**
+     * File where the tuned local work sizes are kept across runs.
+     */
+    public static final String OPENCL_AUTOTUNE_FILE = getProperty("tornado.opencl.autotune.file", System.getProperty("user.home") + "/.tornadovm/opencl-local-work.properties");
+
+    /**
+     * Number of executions of each candidate local work size while tuning. The
+     * fastest execution of each candidate is kept.
+     */
+    public static final int OPENCL_AUTOTUNE_SAMPLES = Integer.parseInt(getProperty("tornado.opencl.autotune.samples", "3"));
+
+    /**
+     * Number of iterations of the first parallel loop executed by each thread on
+     * CPUs when the thread coarsener ({@code <task>.coarsener=True}) is enabled
+     * and the task does not set {@code <task>.coarseness}. Default is 16.
+     */
+    public static final int COARSENER_CPU_FACTOR = Integer.parseInt(getProperty("tornado.coarsener.cpu.factor", "16"));
+
+    /**
+     * Number of iterations of the first parallel loop executed by each thread on
+     * GPUs and other accelerators when the thread coarsener is enabled and the
+     * task does not set {@code <task>.coarseness}. Default is 4.
+     */
+    public static final int COARSENER_GPU_FACTOR = Integer.parseInt(getProperty("tornado.coarsener.gpu.factor", "4"));
+
+    /**
+     * Widens the unit-stride parallel loops over {@code int}, {@code float} and
+     * {@code double} arrays into loops over OpenCL vectors. The remaining
+     * iterations are executed by a scalar copy of the loop. False by default.
+     * <p>
+     * Use `-Dtornado.experimental.vectorize=True`.
+     */
+    public static final boolean VECTORIZE = getBooleanValue("tornado.experimental.vectorize", "False");
+
+    /**
+     * Number of elements processed by each iteration of the vectorised loops: 4,
+     * 8 or 16. Default is 4.
+     */
+    public static final int VECTORIZE_WIDTH = Integer.parseInt(getProperty("tornado.experimental.vectorize.width", "4"));
+
+    /**
+     * Stages the neighbouring elements read by 2D stencils and by GEMM-style
+     * loop nests in tiles of OpenCL local memory. False by default.
+     * <p>
+     * Use `-Dtornado.experimental.tiling=True`.
+     */
+    public static final boolean LOCAL_MEMORY_TILING = getBooleanValue("tornado.experimental.tiling", "False");
+
+    /**
+     * Side of the square work-groups and of the local memory tiles: a power of
+     * two. The default, 0, selects it from the limits of the device.
+     */
+    public static final int LOCAL_MEMORY_TILE_SIZE = Integer.parseInt(getProperty("tornado.experimental.tiling.size", "0"));
+
     /**
      * Full Inlining Policy with the TornadoVM JIT compiler
      */
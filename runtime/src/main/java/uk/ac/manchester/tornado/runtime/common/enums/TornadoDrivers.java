@@ -24,6 +24,7 @@
 
 package uk.ac.manchester.tornado.runtime.common.enums;
 
+import static uk.ac.manchester.tornado.runtime.common.Tornado.JAVA_BACKEND_PRIORITY;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.OPENCL_BACKEND_PRIORITY;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.PTX_BACKEND_PRIORITY;
 
@@ -36,7 +37,8 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.PTX_BACKEND_PRIORI
 public enum TornadoDrivers {
 
     PTX(PTX_BACKEND_PRIORITY, "implemented"), //
-    OpenCL(OPENCL_BACKEND_PRIORITY, "implemented"); //
+    OpenCL(OPENCL_BACKEND_PRIORITY, "implemented"), //
+    Java(JAVA_BACKEND_PRIORITY, "implemented"); //
 
     private final int priority;
     private final String status;
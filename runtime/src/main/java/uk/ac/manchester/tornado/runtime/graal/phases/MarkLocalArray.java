@@ -31,4 +31,12 @@ package uk.ac.manchester.tornado.runtime.graal.phases;
  * scope of opencl-driver package
  */
 public interface MarkLocalArray {
+
+    /**
+     * Local arrays sized by the compiler keep their length, instead of being
+     * resized by {@link TornadoLocalMemoryAllocation}.
+     */
+    default boolean hasFixedLength() {
+        return false;
+    }
 }
@@ -27,6 +27,7 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.TORNADO_LOOPS_REVE
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +39,7 @@ import org.graalvm.compiler.loop.LoopEx;
 import org.graalvm.compiler.loop.LoopsData;
 import org.graalvm.compiler.nodes.ConstantNode;
 import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.PhiNode;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.ValueNode;
 import org.graalvm.compiler.nodes.ValuePhiNode;
@@ -113,13 +115,37 @@ public class TornadoApiReplacement extends BasePhase<TornadoSketchTierContext> {
         if (graph.hasLoops()) {
             final LoopsData data = new LoopsData(graph);
             data.detectedCountedLoops();
-            int loopIndex = 0;
-            final List<LoopEx> loops = data.outerFirst();
+
+            /*
+             * The index of a parallel loop is given by the number of parallel loops that
+             * enclose it, so sibling loops (e.g. the loops of tasks fused in a single
+             * kernel) are mapped to the same dimension of the iteration space.
+             */
+            final Map<LoopEx, Integer> depths = new HashMap<>();
+            final Map<LoopEx, LoopEx> nests = new HashMap<>();
+            final Map<LoopEx, Integer> nestDepths = new HashMap<>();
+            final List<LoopEx> parallelLoops = new ArrayList<>();
+            for (LoopEx loop : data.outerFirst()) {
+                if (!isParallelLoop(loop, parallelNodes)) {
+                    continue;
+                }
+                LoopEx outer = loop.parent();
+                while (outer != null && !depths.containsKey(outer)) {
+                    outer = outer.parent();
+                }
+                final int depth = (outer == null) ? 0 : depths.get(outer) + 1;
+                final LoopEx nest = (outer == null) ? loop : nests.get(outer);
+                depths.put(loop, depth);
+                nests.put(loop, nest);
+                nestDepths.merge(nest, depth + 1, Math::max);
+                parallelLoops.add(loop);
+            }
             if (TORNADO_LOOPS_REVERSE) {
-                Collections.reverse(loops);
+                Collections.reverse(parallelLoops);
             }
 
-            for (LoopEx loop : loops) {
+            for (LoopEx loop : parallelLoops) {
+                final int loopIndex = TORNADO_LOOPS_REVERSE ? nestDepths.get(nests.get(loop)) - 1 - depths.get(loop) : depths.get(loop);
                 for (InductionVariable iv : loop.getInductionVariables().getValues()) {
                     if (!parallelNodes.containsKey(iv.valueNode())) {
                         continue;
@@ -132,13 +158,28 @@ public class TornadoApiReplacement extends BasePhase<TornadoSketchTierContext> {
                     maxIterations = lessThan.getY();
 
                     parallelizationReplacement(graph, iv, loopIndex, maxIterations, conditions);
-
-                    loopIndex++;
                 }
             }
         }
     }
 
+    private static boolean isParallelLoop(LoopEx loop, Map<Node, ParallelAnnotationProvider> parallelNodes) {
+        for (PhiNode phi : loop.loopBegin().phis()) {
+            if (parallelNodes.containsKey(phi)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the {@code @Parallel} annotations of the local variables of
+     * {@code method}.
+     */
+    public static ParallelAnnotationProvider[] getParallelAnnotations(ResolvedJavaMethod method) {
+        return asmClassVisitorProvider.getParallelAnnotations(method);
+    }
+
     private void parallelizationReplacement(StructuredGraph graph, InductionVariable inductionVar, int loopIndex, ValueNode maxIterations, List<IntegerLessThanNode> conditions)
             throws TornadoCompilationException {
         if (inductionVar.isConstantInit() && inductionVar.isConstantStride()) {
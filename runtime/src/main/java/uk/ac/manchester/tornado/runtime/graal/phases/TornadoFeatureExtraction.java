@@ -53,6 +53,8 @@ import org.graalvm.compiler.nodes.calc.UnaryArithmeticNode;
 import org.graalvm.compiler.nodes.calc.UnsignedRightShiftNode;
 import org.graalvm.compiler.nodes.calc.XorNode;
 import org.graalvm.compiler.nodes.extended.IntegerSwitchNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
 import org.graalvm.compiler.nodes.memory.FloatingReadNode;
 import org.graalvm.compiler.nodes.memory.ReadNode;
 import org.graalvm.compiler.nodes.memory.WriteNode;
@@ -74,12 +76,20 @@ public class TornadoFeatureExtraction extends Phase {
     protected void run(StructuredGraph graph) {
         LinkedHashMap<ProfilerCodeFeatures, Integer> IRFeatures;
 
-        IRFeatures = extractFeatures(graph, FeatureExtractionUtilities.initializeFeatureMap());
+        IRFeatures = extractFeatures(graph);
 
         FeatureExtractionUtilities.emitFeatureProfileJsonFile(IRFeatures, graph, tornadoDeviceContext);
     }
 
-    private LinkedHashMap<ProfilerCodeFeatures, Integer> extractFeatures(StructuredGraph graph, LinkedHashMap<ProfilerCodeFeatures, Integer> initMap) {
+    /**
+     * Extracts the features of a graph at any tier. In high-tier graphs, indexed
+     * array accesses are counted as global memory accesses.
+     */
+    public static LinkedHashMap<ProfilerCodeFeatures, Integer> extractFeatures(StructuredGraph graph) {
+        return extractFeatures(graph, FeatureExtractionUtilities.initializeFeatureMap());
+    }
+
+    private static LinkedHashMap<ProfilerCodeFeatures, Integer> extractFeatures(StructuredGraph graph, LinkedHashMap<ProfilerCodeFeatures, Integer> initMap) {
         LinkedHashMap<ProfilerCodeFeatures, Integer> irFeatures = initMap;
         for (Node node : graph.getNodes().snapshot()) {
             if (node instanceof MulNode || node instanceof AddNode || node instanceof SubNode //
@@ -91,6 +101,10 @@ public class TornadoFeatureExtraction extends Phase {
                 updateMemoryAccesses(irFeatures, node, false);
             } else if (node instanceof FloatingReadNode || node instanceof ReadNode) {
                 updateMemoryAccesses(irFeatures, node, true);
+            } else if (node instanceof LoadIndexedNode) {
+                updateCounter(irFeatures, ProfilerCodeFeatures.GLOBAL_LOADS);
+            } else if (node instanceof StoreIndexedNode) {
+                updateCounter(irFeatures, ProfilerCodeFeatures.GLOBAL_STORES);
             } else if (node instanceof LoopBeginNode) {
                 updateCounter(irFeatures, ProfilerCodeFeatures.LOOPS);
             } else if (node instanceof IfNode) {
@@ -125,15 +139,15 @@ public class TornadoFeatureExtraction extends Phase {
         return irFeatures;
     }
 
-    private JavaKind getPrimitiveType(Node inputNode) {
+    private static JavaKind getPrimitiveType(Node inputNode) {
         return ((ValueNode) inputNode).getStackKind();
     }
 
-    private void updateCounter(LinkedHashMap<ProfilerCodeFeatures, Integer> irFeatures, ProfilerCodeFeatures feature) {
+    private static void updateCounter(LinkedHashMap<ProfilerCodeFeatures, Integer> irFeatures, ProfilerCodeFeatures feature) {
         irFeatures.put(feature, (irFeatures.get(feature) + 1));
     }
 
-    private void updateWithType(LinkedHashMap<ProfilerCodeFeatures, Integer> irFeatures, Node node) {
+    private static void updateWithType(LinkedHashMap<ProfilerCodeFeatures, Integer> irFeatures, Node node) {
         JavaKind opType = getPrimitiveType(node);
         if (opType == (JavaKind.Boolean) || (opType == JavaKind.Char) || (opType == JavaKind.Int) || (opType == JavaKind.Short) || (opType == JavaKind.Long)) {
             updateCounter(irFeatures, ProfilerCodeFeatures.INTEGER_OPS);
@@ -146,7 +160,7 @@ public class TornadoFeatureExtraction extends Phase {
         }
     }
 
-    private void updateMemoryAccesses(LinkedHashMap<ProfilerCodeFeatures, Integer> irFeatures, Node node, boolean isLoad) {
+    private static void updateMemoryAccesses(LinkedHashMap<ProfilerCodeFeatures, Integer> irFeatures, Node node, boolean isLoad) {
         for (Node memOpNode : node.inputs().filter(AddressNode.class)) {
             for (Node addressInput : memOpNode.inputs()) {
                 if (addressInput instanceof MarkLocalArray) {
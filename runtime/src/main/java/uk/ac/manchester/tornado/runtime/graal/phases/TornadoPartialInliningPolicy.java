@@ -29,12 +29,15 @@ import static org.graalvm.compiler.core.common.GraalOptions.MaximumDesiredSize;
 import static org.graalvm.compiler.core.common.GraalOptions.MaximumInliningSize;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
 
+import org.graalvm.compiler.nodes.FrameState;
 import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.nodes.spi.Replacements;
 import org.graalvm.compiler.phases.common.inlining.InliningUtil;
 import org.graalvm.compiler.phases.common.inlining.info.InlineInfo;
 import org.graalvm.compiler.phases.common.inlining.walker.MethodInvocation;
 
+import uk.ac.manchester.tornado.runtime.tasks.FusedMethodGenerator;
+
 public class TornadoPartialInliningPolicy implements TornadoInliningPolicy {
 
     public TornadoPartialInliningPolicy() {
@@ -52,10 +55,19 @@ public class TornadoPartialInliningPolicy implements TornadoInliningPolicy {
     @Override
     public Decision isWorthInlining(Replacements replacements, MethodInvocation invocation, InlineInfo calleeInfo, int inliningDepth, boolean fullyProcessed) {
         final InlineInfo info = invocation.callee();
+        if (isCallFromFusedMethod(info)) {
+            // The tasks of a fused kernel are always inlined
+            return Decision.YES;
+        }
         int nodes = info.determineNodeCount();
         if (nodes > MaximumInliningSize.getValue(info.graph().getOptions()) && !invocation.isRoot()) {
             return Decision.NO;
         }
         return Decision.YES;
     }
+
+    private static boolean isCallFromFusedMethod(InlineInfo info) {
+        final FrameState state = info.invoke().stateAfter();
+        return state != null && FusedMethodGenerator.isFusedMethod(state.getMethod());
+    }
 }
@@ -35,6 +35,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
+import uk.ac.manchester.tornado.api.collections.arrays.OffHeapArray;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
@@ -215,6 +217,42 @@ public class TornadoExecutionContext {
         return objectState.get(insertVariable(object));
     }
 
+    /**
+     * When processing in batches, broadcast objects are transferred whole, once
+     * per execution, and share a single device buffer across all batches. Objects
+     * that are neither Java arrays nor {@link OffHeapArray}s cannot be split, so
+     * they are always broadcast.
+     */
+    public boolean isBroadcast(int objectIndex) {
+        final Object object = objects.get(objectIndex);
+        final boolean splittable = object.getClass().isArray() || object instanceof OffHeapArray;
+        return !splittable || objectState.get(objectIndex).isBroadcast();
+    }
+
+    public boolean isForcedStreamIn(int objectIndex) {
+        return objectState.get(objectIndex).isForcedStreamIn();
+    }
+
+    public ArrayRange getStreamInRange(int objectIndex) {
+        return objectState.get(objectIndex).getStreamInRange();
+    }
+
+    public ArrayRange getStreamOutRange(int objectIndex) {
+        return objectState.get(objectIndex).getStreamOutRange();
+    }
+
+    /**
+     * @return true if any object is copied in or out by ranges.
+     */
+    public boolean hasRangeTransfers() {
+        for (LocalObjectState state : objectState) {
+            if (state.getStreamInRange() != null || state.getStreamOutRange() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void print() {
         System.out.println("device table:");
         for (int i = 0; i < devices.size(); i++) {
@@ -34,12 +34,12 @@ public class TornadoGraphAssembler {
 
     public enum TornadoVMBytecodes {
         // @formatter:off
-        ALLOCATE((byte) 10),            // ALLOCATE(obj,dest)
-        COPY_IN((byte) 11),             // COPY(obj, src, dest)
-        STREAM_IN((byte) 12),           // STREAM_IN(obj, src, dest)
-        STREAM_OUT((byte) 13),          // STREAM_OUT(obj, src, dest)
-        STREAM_OUT_BLOCKING((byte) 14), // STREAM_OUT(obj, src, dest)
-        LAUNCH((byte) 15),              // LAUNCH(dep list index)
+        ALLOCATE((byte) 10),            // ALLOCATE(obj, ctx, slot, size)
+        COPY_IN((byte) 11),             // COPY(obj, ctx, slot, dep, offset, size)
+        STREAM_IN((byte) 12),           // STREAM_IN(obj, ctx, slot, dep, offset, size)
+        STREAM_OUT((byte) 13),          // STREAM_OUT(obj, ctx, slot, dep, offset, size)
+        STREAM_OUT_BLOCKING((byte) 14), // STREAM_OUT(obj, ctx, slot, dep, offset, size)
+        LAUNCH((byte) 15),              // LAUNCH(gtid, ctx, slot, task, num args, dep, offset, size)
         BARRIER((byte) 16),             // BARRIER <events>
         SETUP((byte) 17),
         BEGIN((byte) 18),               // BEGIN(num contexts, num stacks, num dep lists)
@@ -61,6 +61,17 @@ public class TornadoGraphAssembler {
         }
     }
 
+    /**
+     * Size in bytes of the ALLOCATE bytecode, including the opcode.
+     */
+    public static final int ALLOCATE_SIZE = 21;
+
+    /**
+     * Size in bytes of the COPY_IN, STREAM_IN and STREAM_OUT bytecodes, including
+     * the opcode.
+     */
+    public static final int TRANSFER_SIZE = 33;
+
     private final ByteBuffer buffer;
 
     TornadoGraphAssembler(byte[] code) {
@@ -101,44 +112,49 @@ public class TornadoGraphAssembler {
         buffer.putInt(index);
     }
 
-    public void allocate(int object, int ctx, long size) {
+    public void allocate(int object, int ctx, int slot, long size) {
         buffer.put(TornadoVMBytecodes.ALLOCATE.value);
         buffer.putInt(object);
         buffer.putInt(ctx);
+        buffer.putInt(slot);
         buffer.putLong(size);
     }
 
-    void copyToContext(int obj, int ctx, int dep, long offset, long size) {
+    void copyToContext(int obj, int ctx, int slot, int dep, long offset, long size) {
         buffer.put(TornadoVMBytecodes.COPY_IN.value);
         buffer.putInt(obj);
         buffer.putInt(ctx);
+        buffer.putInt(slot);
         buffer.putInt(dep);
         buffer.putLong(offset);
         buffer.putLong(size);
     }
 
-    void streamInToContext(int obj, int ctx, int dep, long offset, long size) {
+    void streamInToContext(int obj, int ctx, int slot, int dep, long offset, long size) {
         buffer.put(TornadoVMBytecodes.STREAM_IN.value);
         buffer.putInt(obj);
         buffer.putInt(ctx);
+        buffer.putInt(slot);
         buffer.putInt(dep);
         buffer.putLong(offset);
         buffer.putLong(size);
     }
 
-    void streamOutOfContext(int obj, int ctx, int dep, long offset, long size) {
+    void streamOutOfContext(int obj, int ctx, int slot, int dep, long offset, long size) {
         buffer.put(TornadoVMBytecodes.STREAM_OUT.value);
         buffer.putInt(obj);
         buffer.putInt(ctx);
+        buffer.putInt(slot);
         buffer.putInt(dep);
         buffer.putLong(offset);
         buffer.putLong(size);
     }
 
-    void launch(int gtid, int ctx, int task, int numParameters, int dep, long offset, long size) {
+    void launch(int gtid, int ctx, int slot, int task, int numParameters, int dep, long offset, long size) {
         buffer.put(TornadoVMBytecodes.LAUNCH.value);
         buffer.putInt(gtid);
         buffer.putInt(ctx);
+        buffer.putInt(slot);
         buffer.putInt(task);
         buffer.putInt(numParameters);
         buffer.putInt(dep);
@@ -44,11 +44,13 @@ public class TornadoVMGraphCompilationResult {
     private byte[] code;
     private TornadoGraphAssembler bitcodeASM;
     private int globalTaskID;
+    private int lastStreamOutPosition;
 
     public TornadoVMGraphCompilationResult() {
         code = new byte[MAX_TORNADO_VM_BYTECODE_SIZE];
         bitcodeASM = new TornadoGraphAssembler(code);
         globalTaskID = 0;
+        lastStreamOutPosition = -1;
     }
 
     public void begin(int numContexts, int numStacks, int numDeps) {
@@ -72,20 +74,30 @@ public class TornadoVMGraphCompilationResult {
     }
 
     void emitAsyncNode(AbstractNode node, int contextID, int dependencyBC, long offset, long batchSize, long nThreads) {
+        emitAsyncNode(node, contextID, 0, dependencyBC, offset, batchSize, nThreads);
+    }
+
+    /**
+     * Emits the bytecode for an asynchronous node. The slot selects which device
+     * buffer of each object is used: pipelined batches rotate through several
+     * slots so that the transfers of one chunk can overlap the kernels of another.
+     */
+    void emitAsyncNode(AbstractNode node, int contextID, int slot, int dependencyBC, long offset, long batchSize, long nThreads) {
         if (node instanceof CopyInNode) {
-            bitcodeASM.copyToContext(((CopyInNode) node).getValue().getIndex(), contextID, dependencyBC, offset, batchSize);
+            bitcodeASM.copyToContext(((CopyInNode) node).getValue().getIndex(), contextID, slot, dependencyBC, offset, batchSize);
         } else if (node instanceof AllocateNode) {
-            bitcodeASM.allocate(((AllocateNode) node).getValue().getIndex(), contextID, batchSize);
+            bitcodeASM.allocate(((AllocateNode) node).getValue().getIndex(), contextID, slot, batchSize);
         } else if (node instanceof CopyOutNode) {
             ObjectNode value = ((CopyOutNode) node).getValue().getValue();
             if (value != null) {
-                bitcodeASM.streamOutOfContext(value.getIndex(), contextID, dependencyBC, offset, batchSize);
+                lastStreamOutPosition = bitcodeASM.position();
+                bitcodeASM.streamOutOfContext(value.getIndex(), contextID, slot, dependencyBC, offset, batchSize);
             }
         } else if (node instanceof StreamInNode) {
-            bitcodeASM.streamInToContext(((StreamInNode) node).getValue().getIndex(), contextID, dependencyBC, offset, batchSize);
+            bitcodeASM.streamInToContext(((StreamInNode) node).getValue().getIndex(), contextID, slot, dependencyBC, offset, batchSize);
         } else if (node instanceof TaskNode) {
             final TaskNode taskNode = (TaskNode) node;
-            bitcodeASM.launch(globalTaskID, taskNode.getContext().getDeviceIndex(), taskNode.getTaskIndex(), taskNode.getNumArgs(), dependencyBC, offset, nThreads);
+            bitcodeASM.launch(globalTaskID, taskNode.getContext().getDeviceIndex(), slot, taskNode.getTaskIndex(), taskNode.getNumArgs(), dependencyBC, offset, nThreads);
             emitArgList(taskNode);
             incTaskID();
         }
@@ -127,4 +139,12 @@ public class TornadoVMGraphCompilationResult {
         return bitcodeASM.position();
     }
 
+    /**
+     * @return the position of the last STREAM_OUT bytecode emitted, or -1 if
+     *         there is none.
+     */
+    int getLastStreamOutPosition() {
+        return lastStreamOutPosition;
+    }
+
 }
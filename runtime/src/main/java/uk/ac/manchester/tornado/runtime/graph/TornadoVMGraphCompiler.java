@@ -27,10 +27,10 @@ package uk.ac.manchester.tornado.runtime.graph;
 
 import java.lang.reflect.Array;
 import java.nio.BufferOverflowException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 import org.graalvm.compiler.graph.Node;
@@ -39,18 +39,34 @@ import org.graalvm.compiler.loop.LoopEx;
 import org.graalvm.compiler.loop.LoopsData;
 import org.graalvm.compiler.nodes.StructuredGraph;
 
+import uk.ac.manchester.tornado.api.collections.arrays.OffHeapArray;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
 import uk.ac.manchester.tornado.runtime.graph.nodes.AbstractNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.AllocateNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.ContextOpNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.CopyInNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.CopyOutNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.DependentReadNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.ObjectNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.StreamInNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.TaskNode;
 
 public class TornadoVMGraphCompiler {
     private static HashMap<Class<?>, Byte> dataTypesSize = new HashMap<>();
 
+    /**
+     * Pipeline stages of a batch: transfers to the device, kernels, and transfers
+     * back to the host.
+     */
+    private static final int STAGE_IN = 0;
+    private static final int STAGE_COMPUTE = 1;
+    private static final int STAGE_OUT = 2;
+    private static final int NUM_STAGES = 3;
+
     static {
         dataTypesSize.put(byte.class, (byte) 1);
         dataTypesSize.put(char.class, (byte) 2);
@@ -78,69 +94,133 @@ public class TornadoVMGraphCompiler {
 
     private static class BatchSizeMetaData {
 
-        private final int totalChunks;
-        private final int remainingChunkSize;
-        private final short numBytesType;
+        private final long totalChunks;
+        private final long remainingElements;
+        private final long batchElements;
 
-        BatchSizeMetaData(int totalChunks, int remainingChunkSize, short numBytesType) {
+        BatchSizeMetaData(long totalChunks, long remainingElements, long batchElements) {
             this.totalChunks = totalChunks;
-            this.remainingChunkSize = remainingChunkSize;
-            this.numBytesType = numBytesType;
+            this.remainingElements = remainingElements;
+            this.batchElements = batchElements;
         }
 
-        private int getTotalChunks() {
+        private long getTotalChunks() {
             return totalChunks;
         }
 
-        private int getRemainingChunkSize() {
-            return remainingChunkSize;
+        private long getRemainingElements() {
+            return remainingElements;
+        }
+
+        private long getBatchElements() {
+            return batchElements;
+        }
+    }
+
+    /**
+     * A batch, expressed as a range of elements. Each object derives its own byte
+     * offset and size from its element size, so arrays of different types are
+     * split at the same indexes.
+     */
+    private static class BatchChunk {
+
+        private final long elementOffset;
+        private final long numElements;
+        private final long nThreads;
+
+        BatchChunk(long elementOffset, long numElements, long nThreads) {
+            this.elementOffset = elementOffset;
+            this.numElements = numElements;
+            this.nThreads = nThreads;
+        }
+
+        private long offsetInBytes(Object object) {
+            return elementOffset * elementSize(object);
+        }
+
+        /**
+         * @return the number of bytes of the object processed by this batch, or 0
+         *         if the whole object is used.
+         */
+        private long sizeInBytes(Object object) {
+            return numElements * elementSize(object);
+        }
+    }
+
+    private static byte elementSize(Object object) {
+        if (object instanceof OffHeapArray) {
+            return (byte) ((OffHeapArray) object).getElementSize();
+        }
+        final Byte size = dataTypesSize.get(object.getClass().getComponentType());
+        if (size == null) {
+            throw new TornadoRuntimeException("[UNSUPPORTED] Data type not supported for processing in batches");
         }
+        return size;
+    }
 
-        private short getNumBytesType() {
-            return numBytesType;
+    private static List<BatchChunk> computeChunks(BatchSizeMetaData sizeBatch) {
+        List<BatchChunk> chunks = new ArrayList<>();
+        final long batchElements = sizeBatch.getBatchElements();
+        for (long i = 0; i < sizeBatch.getTotalChunks(); i++) {
+            chunks.add(new BatchChunk(batchElements * i, batchElements, batchElements));
+        }
+        // Last chunk
+        if (sizeBatch.getRemainingElements() != 0) {
+            if (sizeBatch.getTotalChunks() == 0) {
+                // Everything fits in a single batch: use the whole objects
+                chunks.add(new BatchChunk(0, 0, sizeBatch.getRemainingElements()));
+            } else {
+                chunks.add(new BatchChunk(batchElements * sizeBatch.getTotalChunks(), sizeBatch.getRemainingElements(), sizeBatch.getRemainingElements()));
+            }
         }
+        return chunks;
     }
 
+    /**
+     * Splits the arrays of the task-schedule into batches of the same number of
+     * elements. The number of elements per batch is chosen so that the batch of
+     * the array with the largest element type fits in {@code batchSize} bytes.
+     * Broadcast objects are not split and do not take part in the computation.
+     */
     private static BatchSizeMetaData computeChunkSizes(TornadoExecutionContext context, long batchSize) {
-        // Get the size of the batch
         List<Object> inputObjects = context.getObjects();
-        long totalSize = 0;
-        byte typeSize = 1;
-
-        HashSet<Class<?>> classObjects = new HashSet<>();
-        HashSet<Long> inputSizes = new HashSet<>();
-
-        // XXX: Get a list for all objects
-        for (Object o : inputObjects) {
-            if (o.getClass().isArray()) {
-                Class<?> componentType = o.getClass().getComponentType();
-                if (dataTypesSize.get(componentType) == null) {
-                    throw new TornadoRuntimeException("[UNSUPPORTED] Data type not supported for processing in batches");
-                }
-                long size = Array.getLength(o);
-                typeSize = dataTypesSize.get(componentType);
-                totalSize = size * typeSize;
-
-                classObjects.add(componentType);
-                inputSizes.add(totalSize);
-                if (classObjects.size() > 1) {
-                    throw new TornadoRuntimeException("[UNSUPPORTED] Input objects with different data types not currently supported");
-                }
-                if (inputSizes.size() > 1) {
-                    throw new TornadoRuntimeException("[UNSUPPORTED] Input objects with different sizes not currently supported");
-                }
+        long numElements = -1;
+        byte maxTypeSize = 0;
+
+        for (int i = 0; i < inputObjects.size(); i++) {
+            if (context.isBroadcast(i)) {
+                continue;
+            }
+            final Object o = inputObjects.get(i);
+            final long length = (o instanceof OffHeapArray) ? ((OffHeapArray) o).getSize() : Array.getLength(o);
+            maxTypeSize = (byte) Math.max(maxTypeSize, elementSize(o));
+            if (numElements == -1) {
+                numElements = length;
+            } else if (numElements != length) {
+                throw new TornadoRuntimeException("[UNSUPPORTED] Input objects with different number of elements (" + numElements + " and " + length
+                        + ") cannot be split into batches. Use broadcast() for the objects that every batch uses whole");
             }
         }
 
-        int totalChunks = (int) (totalSize / batchSize);
-        int remainingChunkSize = (int) (totalSize % batchSize);
+        if (numElements == -1) {
+            throw new TornadoRuntimeException("[UNSUPPORTED] Batch processing requires at least one array that is not broadcast");
+        }
+
+        final long batchElements = batchSize / maxTypeSize;
+        if (batchElements == 0) {
+            throw new TornadoRuntimeException("[ERROR] Batch size of " + batchSize + " bytes is smaller than one element");
+        }
+
+        long totalChunks = numElements / batchElements;
+        long remainingElements = numElements % batchElements;
 
         if (Tornado.DEBUG) {
             System.out.println("Batch Size: " + batchSize);
+            System.out.println("Batch elements: " + batchElements);
             System.out.println("Total chunks: " + totalChunks);
-            System.out.println("remainingChunkSize: " + remainingChunkSize);
+            System.out.println("remainingElements: " + remainingElements);
         }
-        return new BatchSizeMetaData(totalChunks, remainingChunkSize, typeSize);
+        return new BatchSizeMetaData(totalChunks, remainingElements, batchElements);
     }
 
     private static TornadoVMGraphCompilationResult compileContext(TornadoGraph graph, TornadoExecutionContext context, long batchSize) {
@@ -165,38 +245,50 @@ public class TornadoVMGraphCompiler {
             index++;
         }
 
-        // Generate BEGIN bytecode
-        result.begin(1, tasks.cardinality(), numDepLists + 1);
-
-        BatchSizeMetaData sizeBatch = null;
+        List<BatchChunk> chunks = null;
         if (batchSize != -1) {
-            sizeBatch = computeChunkSizes(context, batchSize);
+            if (context.hasRangeTransfers()) {
+                throw new TornadoRuntimeException("[ERROR] Objects copied by ranges cannot be processed in batches");
+            }
+            chunks = computeChunks(computeChunkSizes(context, batchSize));
         }
 
-        if (batchSize != -1) {
-            // compute in batches
-            long offset = 0;
-            long nthreads = batchSize / sizeBatch.getNumBytesType();
-            for (int i = 0; i < sizeBatch.getTotalChunks(); i++) {
-                offset = (batchSize * i);
-                scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies, offset, batchSize, nthreads);
-            }
-            // Last chunk
-            if (sizeBatch.getRemainingChunkSize() != 0) {
-                offset += (batchSize);
-                nthreads = sizeBatch.getRemainingChunkSize() / sizeBatch.getNumBytesType();
-                long realBatchSize = sizeBatch.getTotalChunks() == 0 ? 0 : sizeBatch.getRemainingChunkSize();
-                long realOffsetSize = sizeBatch.getTotalChunks() == 0 ? 0 : offset;
-                scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies, realOffsetSize, realBatchSize, nthreads);
-            }
+        int[] stages = null;
+        final int pipelineDepth = context.meta().getBatchPipelineDepth();
+        if (chunks != null && pipelineDepth > 1 && chunks.size() > 1) {
+            stages = computePipelineStages(context, graph, nodeIds, dependencies);
+        }
+
+        if (stages != null) {
+            // Each slot has its own copy of the dependency lists, plus one list that
+            // tracks when the slot can be reused and one list to drain the pipeline
+            final int depth = Math.min(pipelineDepth, chunks.size());
+            final int drainList = depth * numDepLists + depth;
 
+            // Generate BEGIN bytecode
+            result.begin(1, tasks.cardinality(), drainList + 1);
+
+            scheduleAndEmitPipelinedBatches(result, context, graph, nodeIds, dependencies, stages, chunks, depth, numDepLists);
+
+            // Last operation -> perform synchronisation
+            synchronizeOperationLastByteCode(result, drainList);
         } else {
-            // Generate bytecodes with no batches
-            scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies);
-        }
+            // Generate BEGIN bytecode
+            result.begin(1, tasks.cardinality(), numDepLists + 1);
+
+            if (chunks != null) {
+                // compute in batches
+                for (int i = 0; i < chunks.size(); i++) {
+                    scheduleAndEmitTornadoVMBytecodes(result, context, graph, nodeIds, dependencies, chunks.get(i), i, chunks.size());
+                }
+            } else {
+                // Generate bytecodes with no batches
+                scheduleAndEmitTornadoVMBytecodes(result, context, graph, nodeIds, dependencies);
+            }
 
-        // Last operation -> perform synchronisation
-        synchronizeOperationLastByteCode(result, numDepLists);
+            // Last operation -> perform synchronisation
+            synchronizeOperationLastByteCode(result, numDepLists);
+        }
 
         // Generate END bytecode
         result.end();
@@ -214,10 +306,9 @@ public class TornadoVMGraphCompiler {
     private static void synchronizeOperationLastByteCode(TornadoVMGraphCompilationResult result, int numDepLists) {
         final byte[] code = result.getCode();
         final int codeSize = result.getCodeSize();
-        if (code[codeSize - 13] == TornadoVMBytecodes.STREAM_OUT.value()) {
-            code[codeSize - 13] = TornadoVMBytecodes.STREAM_OUT_BLOCKING.value();
-        } else if (code[codeSize - 29] == TornadoVMBytecodes.STREAM_OUT.value()) {
-            code[codeSize - 29] = TornadoVMBytecodes.STREAM_OUT_BLOCKING.value();
+        final int lastStreamOut = result.getLastStreamOutPosition();
+        if (lastStreamOut != -1 && lastStreamOut + TornadoGraphAssembler.TRANSFER_SIZE == codeSize) {
+            code[lastStreamOut] = TornadoVMBytecodes.STREAM_OUT_BLOCKING.value();
         } else {
             result.barrier(numDepLists);
         }
@@ -243,14 +334,182 @@ public class TornadoVMGraphCompiler {
         }
     }
 
-    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
-        scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, 0, 0, 0);
+    /**
+     * @return the index of the object transferred by the node, or -1 if the node
+     *         does not transfer data.
+     */
+    private static int objectIndexOf(AbstractNode node) {
+        if (node instanceof CopyInNode) {
+            return ((CopyInNode) node).getValue().getIndex();
+        } else if (node instanceof AllocateNode) {
+            return ((AllocateNode) node).getValue().getIndex();
+        } else if (node instanceof StreamInNode) {
+            return ((StreamInNode) node).getValue().getIndex();
+        } else if (node instanceof CopyOutNode) {
+            final ObjectNode value = ((CopyOutNode) node).getValue().getValue();
+            return (value != null) ? value.getIndex() : -1;
+        }
+        return -1;
+    }
+
+    private static boolean isBroadcastTransfer(TornadoExecutionContext context, AbstractNode node) {
+        final int objectIndex = objectIndexOf(node);
+        return objectIndex != -1 && context.isBroadcast(objectIndex);
+    }
+
+    /**
+     * Broadcast objects are transferred to the device by the first batch and back
+     * to the host by the last one. Everything else is emitted for every batch.
+     */
+    private static boolean isEmittedInChunk(TornadoExecutionContext context, AbstractNode node, int chunkIndex, int numChunks) {
+        if (!isBroadcastTransfer(context, node)) {
+            return true;
+        }
+        return (node instanceof CopyOutNode) ? chunkIndex == numChunks - 1 : chunkIndex == 0;
+    }
+
+    /**
+     * @return the range of the object copied by a stream-in or stream-out node,
+     *         or null if the whole object is copied.
+     */
+    private static ArrayRange rangeOf(TornadoExecutionContext context, AbstractNode node) {
+        if (node instanceof StreamInNode) {
+            return context.getStreamInRange(objectIndexOf(node));
+        } else if (node instanceof CopyOutNode && objectIndexOf(node) != -1) {
+            return context.getStreamOutRange(objectIndexOf(node));
+        }
+        return null;
+    }
+
+    private static void emitBatchNode(TornadoVMGraphCompilationResult result, TornadoExecutionContext context, ContextOpNode asyncNode, int slot, int waitList, BatchChunk chunk) {
+        long offset = 0;
+        long size = 0;
+        long nThreads = 0;
+        int objectSlot = slot;
+        if (chunk != null) {
+            final int objectIndex = objectIndexOf(asyncNode);
+            nThreads = chunk.nThreads;
+            if (objectIndex == -1) {
+                offset = chunk.elementOffset;
+            } else if (context.isBroadcast(objectIndex)) {
+                // A single device buffer, shared by all the batches
+                objectSlot = 0;
+            } else {
+                final Object object = context.getObjects().get(objectIndex);
+                offset = chunk.offsetInBytes(object);
+                size = chunk.sizeInBytes(object);
+            }
+        } else {
+            final ArrayRange range = rangeOf(context, asyncNode);
+            if (range != null) {
+                final Object object = context.getObjects().get(objectIndexOf(asyncNode));
+                offset = (long) range.getFrom() * elementSize(object);
+                size = (long) range.getNumElements() * elementSize(object);
+            }
+        }
+
+        try {
+            result.emitAsyncNode(asyncNode, asyncNode.getContext().getDeviceIndex(), objectSlot, waitList, offset, size, nThreads);
+        } catch (BufferOverflowException e) {
+            throw new TornadoRuntimeException("[ERROR] Buffer Overflow exception. Use -Dtornado.tvm.maxbytecodesize=<value> with value > "
+                    + TornadoVMGraphCompilationResult.MAX_TORNADO_VM_BYTECODE_SIZE + " to increase the buffer code size");
+        }
+    }
+
+    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoExecutionContext context, TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
+        scheduleAndEmitTornadoVMBytecodes(result, context, graph, nodeIds, deps, null, 0, 1);
     }
 
-    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps, long offset, long bufferBatchSize, long nThreads) {
+    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoExecutionContext context, TornadoGraph graph, int[] nodeIds, BitSet[] deps,
+            BatchChunk chunk, int chunkIndex, int numChunks) {
         final BitSet scheduled = new BitSet(deps.length);
         scheduled.clear();
         final BitSet nodes = new BitSet(graph.getValid().length());
+        final int[] depLists = computeDependencyLists(graph, nodeIds, deps);
+
+        while (scheduled.cardinality() < deps.length) {
+            for (int i = 0; i < deps.length; i++) {
+                if (!scheduled.get(i)) {
+                    final BitSet outstandingDeps = new BitSet(nodes.length());
+                    outstandingDeps.or(deps[i]);
+                    outstandingDeps.andNot(nodes);
+
+                    if (outstandingDeps.isEmpty()) {
+                        final ContextOpNode asyncNode = (ContextOpNode) graph.getNode(nodeIds[i]);
+
+                        if (isEmittedInChunk(context, asyncNode, chunkIndex, numChunks)) {
+                            emitBatchNode(result, context, asyncNode, 0, (deps[i].isEmpty()) ? -1 : depLists[i], chunk);
+
+                            for (int j = 0; j < deps.length; j++) {
+                                if (j == i) {
+                                    continue;
+                                }
+                                if (deps[j].get(nodeIds[i]) && depLists[j] != -1) {
+                                    result.emitAddDep(depLists[j]);
+                                }
+                            }
+                        }
+                        scheduled.set(i);
+                        nodes.set(nodeIds[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns each asynchronous node to a pipeline stage. It returns null when the
+     * graph cannot be pipelined: the graph must run on a single device, transfer
+     * data in both directions, and no transfer to the device or kernel can depend
+     * on a transfer back to the host. Broadcast objects written by the kernels are
+     * shared by all the slots, so they also prevent pipelining.
+     */
+    private static int[] computePipelineStages(TornadoExecutionContext context, TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
+        final int[] stages = new int[nodeIds.length];
+        final HashMap<Integer, Integer> nodeIndex = new HashMap<>();
+        boolean hasTransfersIn = false;
+        boolean hasTransfersOut = false;
+        int deviceIndex = -1;
+        for (int i = 0; i < nodeIds.length; i++) {
+            final ContextOpNode node = (ContextOpNode) graph.getNode(nodeIds[i]);
+            if (deviceIndex != -1 && deviceIndex != node.getContext().getDeviceIndex()) {
+                return null;
+            }
+            deviceIndex = node.getContext().getDeviceIndex();
+            nodeIndex.put(nodeIds[i], i);
+
+            if (node instanceof AllocateNode || node instanceof CopyInNode || node instanceof StreamInNode) {
+                if (!deps[i].isEmpty()) {
+                    return null;
+                }
+                stages[i] = STAGE_IN;
+                hasTransfersIn |= !(node instanceof AllocateNode);
+            } else if (node instanceof CopyOutNode) {
+                if (isBroadcastTransfer(context, node)) {
+                    return null;
+                }
+                stages[i] = STAGE_OUT;
+                hasTransfersOut = true;
+            } else {
+                stages[i] = STAGE_COMPUTE;
+            }
+        }
+
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (stages[i] != STAGE_COMPUTE) {
+                continue;
+            }
+            for (int dep = deps[i].nextSetBit(0); dep != -1; dep = deps[i].nextSetBit(dep + 1)) {
+                final Integer index = nodeIndex.get(dep);
+                if (index != null && stages[index] == STAGE_OUT) {
+                    return null;
+                }
+            }
+        }
+        return (hasTransfersIn && hasTransfersOut) ? stages : null;
+    }
+
+    private static int[] computeDependencyLists(TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
         final int[] depLists = new int[deps.length];
         Arrays.fill(depLists, -1);
         int index = 0;
@@ -264,34 +523,111 @@ public class TornadoVMGraphCompiler {
                 index++;
             }
         }
+        return depLists;
+    }
 
+    private static int[] computeTopologicalOrder(TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
+        final int[] order = new int[deps.length];
+        final BitSet scheduled = new BitSet(deps.length);
+        final BitSet nodes = new BitSet(graph.getValid().length());
+        int position = 0;
         while (scheduled.cardinality() < deps.length) {
             for (int i = 0; i < deps.length; i++) {
                 if (!scheduled.get(i)) {
                     final BitSet outstandingDeps = new BitSet(nodes.length());
                     outstandingDeps.or(deps[i]);
                     outstandingDeps.andNot(nodes);
-
                     if (outstandingDeps.isEmpty()) {
-                        final ContextOpNode asyncNode = (ContextOpNode) graph.getNode(nodeIds[i]);
+                        order[position++] = i;
+                        scheduled.set(i);
+                        nodes.set(nodeIds[i]);
+                    }
+                }
+            }
+        }
+        return order;
+    }
 
-                        try {
-                            result.emitAsyncNode(asyncNode, asyncNode.getContext().getDeviceIndex(), (deps[i].isEmpty()) ? -1 : depLists[i], offset, bufferBatchSize, nThreads);
-                        } catch (BufferOverflowException e) {
-                            throw new TornadoRuntimeException("[ERROR] Buffer Overflow exception. Use -Dtornado.tvm.maxbytecodesize=<value> with value > "
-                                    + TornadoVMGraphCompilationResult.MAX_TORNADO_VM_BYTECODE_SIZE + " to increase the buffer code size");
-                        }
+    /**
+     * Emits the bytecodes for a batched execution as a software pipeline. Chunk
+     * {@code i} uses the device buffers of slot {@code i % depth}, and every step
+     * of the pipeline emits the transfers back to the host of chunk {@code i - 2},
+     * the kernels of chunk {@code i - 1} and the transfers to the device of chunk
+     * {@code i}. Event lists are replicated per slot, so the only dependencies
+     * between chunks are the ones needed before a slot is overwritten.
+     */
+    private static void scheduleAndEmitPipelinedBatches(TornadoVMGraphCompilationResult result, TornadoExecutionContext context, TornadoGraph graph, int[] nodeIds, BitSet[] deps,
+            int[] stages, List<BatchChunk> chunks, int depth, int numDepLists) {
+        final int[] order = computeTopologicalOrder(graph, nodeIds, deps);
+        final int[] depLists = computeDependencyLists(graph, nodeIds, deps);
+        final int numChunks = chunks.size();
+        final int drainList = depth * numDepLists + depth;
+
+        // The last transfer to the host becomes blocking, so it waits for all the
+        // transfers of the other slots that are still in flight
+        int finalNode = -1;
+        for (int i : order) {
+            if (stages[i] == STAGE_OUT) {
+                finalNode = i;
+            }
+        }
 
-                        for (int j = 0; j < deps.length; j++) {
-                            if (j == i) {
-                                continue;
-                            }
-                            if (deps[j].get(nodeIds[i]) && depLists[j] != -1) {
-                                result.emitAddDep(depLists[j]);
+        for (int step = 0; step < numChunks + NUM_STAGES - 1; step++) {
+            for (int stage = NUM_STAGES - 1; stage >= 0; stage--) {
+                final int chunkIndex = step - stage;
+                if (chunkIndex < 0 || chunkIndex >= numChunks) {
+                    continue;
+                }
+                final BatchChunk chunk = chunks.get(chunkIndex);
+                final int slot = chunkIndex % depth;
+                final int slotFreeList = depth * numDepLists + slot;
+                final boolean isLastChunk = chunkIndex == numChunks - 1;
+
+                for (int i : order) {
+                    if (stages[i] != stage) {
+                        continue;
+                    }
+                    final ContextOpNode asyncNode = (ContextOpNode) graph.getNode(nodeIds[i]);
+                    if (!isEmittedInChunk(context, asyncNode, chunkIndex, numChunks)) {
+                        continue;
+                    }
+                    // Broadcast objects are copied once, and every slot depends on them
+                    final boolean isBroadcast = isBroadcastTransfer(context, asyncNode);
+
+                    int waitList = -1;
+                    if (isLastChunk && i == finalNode) {
+                        waitList = drainList;
+                    } else if (depLists[i] != -1) {
+                        waitList = slot * numDepLists + depLists[i];
+                    } else if (deps[i].isEmpty() && chunkIndex >= depth) {
+                        waitList = slotFreeList;
+                    }
+
+                    emitBatchNode(result, context, asyncNode, slot, waitList, chunk);
+
+                    for (int j = 0; j < deps.length; j++) {
+                        if (j == i) {
+                            continue;
+                        }
+                        if (deps[j].get(nodeIds[i]) && depLists[j] != -1) {
+                            if (isBroadcast) {
+                                for (int s = 0; s < depth; s++) {
+                                    result.emitAddDep(s * numDepLists + depLists[j]);
+                                }
+                            } else {
+                                result.emitAddDep((isLastChunk && j == finalNode) ? drainList : slot * numDepLists + depLists[j]);
                             }
                         }
-                        scheduled.set(i);
-                        nodes.set(nodeIds[i]);
+                    }
+
+                    if (asyncNode instanceof TaskNode || asyncNode instanceof CopyOutNode) {
+                        if (chunkIndex + depth < numChunks) {
+                            // The slot can be overwritten once its kernels and transfers to the host finish
+                            result.emitAddDep(slotFreeList);
+                        }
+                        if (stage == STAGE_OUT && i != finalNode && chunkIndex >= numChunks - depth) {
+                            result.emitAddDep(drainList);
+                        }
                     }
                 }
             }
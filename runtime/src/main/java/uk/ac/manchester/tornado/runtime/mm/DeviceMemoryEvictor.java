@@ -0,0 +1,198 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.mm;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+
+/**
+ * Keeps the objects that are resident in the heap of a device in
+ * least-recently-used order. When the heap runs out of space, the device asks
+ * the evictor to release the oldest object that is not used by any
+ * task-schedule being executed. Objects modified on the device are copied back
+ * to the Java heap before their space is released, and they are uploaded again
+ * the next time a task-schedule uses them. Task-schedules that had already
+ * pushed the address of an evicted object push their call stacks again (see
+ * {@link uk.ac.manchester.tornado.runtime.common.CallStackBindings}).
+ */
+public class DeviceMemoryEvictor {
+
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+    private static final AtomicLong SPILLED_BYTES = new AtomicLong();
+    private static final AtomicLong REUPLOADS = new AtomicLong();
+
+    /**
+     * Objects of a task-schedule. While the task-schedule executes, none of them
+     * can be evicted from any device.
+     */
+    public static final class ExecutionScope {
+        private final Set<Object> objects;
+
+        public ExecutionScope(Collection<Object> objects) {
+            this.objects = Collections.newSetFromMap(new IdentityHashMap<>());
+            this.objects.addAll(objects);
+        }
+    }
+
+    /**
+     * Scopes of the executions in progress, on any thread.
+     */
+    private static final Set<ExecutionScope> RUNNING = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Resident objects in access order: the first entry is the least recently
+     * used.
+     */
+    private final LinkedHashMap<DeviceObjectState, WeakReference<Object>> residents;
+
+    /**
+     * Objects that were evicted and have not been used again on this device.
+     */
+    private final WeakHashMap<DeviceObjectState, Boolean> evicted;
+
+    private final String deviceName;
+
+    public DeviceMemoryEvictor(String deviceName) {
+        this.deviceName = deviceName;
+        this.residents = new LinkedHashMap<>(16, 0.75f, true);
+        this.evicted = new WeakHashMap<>();
+    }
+
+    /**
+     * Starts an execution of a task-schedule. Its objects cannot be evicted until
+     * {@link #endExecution} is called with the same scope, whichever thread
+     * causes the eviction.
+     */
+    public static void beginExecution(ExecutionScope scope) {
+        synchronized (RUNNING) {
+            RUNNING.add(scope);
+        }
+    }
+
+    public static void endExecution(ExecutionScope scope) {
+        synchronized (RUNNING) {
+            RUNNING.remove(scope);
+        }
+    }
+
+    private static boolean isInUse(Object object) {
+        synchronized (RUNNING) {
+            for (ExecutionScope scope : RUNNING) {
+                if (scope.objects.contains(object)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public static long getEvictions() {
+        return EVICTIONS.get();
+    }
+
+    public static long getSpilledBytes() {
+        return SPILLED_BYTES.get();
+    }
+
+    public static long getReuploads() {
+        return REUPLOADS.get();
+    }
+
+    /**
+     * Records a use of {@code object} on the device.
+     */
+    public synchronized void touch(Object object, DeviceObjectState state) {
+        if (state.isAtomicRegionPresent()) {
+            return;
+        }
+        if (residents.get(state) == null) {
+            residents.put(state, new WeakReference<>(object));
+        }
+        if (evicted.remove(state) != null) {
+            REUPLOADS.incrementAndGet();
+        }
+    }
+
+    /**
+     * Releases the space of the least recently used object that is not used by
+     * any execution in progress.
+     *
+     * @return true if device memory was released.
+     */
+    public synchronized boolean evict() {
+        final Iterator<Map.Entry<DeviceObjectState, WeakReference<Object>>> iterator = residents.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<DeviceObjectState, WeakReference<Object>> entry = iterator.next();
+            final DeviceObjectState state = entry.getKey();
+
+            if (!state.isValid() || !state.hasBuffer()) {
+                // Already released by someone else
+                iterator.remove();
+                continue;
+            }
+
+            final Object object = entry.getValue().get();
+            if (object == null) {
+                // The host object is gone: nothing to copy back
+                iterator.remove();
+                state.invalidate();
+                return true;
+            }
+
+            if (isInUse(object)) {
+                continue;
+            }
+
+            final ObjectBuffer buffer = state.getBuffer();
+            if (state.isModified() && state.hasContents()) {
+                buffer.read(object);
+                SPILLED_BYTES.addAndGet(buffer.size());
+                state.setModified(false);
+            }
+            Tornado.debug("evicting object 0x%x (%d bytes) from %s", object.hashCode(), buffer.size(), deviceName);
+            state.invalidate();
+            iterator.remove();
+            evicted.put(state, Boolean.TRUE);
+            EVICTIONS.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized int getNumResidents() {
+        return residents.size();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.mm;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Allocator for the region of the device heap that follows the call stack. It
+ * only works with offsets, so it does not need a device to be present: the
+ * memory managers of each backend own the actual device buffer and use this
+ * class to decide where each object lives inside it.
+ *
+ * <p>
+ * Free blocks are kept in segregated lists, one per power-of-two size class,
+ * and in an address-ordered map that is used to coalesce neighbouring blocks
+ * when memory is released. All blocks start and end at multiples of the
+ * allocator granularity.
+ * </p>
+ */
+public class FreeListAllocator {
+
+    public static final long NO_SPACE = -1;
+
+    private static final int NUM_SIZE_CLASSES = 64;
+
+    private final long granularity;
+    private long base;
+    private long limit;
+
+    /**
+     * Free blocks ordered by start offset: start -> size.
+     */
+    private final TreeMap<Long, Long> freeBlocks;
+
+    /**
+     * Free blocks segregated by size class. Each class is ordered by start
+     * offset, so the search is address-ordered first-fit within a class.
+     */
+    private final TreeMap<Long, Long>[] sizeClasses;
+
+    /**
+     * Live allocations: offset returned to the caller -> {block start, block
+     * size}.
+     */
+    private final Map<Long, long[]> allocations;
+
+    private long allocatedBytes;
+    private long peakAllocatedBytes;
+
+    @SuppressWarnings("unchecked")
+    public FreeListAllocator(long base, long limit, long granularity) {
+        if (granularity <= 0 || Long.bitCount(granularity) != 1) {
+            throw new IllegalArgumentException("Granularity must be a power of two: " + granularity);
+        }
+        this.granularity = granularity;
+        this.freeBlocks = new TreeMap<>();
+        this.sizeClasses = new TreeMap[NUM_SIZE_CLASSES];
+        for (int i = 0; i < NUM_SIZE_CLASSES; i++) {
+            sizeClasses[i] = new TreeMap<>();
+        }
+        this.allocations = new HashMap<>();
+        reset(base, limit);
+    }
+
+    /**
+     * Releases every allocation and resizes the managed region to
+     * [base, limit).
+     */
+    public void reset(long base, long limit) {
+        this.base = alignUp(base, granularity);
+        this.limit = alignDown(limit, granularity);
+        freeBlocks.clear();
+        for (TreeMap<Long, Long> sizeClass : sizeClasses) {
+            sizeClass.clear();
+        }
+        allocations.clear();
+        allocatedBytes = 0;
+        peakAllocatedBytes = 0;
+        if (this.limit > this.base) {
+            insertFreeBlock(this.base, this.limit - this.base);
+        }
+    }
+
+    public void reset() {
+        reset(base, limit);
+    }
+
+    /**
+     * Allocates a block for an object of {@code bytes} bytes whose data, placed
+     * after a header of {@code headerSize} bytes, must be aligned to
+     * {@code alignment}.
+     *
+     * @return the offset of the header, or {@link #NO_SPACE} if there is no free
+     *         block large enough.
+     */
+    public long allocate(long bytes, int headerSize, int alignment) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Invalid allocation size: " + bytes);
+        }
+        for (int sizeClass = sizeClassOf(bytes); sizeClass < NUM_SIZE_CLASSES; sizeClass++) {
+            for (Map.Entry<Long, Long> block : sizeClasses[sizeClass].entrySet()) {
+                final long start = block.getKey();
+                final long size = block.getValue();
+                final long headerStart = alignUp(start + headerSize, alignment) - headerSize;
+                final long end = alignUp(headerStart + bytes, granularity);
+                if (headerStart >= start && end <= start + size) {
+                    removeFreeBlock(start, size);
+                    if (end < start + size) {
+                        insertFreeBlock(end, start + size - end);
+                    }
+                    allocations.put(headerStart, new long[] { start, end - start });
+                    allocatedBytes += end - start;
+                    peakAllocatedBytes = Math.max(peakAllocatedBytes, allocatedBytes);
+                    return headerStart;
+                }
+            }
+        }
+        return NO_SPACE;
+    }
+
+    /**
+     * Returns the block that contains the allocation at {@code offset} to the
+     * free lists, merging it with its free neighbours.
+     *
+     * @return the number of bytes released, or 0 if nothing was allocated at
+     *         that offset.
+     */
+    public long free(long offset) {
+        final long[] block = allocations.remove(offset);
+        if (block == null) {
+            return 0;
+        }
+        long start = block[0];
+        long size = block[1];
+        allocatedBytes -= size;
+
+        final Map.Entry<Long, Long> previous = freeBlocks.floorEntry(start);
+        if (previous != null && previous.getKey() + previous.getValue() == start) {
+            removeFreeBlock(previous.getKey(), previous.getValue());
+            start = previous.getKey();
+            size += previous.getValue();
+        }
+
+        final Map.Entry<Long, Long> next = freeBlocks.ceilingEntry(start + size);
+        if (next != null && next.getKey() == start + size) {
+            removeFreeBlock(next.getKey(), next.getValue());
+            size += next.getValue();
+        }
+
+        insertFreeBlock(start, size);
+        return block[1];
+    }
+
+    public boolean isAllocated(long offset) {
+        return allocations.containsKey(offset);
+    }
+
+    public long getBase() {
+        return base;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getCapacity() {
+        return limit - base;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getPeakAllocatedBytes() {
+        return peakAllocatedBytes;
+    }
+
+    public long getFreeBytes() {
+        return getCapacity() - allocatedBytes;
+    }
+
+    public int getNumAllocations() {
+        return allocations.size();
+    }
+
+    public int getNumFreeBlocks() {
+        return freeBlocks.size();
+    }
+
+    public long getLargestFreeBlock() {
+        for (int sizeClass = NUM_SIZE_CLASSES - 1; sizeClass >= 0; sizeClass--) {
+            if (!sizeClasses[sizeClass].isEmpty()) {
+                long largest = 0;
+                for (long size : sizeClasses[sizeClass].values()) {
+                    largest = Math.max(largest, size);
+                }
+                return largest;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * External fragmentation of the free space, defined as
+     * {@code 1 - largestFreeBlock / freeBytes}. It is 0 when all free memory is
+     * contiguous and tends to 1 when it is scattered across small blocks.
+     */
+    public double getFragmentation() {
+        final long free = getFreeBytes();
+        if (free == 0) {
+            return 0.0;
+        }
+        return 1.0 - ((double) getLargestFreeBlock() / (double) free);
+    }
+
+    private void insertFreeBlock(long start, long size) {
+        freeBlocks.put(start, size);
+        sizeClasses[sizeClassOf(size)].put(start, size);
+    }
+
+    private void removeFreeBlock(long start, long size) {
+        freeBlocks.remove(start);
+        sizeClasses[sizeClassOf(size)].remove(start);
+    }
+
+    private static int sizeClassOf(long size) {
+        return 63 - Long.numberOfLeadingZeros(size);
+    }
+
+    private static long alignUp(long value, long alignment) {
+        return (value % alignment == 0) ? value : value + (alignment - value % alignment);
+    }
+
+    private static long alignDown(long value, long alignment) {
+        return value - (value % alignment);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("allocator [0x%x, 0x%x): allocated=%d, free=%d, free-blocks=%d, largest=%d, fragmentation=%.2f", base, limit, allocatedBytes, getFreeBytes(), getNumFreeBlocks(),
+                getLargestFreeBlock(), getFragmentation());
+    }
+}
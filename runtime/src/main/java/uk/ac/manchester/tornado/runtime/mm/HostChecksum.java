@@ -0,0 +1,115 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.mm;
+
+import java.lang.reflect.Array;
+
+/**
+ * Checksums of the host copy of primitive arrays, used to detect whether an
+ * object changed since it was last copied to a device. Other objects are not
+ * supported and are always transferred.
+ */
+public final class HostChecksum {
+
+    /**
+     * Number of elements read by a sampled checksum, besides the first and the
+     * last element.
+     */
+    public static final int SAMPLES = 256;
+
+    private static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private HostChecksum() {
+    }
+
+    public static boolean isSupported(Object object) {
+        return object != null && object.getClass().isArray() && object.getClass().getComponentType().isPrimitive();
+    }
+
+    /**
+     * Computes the checksum of a primitive array.
+     *
+     * @param object
+     *            primitive array, see {@link #isSupported(Object)}.
+     * @param sampled
+     *            when true, only {@link #SAMPLES} evenly spaced elements are
+     *            read.
+     */
+    public static long compute(Object object, boolean sampled) {
+        final int length = Array.getLength(object);
+        final int stride = (sampled && length > SAMPLES) ? length / SAMPLES : 1;
+        long hash = mix(SEED, length);
+        if (object instanceof int[]) {
+            final int[] array = (int[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, array[i]);
+            }
+        } else if (object instanceof float[]) {
+            final float[] array = (float[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, Float.floatToRawIntBits(array[i]));
+            }
+        } else if (object instanceof double[]) {
+            final double[] array = (double[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, Double.doubleToRawLongBits(array[i]));
+            }
+        } else if (object instanceof long[]) {
+            final long[] array = (long[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, array[i]);
+            }
+        } else if (object instanceof short[]) {
+            final short[] array = (short[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, array[i]);
+            }
+        } else if (object instanceof char[]) {
+            final char[] array = (char[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, array[i]);
+            }
+        } else if (object instanceof byte[]) {
+            final byte[] array = (byte[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, array[i]);
+            }
+        } else if (object instanceof boolean[]) {
+            final boolean[] array = (boolean[]) object;
+            for (int i = 0; i < length; i += stride) {
+                hash = mix(hash, array[i] ? 1 : 0);
+            }
+        }
+        if (stride > 1) {
+            // The last elements are not covered by the stride
+            hash = mix(hash, Array.get(object, length - 1).hashCode());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * PRIME;
+    }
+}
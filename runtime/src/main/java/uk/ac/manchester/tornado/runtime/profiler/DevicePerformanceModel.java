@@ -0,0 +1,371 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.profiler;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+
+/**
+ * Performance model used by the dynamic reconfiguration to select a device
+ * without running the task-schedule on every device first.
+ *
+ * <p>
+ * There is one model per policy and device. Each model is an online ridge
+ * regression of the logarithm of the execution time on the features of the
+ * task-schedule: the code features of its tasks, the size of the iteration
+ * space and the bytes transferred. Models are trained with every measured
+ * execution and keep a moving average of their prediction error. A device is
+ * selected only when the models of all the devices have seen
+ * {@link TornadoOptions#DYNAMIC_PREDICTOR_SAMPLES} samples and their error is
+ * below {@link TornadoOptions#DYNAMIC_PREDICTOR_ERROR}; otherwise the
+ * dynamic reconfiguration falls back to profiling every device.
+ * </p>
+ *
+ * <p>
+ * The models are stored in {@link TornadoOptions#DYNAMIC_PREDICTOR_FILE} when
+ * the JVM exits and after each profiling run, so they improve across runs.
+ * </p>
+ */
+public final class DevicePerformanceModel {
+
+    private static final int VERSION = 1;
+    private static final int NUM_FEATURES = 11;
+    private static final double REGULARIZATION = 1e-3;
+    private static final double ERROR_SMOOTHING = 0.3;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static DevicePerformanceModel instance;
+
+    private final Path file;
+    private final int minSamples;
+    private final double maxError;
+    private final Map<String, Regression> models;
+    private boolean dirty;
+
+    public DevicePerformanceModel(Path file, int minSamples, double maxError) {
+        this.file = file;
+        this.minSamples = minSamples;
+        this.maxError = maxError;
+        this.models = new HashMap<>();
+    }
+
+    public static synchronized DevicePerformanceModel getInstance() {
+        if (instance == null) {
+            instance = new DevicePerformanceModel(Paths.get(TornadoOptions.DYNAMIC_PREDICTOR_FILE), TornadoOptions.DYNAMIC_PREDICTOR_SAMPLES, TornadoOptions.DYNAMIC_PREDICTOR_ERROR);
+            instance.load();
+            final DevicePerformanceModel model = instance;
+            Runtime.getRuntime().addShutdownHook(new Thread(model::save, "TornadoDevicePerformanceModel"));
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the features of a task-schedule.
+     *
+     * @param codeFeatures
+     *            Code features of all the tasks, as given by
+     *            {@link uk.ac.manchester.tornado.runtime.graal.phases.TornadoFeatureExtraction#extractFeatures}.
+     * @param size
+     *            Size of the iteration space.
+     * @param bytesIn
+     *            Bytes copied to the device.
+     * @param bytesOut
+     *            Bytes copied back to the host.
+     */
+    public static double[] buildFeatures(Map<ProfilerCodeFeatures, Integer> codeFeatures, long size, long bytesIn, long bytesOut) {
+        final double floatOps = codeFeatures.get(ProfilerCodeFeatures.FLOAT_OPS) + codeFeatures.get(ProfilerCodeFeatures.F_MATH);
+        final double integerOps = codeFeatures.get(ProfilerCodeFeatures.INTEGER_OPS) + codeFeatures.get(ProfilerCodeFeatures.I_MATH);
+        final double memoryAccesses = codeFeatures.get(ProfilerCodeFeatures.GLOBAL_LOADS) + codeFeatures.get(ProfilerCodeFeatures.GLOBAL_STORES);
+        final double doubles = codeFeatures.get(ProfilerCodeFeatures.DOUBLES);
+        final double branches = codeFeatures.get(ProfilerCodeFeatures.IFS) + codeFeatures.get(ProfilerCodeFeatures.SWITCH);
+        // @formatter:off
+        return new double[] {
+                1.0,
+                Math.log1p(size),
+                Math.log1p(bytesIn),
+                Math.log1p(bytesOut),
+                Math.log1p(size * floatOps),
+                Math.log1p(size * doubles),
+                Math.log1p(size * integerOps),
+                Math.log1p(size * memoryAccesses),
+                Math.log1p(size * branches),
+                codeFeatures.get(ProfilerCodeFeatures.LOOPS),
+                branches,
+        };
+        // @formatter:on
+    }
+
+    /**
+     * Returns the index of the device with the lowest predicted time, or -1 if
+     * the model of any device is not confident yet.
+     */
+    public synchronized int selectDevice(String policy, String[] devices, double[] features) {
+        int bestDevice = -1;
+        double bestTime = Double.MAX_VALUE;
+        for (int i = 0; i < devices.length; i++) {
+            final Regression model = models.get(key(policy, devices[i]));
+            if (model == null || !isConfident(model)) {
+                return -1;
+            }
+            final double time = model.predict(features);
+            if (time < bestTime) {
+                bestTime = time;
+                bestDevice = i;
+            }
+        }
+        debug("device model: %s selects device %d (%s), predicted time %.0f ns", policy, bestDevice, devices[bestDevice], Math.exp(bestTime));
+        return bestDevice;
+    }
+
+    /**
+     * Adds a measured execution time of {@code device} to its model.
+     */
+    public synchronized void train(String policy, String device, double[] features, long timeNanoseconds) {
+        models.computeIfAbsent(key(policy, device), k -> new Regression()).add(features, Math.log(Math.max(timeNanoseconds, 1)));
+        dirty = true;
+    }
+
+    /**
+     * Whether the model of {@code device} has enough samples but predicts the
+     * measured times badly, and so the devices should be profiled again.
+     */
+    public synchronized boolean isInaccurate(String policy, String device) {
+        final Regression model = models.get(key(policy, device));
+        return model != null && model.samples >= minSamples && model.error > maxError;
+    }
+
+    private boolean isConfident(Regression model) {
+        return model.samples >= minSamples && model.error <= maxError;
+    }
+
+    private static String key(String policy, String device) {
+        return policy + ":" + device;
+    }
+
+    /**
+     * Adds the models stored in the file of the model.
+     */
+    public synchronized void load() {
+        final Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(file)) {
+            properties.load(stream);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            warn("unable to read the device performance model %s: %s", file, e.getMessage());
+            return;
+        }
+        if (!String.valueOf(VERSION).equals(properties.getProperty("version")) || !String.valueOf(NUM_FEATURES).equals(properties.getProperty("features"))) {
+            warn("discarding the device performance model %s: incompatible version", file);
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            if (name.endsWith(".samples")) {
+                final String key = name.substring(0, name.length() - ".samples".length());
+                try {
+                    models.put(key, Regression.decode(properties, key));
+                } catch (IllegalArgumentException e) {
+                    warn("discarding the device performance model of %s: %s", key, e.getMessage());
+                }
+            }
+        }
+        debug("device model: loaded %d models from %s", models.size(), file);
+    }
+
+    /**
+     * Writes the models to a temporary file and atomically renames it, so other
+     * processes never read partial models.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        final Properties properties = new Properties();
+        properties.setProperty("version", String.valueOf(VERSION));
+        properties.setProperty("features", String.valueOf(NUM_FEATURES));
+        models.forEach((key, model) -> model.encode(properties, key));
+
+        Path temp = null;
+        try {
+            final Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX);
+            try (OutputStream stream = Files.newOutputStream(temp)) {
+                properties.store(stream, "TornadoVM device performance model");
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            warn("unable to store the device performance model %s: %s", file, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing else to clean up
+                }
+            }
+        }
+    }
+
+    /**
+     * Ridge regression updated with one sample at a time. It keeps the normal
+     * equations, X^T X and X^T y, which are small enough to be solved for every
+     * prediction.
+     */
+    private static final class Regression {
+        private final double[] xtx = new double[NUM_FEATURES * NUM_FEATURES];
+        private final double[] xty = new double[NUM_FEATURES];
+        private long samples;
+        private double error = Double.POSITIVE_INFINITY;
+
+        /**
+         * The error is measured before the sample is added, so it reflects how well
+         * the model predicts unseen executions.
+         */
+        private void add(double[] x, double y) {
+            if (samples > 0) {
+                final double sampleError = Math.abs(predict(x) - y);
+                error = (samples == 1) ? sampleError : (1 - ERROR_SMOOTHING) * error + ERROR_SMOOTHING * sampleError;
+            }
+            for (int i = 0; i < NUM_FEATURES; i++) {
+                for (int j = 0; j < NUM_FEATURES; j++) {
+                    xtx[i * NUM_FEATURES + j] += x[i] * x[j];
+                }
+                xty[i] += x[i] * y;
+            }
+            samples++;
+        }
+
+        private double predict(double[] x) {
+            final double[] weights = solve();
+            double y = 0;
+            for (int i = 0; i < NUM_FEATURES; i++) {
+                y += weights[i] * x[i];
+            }
+            return y;
+        }
+
+        /**
+         * Solves (X^T X + lambda I) w = X^T y with Gaussian elimination.
+         */
+        private double[] solve() {
+            final int n = NUM_FEATURES;
+            final double[] a = Arrays.copyOf(xtx, xtx.length);
+            final double[] w = Arrays.copyOf(xty, n);
+            for (int i = 0; i < n; i++) {
+                a[i * n + i] += REGULARIZATION;
+            }
+            for (int col = 0; col < n; col++) {
+                int pivot = col;
+                for (int row = col + 1; row < n; row++) {
+                    if (Math.abs(a[row * n + col]) > Math.abs(a[pivot * n + col])) {
+                        pivot = row;
+                    }
+                }
+                if (pivot != col) {
+                    for (int k = 0; k < n; k++) {
+                        final double tmp = a[col * n + k];
+                        a[col * n + k] = a[pivot * n + k];
+                        a[pivot * n + k] = tmp;
+                    }
+                    final double tmp = w[col];
+                    w[col] = w[pivot];
+                    w[pivot] = tmp;
+                }
+                for (int row = col + 1; row < n; row++) {
+                    final double factor = a[row * n + col] / a[col * n + col];
+                    for (int k = col; k < n; k++) {
+                        a[row * n + k] -= factor * a[col * n + k];
+                    }
+                    w[row] -= factor * w[col];
+                }
+            }
+            for (int row = n - 1; row >= 0; row--) {
+                double sum = w[row];
+                for (int k = row + 1; k < n; k++) {
+                    sum -= a[row * n + k] * w[k];
+                }
+                w[row] = sum / a[row * n + row];
+            }
+            return w;
+        }
+
+        private void encode(Properties properties, String key) {
+            properties.setProperty(key + ".samples", Long.toString(samples));
+            properties.setProperty(key + ".error", Double.toString(error));
+            properties.setProperty(key + ".xtx", encodeArray(xtx));
+            properties.setProperty(key + ".xty", encodeArray(xty));
+        }
+
+        private static Regression decode(Properties properties, String key) {
+            final Regression model = new Regression();
+            model.samples = Long.parseLong(properties.getProperty(key + ".samples"));
+            model.error = Double.parseDouble(properties.getProperty(key + ".error", "Infinity"));
+            decodeArray(properties.getProperty(key + ".xtx", ""), model.xtx);
+            decodeArray(properties.getProperty(key + ".xty", ""), model.xty);
+            return model;
+        }
+
+        private static String encodeArray(double[] values) {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(values[i]);
+            }
+            return sb.toString();
+        }
+
+        private static void decodeArray(String encoded, double[] values) {
+            final String[] parts = encoded.split(",");
+            if (parts.length != values.length) {
+                throw new IllegalArgumentException("expected " + values.length + " values");
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Double.parseDouble(parts[i]);
+            }
+        }
+    }
+}
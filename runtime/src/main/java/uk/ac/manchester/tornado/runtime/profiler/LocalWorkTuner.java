@@ -0,0 +1,240 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.profiler;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+
+/**
+ * Table of tuned local work sizes, shared by all the OpenCL devices. The table
+ * only works with names, sizes and times, so it does not depend on the backend.
+ *
+ * <p>
+ * Entries are keyed by kernel, device, number of dimensions and global size
+ * bucket (the power of two below the global size of each dimension). While a
+ * kernel is being tuned, each candidate local size is used for
+ * {@link TornadoOptions#OPENCL_AUTOTUNE_SAMPLES} executions and the fastest
+ * candidate is stored. The table is written to
+ * {@link TornadoOptions#OPENCL_AUTOTUNE_FILE} after each kernel is tuned, so
+ * later runs start with the tuned sizes.
+ * </p>
+ */
+public class LocalWorkTuner {
+
+    private static final int VERSION = 1;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static LocalWorkTuner instance;
+
+    private final Path file;
+    private final int samples;
+    private final Map<String, long[]> tunedLocalWork;
+    private final Map<String, Tuning> tunings;
+
+    public LocalWorkTuner(Path file, int samples) {
+        this.file = file;
+        this.samples = Math.max(1, samples);
+        this.tunedLocalWork = new HashMap<>();
+        this.tunings = new HashMap<>();
+    }
+
+    public static synchronized LocalWorkTuner getInstance() {
+        if (instance == null) {
+            instance = new LocalWorkTuner(Paths.get(TornadoOptions.OPENCL_AUTOTUNE_FILE), TornadoOptions.OPENCL_AUTOTUNE_SAMPLES);
+            instance.loadTable();
+        }
+        return instance;
+    }
+
+    /**
+     * Adds the entries stored in the file of the table.
+     */
+    public synchronized void loadTable() {
+        tunedLocalWork.putAll(load());
+    }
+
+    /**
+     * Candidate local sizes of a kernel that is being tuned, and the fastest
+     * execution time measured for each one.
+     */
+    private static final class Tuning {
+        private final long[][] candidates;
+        private final long[] times;
+        private int candidate;
+        private int executions;
+
+        Tuning(long[][] candidates) {
+            this.candidates = candidates;
+            this.times = new long[candidates.length];
+            Arrays.fill(times, Long.MAX_VALUE);
+        }
+
+        private int getFastestCandidate() {
+            int fastest = 0;
+            for (int i = 1; i < times.length; i++) {
+                if (times[i] < times[fastest]) {
+                    fastest = i;
+                }
+            }
+            return fastest;
+        }
+    }
+
+    public static String getKey(String kernelName, String deviceName, int dims, long[] globalWork) {
+        final StringBuilder key = new StringBuilder(kernelName).append('@').append(deviceName).append('@').append(dims);
+        for (int i = 0; i < dims; i++) {
+            key.append(i == 0 ? ':' : 'x').append(1L << (63 - Long.numberOfLeadingZeros(Math.max(1, globalWork[i]))));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the local work of the next execution of the kernel {@code key}: the
+     * tuned size, or the next candidate while the kernel is being tuned.
+     *
+     * @param candidates
+     *            Local sizes to try, if the kernel has not been tuned yet. They
+     *            must be valid for the global size of the current execution.
+     */
+    public synchronized long[] selectLocalWork(String key, Supplier<long[][]> candidates) {
+        final long[] localWork = tunedLocalWork.get(key);
+        if (localWork != null) {
+            return localWork;
+        }
+        final Tuning tuning = tunings.computeIfAbsent(key, k -> new Tuning(candidates.get()));
+        return tuning.candidates[tuning.candidate];
+    }
+
+    public synchronized boolean isTuning(String key) {
+        return tunings.containsKey(key);
+    }
+
+    /**
+     * Records the execution time of the kernel {@code key} with the local size
+     * {@code localWork}. Once every candidate has been measured, the fastest one
+     * is stored.
+     */
+    public synchronized void record(String key, long[] localWork, long time) {
+        final Tuning tuning = tunings.get(key);
+        if (tuning == null || !Arrays.equals(tuning.candidates[tuning.candidate], localWork)) {
+            return;
+        }
+        tuning.times[tuning.candidate] = Math.min(tuning.times[tuning.candidate], time);
+        tuning.executions++;
+        if (tuning.executions < samples) {
+            return;
+        }
+        tuning.executions = 0;
+        tuning.candidate++;
+        if (tuning.candidate < tuning.candidates.length) {
+            return;
+        }
+
+        final int fastest = tuning.getFastestCandidate();
+        tunings.remove(key);
+        tunedLocalWork.put(key, tuning.candidates[fastest]);
+        debug("local work tuned for %s: %s (%d ns) from %d candidates", key, Arrays.toString(tuning.candidates[fastest]), tuning.times[fastest], tuning.candidates.length);
+        save();
+    }
+
+    private Map<String, long[]> load() {
+        final Map<String, long[]> table = new HashMap<>();
+        final Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(file)) {
+            properties.load(stream);
+        } catch (NoSuchFileException e) {
+            return table;
+        } catch (IOException | IllegalArgumentException e) {
+            warn("unable to read the local work table %s: %s", file, e.getMessage());
+            return table;
+        }
+        if (!String.valueOf(VERSION).equals(properties.getProperty("version"))) {
+            warn("discarding the local work table %s: incompatible version", file);
+            return table;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (key.equals("version")) {
+                continue;
+            }
+            try {
+                table.put(key, Arrays.stream(properties.getProperty(key).split(",")).mapToLong(Long::parseLong).toArray());
+            } catch (NumberFormatException e) {
+                warn("discarding the local work of %s: %s", key, e.getMessage());
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Merges the table with the entries stored by other processes, writes it to a
+     * temporary file and atomically renames it.
+     */
+    private void save() {
+        final Properties properties = new Properties();
+        properties.setProperty("version", String.valueOf(VERSION));
+        load().forEach((key, localWork) -> tunedLocalWork.putIfAbsent(key, localWork));
+        tunedLocalWork.forEach((key, localWork) -> properties.setProperty(key, Arrays.stream(localWork).mapToObj(Long::toString).reduce((a, b) -> a + "," + b).orElse("")));
+
+        Path temp = null;
+        try {
+            final Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX);
+            try (OutputStream stream = Files.newOutputStream(temp)) {
+                properties.store(stream, "TornadoVM OpenCL local work sizes");
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            warn("unable to store the local work table %s: %s", file, e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing else to clean up
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.graalvm.compiler.nodes.StructuredGraph;
+
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.code.InvalidInstalledCodeException;
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Reduce;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
+import uk.ac.manchester.tornado.api.common.TaskPackage;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.runtime.analyzer.CodeAnalysis;
+import uk.ac.manchester.tornado.runtime.analyzer.TaskFusionAnalysis;
+import uk.ac.manchester.tornado.runtime.analyzer.TaskUtils;
+import uk.ac.manchester.tornado.runtime.domain.Domain;
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Co-execution of a data-parallel task between its device and the host
+ * ({@code <schedule>.coexecution}).
+ *
+ * <p>
+ * The iteration space {@code [0, n)} of the task is divided in
+ * {@code <schedule>.coexecution.blocks} blocks. The device runs the first
+ * blocks, as in the hybrid mode of the {@link ReduceTaskSchedule}, with a
+ * task-schedule that limits the number of threads and copies only that prefix
+ * of the arrays that are indexed by the loop variable, while the other arrays
+ * are copied whole. Each of the remaining blocks runs in a
+ * host thread with a copy of the method compiled by Graal for that block. Both
+ * parts write disjoint ranges of the output arrays, so the results are merged
+ * in place.
+ * </p>
+ *
+ * <p>
+ * After each execution, the number of blocks of the device is updated from the
+ * throughput measured for the device and for the host. Executions that compile
+ * code are not measured.
+ * </p>
+ *
+ * <p>
+ * Only element-wise tasks, as defined by {@link TaskFusionAnalysis}, are
+ * co-executed: schedules with a single static task whose only loop is a
+ * one-dimensional {@code @Parallel} loop from zero, and whose stream-out arrays
+ * have {@code n} elements and are indexed by the loop variable.
+ * </p>
+ */
+class CoExecutionTaskSchedule {
+
+    private static final String TASK_SCHEDULE_PREFIX = "XXX__GENERATED_COEXECUTION";
+    private static final double THROUGHPUT_SMOOTHING = 0.5;
+    private static AtomicInteger counterName = new AtomicInteger(0);
+    private static ExecutorService hostExecutor;
+
+    private final String idTaskSchedule;
+    private final TaskPackage taskPackage;
+    private final TornadoDevice device;
+    private final List<Object> streamInObjects;
+    private final List<Object> streamOutObjects;
+    private final Set<Object> indexedByLoop;
+    private final int numIterations;
+    private final int numBlocks;
+    private final StructuredGraph hostGraph;
+
+    /**
+     * Task-schedule of the device, and host code, indexed by the number of blocks
+     * of the device and by block respectively.
+     */
+    private final TaskSchedule[] deviceSchedules;
+    private final InstalledCode[] hostCode;
+
+    private int deviceBlocks;
+    private double deviceThroughput;
+    private double hostThroughput;
+
+    private CoExecutionTaskSchedule(String idTaskSchedule, TaskPackage taskPackage, TornadoDevice device, List<Object> streamInObjects, List<Object> streamOutObjects, Set<Object> indexedByLoop,
+            int numIterations, int numBlocks, StructuredGraph hostGraph) {
+        this.idTaskSchedule = idTaskSchedule;
+        this.taskPackage = taskPackage;
+        this.device = device;
+        this.streamInObjects = new ArrayList<>(streamInObjects);
+        this.streamOutObjects = new ArrayList<>(streamOutObjects);
+        this.indexedByLoop = indexedByLoop;
+        this.numIterations = numIterations;
+        this.numBlocks = numBlocks;
+        this.hostGraph = hostGraph;
+        this.deviceSchedules = new TaskSchedule[numBlocks];
+        this.hostCode = new InstalledCode[numBlocks];
+        this.deviceBlocks = numBlocks / 2;
+    }
+
+    /**
+     * Builds the co-execution of a task that has already been executed on
+     * {@code device}, so the domain of its parallel loop is known.
+     *
+     * @return the co-execution, or null if the task cannot be split.
+     */
+    static CoExecutionTaskSchedule create(String idTaskSchedule, TaskPackage taskPackage, TaskMetaData meta, TornadoDevice device, List<Object> streamInObjects, List<Object> streamOutObjects,
+            int numBlocks) {
+        final Object code = taskPackage.getTaskParameters()[0];
+        final Method method = TaskUtils.resolveMethodHandle(code);
+        if (!Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != taskPackage.getTaskType() || hasReductions(method)) {
+            return null;
+        }
+
+        final DomainTree domainTree = meta.getDomain();
+        if (domainTree == null || domainTree.getDepth() != 1) {
+            return null;
+        }
+        final Domain domain = domainTree.get(0);
+        final int numIterations = domain.cardinality();
+        if (domain.map(0) != 0 || domain.map(1) != 1 || numBlocks < 2 || numIterations < numBlocks) {
+            return null;
+        }
+
+        final Set<Object> indexedByLoop = TaskFusionAnalysis.getArraysIndexedByLoop(taskPackage);
+        if (indexedByLoop == null) {
+            return null;
+        }
+        for (Object object : streamOutObjects) {
+            if (!isArrayOfLength(object, numIterations) || !indexedByLoop.contains(object)) {
+                return null;
+            }
+        }
+
+        final StructuredGraph hostGraph = CodeAnalysis.buildHighLevelGraalGraph(code);
+        if (hostGraph == null || !CodeAnalysis.performLoopRangeSubstitution((StructuredGraph) hostGraph.copy(getDebugContext()), 0, numIterations)) {
+            return null;
+        }
+        return new CoExecutionTaskSchedule(idTaskSchedule, taskPackage, device, streamInObjects, streamOutObjects, indexedByLoop, numIterations, numBlocks, hostGraph);
+    }
+
+    private static boolean hasReductions(Method method) {
+        for (Annotation[] annotations : method.getParameterAnnotations()) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Reduce) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isArrayOfLength(Object object, int length) {
+        return object.getClass().isArray() && object.getClass().getComponentType().isPrimitive() && Array.getLength(object) == length;
+    }
+
+    private static synchronized ExecutorService getHostExecutor() {
+        if (hostExecutor == null) {
+            final AtomicInteger threadId = new AtomicInteger(0);
+            hostExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, String.format("TornadoCoExecutionThread - %d", threadId.getAndIncrement()));
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return hostExecutor;
+    }
+
+    private int getBlockStart(int block) {
+        return (int) ((long) numIterations * block / numBlocks);
+    }
+
+    /**
+     * Task-schedule that runs the iterations {@code [0, split)} on the device and
+     * copies only that range of the arrays indexed by the loop variable.
+     */
+    private TaskSchedule getDeviceSchedule(int blocks) {
+        if (deviceSchedules[blocks] != null) {
+            return deviceSchedules[blocks];
+        }
+        final int split = getBlockStart(blocks);
+        final ArrayRange range = new ArrayRange(0, split);
+        final TaskSchedule taskSchedule = new TaskSchedule(TASK_SCHEDULE_PREFIX + counterName.getAndIncrement());
+        for (Object object : streamInObjects) {
+            if (isArrayOfLength(object, numIterations) && indexedByLoop.contains(object)) {
+                taskSchedule.streamIn(object, range);
+            } else {
+                taskSchedule.streamIn(object);
+            }
+        }
+
+        final long numThreads = taskPackage.getNumThreadsToRun();
+        taskPackage.setNumThreadsToRun(split);
+        taskSchedule.addTask(taskPackage);
+        taskPackage.setNumThreadsToRun(numThreads);
+
+        for (Object object : streamOutObjects) {
+            taskSchedule.streamOut(object, range);
+        }
+        taskSchedule.mapAllTo(device);
+        deviceSchedules[blocks] = taskSchedule;
+        return taskSchedule;
+    }
+
+    /**
+     * Compiles the host code of a block. Compilations are serialised because they
+     * share the Graal debug context.
+     */
+    private InstalledCode getHostCode(int block) {
+        synchronized (CoExecutionTaskSchedule.class) {
+            if (hostCode[block] == null) {
+                StructuredGraph graph = (StructuredGraph) hostGraph.copy(getDebugContext());
+                CodeAnalysis.performLoopRangeSubstitution(graph, getBlockStart(block), getBlockStart(block + 1));
+                hostCode[block] = CodeAnalysis.compileAndInstallMethod(graph);
+            }
+            return hostCode[block];
+        }
+    }
+
+    /**
+     * @return the time at which the block has finished.
+     */
+    private long runHostBlock(int block, Object[] arguments) {
+        try {
+            getHostCode(block).executeVarargs(arguments);
+        } catch (InvalidInstalledCodeException e) {
+            throw new TornadoRuntimeException(e);
+        }
+        return System.nanoTime();
+    }
+
+    void execute() {
+        final int blocks = deviceBlocks;
+        final Object[] parameters = taskPackage.getTaskParameters();
+        final Object[] arguments = Arrays.copyOfRange(parameters, 1, parameters.length);
+
+        // Executions that compile code are not representative
+        boolean measure = deviceSchedules[blocks] != null;
+        final long start = System.nanoTime();
+        final List<Future<Long>> hostBlocks = new ArrayList<>();
+        for (int block = blocks; block < numBlocks; block++) {
+            measure &= hostCode[block] != null;
+            final int hostBlock = block;
+            hostBlocks.add(getHostExecutor().submit(() -> runHostBlock(hostBlock, arguments)));
+        }
+
+        getDeviceSchedule(blocks).execute();
+        final long deviceTime = System.nanoTime() - start;
+
+        long hostEnd = start;
+        for (Future<Long> hostBlock : hostBlocks) {
+            try {
+                hostEnd = Math.max(hostEnd, hostBlock.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TornadoRuntimeException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new TornadoRuntimeException(e);
+            }
+        }
+
+        if (measure) {
+            updateDeviceBlocks(blocks, deviceTime, hostEnd - start);
+        }
+    }
+
+    /**
+     * Gives the device a share of the blocks proportional to its throughput. The
+     * device and the host keep at least one block each, so both throughputs are
+     * measured in the next execution.
+     */
+    private void updateDeviceBlocks(int blocks, long deviceTime, long hostTime) {
+        final double lastDeviceThroughput = (double) blocks / Math.max(deviceTime, 1);
+        final double lastHostThroughput = (double) (numBlocks - blocks) / Math.max(hostTime, 1);
+        if (deviceThroughput == 0) {
+            deviceThroughput = lastDeviceThroughput;
+            hostThroughput = lastHostThroughput;
+        } else {
+            deviceThroughput = THROUGHPUT_SMOOTHING * lastDeviceThroughput + (1 - THROUGHPUT_SMOOTHING) * deviceThroughput;
+            hostThroughput = THROUGHPUT_SMOOTHING * lastHostThroughput + (1 - THROUGHPUT_SMOOTHING) * hostThroughput;
+        }
+        final int newBlocks = (int) Math.round(numBlocks * deviceThroughput / (deviceThroughput + hostThroughput));
+        deviceBlocks = Math.max(1, Math.min(numBlocks - 1, newBlocks));
+        debug("co-execution of %s: device %d/%d blocks (%d ns), host %d/%d blocks (%d ns), next %d/%d blocks on %s", idTaskSchedule, blocks, numBlocks, deviceTime, numBlocks - blocks, numBlocks,
+                hostTime, deviceBlocks, numBlocks, device);
+    }
+}
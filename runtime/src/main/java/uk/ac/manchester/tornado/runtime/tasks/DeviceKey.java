@@ -0,0 +1,114 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+
+/**
+ * Device selected by the dynamic reconfiguration, identified by its driver and
+ * its index in the driver. {@link #SEQUENTIAL} is the Java code running in the
+ * host JVM.
+ */
+public final class DeviceKey {
+
+    public static final DeviceKey SEQUENTIAL = new DeviceKey(-1, -1);
+
+    private final int driverIndex;
+    private final int deviceIndex;
+
+    public DeviceKey(int driverIndex, int deviceIndex) {
+        this.driverIndex = driverIndex;
+        this.deviceIndex = deviceIndex;
+    }
+
+    /**
+     * All the devices considered by the dynamic reconfiguration: every device of
+     * every driver, in driver order. Index {@code i} of the profiler timers
+     * corresponds to device {@code i}, and the last timer to the sequential code.
+     *
+     * @param devicesPerDriver
+     *            number of devices of each driver.
+     */
+    public static List<DeviceKey> listDevices(int[] devicesPerDriver) {
+        List<DeviceKey> devices = new ArrayList<>();
+        for (int driverIndex = 0; driverIndex < devicesPerDriver.length; driverIndex++) {
+            for (int deviceIndex = 0; deviceIndex < devicesPerDriver[driverIndex]; deviceIndex++) {
+                devices.add(new DeviceKey(driverIndex, deviceIndex));
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * @return the device of the profiler timer {@code index}, see
+     *         {@link #listDevices}.
+     */
+    public static DeviceKey select(List<DeviceKey> devices, int index) {
+        return (index < devices.size()) ? devices.get(index) : SEQUENTIAL;
+    }
+
+    public int getDriverIndex() {
+        return driverIndex;
+    }
+
+    public int getDeviceIndex() {
+        return deviceIndex;
+    }
+
+    public boolean isSequential() {
+        return driverIndex < 0;
+    }
+
+    TornadoDevice getDevice() {
+        return getTornadoRuntime().getDriver(driverIndex).getDevice(deviceIndex);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof DeviceKey)) {
+            return false;
+        }
+        DeviceKey other = (DeviceKey) obj;
+        return driverIndex == other.driverIndex && deviceIndex == other.deviceIndex;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(driverIndex, deviceIndex);
+    }
+
+    /**
+     * @return the device in the format of the {@code <task>.device} option.
+     */
+    @Override
+    public String toString() {
+        return driverIndex + ":" + deviceIndex;
+    }
+}
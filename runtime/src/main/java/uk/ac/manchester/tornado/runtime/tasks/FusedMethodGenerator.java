@@ -0,0 +1,303 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+
+/**
+ * Generates the Java method of a fused task: a static method that receives the
+ * arguments of all the fused tasks and calls the task methods in order. The
+ * sketcher inlines the calls, so the loops of the tasks end up in the same
+ * kernel.
+ *
+ * <p>
+ * The method is written directly as a class file, since it only loads its
+ * parameters and calls other static methods, and it is defined in a child of
+ * the class loader of the first task.
+ * </p>
+ */
+public final class FusedMethodGenerator {
+
+    private static final String CLASS_NAME_PREFIX = "uk/ac/manchester/tornado/runtime/generated/FusedTasks";
+    private static final AtomicInteger counterName = new AtomicInteger(0);
+
+    private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+    private static final int CLASS_FILE_VERSION = 52;
+    private static final int MAX_LOCALS = 255;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ILOAD = 0x15;
+    private static final int LLOAD = 0x16;
+    private static final int FLOAD = 0x17;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int RETURN = 0xB1;
+    private static final int INVOKESTATIC = 0xB8;
+
+    private FusedMethodGenerator() {
+    }
+
+    private static final class FusedClassLoader extends ClassLoader {
+        FusedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * Constant pool of the class file. Entries are shared by key.
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        private int add(String key, int tag, int first, int second, String utf8) throws IOException {
+            Integer index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+            out.writeByte(tag);
+            if (utf8 != null) {
+                out.writeUTF(utf8);
+            } else {
+                out.writeShort(first);
+                if (second >= 0) {
+                    out.writeShort(second);
+                }
+            }
+            index = count++;
+            entries.put(key, index);
+            return index;
+        }
+
+        int utf8(String value) throws IOException {
+            return add("U" + value, CONSTANT_UTF8, 0, -1, value);
+        }
+
+        int classRef(String internalName) throws IOException {
+            final int name = utf8(internalName);
+            return add("C" + internalName, CONSTANT_CLASS, name, -1, null);
+        }
+
+        int methodRef(String owner, String name, String descriptor) throws IOException {
+            final int klass = classRef(owner);
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            final int nameAndType = add("N" + name + descriptor, CONSTANT_NAME_AND_TYPE, nameIndex, descriptorIndex, null);
+            return add("M" + owner + "." + name + descriptor, CONSTANT_METHODREF, klass, nameAndType, null);
+        }
+    }
+
+    /**
+     * Returns true if {@code method} has been generated for fused tasks.
+     */
+    public static boolean isFusedMethod(ResolvedJavaMethod method) {
+        return method != null && method.getDeclaringClass().getName().startsWith("L" + CLASS_NAME_PREFIX);
+    }
+
+    /**
+     * Generates a static method with the parameters {@code parameterTypes} that
+     * calls each method of {@code methods}. The argument {@code j} of the method
+     * {@code i} is the parameter {@code argumentIndexes[i][j]} of the generated
+     * method.
+     *
+     * @param methods
+     *            Public static void methods of public classes.
+     * @return the generated method, or null if the task methods are not visible
+     *         from the class loader of the first method or the parameters do not
+     *         fit in the local variables of a method.
+     */
+    public static Method generate(Method[] methods, int[][] argumentIndexes, Class<?>[] parameterTypes) {
+        final ClassLoader parent = methods[0].getDeclaringClass().getClassLoader();
+        for (Method method : methods) {
+            if (!isVisible(method.getDeclaringClass(), parent)) {
+                return null;
+            }
+        }
+
+        final int[] slots = new int[parameterTypes.length];
+        int numLocals = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            slots[i] = numLocals;
+            numLocals += getSlotSize(parameterTypes[i]);
+        }
+        if (numLocals > MAX_LOCALS) {
+            return null;
+        }
+
+        final StringBuilder name = new StringBuilder();
+        for (Method method : methods) {
+            name.append(name.length() == 0 ? "" : "_").append(method.getName());
+        }
+        final String className = CLASS_NAME_PREFIX + counterName.getAndIncrement();
+        try {
+            final byte[] classFile = buildClassFile(className, name.toString(), methods, argumentIndexes, parameterTypes, slots, numLocals);
+            final Class<?> klass = new FusedClassLoader(parent).define(className.replace('/', '.'), classFile);
+            return klass.getMethod(name.toString(), parameterTypes);
+        } catch (IOException | NoSuchMethodException e) {
+            throw new TornadoRuntimeException(e.getMessage());
+        }
+    }
+
+    private static boolean isVisible(Class<?> klass, ClassLoader loader) {
+        try {
+            return Class.forName(klass.getName(), false, loader) == klass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static int getSlotSize(Class<?> type) {
+        return (type == long.class || type == double.class) ? 2 : 1;
+    }
+
+    private static int getLoadOpcode(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return ALOAD;
+        } else if (type == long.class) {
+            return LLOAD;
+        } else if (type == float.class) {
+            return FLOAD;
+        } else if (type == double.class) {
+            return DLOAD;
+        }
+        return ILOAD;
+    }
+
+    private static String getDescriptor(Class<?> type) {
+        if (type.isArray()) {
+            return type.getName().replace('.', '/');
+        } else if (type == int.class) {
+            return "I";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == float.class) {
+            return "F";
+        } else if (type == double.class) {
+            return "D";
+        } else if (type == short.class) {
+            return "S";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == char.class) {
+            return "C";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == void.class) {
+            return "V";
+        }
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    private static String getDescriptor(Class<?>[] parameterTypes) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (Class<?> type : parameterTypes) {
+            descriptor.append(getDescriptor(type));
+        }
+        return descriptor.append(")V").toString();
+    }
+
+    private static byte[] buildClassFile(String className, String methodName, Method[] methods, int[][] argumentIndexes, Class<?>[] parameterTypes, int[] slots, int numLocals)
+            throws IOException {
+        final ConstantPool constants = new ConstantPool();
+        final int thisClass = constants.classRef(className);
+        final int superClass = constants.classRef("java/lang/Object");
+        final int name = constants.utf8(methodName);
+        final int descriptor = constants.utf8(getDescriptor(parameterTypes));
+        final int codeAttribute = constants.utf8("Code");
+
+        final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        final DataOutputStream code = new DataOutputStream(codeBytes);
+        int maxStack = 0;
+        for (int i = 0; i < methods.length; i++) {
+            int stack = 0;
+            for (int parameter : argumentIndexes[i]) {
+                code.writeByte(getLoadOpcode(parameterTypes[parameter]));
+                code.writeByte(slots[parameter]);
+                stack += getSlotSize(parameterTypes[parameter]);
+            }
+            maxStack = Math.max(maxStack, stack);
+            final String owner = methods[i].getDeclaringClass().getName().replace('.', '/');
+            code.writeByte(INVOKESTATIC);
+            code.writeShort(constants.methodRef(owner, methods[i].getName(), getDescriptor(methods[i].getParameterTypes())));
+        }
+        code.writeByte(RETURN);
+        code.flush();
+
+        final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(classBytes);
+        out.writeInt(CLASS_FILE_MAGIC);
+        out.writeShort(0);
+        out.writeShort(CLASS_FILE_VERSION);
+        constants.out.flush();
+        out.writeShort(constants.count);
+        out.write(constants.bytes.toByteArray());
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+
+        out.writeShort(1); // methods
+        out.writeShort(ACC_PUBLIC | ACC_STATIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1); // attributes
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + codeBytes.size());
+        out.writeShort(maxStack);
+        out.writeShort(numLocals);
+        out.writeInt(codeBytes.size());
+        out.write(codeBytes.toByteArray());
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+
+        out.writeShort(0); // attributes
+        out.flush();
+        return classBytes.toByteArray();
+    }
+}
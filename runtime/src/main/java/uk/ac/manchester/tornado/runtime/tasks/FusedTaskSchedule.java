@@ -0,0 +1,193 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.graalvm.compiler.graph.Graph;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.common.TaskPackage;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.exceptions.TornadoBailoutRuntimeException;
+import uk.ac.manchester.tornado.api.exceptions.TornadoInternalError;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.runtime.analyzer.TaskFusionAnalysis;
+import uk.ac.manchester.tornado.runtime.analyzer.TaskUtils;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
+import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
+
+/**
+ * Task fusion of a task-schedule ({@code <schedule>.fusion}).
+ *
+ * <p>
+ * The consecutive tasks found by {@link TaskFusionAnalysis} are replaced by a
+ * single task, whose method is generated by {@link FusedMethodGenerator} and
+ * calls the methods of the tasks in order. The sketcher inlines the calls and
+ * maps the parallel loops of all the tasks to the same dimension, so each
+ * thread of the fused kernel runs the iterations of the producer and then the
+ * same iterations of the consumer. The task-schedule saves a kernel launch per
+ * fused task, and the arrays passed between fused tasks are read by the thread
+ * that has written them.
+ * </p>
+ *
+ * <p>
+ * The fused task-schedule streams the same objects in and out as the original
+ * one. If any of the fused tasks bails out, it runs the original tasks as
+ * sequential Java.
+ * </p>
+ */
+class FusedTaskSchedule {
+
+    private static final String TASK_SCHEDULE_PREFIX = "XXX__GENERATED_FUSION";
+    private static AtomicInteger counterName = new AtomicInteger(0);
+
+    private final TornadoTaskSchedule taskSchedule;
+
+    private FusedTaskSchedule(TornadoTaskSchedule taskSchedule) {
+        this.taskSchedule = taskSchedule;
+    }
+
+    /**
+     * Builds the task-schedule that runs {@code taskPackages} on
+     * {@code device} with the fusible tasks merged.
+     *
+     * @return the fused task-schedule, or null if no tasks can be fused.
+     */
+    static FusedTaskSchedule create(String idTaskSchedule, List<TaskPackage> taskPackages, TornadoDevice device, List<Object> streamInObjects, List<Object> streamOutObjects) {
+        final List<List<TaskPackage>> groups = TaskFusionAnalysis.computeFusionGroups(taskPackages);
+        if (groups.size() == taskPackages.size()) {
+            return null;
+        }
+
+        final TornadoTaskSchedule taskSchedule = new TornadoTaskSchedule(TASK_SCHEDULE_PREFIX + counterName.getAndIncrement());
+        final List<CompilableTask> fusedTasks = new ArrayList<>();
+        final List<Integer> fusedSizes = new ArrayList<>();
+        try {
+            for (Object object : streamInObjects) {
+                taskSchedule.streamInInner(object);
+            }
+            for (List<TaskPackage> group : groups) {
+                if (group.size() == 1) {
+                    taskSchedule.addTask(group.get(0));
+                    continue;
+                }
+                final CompilableTask task = createFusedTask(taskSchedule.meta(), group);
+                if (task == null) {
+                    return null;
+                }
+                taskSchedule.addFusedTask(task, group);
+                fusedTasks.add(task);
+                fusedSizes.add(group.size());
+            }
+            for (Object object : streamOutObjects) {
+                taskSchedule.streamOutInner(object);
+            }
+            taskSchedule.setDevice(device);
+
+            if (taskSchedule.isBailout()) {
+                return null;
+            }
+            for (int i = 0; i < fusedTasks.size(); i++) {
+                if (!hasFusedLoops(fusedTasks.get(i), fusedSizes.get(i))) {
+                    debug("task fusion of %s: the loops of %s are not in a single dimension", idTaskSchedule, fusedTasks.get(i).getTaskName());
+                    return null;
+                }
+            }
+        } catch (TornadoBailoutRuntimeException | TornadoRuntimeException | TornadoInternalError e) {
+            debug("task fusion of %s failed: %s", idTaskSchedule, e.getMessage());
+            return null;
+        }
+        debug("task fusion of %s: %d tasks in %d kernels", idTaskSchedule, taskPackages.size(), groups.size());
+        return new FusedTaskSchedule(taskSchedule);
+    }
+
+    /**
+     * Creates the task that calls the tasks of {@code group}. Each array is passed
+     * once to the fused method, so the tasks share a single buffer for it.
+     */
+    private static CompilableTask createFusedTask(ScheduleMetaData meta, List<TaskPackage> group) {
+        final Method[] methods = new Method[group.size()];
+        final int[][] argumentIndexes = new int[group.size()][];
+        final List<Object> arguments = new ArrayList<>();
+        final List<Class<?>> parameterTypes = new ArrayList<>();
+        final Map<Object, Integer> arrays = new IdentityHashMap<>();
+        final StringBuilder id = new StringBuilder();
+
+        for (int i = 0; i < group.size(); i++) {
+            final TaskPackage taskPackage = group.get(i);
+            final Object[] parameters = taskPackage.getTaskParameters();
+            methods[i] = TaskUtils.resolveMethodHandle(parameters[0]);
+            final Class<?>[] types = methods[i].getParameterTypes();
+            argumentIndexes[i] = new int[types.length];
+            for (int j = 0; j < types.length; j++) {
+                final Object argument = parameters[j + 1];
+                Integer index = types[j].isArray() ? arrays.get(argument) : null;
+                if (index == null) {
+                    index = arguments.size();
+                    arguments.add(argument);
+                    parameterTypes.add(types[j]);
+                    if (types[j].isArray()) {
+                        arrays.put(argument, index);
+                    }
+                }
+                argumentIndexes[i][j] = index;
+            }
+            id.append(id.length() == 0 ? "" : "_").append(taskPackage.getId());
+        }
+
+        final Method method = FusedMethodGenerator.generate(methods, argumentIndexes, parameterTypes.toArray(new Class<?>[0]));
+        if (method == null) {
+            return null;
+        }
+        return new CompilableTask(meta, id.toString(), method, arguments.toArray());
+    }
+
+    /**
+     * Checks that the sketch of the fused task has inlined all the tasks and
+     * that their parallel loops share the first dimension.
+     */
+    private static boolean hasFusedLoops(CompilableTask task, int numTasks) {
+        final ResolvedJavaMethod method = getTornadoRuntime().resolveMethod(task.getMethod());
+        final Sketch sketch = TornadoSketcher.lookup(method, task.meta().getDriverIndex(), task.meta().getDeviceIndex());
+        final Graph graph = sketch.getGraph().getReadonlyCopy();
+        final List<ParallelRangeNode> ranges = graph.getNodes().filter(ParallelRangeNode.class).snapshot();
+        return ranges.size() == numTasks && ranges.stream().allMatch(range -> range.index() == 0);
+    }
+
+    void execute() {
+        taskSchedule.schedule();
+        taskSchedule.waitOn();
+    }
+}
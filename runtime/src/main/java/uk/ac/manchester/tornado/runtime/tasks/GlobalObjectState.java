@@ -31,6 +31,7 @@ import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class GlobalObjectState implements TornadoGlobalObjectState {
 
@@ -39,13 +40,36 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
 
     private TornadoAcceleratorDevice owner;
 
+    /**
+     * Incremented every time the host copy of the object is marked as dirty.
+     * Device states record the version they hold, see
+     * {@link DeviceObjectState#getHostVersion()}.
+     */
+    private final AtomicLong hostVersion;
+
     private final ConcurrentHashMap<TornadoAcceleratorDevice, DeviceObjectState> deviceStates;
 
+    /**
+     * Additional device buffers used by pipelined batches. Slot 0 is always the
+     * state in {@link #deviceStates}.
+     */
+    private final ConcurrentHashMap<TornadoAcceleratorDevice, DeviceObjectState[]> slotStates;
+
     public GlobalObjectState() {
         shared = false;
         exclusive = false;
         owner = null;
         deviceStates = new ConcurrentHashMap<>();
+        slotStates = new ConcurrentHashMap<>();
+        hostVersion = new AtomicLong();
+    }
+
+    public void markDirty() {
+        hostVersion.incrementAndGet();
+    }
+
+    public long getHostVersion() {
+        return hostVersion.get();
     }
 
     public boolean isShared() {
@@ -68,10 +92,33 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
         if (!(device instanceof TornadoAcceleratorDevice)) {
             throw new RuntimeException("Device not compatible");
         }
-        if (!deviceStates.containsKey(device)) {
-            deviceStates.put((TornadoAcceleratorDevice) device, new DeviceObjectState());
+        return deviceStates.computeIfAbsent((TornadoAcceleratorDevice) device, key -> new DeviceObjectState());
+    }
+
+    public DeviceObjectState getDeviceState(TornadoDevice device, int slot) {
+        if (slot == 0) {
+            return getDeviceState(device);
+        }
+        if (!(device instanceof TornadoAcceleratorDevice)) {
+            throw new RuntimeException("Device not compatible");
         }
-        return deviceStates.get(device);
+        // The arrays of slots are copied on write inside the map, so a state is
+        // never lost when threads resolve different slots of the same device
+        DeviceObjectState[] states = slotStates.get(device);
+        if (states == null || states.length < slot || states[slot - 1] == null) {
+            states = slotStates.compute((TornadoAcceleratorDevice) device, (key, current) -> {
+                if (current != null && current.length >= slot && current[slot - 1] != null) {
+                    return current;
+                }
+                final DeviceObjectState[] result = new DeviceObjectState[Math.max(slot, (current != null) ? current.length : 0)];
+                if (current != null) {
+                    System.arraycopy(current, 0, result, 0, current.length);
+                }
+                result[slot - 1] = new DeviceObjectState();
+                return result;
+            });
+        }
+        return states[slot - 1];
     }
 
     public void setOwner(TornadoDevice device) {
@@ -89,10 +136,18 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
             final DeviceObjectState deviceState = deviceStates.get(device);
             deviceState.invalidate();
         }
+        for (DeviceObjectState[] states : slotStates.values()) {
+            for (DeviceObjectState state : states) {
+                if (state != null) {
+                    state.invalidate();
+                }
+            }
+        }
     }
 
     public void clear() {
         deviceStates.clear();
+        slotStates.clear();
     }
 
     @Override
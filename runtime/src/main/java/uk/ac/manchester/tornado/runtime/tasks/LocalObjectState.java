@@ -27,6 +27,7 @@ package uk.ac.manchester.tornado.runtime.tasks;
 
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
 
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.common.Event;
 import uk.ac.manchester.tornado.runtime.EmptyEvent;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
@@ -37,6 +38,9 @@ public class LocalObjectState {
     private boolean streamIn;
     private boolean forceStreamIn;
     private boolean streamOut;
+    private boolean broadcast;
+    private ArrayRange streamInRange;
+    private ArrayRange streamOutRange;
 
     private GlobalObjectState global;
     private DeviceObjectState device;
@@ -72,6 +76,42 @@ public class LocalObjectState {
         this.streamOut = streamOut;
     }
 
+    /**
+     * @return true if the object is copied whole to every batch instead of
+     *         being split across batches.
+     */
+    public boolean isBroadcast() {
+        return broadcast;
+    }
+
+    void setBroadcast(boolean broadcast) {
+        this.broadcast = broadcast;
+    }
+
+    /**
+     * @return the elements copied by the stream-in of the object, or null if the
+     *         whole object is copied.
+     */
+    public ArrayRange getStreamInRange() {
+        return streamInRange;
+    }
+
+    void setStreamInRange(ArrayRange range) {
+        this.streamInRange = range;
+    }
+
+    /**
+     * @return the elements copied by the stream-out of the object, or null if
+     *         the whole object is copied.
+     */
+    public ArrayRange getStreamOutRange() {
+        return streamOutRange;
+    }
+
+    void setStreamOutRange(ArrayRange range) {
+        this.streamOutRange = range;
+    }
+
     public boolean isModified() {
         return global.getDeviceState(getOwner()).isModified();
     }
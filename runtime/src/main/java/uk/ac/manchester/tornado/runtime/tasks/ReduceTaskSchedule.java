@@ -30,6 +30,7 @@ import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContex
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -40,6 +41,7 @@ import org.graalvm.compiler.nodes.StructuredGraph;
 import jdk.vm.ci.code.InstalledCode;
 import jdk.vm.ci.code.InvalidInstalledCodeException;
 import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
 import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
@@ -75,6 +77,7 @@ class ReduceTaskSchedule {
     private ArrayList<HybridThreadMeta> hybridThreadMetas;
     private HashMap<Object, Object> neutralElementsNew = new HashMap<>();
     private HashMap<Object, Object> neutralElementsOriginal = new HashMap<>();
+    private HashSet<Object> singlePassReduceArrays = new HashSet<>();
     private TaskSchedule rewrittenTaskSchedule;
     private HashMap<Object, LinkedList<Integer>> reduceOperandTable;
     private CachedGraph<?> sketchGraph;
@@ -487,9 +490,18 @@ class ReduceTaskSchedule {
 
                     // Set the new array size
                     int sizeReductionArray = obtainSizeArrayResult(driverToRun, deviceToRun, inputSize);
+                    boolean singlePass = isSinglePassReduction(driverToRun, deviceToRun);
+                    if (singlePass) {
+                        // Extra element for the counter of finished work-groups
+                        sizeReductionArray++;
+                    }
                     Object newDeviceArray = createNewReduceArray(originalReduceArray, sizeReductionArray);
                     Object neutralElement = getNeutralElement(originalReduceArray);
                     fillOutputArrayWithNeutral(newDeviceArray, neutralElement);
+                    if (singlePass) {
+                        resetCounter(newDeviceArray);
+                        singlePassReduceArrays.add(newDeviceArray);
+                    }
 
                     neutralElementsNew.put(newDeviceArray, neutralElement);
                     neutralElementsOriginal.put(originalReduceArray, neutralElement);
@@ -582,26 +594,30 @@ class ReduceTaskSchedule {
                     Object newArray = streamUpdateList.get(i);
                     int sizeReduceArray = sizesReductionArray.get(i);
                     for (REDUCE_OPERATION operation : operations) {
-                        final String newTaskSequentialName = SEQUENTIAL_TASK_REDUCE_NAME + counterSeqName.get();
-                        String fullName = rewrittenTaskSchedule.getTaskScheduleName() + "." + newTaskSequentialName;
-                        TornadoRuntime.setProperty(fullName + ".device", driverToRun + ":" + deviceToRun);
-                        inspectBinariesFPGA(taskScheduleReduceName, tsName, taskPackage.getId(), true);
-
-                        switch (operation) {
-                            case ADD:
-                                ReduceFactory.handleAdd(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
-                                break;
-                            case MUL:
-                                ReduceFactory.handleMul(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
-                                break;
-                            case MAX:
-                                ReduceFactory.handleMax(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
-                                break;
-                            case MIN:
-                                ReduceFactory.handleMin(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
-                                break;
-                            default:
-                                throw new TornadoRuntimeException("[ERROR] Reduce operation not supported yet.");
+                        // Single-pass reductions are finalised by the parallel task
+                        if (!singlePassReduceArrays.contains(newArray)) {
+                            final String newTaskSequentialName = SEQUENTIAL_TASK_REDUCE_NAME + counterSeqName.get();
+                            String fullName = rewrittenTaskSchedule.getTaskScheduleName() + "." + newTaskSequentialName;
+                            TornadoRuntime.setProperty(fullName + ".device", driverToRun + ":" + deviceToRun);
+                            inspectBinariesFPGA(taskScheduleReduceName, tsName, taskPackage.getId(), true);
+
+                            switch (operation) {
+                                case ADD:
+                                    ReduceFactory.handleAdd(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
+                                    break;
+                                case MUL:
+                                    ReduceFactory.handleMul(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
+                                    break;
+                                case MAX:
+                                    ReduceFactory.handleMax(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
+                                    break;
+                                case MIN:
+                                    ReduceFactory.handleMin(newArray, rewrittenTaskSchedule, sizeReduceArray, newTaskSequentialName);
+                                    break;
+                                default:
+                                    throw new TornadoRuntimeException("[ERROR] Reduce operation not supported yet.");
+                            }
+                            counterSeqName.incrementAndGet();
                         }
 
                         if (hybridMode) {
@@ -610,17 +626,32 @@ class ReduceTaskSchedule {
                             }
                             hybridMergeTable.put(newArray, operation);
                         }
-                        counterSeqName.incrementAndGet();
                     }
                 }
             }
         }
-        TornadoTaskSchedule.performStreamOutThreads(rewrittenTaskSchedule, streamOutObjects);
+        performStreamOut();
         executeExpression();
         counterName.incrementAndGet();
         return rewrittenTaskSchedule;
     }
 
+    /**
+     * Only the final result of single-pass reductions, in the first element of
+     * the array, is copied back to the host.
+     */
+    private void performStreamOut() {
+        ArrayList<Object> fullStreamOutObjects = new ArrayList<>();
+        for (Object object : streamOutObjects) {
+            if (singlePassReduceArrays.contains(object)) {
+                rewrittenTaskSchedule.streamOut(object, new ArrayRange(0, 1));
+            } else {
+                fullStreamOutObjects.add(object);
+            }
+        }
+        TornadoTaskSchedule.performStreamOutThreads(rewrittenTaskSchedule, fullStreamOutObjects);
+    }
+
     void executeExpression() {
         setNeutralElement();
         if (hybridMode && !hybridInitialized) {
@@ -640,6 +671,9 @@ class ReduceTaskSchedule {
             Object newArray = pair.getKey();
             Object neutralElement = pair.getValue();
             fillOutputArrayWithNeutral(newArray, neutralElement);
+            if (singlePassReduceArrays.contains(newArray)) {
+                resetCounter(newArray);
+            }
 
             // Hybrid Execution
             if (hostHybridVariables != null && hostHybridVariables.containsKey(newArray)) {
@@ -783,6 +817,38 @@ class ReduceTaskSchedule {
         }
     }
 
+    /**
+     * Reductions on GPUs and FPGAs are finalised on the device when
+     * {@link TornadoOptions#REDUCE_SINGLE_PASS} is enabled. The array of partial
+     * results has then an extra element at the end, which the kernel uses as the
+     * counter of finished work-groups.
+     */
+    private static boolean isSinglePassReduction(int driverIndex, int device) {
+        if (!TornadoOptions.REDUCE_SINGLE_PASS) {
+            return false;
+        }
+        TornadoDeviceType deviceType = TornadoCoreRuntime.getTornadoRuntime().getDriver(driverIndex).getDevice(device).getDeviceType();
+        return deviceType == TornadoDeviceType.GPU || deviceType == TornadoDeviceType.ACCELERATOR;
+    }
+
+    private static void resetCounter(Object reduceArray) {
+        if (reduceArray instanceof int[]) {
+            int[] array = (int[]) reduceArray;
+            array[array.length - 1] = 0;
+        } else if (reduceArray instanceof float[]) {
+            float[] array = (float[]) reduceArray;
+            array[array.length - 1] = 0.0f;
+        } else if (reduceArray instanceof double[]) {
+            double[] array = (double[]) reduceArray;
+            array[array.length - 1] = 0.0;
+        } else if (reduceArray instanceof long[]) {
+            long[] array = (long[]) reduceArray;
+            array[array.length - 1] = 0L;
+        } else {
+            throw new TornadoRuntimeException("[ERROR] reduce type not supported yet: " + reduceArray.getClass());
+        }
+    }
+
     /**
      * @param driverIndex
      *            Index within the Tornado drivers' index
@@ -25,6 +25,7 @@
  */
 package uk.ac.manchester.tornado.runtime.tasks;
 
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoExecutor;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.humanReadableByteCount;
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.isBoxedPrimitiveClass;
@@ -41,26 +42,31 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.graalvm.compiler.graph.CachedGraph;
+import org.graalvm.compiler.nodes.StructuredGraph;
 import org.graalvm.compiler.phases.util.Providers;
 
+import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 import uk.ac.manchester.tornado.api.AbstractTaskGraph;
 import uk.ac.manchester.tornado.api.GridTask;
 import uk.ac.manchester.tornado.api.Policy;
 import uk.ac.manchester.tornado.api.TaskSchedule;
-import uk.ac.manchester.tornado.api.TornadoDriver;
 import uk.ac.manchester.tornado.api.common.Access;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.common.Event;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
@@ -87,7 +93,9 @@ import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
 import uk.ac.manchester.tornado.api.profiler.ProfilerType;
 import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
 import uk.ac.manchester.tornado.runtime.TornadoVM;
+import uk.ac.manchester.tornado.runtime.analyzer.CodeAnalysis;
 import uk.ac.manchester.tornado.runtime.analyzer.MetaReduceCodeAnalysis;
 import uk.ac.manchester.tornado.runtime.analyzer.ReduceCodeAnalysis;
 import uk.ac.manchester.tornado.runtime.analyzer.TaskUtils;
@@ -98,13 +106,16 @@ import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.common.TornadoVMClient;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSuitesProvider;
+import uk.ac.manchester.tornado.runtime.graal.phases.TornadoFeatureExtraction;
 import uk.ac.manchester.tornado.runtime.graph.TornadoExecutionContext;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraph;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraphBuilder;
 import uk.ac.manchester.tornado.runtime.graph.TornadoVMGraphCompilationResult;
 import uk.ac.manchester.tornado.runtime.graph.TornadoVMGraphCompiler;
 import uk.ac.manchester.tornado.runtime.graph.nodes.ContextNode;
+import uk.ac.manchester.tornado.runtime.profiler.DevicePerformanceModel;
 import uk.ac.manchester.tornado.runtime.profiler.EmptyProfiler;
+import uk.ac.manchester.tornado.runtime.profiler.ProfilerCodeFeatures;
 import uk.ac.manchester.tornado.runtime.profiler.TimeProfiler;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.SketchRequest;
@@ -133,10 +144,10 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private ArrayList<TaskPackage> taskPackages = new ArrayList<>();
     private ArrayList<Object> streamOutObjects = new ArrayList<>();
     private ArrayList<Object> streamInObjects = new ArrayList<>();
-    private ConcurrentHashMap<Policy, Integer> policyTimeTable = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Policy, DeviceKey> policyTimeTable = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, ArrayList<Object>> multiHeapManagerOutputs = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, ArrayList<Object>> multiHeapManagerInputs = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<Integer, TaskSchedule> taskScheduleIndex = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<DeviceKey, TaskSchedule> taskScheduleIndex = new ConcurrentHashMap<>();
 
     private static ConcurrentHashMap<Integer, TaskSchedule> globalTaskScheduleIndex = new ConcurrentHashMap<>();
     private static int baseGlobalIndex = 0;
@@ -149,13 +160,21 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
      * Options for Dynamic Reconfiguration
      */
     private static final boolean EXEPERIMENTAL_MULTI_HOST_HEAP = false;
-    private static final int DEFAULT_DRIVER_INDEX = 0;
     private static final int PERFORMANCE_WARMUP = 3;
     private final static boolean TIME_IN_NANOSECONDS = Tornado.TIME_IN_NANOSECONDS;
     private static final String TASK_SCHEDULE_PREFIX = "XXX";
     private static final ConcurrentHashMap<Policy, ConcurrentHashMap<String, HistoryTable>> executionHistoryPolicy = new ConcurrentHashMap<>();
     private static final int HISTORY_POINTS_PREDICTION = 5;
     private static final boolean USE_GLOBAL_TASK_CACHE = false;
+    private static final String SEQUENTIAL_DEVICE_NAME = "JVM";
+
+    /**
+     * Features of this task-schedule for the {@link DevicePerformanceModel},
+     * built on first use, and the policies whose device has been selected by the
+     * model rather than by profiling.
+     */
+    private double[] predictorFeatures;
+    private final Set<Policy> predictedPolicies = new HashSet<>();
 
     /**
      * Options for new reductions - experimental
@@ -170,6 +189,19 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private boolean isFinished;
     private GridTask gridTask;
 
+    /**
+     * Compilation running in the Tornado executor while the tasks run as
+     * sequential Java. See {@link ScheduleMetaData#enableAsyncCompilation()}.
+     */
+    private Future<TornadoProfiler> backgroundCompilation;
+    private boolean deviceCodeInstalled;
+
+    private CoExecutionTaskSchedule coExecution;
+    private boolean coExecutionPlanned;
+
+    private FusedTaskSchedule fusion;
+    private boolean fusionPlanned;
+
     private static String RESET = "\u001B[0m";
     private static String RED = "\u001B[31m";
     private static String WARNING_DEOPT_MESSAGE = RED + "WARNING: Code Bailout to Java sequential. Use --debug to see the reason" + RESET;
@@ -266,6 +298,10 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     }
 
     private void triggerRecompile() {
+        awaitBackgroundCompilation();
+        resetCoExecution();
+        resetFusion();
+
         // 1. Force to recompile the task-sketcher
         int i = 0;
         for (TaskPackage tp : taskPackages) {
@@ -283,6 +319,9 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     @Override
     public void setDevice(TornadoDevice device) {
+        awaitBackgroundCompilation();
+        resetCoExecution();
+        resetFusion();
         meta().setDevice(device);
 
         // Make sure that a sketch is available for the device.
@@ -566,8 +605,115 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         runAllTasksJavaSequential();
     }
 
+    private boolean canCompileInBackground() {
+        // The sequential runner only supports tasks added as Java methods
+        return meta().enableAsyncCompilation() && !getId().startsWith(TASK_SCHEDULE_PREFIX) && taskPackages.size() == executionContext.getTaskCount();
+    }
+
+    private TornadoProfiler newProfiler() {
+        return TornadoOptions.isProfilerEnabled() ? new TimeProfiler() : new EmptyProfiler();
+    }
+
+    private void startBackgroundCompilation() {
+        compileToTornadoVMBytecode();
+        final TornadoVM vmToCompile = vm;
+        final TornadoProfiler compileProfiler = newProfiler();
+        backgroundCompilation = getTornadoExecutor().submit(() -> {
+            final long start = System.nanoTime();
+            vmToCompile.compile(compileProfiler);
+            compileProfiler.setTimer(ProfilerType.BACKGROUND_COMPILE_TIME, System.nanoTime() - start);
+            return compileProfiler;
+        });
+    }
+
+    /**
+     * Waits for a background compilation that is still running, so the
+     * task-schedule can be modified. The next execution starts a new one.
+     */
+    private void awaitBackgroundCompilation() {
+        if (backgroundCompilation != null) {
+            try {
+                backgroundCompilation.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // It is compiled again with the new configuration
+            }
+            backgroundCompilation = null;
+        }
+        deviceCodeInstalled = false;
+    }
+
+    /**
+     * Swaps to the device code if the background compilation has finished.
+     * Compilation times are copied into the profiler of this execution.
+     *
+     * @return true if the device code is installed.
+     */
+    private boolean swapToDeviceCode() {
+        if (!backgroundCompilation.isDone()) {
+            return false;
+        }
+        final TornadoProfiler compileProfiler;
+        try {
+            compileProfiler = backgroundCompilation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            backgroundCompilation = null;
+            final Throwable cause = e.getCause();
+            final TornadoBailoutRuntimeException reason = (cause instanceof TornadoBailoutRuntimeException) ? (TornadoBailoutRuntimeException) cause
+                    : new TornadoBailoutRuntimeException("Unable to compile task-schedule " + getId() + ": " + cause);
+            if (!TornadoOptions.RECOVER_BAILOUT) {
+                throw new TornadoBailoutRuntimeException("Bailout is disabled. \nReason: " + reason.toString());
+            }
+            // Keep running the sequential code instead of compiling again on each execution
+            bailout = true;
+            dumpDeoptReason(reason);
+            return false;
+        }
+        backgroundCompilation = null;
+        deviceCodeInstalled = true;
+        timeProfiler.sum(ProfilerType.TOTAL_GRAAL_COMPILE_TIME, compileProfiler.getTimer(ProfilerType.TOTAL_GRAAL_COMPILE_TIME));
+        timeProfiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, compileProfiler.getTimer(ProfilerType.TOTAL_DRIVER_COMPILE_TIME));
+        timeProfiler.sum(ProfilerType.BACKGROUND_COMPILE_TIME, compileProfiler.getTimer(ProfilerType.BACKGROUND_COMPILE_TIME));
+        return true;
+    }
+
+    /**
+     * With {@code tornado.compile.async}, the first executions of the
+     * task-schedule do not wait for the compiler: the tasks are compiled in the
+     * Tornado executor and, in the meantime, they run as sequential Java on the
+     * host. The first execution after the code has been installed runs on the
+     * device.
+     *
+     * @return true if the task-schedule has been executed sequentially.
+     */
+    private boolean runSequentialWhileCompiling() {
+        if (deviceCodeInstalled || !canCompileInBackground()) {
+            return false;
+        }
+        if (backgroundCompilation == null) {
+            startBackgroundCompilation();
+        }
+        if (swapToDeviceCode()) {
+            return false;
+        }
+        timeProfiler.start(ProfilerType.SEQUENTIAL_FALLBACK_TIME);
+        runAllTasksJavaSequential();
+        timeProfiler.stop(ProfilerType.SEQUENTIAL_FALLBACK_TIME);
+        timeProfiler.stop(ProfilerType.TOTAL_TASK_SCHEDULE_TIME);
+        updateProfiler();
+        return true;
+    }
+
     @Override
     public void scheduleInner() {
+        if (runSequentialWhileCompiling()) {
+            return;
+        }
+
         boolean compile = compileToTornadoVMBytecode();
         TornadoAcceleratorDevice deviceForTask = executionContext.getDeviceForTask(0);
         if (compile && deviceForTask.getDeviceContext().isPlatformFPGA()) {
@@ -641,6 +787,32 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    @Override
+    public void streamInInner(Object array, ArrayRange range) {
+        if (array == null) {
+            warn("null object passed into streamIn() in schedule %s", executionContext.getId());
+            return;
+        }
+        checkArrayRange(array, range);
+        streamInObjects.add(array);
+        final LocalObjectState state = executionContext.getObjectState(array);
+        state.setStreamIn(true);
+        state.setStreamInRange(range);
+    }
+
+    private static void checkArrayRange(Object array, ArrayRange range) {
+        if (!array.getClass().isArray() || !array.getClass().getComponentType().isPrimitive()) {
+            throw new TornadoRuntimeException("[ERROR] Ranges can only be copied from primitive arrays: " + array.getClass().getName());
+        }
+        if (range.getNumElements() == 0) {
+            // A transfer of no elements would be taken as a copy of the whole array
+            throw new TornadoRuntimeException("[ERROR] Range " + range + " is empty");
+        }
+        if (range.getTo() > Array.getLength(array)) {
+            throw new TornadoRuntimeException("[ERROR] Range " + range + " is out of the bounds of an array of " + Array.getLength(array) + " elements");
+        }
+    }
+
     @Override
     public void forceStreamInInner(Object... objects) {
         for (Object object : objects) {
@@ -653,6 +825,28 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    @Override
+    public void broadcastInner(Object... objects) {
+        for (Object object : objects) {
+            if (object == null) {
+                warn("null object passed into broadcast() in schedule %s", executionContext.getId());
+                continue;
+            }
+            executionContext.getObjectState(object).setBroadcast(true);
+        }
+    }
+
+    @Override
+    public void markDirtyInner(Object... objects) {
+        for (Object object : objects) {
+            if (object == null) {
+                warn("null object passed into markDirty() in schedule %s", executionContext.getId());
+                continue;
+            }
+            getTornadoRuntime().resolveObject(object).markDirty();
+        }
+    }
+
     @Override
     public void streamOutInner(Object... objects) {
         for (Object object : objects) {
@@ -665,6 +859,19 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    @Override
+    public void streamOutInner(Object array, ArrayRange range) {
+        if (array == null) {
+            warn("null object passed into streamOut() in schedule %s", executionContext.getId());
+            return;
+        }
+        checkArrayRange(array, range);
+        streamOutObjects.add(array);
+        final LocalObjectState state = executionContext.getObjectState(array);
+        state.setStreamOut(true);
+        state.setStreamOutRange(range);
+    }
+
     @Override
     public void dump() {
         final int width = 16;
@@ -690,8 +897,10 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         getDevice().getDeviceContext().setResetToFalse();
         timeProfiler.clean();
 
+        awaitBackgroundCompilation();
         compileToTornadoVMBytecode();
         vm.warmup();
+        deviceCodeInstalled = true;
 
         timeProfiler.dumpJson(new StringBuffer(), this.getId());
     }
@@ -703,6 +912,13 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    @Override
+    public void freeDeviceMemory() {
+        if (vm != null) {
+            vm.freeDeviceMemory();
+        }
+    }
+
     @Override
     public void syncObject(Object object) {
         if (vm == null) {
@@ -821,11 +1037,123 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
             return executionGraph;
         }
         analysisTaskSchedule = null;
-        scheduleInner();
+        if (!runFusion() && !runCoExecution()) {
+            scheduleInner();
+            planCoExecution();
+        }
         cleanUp();
         return this;
     }
 
+    private boolean hasArrayRanges() {
+        for (Object object : executionContext.getObjects()) {
+            LocalObjectState state = executionContext.getObjectState(object);
+            if (state.getStreamInRange() != null || state.getStreamOutRange() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * With {@code <schedule>.coexecution}, a task-schedule with a single
+     * data-parallel task is split between its device and the host by the
+     * {@link CoExecutionTaskSchedule}. The first execution runs only on the
+     * device, so the domain of the task is known when the split is planned.
+     */
+    private void planCoExecution() {
+        if (coExecutionPlanned || !meta().enableCoExecution() || getId().startsWith(TASK_SCHEDULE_PREFIX)) {
+            return;
+        }
+        if (bailout || taskPackages.size() != 1 || executionContext.getTaskCount() != 1 || !(executionContext.getTask(0) instanceof CompilableTask) || batchSizeBytes != -1 || gridTask != null
+                || hasArrayRanges()) {
+            coExecutionPlanned = true;
+            return;
+        }
+        TaskMetaData taskMeta = ((CompilableTask) executionContext.getTask(0)).meta();
+        if (taskMeta.getDomain() == null || (canCompileInBackground() && !deviceCodeInstalled)) {
+            // Not compiled for the device yet
+            return;
+        }
+        coExecutionPlanned = true;
+        coExecution = CoExecutionTaskSchedule.create(getId(), taskPackages.get(0), taskMeta, getDevice(), streamInObjects, streamOutObjects, meta().getCoExecutionBlocks());
+    }
+
+    private boolean runCoExecution() {
+        if (coExecution == null) {
+            return false;
+        }
+        coExecution.execute();
+        timeProfiler.stop(ProfilerType.TOTAL_TASK_SCHEDULE_TIME);
+        updateProfiler();
+        return true;
+    }
+
+    private void resetCoExecution() {
+        coExecution = null;
+        coExecutionPlanned = false;
+    }
+
+    /**
+     * With {@code <schedule>.fusion}, consecutive element-wise tasks run as a
+     * single kernel in the task-schedule built by {@link FusedTaskSchedule}. The
+     * fusion is planned in the first execution.
+     */
+    private void planFusion() {
+        if (fusionPlanned || !meta().enableTaskFusion() || getId().startsWith(TASK_SCHEDULE_PREFIX)) {
+            return;
+        }
+        fusionPlanned = true;
+        if (bailout || taskPackages.size() < 2 || taskPackages.size() != executionContext.getTaskCount() || batchSizeBytes != -1 || gridTask != null || hasArrayRanges()
+                || !isSingleDevice()) {
+            return;
+        }
+        fusion = FusedTaskSchedule.create(getId(), taskPackages, getDevice(), streamInObjects, streamOutObjects);
+    }
+
+    private boolean isSingleDevice() {
+        for (int i = 1; i < executionContext.getTaskCount(); i++) {
+            if (!executionContext.getDeviceForTask(i).equals(executionContext.getDeviceForTask(0))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean runFusion() {
+        planFusion();
+        if (fusion == null) {
+            return false;
+        }
+        fusion.execute();
+        timeProfiler.stop(ProfilerType.TOTAL_TASK_SCHEDULE_TIME);
+        updateProfiler();
+        return true;
+    }
+
+    private void resetFusion() {
+        fusion = null;
+        fusionPlanned = false;
+    }
+
+    /**
+     * Adds a task generated by the {@link FusedTaskSchedule} that runs the tasks
+     * of {@code fusedPackages}. The original tasks run as sequential Java if the
+     * fused task bails out.
+     */
+    void addFusedTask(CompilableTask task, List<TaskPackage> fusedPackages) {
+        taskPackages.addAll(fusedPackages);
+        try {
+            addInner(task);
+        } catch (TornadoBailoutRuntimeException e) {
+            this.bailout = true;
+        }
+    }
+
+    boolean isBailout() {
+        return bailout;
+    }
+
     @Override
     public AbstractTaskGraph schedule(GridTask gridTask) {
         this.gridTask = gridTask;
@@ -927,7 +1255,11 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
-    private int synchronizeWithPolicy(Policy policy, long[] totalTimers) {
+    /**
+     * @return the index of the profiler timer of the device selected by the
+     *         policy, see {@link DeviceKey#listDevices}.
+     */
+    public static int synchronizeWithPolicy(Policy policy, long[] totalTimers) {
         // Set the Performance policy by default;
         if (policy == null) {
             policy = Policy.PERFORMANCE;
@@ -1113,13 +1445,14 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private void runParallelSequential(Policy policy, Thread[] threads, int indexSequential, Timer timer, long[] totalTimers) {
         // Last Thread runs the sequential code
         threads[indexSequential] = new Thread(() -> {
-            long start = System.currentTimeMillis();
+            long start = timer.time();
             if (policy == Policy.PERFORMANCE) {
                 for (int k = 0; k < PERFORMANCE_WARMUP; k++) {
                     runAllTasksJavaSequential();
                 }
                 start = timer.time();
             }
+            runAllTasksJavaSequential();
             final long endSequentialCode = timer.time();
             Thread.currentThread().setName("Thread-sequential");
             if (TornadoOptions.DEBUG_POLICY) {
@@ -1130,22 +1463,23 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         });
     }
 
-    private void runParallelTaskSchedules(int numDevices, Thread[] threads, Timer timer, Policy policy, long[] totalTimers) {
-        for (int i = 0; i < numDevices; i++) {
+    private void runParallelTaskSchedules(List<DeviceKey> devices, Thread[] threads, Timer timer, Policy policy, long[] totalTimers) {
+        for (int i = 0; i < devices.size(); i++) {
             final int taskScheduleNumber = i;
+            final DeviceKey device = devices.get(i);
             threads[i] = new Thread(() -> {
                 String taskScheduleName = TASK_SCHEDULE_PREFIX + taskScheduleNumber;
                 TaskSchedule task = new TaskSchedule(taskScheduleName);
 
-                Thread.currentThread().setName("Thread-DEV: " + TornadoRuntime.getTornadoRuntime().getDriver(0).getDevice(taskScheduleNumber).getPhysicalDevice().getDeviceName());
+                Thread.currentThread().setName("Thread-DEV: " + device.getDevice().getPhysicalDevice().getDeviceName());
 
                 long start = timer.time();
                 performStreamInThread(task, streamInObjects);
                 for (int k = 0; k < taskPackages.size(); k++) {
                     String taskID = taskPackages.get(k).getId();
-                    TornadoRuntime.setProperty(taskScheduleName + "." + taskID + ".device", "0:" + taskScheduleNumber);
+                    TornadoRuntime.setProperty(taskScheduleName + "." + taskID + ".device", device.toString());
                     if (Tornado.DEBUG) {
-                        System.out.println("SET DEVICE: " + taskScheduleName + "." + taskID + ".device=0:" + taskScheduleNumber);
+                        System.out.println("SET DEVICE: " + taskScheduleName + "." + taskID + ".device=" + device);
                     }
                     task.addTask(taskPackages.get(k));
                 }
@@ -1160,7 +1494,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                 }
                 task.execute();
                 final long end = timer.time();
-                taskScheduleIndex.put(taskScheduleNumber, task);
+                taskScheduleIndex.put(device, task);
 
                 if (USE_GLOBAL_TASK_CACHE) {
                     globalTaskScheduleIndex.put(offsetGlobalIndex.get(), task);
@@ -1178,8 +1512,8 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private void runScheduleWithParallelProfiler(Policy policy) {
 
         final Timer timer = (TIME_IN_NANOSECONDS) ? new NanoSecTimer() : new MilliSecTimer();
-        TornadoDriver tornadoDriver = getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX);
-        int numDevices = tornadoDriver.getDeviceCount();
+        List<DeviceKey> devices = getReconfigurationDevices();
+        int numDevices = devices.size();
         long masterThreadID = Thread.currentThread().getId();
 
         // One additional threads is reserved for sequential CPU execution
@@ -1192,7 +1526,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         runParallelSequential(policy, threads, indexSequential, timer, totalTimers);
 
         // Run all task schedules in parallel
-        runParallelTaskSchedules(numDevices, threads, timer, policy, totalTimers);
+        runParallelTaskSchedules(devices, threads, timer, policy, totalTimers);
 
         // FORK
         for (int i = 0; i < numThreads; i++) {
@@ -1202,7 +1536,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         // Define the winner, based on the first thread to finish
         if (policy == Policy.LATENCY) {
             int deviceWinnerIndex = syncWinner(threads);
-            policyTimeTable.put(policy, deviceWinnerIndex);
+            policyTimeTable.put(policy, DeviceKey.select(devices, deviceWinnerIndex));
         }
 
         // JOIN
@@ -1216,9 +1550,10 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
         if ((policy == Policy.PERFORMANCE || policy == Policy.END_2_END) && (masterThreadID == Thread.currentThread().getId())) {
             int deviceWinnerIndex = synchronizeWithPolicy(policy, totalTimers);
-            policyTimeTable.put(policy, deviceWinnerIndex);
+            policyTimeTable.put(policy, DeviceKey.select(devices, deviceWinnerIndex));
+            trainPerformanceModel(policy, devices, totalTimers);
             if (TornadoOptions.DEBUG_POLICY) {
-                System.out.println(getListDevices());
+                System.out.println(getListDevices(devices));
                 System.out.println("BEST Position: #" + deviceWinnerIndex + " " + Arrays.toString(totalTimers));
             }
         }
@@ -1230,36 +1565,36 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
-    private TaskSchedule taskRecompilation(int deviceWinnerIndex) {
-        // Force re-compilation in device <deviceWinnerIndex>
-        String taskScheduleName = TASK_SCHEDULE_PREFIX + deviceWinnerIndex;
+    private TaskSchedule taskRecompilation(DeviceKey deviceWinner) {
+        // Force re-compilation in device <deviceWinner>
+        String taskScheduleName = TASK_SCHEDULE_PREFIX + getReconfigurationDevices().indexOf(deviceWinner);
         TaskSchedule taskToCompile = new TaskSchedule(taskScheduleName);
         performStreamInThread(taskToCompile, streamInObjects);
         for (TaskPackage taskPackage : taskPackages) {
             String taskID = taskPackage.getId();
-            TornadoRuntime.setProperty(taskScheduleName + "." + taskID + ".device", "0:" + deviceWinnerIndex);
+            TornadoRuntime.setProperty(taskScheduleName + "." + taskID + ".device", deviceWinner.toString());
             taskToCompile.addTask(taskPackage);
         }
         performStreamOutThreads(taskToCompile, streamOutObjects);
         return taskToCompile;
     }
 
-    private void runTaskScheduleParallelSelected(int deviceWinnerIndex) {
+    private void runTaskScheduleParallelSelected(DeviceKey deviceWinner) {
         for (TaskPackage taskPackage : taskPackages) {
-            TornadoRuntime.setProperty(this.getTaskScheduleName() + "." + taskPackage.getId() + ".device", "0:" + deviceWinnerIndex);
+            TornadoRuntime.setProperty(this.getTaskScheduleName() + "." + taskPackage.getId() + ".device", deviceWinner.toString());
         }
         if (TornadoOptions.DEBUG_POLICY) {
-            System.out.println("Running in parallel device: " + deviceWinnerIndex);
+            System.out.println("Running in parallel device: " + deviceWinner);
         }
-        TaskSchedule task = taskScheduleIndex.get(deviceWinnerIndex);
+        TaskSchedule task = taskScheduleIndex.get(deviceWinner);
         if (task == null) {
             if (USE_GLOBAL_TASK_CACHE) {
                 // This is only if compilation is not using Partial Evaluation
-                task = globalTaskScheduleIndex.get(deviceWinnerIndex);
+                task = globalTaskScheduleIndex.get(getReconfigurationDevices().indexOf(deviceWinner));
             } else {
-                task = taskRecompilation(deviceWinnerIndex);
+                task = taskRecompilation(deviceWinner);
                 // Save the TaskSchedule in cache
-                taskScheduleIndex.put(deviceWinnerIndex, task);
+                taskScheduleIndex.put(deviceWinner, task);
             }
         }
         task.execute();
@@ -1268,15 +1603,12 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     @Override
     public AbstractTaskGraph scheduleWithProfile(Policy policy) {
         if (policyTimeTable.get(policy) == null) {
-            runScheduleWithParallelProfiler(policy);
+            if (!runWithPredictedDevice(policy)) {
+                runScheduleWithParallelProfiler(policy);
+            }
         } else {
             // Run with the winner device
-            int deviceWinnerIndex = policyTimeTable.get(policy);
-            if (deviceWinnerIndex >= TornadoRuntime.getTornadoRuntime().getDriver(0).getDeviceCount()) {
-                runSequential();
-            } else {
-                runTaskScheduleParallelSelected(deviceWinnerIndex);
-            }
+            runSelectedDevice(policy, policyTimeTable.get(policy));
         }
         return this;
     }
@@ -1294,8 +1626,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     @SuppressWarnings("unused")
     private void cloneInputOutputObjects() {
         final long startSearchProfiler = (TIME_IN_NANOSECONDS) ? System.nanoTime() : System.currentTimeMillis();
-        TornadoDriver tornadoDriver = getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX);
-        int numDevices = tornadoDriver.getDeviceCount();
+        int numDevices = getReconfigurationDevices().size();
         // Clone objects (only outputs) for each device
         for (int deviceNumber = 0; deviceNumber < numDevices; deviceNumber++) {
             ArrayList<Object> newInObjects = new ArrayList<>();
@@ -1337,11 +1668,12 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         totalTimers[indexSequential] = (endSequentialCode - startSequential);
     }
 
-    private void runAllTaskSchedulesInAcceleratorsSequentually(int numDevices, Timer timer, Policy policy, long[] totalTimers) {
+    private void runAllTaskSchedulesInAcceleratorsSequentually(List<DeviceKey> devices, Timer timer, Policy policy, long[] totalTimers) {
         String[] ignoreTaskNames = System.getProperties().getProperty("tornado.ignore.tasks", "").split(",");
 
         // Running sequentially for all the devices
-        for (int taskNumber = 0; taskNumber < numDevices; taskNumber++) {
+        for (int taskNumber = 0; taskNumber < devices.size(); taskNumber++) {
+            final DeviceKey device = devices.get(taskNumber);
             String taskScheduleName = TASK_SCHEDULE_PREFIX + taskNumber;
             TaskSchedule task = new TaskSchedule(taskScheduleName);
 
@@ -1361,9 +1693,9 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                     }
                 }
 
-                TornadoRuntime.setProperty(taskScheduleName + "." + taskID + ".device", "0:" + taskNumber);
+                TornadoRuntime.setProperty(taskScheduleName + "." + taskID + ".device", device.toString());
                 if (Tornado.DEBUG) {
-                    System.out.println("SET DEVICE: " + taskScheduleName + "." + taskID + ".device=0:" + taskNumber);
+                    System.out.println("SET DEVICE: " + taskScheduleName + "." + taskID + ".device=" + device);
                 }
                 task.addTask(taskPackages.get(k));
             }
@@ -1381,7 +1713,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
             }
 
             task.execute();
-            taskScheduleIndex.put(taskNumber, task);
+            taskScheduleIndex.put(device, task);
 
             // TaskSchedules Global
             if (USE_GLOBAL_TASK_CACHE) {
@@ -1433,12 +1765,11 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
-    private String getListDevices() {
+    private String getListDevices(List<DeviceKey> devices) {
         StringBuilder str = new StringBuilder();
         str.append("                  : [");
-        int num = TornadoRuntime.getTornadoRuntime().getDriver(0).getDeviceCount();
-        for (int i = 0; i < num; i++) {
-            TornadoDeviceType deviceType = TornadoRuntime.getTornadoRuntime().getDriver(0).getDevice(i).getDeviceType();
+        for (DeviceKey device : devices) {
+            TornadoDeviceType deviceType = device.getDevice().getDeviceType();
             String type = "JAVA";
             switch (deviceType) {
                 case CPU:
@@ -1462,7 +1793,8 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     private void runWithSequentialProfiler(Policy policy) {
         final Timer timer = (TIME_IN_NANOSECONDS) ? new NanoSecTimer() : new MilliSecTimer();
-        int numDevices = getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX).getDeviceCount();
+        List<DeviceKey> devices = getReconfigurationDevices();
+        int numDevices = devices.size();
         final int totalTornadoDevices = numDevices + 1;
         long[] totalTimers = new long[totalTornadoDevices];
 
@@ -1470,16 +1802,17 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         runSequentialTaskSchedule(policy, timer, totalTimers, numDevices);
 
         // Run Task Schedules on the accelerator
-        runAllTaskSchedulesInAcceleratorsSequentually(numDevices, timer, policy, totalTimers);
+        runAllTaskSchedulesInAcceleratorsSequentually(devices, timer, policy, totalTimers);
 
         if (policy == Policy.PERFORMANCE || policy == Policy.END_2_END) {
             int deviceWinnerIndex = synchronizeWithPolicy(policy, totalTimers);
-            policyTimeTable.put(policy, deviceWinnerIndex);
+            policyTimeTable.put(policy, DeviceKey.select(devices, deviceWinnerIndex));
+            trainPerformanceModel(policy, devices, totalTimers);
 
             updateHistoryTables(policy, deviceWinnerIndex);
 
             if (TornadoOptions.DEBUG_POLICY) {
-                System.out.println(getListDevices());
+                System.out.println(getListDevices(devices));
                 System.out.println("BEST Position: #" + deviceWinnerIndex + " " + Arrays.toString(totalTimers));
             }
         }
@@ -1491,13 +1824,14 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
      *
      * @param policy
      *            input policy
-     * @param numDevices
-     *            number of devices
+     * @param devices
+     *            devices of the dynamic reconfiguration
      */
-    private void restoreVarsIntoJavaHeap(Policy policy, int numDevices) {
-        if (policyTimeTable.get(policy) < numDevices) {
+    private void restoreVarsIntoJavaHeap(Policy policy, List<DeviceKey> devices) {
+        int numDevices = devices.size();
+        if (!policyTimeTable.get(policy).isSequential()) {
             // link output
-            int deviceWinnerIndex = policyTimeTable.get(policy);
+            int deviceWinnerIndex = devices.indexOf(policyTimeTable.get(policy));
             ArrayList<Object> deviceOutputObjects = multiHeapManagerOutputs.get(deviceWinnerIndex);
             for (int i = 0; i < streamOutObjects.size(); i++) {
                 @SuppressWarnings("unused") Object output = streamOutObjects.get(i);
@@ -1530,17 +1864,168 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         return size;
     }
 
-    private void runInParallel(int deviceWinnerIndex, int numDevices) {
+    private void runInParallel(DeviceKey deviceWinner) {
         // Run with the winner device
-        if (deviceWinnerIndex >= numDevices) {
-            // Last index corresponds to the sequential in HostVM
+        if (deviceWinner.isSequential()) {
+            // The sequential in HostVM
             runSequential();
         } else {
             // It runs the parallel in the corresponding device
-            runTaskScheduleParallelSelected(deviceWinnerIndex);
+            runTaskScheduleParallelSelected(deviceWinner);
         }
     }
 
+    private boolean isPerformanceModelEnabled(Policy policy) {
+        return TornadoOptions.DYNAMIC_PREDICTOR && (policy == Policy.PERFORMANCE || policy == Policy.END_2_END) && getPerformanceModelFeatures() != null;
+    }
+
+    /**
+     * Runs the task-schedule on the device selected by the
+     * {@link DevicePerformanceModel}, if the model is confident for all the
+     * devices.
+     *
+     * @return true if the task-schedule has been executed.
+     */
+    private boolean runWithPredictedDevice(Policy policy) {
+        if (!isPerformanceModelEnabled(policy)) {
+            return false;
+        }
+        List<DeviceKey> devices = getReconfigurationDevices();
+        int deviceIndex = DevicePerformanceModel.getInstance().selectDevice(policy.name(), getPerformanceModelDevices(devices), getPerformanceModelFeatures());
+        if (deviceIndex < 0) {
+            return false;
+        }
+        DeviceKey device = DeviceKey.select(devices, deviceIndex);
+        policyTimeTable.put(policy, device);
+        predictedPolicies.add(policy);
+        if (TornadoOptions.DEBUG_POLICY) {
+            System.out.println(getListDevices(devices));
+            System.out.println("PREDICTED Position: #" + deviceIndex);
+        }
+        runSelectedDevice(policy, device);
+        return true;
+    }
+
+    /**
+     * Runs the task-schedule on the selected device and, when the model is
+     * enabled, trains it with the execution time. Executions that compile the
+     * task-schedule are not measured. If the device was predicted and the model
+     * turns out to be inaccurate, the next execution profiles all the devices
+     * again.
+     */
+    private void runSelectedDevice(Policy policy, DeviceKey deviceWinner) {
+        if (!isPerformanceModelEnabled(policy)) {
+            runInParallel(deviceWinner);
+            return;
+        }
+        final boolean compiles = !deviceWinner.isSequential() && !taskScheduleIndex.containsKey(deviceWinner);
+        final Timer timer = (TIME_IN_NANOSECONDS) ? new NanoSecTimer() : new MilliSecTimer();
+        final long start = timer.time();
+        runInParallel(deviceWinner);
+        final long end = timer.time();
+        if (compiles) {
+            return;
+        }
+
+        final DevicePerformanceModel model = DevicePerformanceModel.getInstance();
+        final String device = getPerformanceModelName(deviceWinner);
+        model.train(policy.name(), device, getPerformanceModelFeatures(), toNanoseconds(end - start));
+        if (predictedPolicies.contains(policy) && model.isInaccurate(policy.name(), device)) {
+            if (TornadoOptions.DEBUG_POLICY) {
+                System.out.println("Inaccurate prediction for " + device + ": profiling all devices");
+            }
+            predictedPolicies.remove(policy);
+            policyTimeTable.remove(policy);
+        }
+    }
+
+    private void trainPerformanceModel(Policy policy, List<DeviceKey> devices, long[] totalTimers) {
+        if (!isPerformanceModelEnabled(policy)) {
+            return;
+        }
+        final DevicePerformanceModel model = DevicePerformanceModel.getInstance();
+        final String[] deviceNames = getPerformanceModelDevices(devices);
+        final double[] features = getPerformanceModelFeatures();
+        for (int i = 0; i < totalTimers.length; i++) {
+            // Ignored tasks are not measured
+            if (totalTimers[i] != Long.MAX_VALUE) {
+                model.train(policy.name(), deviceNames[i], features, toNanoseconds(totalTimers[i]));
+            }
+        }
+        model.save();
+    }
+
+    private static long toNanoseconds(long time) {
+        return (TIME_IN_NANOSECONDS) ? time : time * 1_000_000L;
+    }
+
+    /**
+     * Names of the devices in the order of the profiler timers: the devices of
+     * all the drivers followed by the sequential Java code.
+     */
+    private static String[] getPerformanceModelDevices(List<DeviceKey> devices) {
+        String[] deviceNames = new String[devices.size() + 1];
+        for (int i = 0; i < devices.size(); i++) {
+            deviceNames[i] = getPerformanceModelName(devices.get(i));
+        }
+        deviceNames[devices.size()] = getPerformanceModelName(DeviceKey.SEQUENTIAL);
+        return deviceNames;
+    }
+
+    private static String getPerformanceModelName(DeviceKey key) {
+        if (key.isSequential()) {
+            return SEQUENTIAL_DEVICE_NAME;
+        }
+        TornadoDevice device = key.getDevice();
+        return device.getPlatformName() + " / " + device.getDeviceName();
+    }
+
+    /**
+     * Features of the task-schedule: the code features of all its tasks, taken
+     * from their high-level Graal graphs so that no device compilation is needed,
+     * the maximum input size and the bytes streamed in and out.
+     *
+     * @return the features, or null if the code of a task cannot be analysed.
+     *         The failure is remembered with an empty array.
+     */
+    private double[] getPerformanceModelFeatures() {
+        if (predictorFeatures == null) {
+            LinkedHashMap<ProfilerCodeFeatures, Integer> codeFeatures = new LinkedHashMap<>();
+            for (ProfilerCodeFeatures feature : ProfilerCodeFeatures.values()) {
+                codeFeatures.put(feature, 0);
+            }
+            for (TaskPackage taskPackage : taskPackages) {
+                StructuredGraph taskGraph = CodeAnalysis.buildHighLevelGraalGraph(taskPackage.getTaskParameters()[0]);
+                if (taskGraph == null) {
+                    predictorFeatures = new double[0];
+                    return null;
+                }
+                TornadoFeatureExtraction.extractFeatures(taskGraph).forEach((feature, count) -> codeFeatures.merge(feature, count, Integer::sum));
+            }
+            predictorFeatures = DevicePerformanceModel.buildFeatures(codeFeatures, getMaxInputSize(), getSizeInBytes(streamInObjects), getSizeInBytes(streamOutObjects));
+        }
+        return (predictorFeatures.length == 0) ? null : predictorFeatures;
+    }
+
+    private static long getSizeInBytes(List<Object> objects) {
+        long bytes = 0;
+        for (Object object : objects) {
+            if (object != null && object.getClass().isArray() && object.getClass().getComponentType().isPrimitive()) {
+                bytes += (long) Array.getLength(object) * JavaKind.fromJavaClass(object.getClass().getComponentType()).getByteCount();
+            }
+        }
+        return bytes;
+    }
+
+    private static List<DeviceKey> getReconfigurationDevices() {
+        TornadoCoreRuntime runtime = getTornadoRuntime();
+        int[] devicesPerDriver = new int[runtime.getNumDrivers()];
+        for (int driverIndex = 0; driverIndex < devicesPerDriver.length; driverIndex++) {
+            devicesPerDriver[driverIndex] = runtime.getDriver(driverIndex).getDeviceCount();
+        }
+        return DeviceKey.listDevices(devicesPerDriver);
+    }
+
     /**
      * Class that keeps the history of executions based on their data sizes. It has
      * a sorted map (TreeMap) that keeps the relationship between the input size and
@@ -1577,13 +2062,13 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     @Override
     public AbstractTaskGraph scheduleWithProfileSequentialGlobal(Policy policy) {
-        int numDevices = TornadoRuntime.getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX).getDeviceCount();
+        List<DeviceKey> devices = getReconfigurationDevices();
 
         if (!executionHistoryPolicy.containsKey(policy)) {
             runWithSequentialProfiler(policy);
 
             if (EXEPERIMENTAL_MULTI_HOST_HEAP) {
-                restoreVarsIntoJavaHeap(policy, numDevices);
+                restoreVarsIntoJavaHeap(policy, devices);
             }
 
         } else {
@@ -1609,7 +2094,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                 // 2. Make decision
                 if (table.isKeyInTable(inputSize)) {
                     int deviceWinnerIndex = table.getDeviceNumber(inputSize);
-                    runInParallel(deviceWinnerIndex, numDevices);
+                    runInParallel(DeviceKey.select(devices, deviceWinnerIndex));
                 } else {
                     // Input size not found
                     if (table.getNumKeys() < HISTORY_POINTS_PREDICTION) {
@@ -1620,7 +2105,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                         // get the closet one to the input history data
                         int closestKey = table.getClosestKey(inputSize);
                         int deviceWinnerIndex = table.getTree().get(closestKey);
-                        runInParallel(deviceWinnerIndex, numDevices);
+                        runInParallel(DeviceKey.select(devices, deviceWinnerIndex));
                     }
                 }
             }
@@ -1630,26 +2115,20 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     @Override
     public AbstractTaskGraph scheduleWithProfileSequential(Policy policy) {
-        int numDevices = TornadoRuntime.getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX).getDeviceCount();
-
         if (policyTimeTable.get(policy) == null) {
+            if (runWithPredictedDevice(policy)) {
+                return this;
+            }
+
             runWithSequentialProfiler(policy);
 
             if (EXEPERIMENTAL_MULTI_HOST_HEAP) {
-                restoreVarsIntoJavaHeap(policy, numDevices);
+                restoreVarsIntoJavaHeap(policy, getReconfigurationDevices());
             }
 
         } else {
-            // Run with the winner device
-            int deviceWinnerIndex = policyTimeTable.get(policy);
-            if (deviceWinnerIndex >= numDevices) {
-                // if the winner is the last index => it is the sequential
-                // (HotSpot)
-                runSequential();
-            } else {
-                // Otherwise, it runs the parallel in the corresponding device
-                runTaskScheduleParallelSelected(deviceWinnerIndex);
-            }
+            // Run with the winner device, which can be the sequential (HotSpot)
+            runSelectedDevice(policy, policyTimeTable.get(policy));
         }
         return this;
     }
@@ -254,6 +254,67 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         return vmUseDeps;
     }
 
+    /**
+     * Number of device buffers per object used when executing in batches. With
+     * more than one, the transfers of a batch overlap the kernels of the previous
+     * one.
+     */
+    public int getBatchPipelineDepth() {
+        return batchPipelineDepth;
+    }
+
+    /**
+     * When enabled, the task-schedule is compiled in the background and runs as
+     * sequential Java until the code is installed on the device.
+     */
+    public boolean enableAsyncCompilation() {
+        return asyncCompilation;
+    }
+
+    /**
+     * Policy used to skip the stream-in transfers of objects that have not changed
+     * on the host, see {@link StreamInElision}.
+     */
+    public StreamInElision getStreamInElision() {
+        return streamInElision;
+    }
+
+    /**
+     * When enabled, the task-schedule reuses the valid device copies of objects
+     * written by other task-schedules instead of copying them from the host
+     * again, and writes back the objects it owns before releasing their device
+     * memory.
+     */
+    public boolean shouldShareDeviceObjects() {
+        return shareDeviceObjects;
+    }
+
+    /**
+     * When enabled, the iterations of a single-task schedule are split between
+     * the device and the host, see {@code CoExecutionTaskSchedule}.
+     */
+    public boolean enableCoExecution() {
+        return coExecution;
+    }
+
+    /**
+     * Number of blocks in which the iteration space is divided when the
+     * task-schedule is co-executed. The device runs a prefix of the blocks and
+     * each of the remaining ones runs in a host thread.
+     */
+    public int getCoExecutionBlocks() {
+        return coExecutionBlocks;
+    }
+
+    /**
+     * When enabled, consecutive element-wise tasks that communicate through
+     * arrays indexed by the parallel loop are launched as a single kernel, see
+     * {@code FusedTaskSchedule}.
+     */
+    public boolean enableTaskFusion() {
+        return taskFusion;
+    }
+
     /*
      * Forces the executing kernel to output its arguments before execution
      */
@@ -292,6 +353,13 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
     private final boolean useThreadCoarsener;
     private final boolean dumpTaskSchedule;
     private final boolean vmUseDeps;
+    private final int batchPipelineDepth;
+    private final boolean asyncCompilation;
+    private final StreamInElision streamInElision;
+    private final boolean shareDeviceObjects;
+    private final boolean coExecution;
+    private final int coExecutionBlocks;
+    private final boolean taskFusion;
     private final boolean coarsenWithCpuConfig;
     private final boolean enableAutoParallelisation;
     private final boolean isEnableParallelizationDefined;
@@ -453,6 +521,13 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         useThreadCoarsener = Boolean.parseBoolean(getDefault("coarsener", id, "False"));
         enableAutoParallelisation = Boolean.parseBoolean(getDefault("parallelise.auto", id, "False"));
         vmUseDeps = Boolean.parseBoolean(getDefault("vm.deps", id, "False"));
+        batchPipelineDepth = parseInt(getDefault("batch.pipeline", id, "1"));
+        asyncCompilation = Boolean.parseBoolean(getDefault("compile.async", id, "False"));
+        streamInElision = StreamInElision.fromString(getDefault("streamin.elision", id, "none"));
+        shareDeviceObjects = Boolean.parseBoolean(getDefault("objects.share", id, "False"));
+        coExecution = Boolean.parseBoolean(getDefault("coexecution", id, "False"));
+        coExecutionBlocks = parseInt(getDefault("coexecution.blocks", id, Integer.toString(Math.max(16, Runtime.getRuntime().availableProcessors()))));
+        taskFusion = Boolean.parseBoolean(getDefault("fusion", id, "False"));
     }
 
     public void attachProfiler(TornadoProfiler profiler) {
@@ -0,0 +1,59 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks.meta;
+
+/**
+ * Policy used to skip the stream-in transfers of objects whose host copy has
+ * not changed since it was last copied to the device
+ * ({@code <schedule>.streamin.elision}).
+ */
+public enum StreamInElision {
+
+    /**
+     * Every stream-in is transferred.
+     */
+    NONE,
+
+    /**
+     * Objects are transferred only after the application marks them with
+     * {@code TaskSchedule::markDirty}.
+     */
+    DIRTY,
+
+    /**
+     * Objects are transferred when a checksum of the whole host array changes.
+     */
+    CHECKSUM,
+
+    /**
+     * Objects are transferred when a checksum of a sample of the host array
+     * changes. Cheaper than {@link #CHECKSUM}, but it can miss updates to the
+     * elements that are not sampled.
+     */
+    SAMPLED;
+
+    public static StreamInElision fromString(String value) {
+        return (value == null) ? NONE : valueOf(value.trim().toUpperCase());
+    }
+}
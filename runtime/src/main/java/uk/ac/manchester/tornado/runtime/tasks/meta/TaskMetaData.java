@@ -39,9 +39,11 @@ import java.util.Map;
 
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.TornadoEvents;
+import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
 import uk.ac.manchester.tornado.api.enums.TornadoVMBackend;
 import uk.ac.manchester.tornado.runtime.EventSet;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.domain.DomainTree;
 
 public class TaskMetaData extends AbstractMetaData {
@@ -61,6 +63,8 @@ public class TaskMetaData extends AbstractMetaData {
     private boolean localWorkDefined;
     private boolean globalWorkDefined;
     private boolean canAssumeExact;
+    private Coarseness coarseness;
+    private boolean coarsenessDefined;
 
     public TaskMetaData(ScheduleMetaData scheduleMetaData, String taskID, int numParameters) {
         super(scheduleMetaData.getId() + "." + taskID, scheduleMetaData);
@@ -251,10 +255,11 @@ public class TaskMetaData extends AbstractMetaData {
     public void setDomain(final DomainTree value) {
 
         domain = value;
-        Coarseness coarseness = new Coarseness(domain.getDepth());
+        coarseness = new Coarseness(domain.getDepth());
 
         final String config = getProperty(getId() + ".coarseness");
-        if (config != null && !config.isEmpty()) {
+        coarsenessDefined = config != null && !config.isEmpty();
+        if (coarsenessDefined) {
             coarseness.applyConfig(config);
         }
 
@@ -270,6 +275,46 @@ public class TaskMetaData extends AbstractMetaData {
         }
     }
 
+    /**
+     * Number of iterations of the parallel loop {@code index} executed by each
+     * thread when the thread coarsener is enabled. It is given by
+     * {@code <task>.coarseness}, with one value per dimension, or else by the
+     * default factor of the device type for the first dimension.
+     */
+    public int getCoarseningFactor(int index) {
+        if (coarsenessDefined) {
+            return Math.max(1, coarseness.getCoarseness(index));
+        }
+        if (index != 0) {
+            return 1;
+        }
+        return getLogicDevice().getDeviceType() == TornadoDeviceType.CPU ? TornadoOptions.COARSENER_CPU_FACTOR : TornadoOptions.COARSENER_GPU_FACTOR;
+    }
+
+    /**
+     * Number of threads to launch in the dimension {@code index} for the given
+     * number of iterations. Coarsened kernels execute
+     * {@link #getCoarseningFactor} iterations per thread.
+     */
+    public long getCoarsenedGlobalWork(int index, long iterations) {
+        if (!enableThreadCoarsener()) {
+            return iterations;
+        }
+        final int factor = getCoarseningFactor(index);
+        return Math.max(1, (iterations + factor - 1) / factor);
+    }
+
+    /**
+     * Whether the coarsened kernels can assume that every thread executes
+     * exactly {@link #getCoarseningFactor} iterations, so the block of
+     * iterations of each thread is a compile-time constant. This only holds
+     * when the runtime launches {@link #getCoarsenedGlobalWork} threads, not
+     * with a {@code WorkerGrid} or with global work given by the user.
+     */
+    public boolean canAssumeExact() {
+        return canAssumeExact && !isGridSchedulerEnabled() && !isGlobalWorkDefined();
+    }
+
     public long[] getGlobalOffset() {
         return globalOffset;
     }
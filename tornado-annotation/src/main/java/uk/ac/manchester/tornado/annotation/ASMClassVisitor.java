@@ -52,6 +52,10 @@ public class ASMClassVisitor extends ClassVisitor implements ASMClassVisitorProv
     public ParallelAnnotationProvider[] getParallelAnnotations(ResolvedJavaMethod method) {
         String methodClassFile = method.getDeclaringClass().getName().replaceFirst("L", "").replaceFirst(";", ".class");
         InputStream inputStream = ClassLoader.getSystemClassLoader().getResourceAsStream(methodClassFile);
+        if (inputStream == null) {
+            // Classes generated at runtime, such as fused tasks, have no class file
+            return new ParallelAnnotationProvider[0];
+        }
         try {
             ClassReader classReader = new ClassReader(inputStream);
             ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
@@ -1,6 +1,7 @@
 module tornado.api {
     exports uk.ac.manchester.tornado.api;
     exports uk.ac.manchester.tornado.api.annotations;
+    exports uk.ac.manchester.tornado.api.collections.arrays;
     exports uk.ac.manchester.tornado.api.collections.graphics;
     exports uk.ac.manchester.tornado.api.collections.math;
     exports uk.ac.manchester.tornado.api.collections.types;
@@ -14,5 +15,6 @@ module tornado.api {
     exports uk.ac.manchester.tornado.api.utils;
 
     opens uk.ac.manchester.tornado.api;
+    opens uk.ac.manchester.tornado.api.collections.arrays;
     opens uk.ac.manchester.tornado.api.collections.types;
 }
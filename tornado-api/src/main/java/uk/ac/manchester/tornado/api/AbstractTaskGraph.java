@@ -44,6 +44,7 @@ package uk.ac.manchester.tornado.api;
 import java.util.function.Consumer;
 
 import uk.ac.manchester.tornado.api.common.Access;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
@@ -86,16 +87,26 @@ public interface AbstractTaskGraph extends ProfileInterface {
 
     void streamInInner(Object... objects);
 
+    void streamInInner(Object array, ArrayRange range);
+
     void forceStreamInInner(Object... objects);
 
+    void broadcastInner(Object... objects);
+
+    void markDirtyInner(Object... objects);
+
     void streamOutInner(Object... objects);
 
+    void streamOutInner(Object array, ArrayRange range);
+
     void dump();
 
     void warmup();
 
     void invalidateObjects();
 
+    void freeDeviceMemory();
+
     void syncObject(Object object);
 
     void syncObjects();
@@ -44,6 +44,7 @@ package uk.ac.manchester.tornado.api;
 import java.util.HashSet;
 
 import uk.ac.manchester.tornado.api.common.Access;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
@@ -272,18 +273,42 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         return this;
     }
 
+    @Override
+    public TaskSchedule streamIn(Object array, ArrayRange range) {
+        taskScheduleImpl.streamInInner(array, range);
+        return this;
+    }
+
     @Override
     public TornadoAPI forceCopyIn(Object... objects) {
         taskScheduleImpl.forceStreamInInner(objects);
         return this;
     }
 
+    @Override
+    public TaskSchedule broadcast(Object... objects) {
+        taskScheduleImpl.broadcastInner(objects);
+        return this;
+    }
+
+    @Override
+    public TaskSchedule markDirty(Object... objects) {
+        taskScheduleImpl.markDirtyInner(objects);
+        return this;
+    }
+
     @Override
     public TaskSchedule streamOut(Object... objects) {
         taskScheduleImpl.streamOutInner(objects);
         return this;
     }
 
+    @Override
+    public TaskSchedule streamOut(Object array, ArrayRange range) {
+        taskScheduleImpl.streamOutInner(array, range);
+        return this;
+    }
+
     @Override
     public TaskSchedule schedule() {
         taskScheduleImpl.scheduleInner();
@@ -326,6 +351,11 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         taskScheduleImpl.warmup();
     }
 
+    @Override
+    public void freeDeviceMemory() {
+        taskScheduleImpl.freeDeviceMemory();
+    }
+
     @Override
     public long getReturnValue(String id) {
         return taskScheduleImpl.getReturnValue(id);
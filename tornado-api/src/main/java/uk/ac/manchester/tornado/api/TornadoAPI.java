@@ -42,6 +42,7 @@
 package uk.ac.manchester.tornado.api;
 
 import uk.ac.manchester.tornado.api.common.Access;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
 import uk.ac.manchester.tornado.api.common.TornadoDevice;
@@ -569,8 +570,46 @@ public interface TornadoAPI {
      */
     TornadoAPI streamIn(Object... objects);
 
+    /**
+     * Open a stream channel between the host and the target device for an array
+     * of which only the elements in {@code range} change between executions.
+     * The whole array is copied the first time and, afterwards, only the range
+     * is copied. The other elements keep the values they have on the device.
+     * 
+     * @param array
+     *            input array to be streamed.
+     * @param range
+     *            elements that are copied in every execution. It must not be
+     *            empty.
+     * @return link to the {@TornadoAPI} to allow function composition.
+     */
+    TornadoAPI streamIn(Object array, ArrayRange range);
+
     TornadoAPI forceCopyIn(Object... objects);
 
+    /**
+     * Marks objects that are used whole by every batch, such as lookup tables.
+     * They are copied to the device once per execution instead of being split
+     * into batches.
+     * 
+     * @param objects
+     *            list of objects shared by all batches.
+     * @return link to the {@TornadoAPI} to allow function composition.
+     */
+    TornadoAPI broadcast(Object... objects);
+
+    /**
+     * Notifies that the host copy of the objects has changed since the last
+     * execution. When stream-in elision is enabled for the task-schedule
+     * ({@code <schedule>.streamin.elision=dirty}), objects that are not marked as
+     * dirty are not copied again to a device that already holds them.
+     * 
+     * @param objects
+     *            list of objects modified on the host.
+     * @return link to the {@TornadoAPI} to allow function composition.
+     */
+    TornadoAPI markDirty(Object... objects);
+
     /**
      * Open a stream channel between the device and the host.
      * 
@@ -580,6 +619,19 @@ public interface TornadoAPI {
      */
     TornadoAPI streamOut(Object... objects);
 
+    /**
+     * Open a stream channel between the device and the host for an array of
+     * which only the elements in {@code range} are needed on the host.
+     * 
+     * @param array
+     *            output array to be streamed.
+     * @param range
+     *            elements that are copied back to the host. It must not be
+     *            empty.
+     * @return link to the {@TornadoAPI} to allow function composition.
+     */
+    TornadoAPI streamOut(Object array, ArrayRange range);
+
     /**
      * Internal call to run the task-schedule
      * 
@@ -593,7 +645,9 @@ public interface TornadoAPI {
      * @param batchSize
      *            size of the batch represented as a string. For example "512MB",
      *            "1GB". If the batchSize is <= 0 the whole array is computed
-     *            without splitting in smaller batches.
+     *            without splitting in smaller batches. Arrays of different types
+     *            are split at the same element indexes, so the size bounds the
+     *            batch of the array with the largest element type.
      * @return link to the {@TornadoAPI} to allow function composition.
      */
     TornadoAPI batch(String batchSize);
@@ -637,6 +691,13 @@ public interface TornadoAPI {
      */
     void warmup();
 
+    /**
+     * It releases the device memory used by the objects of the task-schedule. The
+     * objects are allocated and copied again the next time the task-schedule is
+     * executed.
+     */
+    void freeDeviceMemory();
+
     long getReturnValue(String id);
 
     void dumpEvents();
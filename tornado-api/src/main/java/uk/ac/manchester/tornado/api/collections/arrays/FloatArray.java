@@ -0,0 +1,107 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.arrays;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * Array of floats allocated outside the Java heap. Elements are accessed through
+ * {@link #get(int)} and {@link #set(int, float)}, which are compiled to plain
+ * array accesses on the device.
+ */
+public final class FloatArray extends OffHeapArray {
+
+    private static final int FLOAT_BYTES = 4;
+
+    public FloatArray(int numberOfElements) {
+        super(numberOfElements, FLOAT_BYTES);
+    }
+
+    private FloatArray(FileChannel channel, FileChannel.MapMode mode, long position, int numberOfElements) {
+        super(channel, mode, position, numberOfElements, FLOAT_BYTES);
+    }
+
+    /**
+     * Creates an array on {@code numberOfElements} floats of a file, starting at
+     * byte {@code position}. The file must be open in a mode compatible with
+     * {@code mode}, and must store the elements in native byte order.
+     */
+    public static FloatArray map(FileChannel channel, FileChannel.MapMode mode, long position, int numberOfElements) {
+        return new FloatArray(channel, mode, position, numberOfElements);
+    }
+
+    /**
+     * Creates an off-heap copy of the given array.
+     */
+    public static FloatArray fromArray(float[] values) {
+        final FloatArray array = new FloatArray(values.length);
+        for (int i = 0; i < values.length; i++) {
+            array.set(i, values[i]);
+        }
+        return array;
+    }
+
+    public float get(int index) {
+        return segment.getFloat(byteOffset(index));
+    }
+
+    public void set(int index, float value) {
+        segment.putFloat(byteOffset(index), value);
+    }
+
+    public void init(float value) {
+        for (int i = 0; i < numberOfElements; i++) {
+            set(i, value);
+        }
+    }
+
+    /**
+     * @return a copy of the elements in a Java array.
+     */
+    public float[] toHeapArray() {
+        final float[] values = new float[numberOfElements];
+        for (int i = 0; i < numberOfElements; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework: 
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * GNU Classpath is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2, or (at your option)
+ * any later version.
+ * 
+ * GNU Classpath is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with GNU Classpath; see the file COPYING.  If not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA.
+ *
+ * Linking this library statically or dynamically with other modules is
+ * making a combined work based on this library.  Thus, the terms and
+ * conditions of the GNU General Public License cover the whole
+ * combination.
+ * 
+ * As a special exception, the copyright holders of this library give you
+ * permission to link this library with independent modules to produce an
+ * executable, regardless of the license terms of these independent
+ * modules, and to copy and distribute the resulting executable under
+ * terms of your choice, provided that you also meet, for each linked
+ * independent module, the terms and conditions of the license of that
+ * module.  An independent module is a module which is not derived from
+ * or based on this library.  If you modify this library, you may extend
+ * this exception to your version of the library, but you are not
+ * obligated to do so.  If you do not wish to do so, delete this
+ * exception statement from your version.
+ *
+ */
+package uk.ac.manchester.tornado.api.collections.arrays;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Base class of the arrays whose elements live outside the Java heap. The
+ * garbage collector never moves their memory, so the drivers can hand it to
+ * the device runtime and return from a copy as soon as it is enqueued, without
+ * pinning the array or waiting for the copy to complete.
+ *
+ * <p>
+ * The memory starts with {@link #ARRAY_HEADER} bytes reserved for the header
+ * that the device expects in front of the elements of an array, so the header
+ * and the elements are copied to the device in a single transfer.
+ * </p>
+ *
+ * <p>
+ * An array can also be mapped on a region of a file (see the {@code map}
+ * factories of the subclasses). Its elements are then read from and written to
+ * the page cache, so the file does not have to be loaded into the Java heap
+ * first. A mapped array has no memory reserved for the header, and the drivers
+ * copy the header separately. Combined with
+ * {@code TaskSchedule#batch(String)}, the elements are streamed to the device
+ * one batch at a time, and outputs mapped on a file in
+ * {@link FileChannel.MapMode#READ_WRITE} mode are written back batch by batch.
+ * </p>
+ *
+ * <p>
+ * Copies to the device run concurrently with the host: the elements of an array
+ * that is an input of a task-schedule must not be modified while the schedule
+ * executes.
+ * </p>
+ */
+public abstract class OffHeapArray {
+
+    /**
+     * Bytes reserved in front of the elements for the array header used on the
+     * device.
+     */
+    public static final int ARRAY_HEADER = 24;
+
+    protected ByteBuffer segment;
+    protected final int numberOfElements;
+    protected final int elementSize;
+
+    /**
+     * Offset of the first element in the segment: {@link #ARRAY_HEADER}, or 0 if
+     * the array is mapped on a file.
+     */
+    protected final int baseOffset;
+
+    protected OffHeapArray(int numberOfElements, int elementSize) {
+        if (numberOfElements < 0) {
+            throw new IllegalArgumentException("Negative number of elements: " + numberOfElements);
+        }
+        final long numBytes = ARRAY_HEADER + (long) numberOfElements * elementSize;
+        if (numBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("An off-heap array is limited to " + Integer.MAX_VALUE + " bytes, but " + numBytes + " bytes were requested");
+        }
+        this.numberOfElements = numberOfElements;
+        this.elementSize = elementSize;
+        this.baseOffset = ARRAY_HEADER;
+        this.segment = ByteBuffer.allocateDirect((int) numBytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Creates an array on a region of a file. The elements are stored in native
+     * byte order.
+     */
+    protected OffHeapArray(FileChannel channel, FileChannel.MapMode mode, long position, int numberOfElements, int elementSize) {
+        if (numberOfElements < 0) {
+            throw new IllegalArgumentException("Negative number of elements: " + numberOfElements);
+        }
+        final long numBytes = (long) numberOfElements * elementSize;
+        if (numBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A mapped region is limited to " + Integer.MAX_VALUE + " bytes, but " + numBytes + " bytes were requested");
+        }
+        this.numberOfElements = numberOfElements;
+        this.elementSize = elementSize;
+        this.baseOffset = 0;
+        try {
+            this.segment = channel.map(mode, position, numBytes).order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the number of elements of the array.
+     */
+    public final int getSize() {
+        return numberOfElements;
+    }
+
+    /**
+     * @return the number of bytes used by the elements of the array.
+     */
+    public final long getNumBytes() {
+        return (long) segment.capacity() - baseOffset;
+    }
+
+    /**
+     * @return the number of bytes of an element.
+     */
+    public final int getElementSize() {
+        return elementSize;
+    }
+
+    /**
+     * @return true if {@link #ARRAY_HEADER} bytes are reserved for the header in
+     *         front of the elements. False if the array is mapped on a file.
+     */
+    public final boolean hasReservedHeader() {
+        return baseOffset == ARRAY_HEADER;
+    }
+
+    /**
+     * @return the offset of the first element in the segment.
+     */
+    public final int getBaseOffset() {
+        return baseOffset;
+    }
+
+    /**
+     * Writes the changes made to an array mapped on a file to the storage device.
+     * Does nothing for the arrays that are not mapped.
+     */
+    public final void force() {
+        if (segment instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) segment).force();
+        }
+    }
+
+    /**
+     * Memory of the array, including the reserved header if there is one. Used by the drivers to
+     * transfer the array.
+     */
+    public final ByteBuffer getSegment() {
+        return segment;
+    }
+
+    /**
+     * Moves the array to {@code memory}, which must have the capacity of the
+     * current segment. Used by the drivers to place the array in memory that is
+     * shared with a device.
+     */
+    public final void relocate(ByteBuffer memory) {
+        if (!hasReservedHeader()) {
+            throw new UnsupportedOperationException("An array mapped on a file cannot be relocated");
+        }
+        if (memory.capacity() != segment.capacity()) {
+            throw new IllegalArgumentException("Expected " + segment.capacity() + " bytes, but got " + memory.capacity());
+        }
+        final ByteBuffer source = segment.duplicate();
+        source.clear();
+        memory.clear();
+        memory.put(source);
+        memory.clear();
+        segment = memory.order(ByteOrder.nativeOrder());
+    }
+
+    protected static int checkIndex(int index, int numberOfElements) {
+        if (index < 0 || index >= numberOfElements) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+
+    /**
+     * @return the offset in the segment of the element at {@code index}. The
+     *         offset is computed in {@code long}, so a wrong index can never wrap
+     *         around to a valid offset.
+     */
+    protected final int byteOffset(int index) {
+        return Math.toIntExact(baseOffset + (long) checkIndex(index, numberOfElements) * elementSize);
+    }
+}
@@ -146,6 +146,48 @@ public interface TornadoDevice {
      */
     int streamOutBlocking(Object object, long hostOffset, TornadoDeviceObjectState objectState, int[] events);
 
+    /**
+     * It copies part of an array from the host to the target device. The whole
+     * array is copied if the device does not hold its contents yet.
+     *
+     * @param object
+     *            to be copied
+     * @param offset
+     *            offset in bytes of the first element to copy
+     * @param size
+     *            number of bytes to copy
+     * @param objectState
+     *            state of the object in the target device
+     *            {@link TornadoDeviceObjectState}
+     * @param events
+     *            list of previous events
+     * @return and event ID
+     */
+    default List<Integer> streamInRange(Object object, long offset, long size, TornadoDeviceObjectState objectState, int[] events) {
+        return streamIn(object, 0, 0, objectState, events);
+    }
+
+    /**
+     * It copies part of a device buffer from the target device to the host.
+     * Copies are non-blocking.
+     *
+     * @param object
+     *            to be copied
+     * @param offset
+     *            offset in bytes of the first element to copy
+     * @param size
+     *            number of bytes to copy
+     * @param objectState
+     *            state of the object in the target device
+     *            {@link TornadoDeviceObjectState}
+     * @param events
+     *            of pending events
+     * @return and event ID
+     */
+    default int streamOutRange(Object object, long offset, long size, TornadoDeviceObjectState objectState, int[] events) {
+        return streamOut(object, 0, objectState, events);
+    }
+
     /**
      * It resolves an pending event.
      *
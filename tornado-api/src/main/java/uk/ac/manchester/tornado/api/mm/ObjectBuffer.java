@@ -66,8 +66,33 @@ public interface ObjectBuffer {
 
     List<Integer> enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps);
 
+    /**
+     * Copies {@code size} bytes of the object, starting at byte {@code offset}
+     * of its data, to the same position of the buffer. Buffers that cannot copy
+     * part of an object copy the whole object.
+     */
+    default List<Integer> enqueueWriteRange(Object reference, long offset, long size, int[] events, boolean useDeps) {
+        return enqueueWrite(reference, 0, 0, events, useDeps);
+    }
+
+    /**
+     * Copies {@code size} bytes of the buffer, starting at byte {@code offset} of
+     * the object data, to the same position of the object. Buffers that cannot
+     * copy part of an object copy the whole object.
+     */
+    default int enqueueReadRange(Object reference, long offset, long size, int[] events, boolean useDeps) {
+        return enqueueRead(reference, 0, events, useDeps);
+    }
+
     void allocate(Object reference, long batchSize) throws TornadoOutOfMemoryException, TornadoMemoryException;
 
+    /**
+     * Returns the device memory of this buffer to the memory manager. The buffer
+     * is invalidated and a later call to {@link #allocate(Object, long)} will
+     * reserve new space on the device.
+     */
+    void deallocate();
+
     int getAlignment();
 
     boolean isValid();
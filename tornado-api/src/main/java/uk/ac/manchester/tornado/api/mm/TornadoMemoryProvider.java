@@ -55,6 +55,22 @@ public interface TornadoMemoryProvider {
 
     long getHeapAllocated();
 
+    /**
+     * Size in bytes of the largest contiguous free block of the device heap.
+     */
+    long getHeapLargestFreeBlock();
+
+    /**
+     * Number of free blocks in which the unallocated device heap is split.
+     */
+    int getHeapFreeBlocks();
+
+    /**
+     * External fragmentation of the device heap, between 0 (all free memory is
+     * contiguous) and 1.
+     */
+    double getHeapFragmentation();
+
     boolean isInitialised();
 
 }
@@ -36,7 +36,13 @@ public enum ProfilerType {
     COPY_OUT_TIME("CopyOut-Time"),
     DEVICE_ID("Device-ID"),
     DEVICE("Device"),
+    EVICTIONS("Evictions"),
+    EVICTION_REUPLOADS("Eviction-Reuploads"),
+    EVICTION_SPILL_SIZE_BYTES("Eviction-Spill-Size (Bytes)"),
+    BACKGROUND_COMPILE_TIME("Background-Compile-Time"),
+    SEQUENTIAL_FALLBACK_TIME("Sequential-Fallback-Time"),
     TASK_COPY_IN_SIZE_BYTES("CopyIn-Size (Bytes)"),
+    ELIDED_COPY_IN_SIZE_BYTES("CopyIn-Elided-Size (Bytes)"),
     TASK_COPY_OUT_SIZE_BYTES("CopyOut-Size (Bytes)"),
     TASK_COMPILE_DRIVER_TIME("Task-Compile-Driver-"),
     TASK_COMPILE_GRAAL_TIME("Task-Compile-Graal-"),
@@ -1,6 +1,7 @@
 open module tornado.unittests {
     requires transitive junit;
     requires transitive tornado.api;
+    requires tornado.runtime;
     requires lucene.core;
 
     exports uk.ac.manchester.tornado.unittests;
@@ -10,6 +11,7 @@ open module tornado.unittests {
     exports uk.ac.manchester.tornado.unittests.batches;
     exports uk.ac.manchester.tornado.unittests.bitsets;
     exports uk.ac.manchester.tornado.unittests.branching;
+    exports uk.ac.manchester.tornado.unittests.cache;
     exports uk.ac.manchester.tornado.unittests.common;
     exports uk.ac.manchester.tornado.unittests.dynamic;
     exports uk.ac.manchester.tornado.unittests.fields;
@@ -22,6 +24,7 @@ open module tornado.unittests {
     exports uk.ac.manchester.tornado.unittests.loops;
     exports uk.ac.manchester.tornado.unittests.math;
     exports uk.ac.manchester.tornado.unittests.matrices;
+    exports uk.ac.manchester.tornado.unittests.mm;
     exports uk.ac.manchester.tornado.unittests.prebuilt;
     exports uk.ac.manchester.tornado.unittests.profiler;
     exports uk.ac.manchester.tornado.unittests.reductions;
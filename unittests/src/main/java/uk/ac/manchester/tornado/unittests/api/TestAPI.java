@@ -20,14 +20,20 @@ package uk.ac.manchester.tornado.unittests.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 import org.junit.Test;
 
 import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.collections.types.Float4;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat4;
+import uk.ac.manchester.tornado.api.mm.TornadoMemoryProvider;
 import uk.ac.manchester.tornado.unittests.arrays.TestArrays;
 import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+import uk.ac.manchester.tornado.unittests.vectortypes.TestFloats;
 
 public class TestAPI extends TornadoTestBase {
 
@@ -99,4 +105,97 @@ public class TestAPI extends TornadoTestBase {
         }
     }
 
+    @Test
+    public void testFreeDeviceMemory() {
+        final int N = 1024;
+        int size = 20;
+
+        int[] data = new int[N];
+
+        IntStream.range(0, N).parallel().forEach(idx -> {
+            data[idx] = size;
+        });
+
+        TaskSchedule s0 = new TaskSchedule("s0");
+        assertNotNull(s0);
+
+        s0.task("t0", TestArrays::addAccumulator, data, 1);
+        s0.streamOut(data);
+        s0.execute();
+
+        TornadoMemoryProvider memoryProvider = s0.getDevice().getMemoryProvider();
+        final long allocated = memoryProvider.getHeapAllocated();
+        assertTrue(allocated > 0);
+
+        s0.freeDeviceMemory();
+        assertTrue(memoryProvider.getHeapAllocated() < allocated);
+
+        // The array is allocated and copied again from the host
+        s0.execute();
+
+        for (int i = 0; i < N; i++) {
+            assertEquals(22, data[i]);
+        }
+    }
+
+    @Test
+    public void testFreeDeviceMemoryAndRelocate() {
+        final int N = 1024;
+        int[] data = new int[N];
+        int[] other = new int[N];
+        Arrays.fill(data, 20);
+        Arrays.fill(other, 100);
+
+        TaskSchedule s0 = new TaskSchedule("s0") //
+                .task("t0", TestArrays::addAccumulator, data, 1) //
+                .streamOut(data);
+        s0.execute();
+        s0.freeDeviceMemory();
+
+        // The second schedule takes the space released by the first one, so the
+        // array of the first schedule is placed somewhere else when it runs again
+        TaskSchedule s1 = new TaskSchedule("s1") //
+                .task("t0", TestArrays::addAccumulator, other, 1) //
+                .streamOut(other);
+        s1.execute();
+
+        s0.execute();
+        s1.execute();
+
+        for (int i = 0; i < N; i++) {
+            assertEquals(22, data[i]);
+            assertEquals(102, other[i]);
+        }
+    }
+
+    @Test
+    public void testFreeDeviceMemoryAndRelocateVectors() {
+        final int size = 256;
+        VectorFloat4 a = new VectorFloat4(size);
+        VectorFloat4 b = new VectorFloat4(size);
+        VectorFloat4 output = new VectorFloat4(size);
+        for (int i = 0; i < size; i++) {
+            a.set(i, new Float4(i, i, i, i));
+            b.set(i, new Float4(1, 1, 1, 1));
+        }
+
+        TaskSchedule s0 = new TaskSchedule("s0") //
+                .task("t0", TestFloats::addVectorFloat4, a, b, output) //
+                .streamOut(output);
+        s0.execute();
+        s0.freeDeviceMemory();
+
+        // The storage of the vectors is allocated again after the array of s1
+        TaskSchedule s1 = new TaskSchedule("s1") //
+                .task("t0", TestArrays::addAccumulator, new int[size], 1);
+        s1.execute();
+
+        output.fill(0);
+        s0.execute();
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(i + 1, output.get(i).getX(), 0.001f);
+            assertEquals(i + 1, output.get(i).getW(), 0.001f);
+        }
+    }
 }
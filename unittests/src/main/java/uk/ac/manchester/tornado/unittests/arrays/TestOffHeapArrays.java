@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.arrays;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.arrays.DoubleArray;
+import uk.ac.manchester.tornado.api.collections.arrays.FloatArray;
+import uk.ac.manchester.tornado.api.collections.arrays.IntArray;
+import uk.ac.manchester.tornado.api.collections.arrays.LongArray;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Tests of the arrays allocated outside the Java heap, which are copied to the
+ * device with non-blocking transfers.
+ * 
+ * How to run?
+ * 
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.arrays.TestOffHeapArrays
+ * </code>
+ */
+public class TestOffHeapArrays extends TornadoTestBase {
+
+    public static void vectorAddFloat(FloatArray a, FloatArray b, FloatArray c) {
+        for (@Parallel int i = 0; i < c.getSize(); i++) {
+            c.set(i, a.get(i) + b.get(i));
+        }
+    }
+
+    public static void addAccumulator(IntArray a, int value) {
+        for (@Parallel int i = 0; i < a.getSize(); i++) {
+            a.set(i, a.get(i) + value);
+        }
+    }
+
+    public static void saxpy(double alpha, DoubleArray x, DoubleArray y) {
+        for (@Parallel int i = 0; i < y.getSize(); i++) {
+            y.set(i, alpha * x.get(i) + y.get(i));
+        }
+    }
+
+    public static void vectorAddLong(LongArray a, LongArray b, LongArray c) {
+        for (@Parallel int i = 0; i < c.getSize(); i++) {
+            c.set(i, a.get(i) + b.get(i));
+        }
+    }
+
+    public static void copyToHeap(FloatArray a, float[] b) {
+        for (@Parallel int i = 0; i < b.length; i++) {
+            b[i] = a.get(i) * 2;
+        }
+    }
+
+    @Test
+    public void testFloatArray() {
+        checkForPTX();
+        final int numElements = 1024;
+        FloatArray a = new FloatArray(numElements);
+        FloatArray b = new FloatArray(numElements);
+        FloatArray c = new FloatArray(numElements);
+        for (int i = 0; i < numElements; i++) {
+            a.set(i, i);
+            b.set(i, 2 * i);
+        }
+
+        new TaskSchedule("s0") //
+                .streamIn(a, b) //
+                .task("t0", TestOffHeapArrays::vectorAddFloat, a, b, c) //
+                .streamOut(c) //
+                .execute();
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(3 * i, c.get(i), 0.001f);
+        }
+    }
+
+    @Test
+    public void testIntArrayReadWrite() {
+        checkForPTX();
+        final int numElements = 512;
+        final int numKernels = 8;
+        IntArray a = new IntArray(numElements);
+        for (int i = 0; i < numElements; i++) {
+            a.set(i, i);
+        }
+
+        TaskSchedule s0 = new TaskSchedule("s1");
+        for (int i = 0; i < numKernels; i++) {
+            s0.task("t" + i, TestOffHeapArrays::addAccumulator, a, 1);
+        }
+        s0.streamOut(a).execute();
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(i + numKernels, a.get(i));
+        }
+    }
+
+    @Test
+    public void testDoubleArrayMultipleExecutions() {
+        checkForPTX();
+        final int numElements = 2048;
+        DoubleArray x = new DoubleArray(numElements);
+        DoubleArray y = new DoubleArray(numElements);
+        x.init(1.0);
+
+        TaskSchedule s0 = new TaskSchedule("s2") //
+                .streamIn(x, y) //
+                .task("t0", TestOffHeapArrays::saxpy, 2.0, x, y) //
+                .streamOut(y);
+
+        for (int iteration = 0; iteration < 4; iteration++) {
+            // New values of the inputs are copied to the device on every execution
+            y.init(iteration);
+            s0.execute();
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(2.0 + iteration, y.get(i), 0.001);
+            }
+        }
+    }
+
+    @Test
+    public void testLongArray() {
+        checkForPTX();
+        final int numElements = 256;
+        LongArray a = new LongArray(numElements);
+        LongArray b = new LongArray(numElements);
+        LongArray c = new LongArray(numElements);
+        for (int i = 0; i < numElements; i++) {
+            a.set(i, (long) i << 32);
+            b.set(i, i);
+        }
+
+        new TaskSchedule("s3") //
+                .streamIn(a, b) //
+                .task("t0", TestOffHeapArrays::vectorAddLong, a, b, c) //
+                .streamOut(c) //
+                .execute();
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(((long) i << 32) + i, c.get(i));
+        }
+    }
+
+    @Test
+    public void testOffHeapAndHeapArrays() {
+        checkForPTX();
+        final int numElements = 300;
+        FloatArray a = FloatArray.fromArray(new float[numElements]);
+        a.init(3.0f);
+        float[] b = new float[numElements];
+
+        new TaskSchedule("s4") //
+                .streamIn(a) //
+                .task("t0", TestOffHeapArrays::copyToHeap, a, b) //
+                .streamOut(b) //
+                .execute();
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(6.0f, b[i], 0.001f);
+        }
+    }
+
+    public static void scale(FloatArray input, FloatArray output) {
+        for (@Parallel int i = 0; i < output.getSize(); i++) {
+            output.set(i, input.get(i) * 2);
+        }
+    }
+
+    private static FileChannel openMappedFile(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Test
+    public void testMappedFloatArray() throws IOException {
+        checkForPTX();
+        final int numElements = 1024;
+        Path inputFile = Files.createTempFile("tornado-input", ".bin");
+        Path outputFile = Files.createTempFile("tornado-output", ".bin");
+        try (FileChannel input = openMappedFile(inputFile); FileChannel output = openMappedFile(outputFile)) {
+            FloatArray a = FloatArray.map(input, FileChannel.MapMode.READ_WRITE, 0, numElements);
+            FloatArray b = FloatArray.map(output, FileChannel.MapMode.READ_WRITE, 0, numElements);
+            for (int i = 0; i < numElements; i++) {
+                a.set(i, i);
+            }
+
+            new TaskSchedule("s5") //
+                    .streamIn(a) //
+                    .task("t0", TestOffHeapArrays::scale, a, b) //
+                    .streamOut(b) //
+                    .execute();
+
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(2 * i, b.get(i), 0.001f);
+            }
+        } finally {
+            Files.deleteIfExists(inputFile);
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    @Test
+    public void testMappedFloatArrayInBatches() throws IOException {
+        checkForPTX();
+        // 4MB per file, processed in four batches of 1MB
+        final int numElements = 1_000_000;
+        Path inputFile = Files.createTempFile("tornado-input", ".bin");
+        Path outputFile = Files.createTempFile("tornado-output", ".bin");
+        try (FileChannel input = openMappedFile(inputFile); FileChannel output = openMappedFile(outputFile)) {
+            FloatArray a = FloatArray.map(input, FileChannel.MapMode.READ_WRITE, 0, numElements);
+            FloatArray b = FloatArray.map(output, FileChannel.MapMode.READ_WRITE, 0, numElements);
+            for (int i = 0; i < numElements; i++) {
+                a.set(i, i % 1000);
+            }
+
+            new TaskSchedule("s6") //
+                    .batch("1MB") //
+                    .task("t0", TestOffHeapArrays::scale, a, b) //
+                    .streamOut(b) //
+                    .execute();
+            b.force();
+
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(2 * (i % 1000), b.get(i), 0.001f);
+            }
+        } finally {
+            Files.deleteIfExists(inputFile);
+            Files.deleteIfExists(outputFile);
+        }
+    }
+
+    @Test
+    public void testMappedFloatArrayBeyond2GB() throws IOException {
+        checkForPTX();
+        // Regions mapped past the first 2GB of a (sparse) file, processed in batches
+        final long position = 3L * 1024 * 1024 * 1024;
+        final int numElements = 1_000_000;
+        Path inputFile = Files.createTempFile("tornado-input", ".bin");
+        Path outputFile = Files.createTempFile("tornado-output", ".bin");
+        try (FileChannel input = openMappedFile(inputFile); FileChannel output = openMappedFile(outputFile)) {
+            FloatArray a = FloatArray.map(input, FileChannel.MapMode.READ_WRITE, position, numElements);
+            FloatArray b = FloatArray.map(output, FileChannel.MapMode.READ_WRITE, position, numElements);
+            for (int i = 0; i < numElements; i++) {
+                a.set(i, i % 1000);
+            }
+
+            new TaskSchedule("s7") //
+                    .batch("1MB") //
+                    .task("t0", TestOffHeapArrays::scale, a, b) //
+                    .streamOut(b) //
+                    .execute();
+
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(2 * (i % 1000), b.get(i), 0.001f);
+            }
+        } finally {
+            Files.deleteIfExists(inputFile);
+            Files.deleteIfExists(outputFile);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.manchester.tornado.unittests.arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static uk.ac.manchester.tornado.api.runtime.TornadoRuntime.getTornadoRuntime;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.arrays.FloatArray;
+import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+import uk.ac.manchester.tornado.unittests.tools.Exceptions.UnsupportedConfigurationException;
+
+/**
+ * Tests of the zero-copy heap of OpenCL devices that share memory with the
+ * host. Off-heap arrays are moved into the heap when they are allocated on the
+ * device, and moved back to their own memory when the device memory is
+ * released. If the driver maps the heap somewhere other than the host memory,
+ * the arrays stay where they are and are copied.
+ *
+ * The tests need a CPU OpenCL device, such as POCL, as the default device.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V -J"-Dtornado.opencl.zerocopy=True" uk.ac.manchester.tornado.unittests.arrays.TestZeroCopy
+ *     tornado-test.py -V -J"-Dtornado.opencl.zerocopy=True -Dtornado.opencl.zerocopy.fallback=True" uk.ac.manchester.tornado.unittests.arrays.TestZeroCopy
+ * </code>
+ */
+public class TestZeroCopy extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 4096;
+
+    public static void vectorAdd(FloatArray a, FloatArray b, FloatArray c) {
+        for (@Parallel int i = 0; i < c.getSize(); i++) {
+            c.set(i, a.get(i) + b.get(i));
+        }
+    }
+
+    /**
+     * @return whether the arrays are expected to fall back to copies.
+     */
+    private static boolean checkZeroCopy() {
+        if (!Boolean.parseBoolean(System.getProperty("tornado.opencl.zerocopy", "False"))) {
+            throw new UnsupportedConfigurationException("Zero-copy is disabled. Use -Dtornado.opencl.zerocopy=True");
+        }
+        if (getTornadoRuntime().getDefaultDevice().getDeviceType() != TornadoDeviceType.CPU) {
+            throw new UnsupportedConfigurationException("Zero-copy is only tested on CPU OpenCL devices");
+        }
+        return Boolean.parseBoolean(System.getProperty("tornado.opencl.zerocopy.fallback", "False"));
+    }
+
+    private static void init(FloatArray a, FloatArray b, int iteration) {
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            a.set(i, i + iteration);
+            b.set(i, 2 * i);
+        }
+    }
+
+    private static void check(FloatArray c, int iteration) {
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(3 * i + iteration, c.get(i), 0.001f);
+        }
+    }
+
+    @Test
+    public void testArraysMovedIntoHeap() {
+        checkForPTX();
+        if (checkZeroCopy()) {
+            throw new UnsupportedConfigurationException("Zero-copy falls back to copies. Remove -Dtornado.opencl.zerocopy.fallback");
+        }
+        FloatArray a = new FloatArray(NUM_ELEMENTS);
+        FloatArray b = new FloatArray(NUM_ELEMENTS);
+        FloatArray c = new FloatArray(NUM_ELEMENTS);
+        final ByteBuffer hostSegment = a.getSegment();
+
+        TaskSchedule s0 = new TaskSchedule("s0") //
+                .streamIn(a, b) //
+                .task("t0", TestZeroCopy::vectorAdd, a, b, c) //
+                .streamOut(c);
+
+        init(a, b, 0);
+        s0.execute();
+        check(c, 0);
+
+        // The array now lives in the heap of the device
+        final ByteBuffer heapSegment = a.getSegment();
+        assertNotSame(hostSegment, heapSegment);
+
+        // Host writes to the heap are seen by the next execution
+        init(a, b, 1);
+        s0.execute();
+        check(c, 1);
+        assertSame(heapSegment, a.getSegment());
+
+        // Releasing the device memory moves the arrays back, with their contents
+        s0.freeDeviceMemory();
+        assertNotSame(heapSegment, a.getSegment());
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(i + 1, a.get(i), 0.001f);
+        }
+        check(c, 1);
+
+        // The arrays are moved into the heap again
+        init(a, b, 2);
+        s0.execute();
+        check(c, 2);
+        assertNotSame(hostSegment, a.getSegment());
+        s0.freeDeviceMemory();
+    }
+
+    @Test
+    public void testFallbackWhenMappedElsewhere() {
+        checkForPTX();
+        if (!checkZeroCopy()) {
+            throw new UnsupportedConfigurationException("The driver maps the heap in host memory. Use -Dtornado.opencl.zerocopy.fallback=True");
+        }
+        FloatArray a = new FloatArray(NUM_ELEMENTS);
+        FloatArray b = new FloatArray(NUM_ELEMENTS);
+        FloatArray c = new FloatArray(NUM_ELEMENTS);
+        final ByteBuffer hostSegment = a.getSegment();
+        final ByteBuffer outputSegment = c.getSegment();
+
+        TaskSchedule s1 = new TaskSchedule("s1") //
+                .streamIn(a, b) //
+                .task("t0", TestZeroCopy::vectorAdd, a, b, c) //
+                .streamOut(c);
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            init(a, b, iteration);
+            s1.execute();
+            check(c, iteration);
+
+            // The arrays stay in their own memory and are copied
+            assertSame(hostSegment, a.getSegment());
+            assertSame(outputSegment, c.getSegment());
+        }
+
+        s1.freeDeviceMemory();
+        assertSame(hostSegment, a.getSegment());
+        check(c, 2);
+    }
+}
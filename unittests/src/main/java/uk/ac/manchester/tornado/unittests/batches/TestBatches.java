@@ -21,6 +21,7 @@ package uk.ac.manchester.tornado.unittests.batches;
 import org.junit.Test;
 import uk.ac.manchester.tornado.api.TaskSchedule;
 import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
 import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
 import uk.ac.manchester.tornado.unittests.tools.Exceptions.UnsupportedConfigurationException;
 
@@ -74,6 +75,18 @@ public class TestBatches extends TornadoTestBase {
         }
     }
 
+    public static void compute(float[] prices, int[] quantities, double[] totals) {
+        for (@Parallel int i = 0; i < prices.length; i++) {
+            totals[i] = prices[i] * quantities[i];
+        }
+    }
+
+    public static void lookup(int[] indexes, float[] table, float[] output) {
+        for (@Parallel int i = 0; i < indexes.length; i++) {
+            output[i] = table[indexes[i]];
+        }
+    }
+
     @Test
     public void test100MB() {
 
@@ -335,6 +348,110 @@ public class TestBatches extends TornadoTestBase {
     }
 
 
+    @Test
+    public void test50MBPipelined() {
+
+        // Two slots with three buffers of 50MB each
+        long maxAllocMemory = checkMaxHeapAllocation(300, MemSize.MB);
+
+        // Fill 80MB of input Array
+        int size = 20000000;
+        // or as much as we can
+        if (size * 4 > maxAllocMemory) {
+            size = (int) ((maxAllocMemory / 4 / 6) * 0.9);
+        }
+        float[] arrayA = new float[size];
+        float[] arrayB = new float[size];
+        float[] arrayC = new float[size];
+
+        IntStream.range(0, arrayA.length).sequential().forEach(idx -> {
+            arrayA[idx] = idx;
+            arrayB[idx] = idx;
+        });
+
+        // Double-buffered batches: the transfers of one batch overlap the kernel of
+        // the previous one
+        TornadoRuntime.setProperty("pipelined.batch.pipeline", "2");
+        TaskSchedule ts = new TaskSchedule("pipelined");
+
+        // @formatter:off
+        ts.batch("50MB")   // Process Slots of 50 MB
+                .streamIn(arrayA, arrayB)
+                .task("t0", TestBatches::compute, arrayA, arrayB, arrayC)
+                .streamOut((Object) arrayC)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < arrayA.length; i++) {
+            assertEquals(arrayA[i] + arrayB[i], arrayC[i], 0.1f);
+        }
+    }
+
+    @Test
+    public void test50MBMixedTypes() {
+
+        long maxAllocMemory = checkMaxHeapAllocation(50, MemSize.MB);
+
+        // Batches are split in elements: 50MB holds the double array of each batch
+        int size = 20000000;
+        if (size * 16 > maxAllocMemory) {
+            size = (int) ((maxAllocMemory / 16) * 0.9);
+        }
+        float[] prices = new float[size];
+        int[] quantities = new int[size];
+        double[] totals = new double[size];
+
+        IntStream.range(0, size).sequential().forEach(idx -> {
+            prices[idx] = idx % 1000;
+            quantities[idx] = idx % 10;
+        });
+
+        TaskSchedule ts = new TaskSchedule("s0");
+
+        // @formatter:off
+        ts.batch("50MB")
+                .task("t0", TestBatches::compute, prices, quantities, totals)
+                .streamOut(totals)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(prices[i] * quantities[i], totals[i], 0.01);
+        }
+    }
+
+    @Test
+    public void test50MBBroadcast() {
+
+        long maxAllocMemory = checkMaxHeapAllocation(50, MemSize.MB);
+
+        int size = 20000000;
+        if (size * 8 > maxAllocMemory) {
+            size = (int) ((maxAllocMemory / 8) * 0.9);
+        }
+        final int tableSize = 1024;
+        int[] indexes = new int[size];
+        float[] table = new float[tableSize];
+        float[] output = new float[size];
+
+        IntStream.range(0, size).sequential().forEach(idx -> indexes[idx] = idx % tableSize);
+        IntStream.range(0, tableSize).sequential().forEach(idx -> table[idx] = idx * 2.0f);
+
+        TaskSchedule ts = new TaskSchedule("s0");
+
+        // @formatter:off
+        ts.batch("50MB")
+                .broadcast(table)   // The whole table is used by every batch
+                .task("t0", TestBatches::lookup, indexes, table, output)
+                .streamOut(output)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(table[indexes[i]], output[i], 0.01f);
+        }
+    }
+
     private long checkMaxHeapAllocation(int size, MemSize memSize) throws UnsupportedConfigurationException {
         long maxAllocMemory = getTornadoRuntime().getDefaultDevice().getDeviceContext().getMemoryManager().getHeapSize();
 
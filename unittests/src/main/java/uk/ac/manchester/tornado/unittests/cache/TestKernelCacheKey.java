@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.runtime.cache.PersistentKernelCache;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+import uk.ac.manchester.tornado.unittests.tools.Exceptions.UnsupportedConfigurationException;
+
+/**
+ * Tests of the keys of the persistent kernel cache. Each task-schedule compiles
+ * its own kernels, so the same task in another task-schedule is looked up in
+ * the persistent cache. The value of scalar arguments is part of the key, and
+ * every test uses a random one to start from a key that is not on disk.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V -J"-Dtornado.kernel.cache.enable=True" uk.ac.manchester.tornado.unittests.cache.TestKernelCacheKey
+ *     tornado-test.py -V -J"-Dtornado.kernel.cache.enable=True -Dtornado.experimental.tiling=True" uk.ac.manchester.tornado.unittests.cache.TestKernelCacheKey
+ *     tornado-test.py -V -J"-Dtornado.kernel.cache.enable=True -Dtornado.experimental.vectorize=True" uk.ac.manchester.tornado.unittests.cache.TestKernelCacheKey
+ * </code>
+ */
+public class TestKernelCacheKey extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 1024;
+
+    public static void add(int[] input, int[] output, int value) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = input[i] + value;
+        }
+    }
+
+    public static void matrixMultiplication(final float[] a, final float[] b, final float[] c, final int size) {
+        for (@Parallel int i = 0; i < size; i++) {
+            for (@Parallel int j = 0; j < size; j++) {
+                float sum = 0.0f;
+                for (int k = 0; k < size; k++) {
+                    sum += a[i * size + k] * b[k * size + j];
+                }
+                c[i * size + j] = sum;
+            }
+        }
+    }
+
+    private static PersistentKernelCache getCache() {
+        if (!PersistentKernelCache.isEnabled()) {
+            throw new UnsupportedConfigurationException("The persistent kernel cache is disabled. Use -Dtornado.kernel.cache.enable=True");
+        }
+        return PersistentKernelCache.getInstance();
+    }
+
+    private static int randomValue() {
+        return ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE / 2);
+    }
+
+    private static void run(String name, int numElements, int value) {
+        int[] input = new int[numElements];
+        int[] output = new int[numElements];
+        for (int i = 0; i < numElements; i++) {
+            input[i] = i;
+        }
+
+        new TaskSchedule(name) //
+                .task("t0", TestKernelCacheKey::add, input, output, value) //
+                .streamOut(output) //
+                .execute();
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(i + value, output[i]);
+        }
+    }
+
+    private static void runMatrixMultiplication(String name, int size) {
+        Random random = new Random(7);
+        float[] a = new float[size * size];
+        float[] b = new float[size * size];
+        float[] c = new float[size * size];
+        float[] expected = new float[size * size];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = random.nextFloat();
+            b[i] = random.nextFloat();
+        }
+
+        new TaskSchedule(name) //
+                .streamIn(a, b) //
+                .task("t0", TestKernelCacheKey::matrixMultiplication, a, b, c, size) //
+                .streamOut(c) //
+                .execute();
+
+        matrixMultiplication(a, b, expected, size);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], c[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testSameTaskIsReused() {
+        final PersistentKernelCache cache = getCache();
+        final int value = randomValue();
+
+        long misses = cache.getMisses();
+        run("s0", NUM_ELEMENTS, value);
+        assertEquals(misses + 1, cache.getMisses());
+
+        long hits = cache.getHits();
+        run("s1", NUM_ELEMENTS, value);
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    public void testScalarChangesKey() {
+        final PersistentKernelCache cache = getCache();
+        final int value = randomValue();
+        run("s0", NUM_ELEMENTS, value);
+
+        long hits = cache.getHits();
+        run("s1", NUM_ELEMENTS, value + 1);
+        assertEquals(hits, cache.getHits());
+    }
+
+    @Test
+    public void testArrayLengthChangesKey() {
+        final PersistentKernelCache cache = getCache();
+        final int value = randomValue();
+        run("s0", NUM_ELEMENTS, value);
+
+        long hits = cache.getHits();
+        run("s1", NUM_ELEMENTS * 2, value);
+        assertEquals(hits, cache.getHits());
+    }
+
+    /**
+     * The local memory tiling pads the domain and sets the local work of the
+     * task while compiling it. Kernels loaded from the cache have to be
+     * launched with the same configuration.
+     */
+    @Test
+    public void testTiledKernelIsReused() {
+        final PersistentKernelCache cache = getCache();
+        if (!Boolean.parseBoolean(System.getProperty("tornado.experimental.tiling", "False"))) {
+            throw new UnsupportedConfigurationException("Local memory tiling is disabled. Use -Dtornado.experimental.tiling=True");
+        }
+        // An odd size is not a multiple of the tile size, so the domain is padded
+        final int size = 2 * ThreadLocalRandom.current().nextInt(32, 128) + 1;
+        runMatrixMultiplication("s0", size);
+
+        long hits = cache.getHits();
+        runMatrixMultiplication("s1", size);
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    /**
+     * The vectoriser shrinks the domain of the task while compiling it. Kernels
+     * loaded from the cache have to be launched with the vector domain.
+     */
+    @Test
+    public void testVectorisedKernelIsReused() {
+        final PersistentKernelCache cache = getCache();
+        if (!Boolean.parseBoolean(System.getProperty("tornado.experimental.vectorize", "False"))) {
+            throw new UnsupportedConfigurationException("The vectoriser is disabled. Use -Dtornado.experimental.vectorize=True");
+        }
+        final int value = randomValue();
+        // Not a multiple of the vector width, so there is also a scalar epilogue
+        run("s0", NUM_ELEMENTS + 3, value);
+
+        long hits = cache.getHits();
+        run("s1", NUM_ELEMENTS + 3, value);
+        assertEquals(hits + 1, cache.getHits());
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.runtime.cache.CachedKernel;
+import uk.ac.manchester.tornado.runtime.cache.PersistentKernelCache;
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
+import uk.ac.manchester.tornado.runtime.domain.IntDomain;
+
+/**
+ * Tests of the on-disk kernel cache. The cache only stores bytes and launch
+ * domains, so these tests run on the host in a temporary directory and do not
+ * need a device.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.cache.TestPersistentKernelCache
+ * </code>
+ */
+public class TestPersistentKernelCache {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+    private static final String KEY = "0123456789abcdef";
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("tornado-kernel-cache");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static byte[] binary(int size, int seed) {
+        byte[] binary = new byte[size];
+        for (int i = 0; i < size; i++) {
+            binary[i] = (byte) (i * 31 + seed);
+        }
+        return binary;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(files::add);
+        }
+        return files;
+    }
+
+    @Test
+    public void testStoreAndLookup() throws IOException {
+        PersistentKernelCache cache = new PersistentKernelCache(directory, MAX_SIZE);
+        assertNull(cache.lookup(KEY));
+        assertEquals(1, cache.getMisses());
+
+        byte[] binary = binary(4096, 1);
+        cache.store(KEY, new CachedKernel(binary, null, null));
+        CachedKernel found = cache.lookup(KEY);
+        assertArrayEquals(binary, found.getBinary());
+        assertNull(found.getDomain());
+        assertNull(found.getLocalWork());
+        assertEquals(1, cache.getHits());
+
+        // The entry is visible to other processes using the same directory
+        PersistentKernelCache other = new PersistentKernelCache(directory, MAX_SIZE);
+        assertArrayEquals(binary, other.lookup(KEY).getBinary());
+
+        // No temporary file is left behind
+        List<Path> files = listFiles();
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getFileName().toString().startsWith(KEY));
+    }
+
+    @Test
+    public void testLaunchConfigurationIsStored() {
+        PersistentKernelCache cache = new PersistentKernelCache(directory, MAX_SIZE);
+        DomainTree domain = new DomainTree(2);
+        domain.set(0, new IntDomain(0, 1, 1024));
+        domain.set(1, new IntDomain(2, 3, 17));
+        long[] localWork = { 16, 16, 1 };
+        cache.store(KEY, new CachedKernel(binary(512, 7), domain, localWork));
+
+        // Kernels loaded from the cache are launched with the configuration set by the compiler
+        CachedKernel kernel = new PersistentKernelCache(directory, MAX_SIZE).lookup(KEY);
+        assertArrayEquals(localWork, kernel.getLocalWork());
+        DomainTree found = kernel.getDomain();
+        assertEquals(2, found.getDepth());
+        for (int i = 0; i < domain.getDepth(); i++) {
+            IntDomain expected = (IntDomain) domain.get(i);
+            IntDomain actual = (IntDomain) found.get(i);
+            assertEquals(expected.getOffset(), actual.getOffset());
+            assertEquals(expected.getStep(), actual.getStep());
+            assertEquals(expected.cardinality(), actual.cardinality());
+        }
+    }
+
+    @Test
+    public void testConcurrentStores() throws Exception {
+        final int numWriters = 8;
+        final int size = 256 * 1024;
+        PersistentKernelCache cache = new PersistentKernelCache(directory, MAX_SIZE * 16);
+        ExecutorService executor = Executors.newFixedThreadPool(numWriters + 1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < numWriters; i++) {
+                final int seed = i;
+                writers.add(executor.submit(() -> cache.store(KEY, new CachedKernel(binary(size, seed), null, null))));
+            }
+
+            // Readers see a complete entry of one of the writers or nothing
+            Future<?> reader = executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    CachedKernel kernel = cache.lookup(KEY);
+                    if (kernel != null) {
+                        byte[] found = kernel.getBinary();
+                        assertEquals(size, found.length);
+                        assertArrayEquals(binary(size, found[0]), found);
+                    }
+                }
+            });
+
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            reader.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        byte[] found = cache.lookup(KEY).getBinary();
+        assertEquals(size, found.length);
+        assertArrayEquals(binary(size, found[0]), found);
+        assertEquals(1, listFiles().size());
+    }
+
+    @Test
+    public void testCorruptedEntry() throws IOException {
+        PersistentKernelCache cache = new PersistentKernelCache(directory, MAX_SIZE);
+        byte[] binary = binary(1024, 3);
+        cache.store(KEY, new CachedKernel(binary, null, null));
+
+        // Flip one byte of the kernel
+        Path entry = listFiles().get(0);
+        byte[] contents = Files.readAllBytes(entry);
+        contents[contents.length - 1] ^= 0xFF;
+        Files.write(entry, contents);
+
+        assertNull(cache.lookup(KEY));
+        assertFalse(Files.exists(entry));
+
+        // The entry is written again after the kernel is recompiled
+        cache.store(KEY, new CachedKernel(binary, null, null));
+        assertArrayEquals(binary, cache.lookup(KEY).getBinary());
+    }
+
+    @Test
+    public void testTruncatedEntry() throws IOException {
+        PersistentKernelCache cache = new PersistentKernelCache(directory, MAX_SIZE);
+        cache.store(KEY, new CachedKernel(binary(1024, 5), null, null));
+
+        Path entry = listFiles().get(0);
+        byte[] contents = Files.readAllBytes(entry);
+        Files.write(entry, Arrays.copyOf(contents, contents.length / 2));
+
+        assertNull(cache.lookup(KEY));
+        assertFalse(Files.exists(entry));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.manchester.tornado.unittests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.Policy;
+import uk.ac.manchester.tornado.runtime.tasks.DeviceKey;
+import uk.ac.manchester.tornado.runtime.tasks.TornadoTaskSchedule;
+
+/**
+ * Tests the devices of several drivers considered by the dynamic
+ * reconfiguration. They do not need any device.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.dynamic.TestDeviceKey
+ * </code>
+ */
+public class TestDeviceKey {
+
+    @Test
+    public void testSameIndexOnDifferentDrivers() {
+        DeviceKey first = new DeviceKey(0, 0);
+        DeviceKey second = new DeviceKey(1, 0);
+        assertNotEquals(first, second);
+        assertEquals(first, new DeviceKey(0, 0));
+
+        Map<DeviceKey, String> schedules = new HashMap<>();
+        schedules.put(first, "s0");
+        schedules.put(second, "s1");
+        assertEquals(2, schedules.size());
+        assertEquals("s0", schedules.get(new DeviceKey(0, 0)));
+        assertEquals("s1", schedules.get(new DeviceKey(1, 0)));
+    }
+
+    @Test
+    public void testDevicesOfAllDrivers() {
+        List<DeviceKey> devices = DeviceKey.listDevices(new int[] { 1, 2 });
+        assertEquals(3, devices.size());
+        assertEquals("0:0", devices.get(0).toString());
+        assertEquals("1:0", devices.get(1).toString());
+        assertEquals("1:1", devices.get(2).toString());
+    }
+
+    @Test
+    public void testPolicySelectsDeviceOfSecondDriver() {
+        List<DeviceKey> devices = DeviceKey.listDevices(new int[] { 1, 2 });
+
+        // Timers of the three devices followed by the sequential code
+        long[] totalTimers = new long[] { 300, 100, 200, 400 };
+        int winner = TornadoTaskSchedule.synchronizeWithPolicy(Policy.PERFORMANCE, totalTimers);
+        DeviceKey device = DeviceKey.select(devices, winner);
+
+        assertEquals(1, device.getDriverIndex());
+        assertEquals(0, device.getDeviceIndex());
+        // The <task>.device option of the recompiled task-schedule
+        assertEquals("1:0", device.toString());
+    }
+
+    @Test
+    public void testPolicySelectsSequentialCode() {
+        List<DeviceKey> devices = DeviceKey.listDevices(new int[] { 1, 2 });
+
+        long[] totalTimers = new long[] { 300, 100, 200, 50 };
+        int winner = TornadoTaskSchedule.synchronizeWithPolicy(Policy.END_2_END, totalTimers);
+        assertTrue(DeviceKey.select(devices, winner).isSequential());
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.manchester.tornado.unittests.loops;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the vectorisation of parallel loops
+ * ({@code -Dtornado.experimental.vectorize=True}). The sizes are not multiples
+ * of the vector width, so the scalar epilogue is also exercised. Without the
+ * option the loops are compiled as usual and the results are the same.
+ *
+ * <p>
+ * How to run?
+ * </p>
+ * <code>
+ * tornado-test.py -V -J"-Dtornado.experimental.vectorize=True" uk.ac.manchester.tornado.unittests.loops.TestAutoVectorisation
+ * </code>
+ */
+public class TestAutoVectorisation extends TornadoTestBase {
+
+    public static void saxpy(float alpha, float[] x, float[] y, float[] z) {
+        for (@Parallel int i = 0; i < z.length; i++) {
+            z[i] = alpha * x[i] + y[i];
+        }
+    }
+
+    public static void vectorAddInt(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    public static void vectorOpsDouble(double[] a, double[] b, double[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = (a[i] - b[i]) * (a[i] / b[i]);
+        }
+    }
+
+    public static void scaleInPlace(float[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] * 2.0f;
+        }
+    }
+
+    public static void addWithOffset(int[] a, int[] b) {
+        for (@Parallel int i = 3; i < b.length; i++) {
+            b[i] = a[i] + 10;
+        }
+    }
+
+    public static void matrixAdd(float[] a, float[] b, float[] c, int size) {
+        for (@Parallel int i = 0; i < size; i++) {
+            for (@Parallel int j = 0; j < size; j++) {
+                c[i * size + j] = a[i * size + j] + b[i * size + j];
+            }
+        }
+    }
+
+    @Test
+    public void testSaxpy() {
+        final int size = 1027;
+        float[] x = new float[size];
+        float[] y = new float[size];
+        float[] z = new float[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            x[i] = i;
+            y[i] = 1;
+        });
+
+        //@formatter:off
+        new TaskSchedule("vec0")
+                .streamIn(x, y)
+                .task("t0", TestAutoVectorisation::saxpy, 2.0f, x, y, z)
+                .streamOut(z)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(2.0f * i + 1, z[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testVectorAddInt() {
+        final int size = 4099;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = 2 * i;
+        });
+
+        //@formatter:off
+        new TaskSchedule("vec1")
+                .streamIn(a, b)
+                .task("t0", TestAutoVectorisation::vectorAddInt, a, b, c)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(3 * i, c[i]);
+        }
+    }
+
+    @Test
+    public void testVectorOpsDouble() {
+        final int size = 2053;
+        double[] a = new double[size];
+        double[] b = new double[size];
+        double[] c = new double[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i + 2;
+            b[i] = 2;
+        });
+
+        //@formatter:off
+        new TaskSchedule("vec2")
+                .streamIn(a, b)
+                .task("t0", TestAutoVectorisation::vectorOpsDouble, a, b, c)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals((a[i] - b[i]) * (a[i] / b[i]), c[i], 0.01);
+        }
+    }
+
+    @Test
+    public void testInPlace() {
+        final int size = 517;
+        float[] a = new float[size];
+        IntStream.range(0, size).forEach(i -> a[i] = i);
+
+        //@formatter:off
+        new TaskSchedule("vec3")
+                .streamIn(a)
+                .task("t0", TestAutoVectorisation::scaleInPlace, a)
+                .streamOut(a)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(2.0f * i, a[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testOffset() {
+        final int size = 1030;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        IntStream.range(0, size).forEach(i -> a[i] = i);
+
+        //@formatter:off
+        new TaskSchedule("vec4")
+                .streamIn(a)
+                .task("t0", TestAutoVectorisation::addWithOffset, a, b)
+                .streamOut(b)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals((i < 3) ? 0 : i + 10, b[i]);
+        }
+    }
+
+    @Test
+    public void test2D() {
+        final int size = 131;
+        float[] a = new float[size * size];
+        float[] b = new float[size * size];
+        float[] c = new float[size * size];
+
+        IntStream.range(0, size * size).forEach(i -> {
+            a[i] = i;
+            b[i] = -1;
+        });
+
+        //@formatter:off
+        new TaskSchedule("vec5")
+                .streamIn(a, b)
+                .task("t0", TestAutoVectorisation::matrixAdd, a, b, c, size)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size * size; i++) {
+            assertEquals(i - 1, c[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testSmallerThanWidth() {
+        final int size = 3;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = i;
+        });
+
+        //@formatter:off
+        new TaskSchedule("vec6")
+                .streamIn(a, b)
+                .task("t0", TestAutoVectorisation::vectorAddInt, a, b, c)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(2 * i, c[i]);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.loops;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DFloat;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the tiling of 2D loop nests in local memory
+ * ({@code -Dtornado.experimental.tiling=True}). Most sizes are not multiples
+ * of the tile size, so the padded work-items are also exercised. Without the
+ * option the loops are compiled as usual and the results are the same.
+ *
+ * <p>
+ * How to run?
+ * </p>
+ * <code>
+ * tornado-test.py -V -J"-Dtornado.experimental.tiling=True" uk.ac.manchester.tornado.unittests.loops.TestLocalMemoryTiling
+ * </code>
+ */
+public class TestLocalMemoryTiling extends TornadoTestBase {
+
+    public static void matrixMultiplication(final float[] a, final float[] b, final float[] c, final int size) {
+        for (@Parallel int i = 0; i < size; i++) {
+            for (@Parallel int j = 0; j < size; j++) {
+                float sum = 0.0f;
+                for (int k = 0; k < size; k++) {
+                    sum += a[i * size + k] * b[k * size + j];
+                }
+                c[i * size + j] = sum;
+            }
+        }
+    }
+
+    public static void matrixMultiplication2D(Matrix2DFloat a, Matrix2DFloat b, Matrix2DFloat c, final int size) {
+        for (@Parallel int i = 0; i < size; i++) {
+            for (@Parallel int j = 0; j < size; j++) {
+                float sum = 0.0f;
+                for (int k = 0; k < size; k++) {
+                    sum += a.get(i, k) * b.get(k, j);
+                }
+                c.set(i, j, sum);
+            }
+        }
+    }
+
+    public static void jacobi(float[] a, float[] b, int size) {
+        for (@Parallel int i = 1; i < size - 1; i++) {
+            for (@Parallel int j = 1; j < size - 1; j++) {
+                b[i * size + j] = 0.2f * (a[i * size + j] + a[i * size + (j - 1)] + a[i * size + (j + 1)] + a[(i + 1) * size + j] + a[(i - 1) * size + j]);
+            }
+        }
+    }
+
+    private static float[] createMatrix(int size, Random random) {
+        float[] matrix = new float[size * size];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = random.nextFloat();
+        }
+        return matrix;
+    }
+
+    private void runMatrixMultiplication(String name, int size) {
+        Random random = new Random(7);
+        float[] a = createMatrix(size, random);
+        float[] b = createMatrix(size, random);
+        float[] c = new float[size * size];
+        float[] expected = new float[size * size];
+
+        //@formatter:off
+        new TaskSchedule(name)
+                .streamIn(a, b)
+                .task("t0", TestLocalMemoryTiling::matrixMultiplication, a, b, c, size)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        matrixMultiplication(a, b, expected, size);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], c[i], 0.01f);
+        }
+    }
+
+    private void runJacobi(String name, int size) {
+        Random random = new Random(7);
+        float[] a = createMatrix(size, random);
+        float[] b = new float[size * size];
+        float[] expected = new float[size * size];
+
+        //@formatter:off
+        new TaskSchedule(name)
+                .streamIn(a)
+                .task("t0", TestLocalMemoryTiling::jacobi, a, b, size)
+                .streamOut(b)
+                .execute();
+        //@formatter:on
+
+        jacobi(a, expected, size);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], b[i], 0.001f);
+        }
+    }
+
+    @Test
+    public void testMatrixMultiplication() {
+        runMatrixMultiplication("tiling0", 128);
+    }
+
+    @Test
+    public void testMatrixMultiplicationPadded() {
+        runMatrixMultiplication("tiling1", 100);
+    }
+
+    @Test
+    public void testMatrixMultiplication2D() {
+        final int size = 67;
+        Random random = new Random(7);
+        Matrix2DFloat a = new Matrix2DFloat(size, size);
+        Matrix2DFloat b = new Matrix2DFloat(size, size);
+        Matrix2DFloat c = new Matrix2DFloat(size, size);
+        Matrix2DFloat expected = new Matrix2DFloat(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                a.set(i, j, random.nextFloat());
+                b.set(i, j, random.nextFloat());
+            }
+        }
+
+        //@formatter:off
+        new TaskSchedule("tiling2")
+                .streamIn(a, b)
+                .task("t0", TestLocalMemoryTiling::matrixMultiplication2D, a, b, c, size)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        matrixMultiplication2D(a, b, expected, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                assertEquals(expected.get(i, j), c.get(i, j), 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void testJacobi() {
+        runJacobi("tiling3", 130);
+    }
+
+    @Test
+    public void testJacobiPadded() {
+        runJacobi("tiling4", 75);
+    }
+
+    @Test
+    public void testSmallerThanTile() {
+        runMatrixMultiplication("tiling5", 5);
+    }
+
+}
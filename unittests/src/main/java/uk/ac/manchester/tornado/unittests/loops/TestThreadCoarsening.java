@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.loops;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.GridTask;
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.WorkerGrid1D;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the thread coarsener ({@code <task>.coarsener=True}), in which each
+ * thread executes several iterations of the parallel loops.
+ *
+ * <p>
+ * How to run?
+ * </p>
+ * <code>
+ * tornado-test.py -V uk.ac.manchester.tornado.unittests.loops.TestThreadCoarsening
+ * </code>
+ */
+public class TestThreadCoarsening extends TornadoTestBase {
+
+    public static void vectorAdd(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    public static void stridedAdd(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 1; i < c.length; i += 2) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    public static void matrixAdd(int[] a, int[] b, int[] c, int size) {
+        for (@Parallel int i = 0; i < size; i++) {
+            for (@Parallel int j = 0; j < size; j++) {
+                c[i * size + j] = a[i * size + j] + b[i * size + j];
+            }
+        }
+    }
+
+    private static void runVectorAdd(String schedule, int size) {
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = 2 * i;
+        });
+
+        //@formatter:off
+        new TaskSchedule(schedule)
+                .streamIn(a, b)
+                .task("t0", TestThreadCoarsening::vectorAdd, a, b, c)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(3 * i, c[i]);
+        }
+    }
+
+    @Test
+    public void testDefaultFactor() {
+        System.setProperty("coarse0.t0.coarsener", "True");
+        runVectorAdd("coarse0", 1027);
+        System.setProperty("coarse0.t0.coarsener", "False");
+    }
+
+    @Test
+    public void testConsecutive() {
+        System.setProperty("coarse1.t0.coarsener", "True");
+        System.setProperty("coarse1.t0.coarsener.ascpu", "True");
+        System.setProperty("coarse1.t0.coarseness", "8");
+        runVectorAdd("coarse1", 1027);
+        System.setProperty("coarse1.t0.coarsener", "False");
+        System.setProperty("coarse1.t0.coarsener.ascpu", "False");
+    }
+
+    @Test
+    public void testConsecutiveExact() {
+        System.setProperty("coarse2.t0.coarsener", "True");
+        System.setProperty("coarse2.t0.coarsener.ascpu", "True");
+        System.setProperty("coarse2.t0.coarsener.exact", "True");
+        System.setProperty("coarse2.t0.coarseness", "4");
+        runVectorAdd("coarse2", 1024);
+        System.setProperty("coarse2.t0.coarsener", "False");
+        System.setProperty("coarse2.t0.coarsener.ascpu", "False");
+        System.setProperty("coarse2.t0.coarsener.exact", "False");
+    }
+
+    @Test
+    public void testStrideAndOffset() {
+        final int size = 1000;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = 1;
+        });
+
+        System.setProperty("coarse3.t0.coarsener", "True");
+        System.setProperty("coarse3.t0.coarseness", "3");
+
+        //@formatter:off
+        new TaskSchedule("coarse3")
+                .streamIn(a, b)
+                .task("t0", TestThreadCoarsening::stridedAdd, a, b, c)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        System.setProperty("coarse3.t0.coarsener", "False");
+
+        for (int i = 0; i < size; i++) {
+            assertEquals((i % 2 == 1) ? i + 1 : 0, c[i]);
+        }
+    }
+
+    @Test
+    public void test2DCoarsening() {
+        final int size = 130;
+        int[] a = new int[size * size];
+        int[] b = new int[size * size];
+        int[] c = new int[size * size];
+
+        IntStream.range(0, size * size).forEach(i -> {
+            a[i] = i;
+            b[i] = -1;
+        });
+
+        System.setProperty("coarse4.t0.coarsener", "True");
+        System.setProperty("coarse4.t0.coarseness", "4,2");
+
+        //@formatter:off
+        new TaskSchedule("coarse4")
+                .streamIn(a, b)
+                .task("t0", TestThreadCoarsening::matrixAdd, a, b, c, size)
+                .streamOut(c)
+                .execute();
+        //@formatter:on
+
+        System.setProperty("coarse4.t0.coarsener", "False");
+
+        for (int i = 0; i < size * size; i++) {
+            assertEquals(i - 1, c[i]);
+        }
+    }
+
+    @Test
+    public void testWorkerGrid() {
+        final int size = 4096;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = i;
+        });
+
+        System.setProperty("coarse5.t0.coarsener", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("coarse5")
+                .streamIn(a, b)
+                .task("t0", TestThreadCoarsening::vectorAdd, a, b, c)
+                .streamOut(c);
+        //@formatter:on
+
+        // Fewer threads than iterations: each thread covers 16 of them
+        WorkerGrid1D worker = new WorkerGrid1D(256);
+        ts.execute(new GridTask("coarse5.t0", worker));
+
+        System.setProperty("coarse5.t0.coarsener", "False");
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(2 * i, c[i]);
+        }
+    }
+
+    @Test
+    public void testWorkerGridExact() {
+        final int size = 4096;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = i;
+        });
+
+        System.setProperty("coarse6.t0.coarsener", "True");
+        System.setProperty("coarse6.t0.coarsener.ascpu", "True");
+        System.setProperty("coarse6.t0.coarsener.exact", "True");
+        System.setProperty("coarse6.t0.coarseness", "4");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("coarse6")
+                .streamIn(a, b)
+                .task("t0", TestThreadCoarsening::vectorAdd, a, b, c)
+                .streamOut(c);
+        //@formatter:on
+
+        // The grid launches a quarter of the threads for the coarseness
+        WorkerGrid1D worker = new WorkerGrid1D(256);
+        ts.execute(new GridTask("coarse6.t0", worker));
+
+        System.setProperty("coarse6.t0.coarsener", "False");
+        System.setProperty("coarse6.t0.coarsener.ascpu", "False");
+        System.setProperty("coarse6.t0.coarsener.exact", "False");
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(2 * i, c[i]);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.mm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.runtime.mm.FreeListAllocator;
+
+/**
+ * Tests of the device heap allocator. The allocator only works with offsets,
+ * so these tests run on the host and do not need a device.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.mm.TestFreeListAllocator
+ * </code>
+ */
+public class TestFreeListAllocator {
+
+    private static final int NO_HEADER = 0;
+    private static final int GRANULARITY = 64;
+
+    @Test
+    public void testRegionIsAligned() {
+        FreeListAllocator allocator = new FreeListAllocator(100, 1000, GRANULARITY);
+        assertEquals(128, allocator.getBase());
+        assertEquals(960, allocator.getLimit());
+        assertEquals(832, allocator.getCapacity());
+        assertEquals(1, allocator.getNumFreeBlocks());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGranularityMustBePowerOfTwo() {
+        new FreeListAllocator(0, 1024, 48);
+    }
+
+    @Test
+    public void testHeaderAlignment() {
+        FreeListAllocator allocator = new FreeListAllocator(0, 4096, GRANULARITY);
+        final int headerSize = 24;
+        final int alignment = 128;
+
+        long first = allocator.allocate(100, headerSize, alignment);
+        long second = allocator.allocate(100, headerSize, alignment);
+        assertEquals(0, (first + headerSize) % alignment);
+        assertEquals(0, (second + headerSize) % alignment);
+        assertTrue(second > first);
+
+        // Blocks start and end at multiples of the granularity
+        assertEquals(0, allocator.getAllocatedBytes() % GRANULARITY);
+
+        final long allocated = allocator.getAllocatedBytes();
+        final long released = allocator.free(first);
+        assertEquals(0, released % GRANULARITY);
+        assertEquals(allocated - released, allocator.getAllocatedBytes());
+        assertFalse(allocator.isAllocated(first));
+        assertTrue(allocator.isAllocated(second));
+    }
+
+    @Test
+    public void testFragmentation() {
+        FreeListAllocator allocator = new FreeListAllocator(0, 256, GRANULARITY);
+        long[] blocks = new long[4];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = allocator.allocate(GRANULARITY, NO_HEADER, GRANULARITY);
+            assertEquals(i * GRANULARITY, blocks[i]);
+        }
+        assertEquals(0, allocator.getFreeBytes());
+        assertEquals(0.0, allocator.getFragmentation(), 0.0);
+
+        allocator.free(blocks[0]);
+        allocator.free(blocks[2]);
+        assertEquals(128, allocator.getFreeBytes());
+        assertEquals(2, allocator.getNumFreeBlocks());
+        assertEquals(64, allocator.getLargestFreeBlock());
+        assertEquals(0.5, allocator.getFragmentation(), 1e-9);
+
+        // There is enough free memory, but not in a single block
+        assertEquals(FreeListAllocator.NO_SPACE, allocator.allocate(128, NO_HEADER, GRANULARITY));
+    }
+
+    @Test
+    public void testCoalescing() {
+        FreeListAllocator allocator = new FreeListAllocator(0, 256, GRANULARITY);
+        long[] blocks = new long[4];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = allocator.allocate(GRANULARITY, NO_HEADER, GRANULARITY);
+        }
+
+        allocator.free(blocks[0]);
+        allocator.free(blocks[2]);
+        // Merged with both neighbours
+        allocator.free(blocks[1]);
+        assertEquals(1, allocator.getNumFreeBlocks());
+        assertEquals(192, allocator.getLargestFreeBlock());
+        assertEquals(0.0, allocator.getFragmentation(), 0.0);
+
+        assertEquals(0, allocator.allocate(192, NO_HEADER, GRANULARITY));
+
+        allocator.free(0);
+        allocator.free(blocks[3]);
+        assertEquals(1, allocator.getNumFreeBlocks());
+        assertEquals(256, allocator.getLargestFreeBlock());
+        assertEquals(0, allocator.getNumAllocations());
+        assertEquals(256, allocator.getPeakAllocatedBytes());
+    }
+
+    @Test
+    public void testOutOfSpace() {
+        FreeListAllocator allocator = new FreeListAllocator(0, 1024, GRANULARITY);
+        assertEquals(FreeListAllocator.NO_SPACE, allocator.allocate(2048, NO_HEADER, GRANULARITY));
+
+        long offset = allocator.allocate(1000, NO_HEADER, GRANULARITY);
+        assertNotEquals(FreeListAllocator.NO_SPACE, offset);
+        assertEquals(FreeListAllocator.NO_SPACE, allocator.allocate(1, NO_HEADER, GRANULARITY));
+
+        // Releasing an offset that was not allocated does nothing
+        assertEquals(0, allocator.free(offset + GRANULARITY));
+        assertEquals(1024, allocator.getAllocatedBytes());
+
+        allocator.reset();
+        assertEquals(0, allocator.getAllocatedBytes());
+        assertEquals(1024, allocator.getLargestFreeBlock());
+        assertEquals(0, allocator.allocate(1024, NO_HEADER, GRANULARITY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyAllocation() {
+        new FreeListAllocator(0, 1024, GRANULARITY).allocate(0, NO_HEADER, GRANULARITY);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.mm;
+
+import static org.junit.Assert.assertEquals;
+import static uk.ac.manchester.tornado.api.runtime.TornadoRuntime.getTornadoRuntime;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+import uk.ac.manchester.tornado.unittests.tools.Exceptions.UnsupportedConfigurationException;
+
+/**
+ * Tests of task-schedules whose working sets do not fit together in the device
+ * heap. Objects of one schedule are evicted to make room for the other one.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V -J"-Dtornado.heap.eviction=True -Dtornado.heap.allocation=64MB" uk.ac.manchester.tornado.unittests.mm.TestHeapEviction
+ * </code>
+ */
+public class TestHeapEviction extends TornadoTestBase {
+
+    public static void scale(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = input[i] * 2;
+        }
+    }
+
+    public static void addOne(float[] array) {
+        for (@Parallel int i = 0; i < array.length; i++) {
+            array[i] = array[i] + 1;
+        }
+    }
+
+    /**
+     * @return the number of floats of an array that takes {@code fraction} of
+     *         the device heap.
+     */
+    private static int elementsForHeapFraction(double fraction) {
+        if (!Boolean.parseBoolean(System.getProperty("tornado.heap.eviction", "False"))) {
+            throw new UnsupportedConfigurationException("Heap eviction is disabled. Use -Dtornado.heap.eviction=True");
+        }
+        final long heapSize = getTornadoRuntime().getDefaultDevice().getDeviceContext().getMemoryManager().getHeapSize();
+        return (int) Math.min(Integer.MAX_VALUE - 8, (long) (heapSize * fraction) / Float.BYTES);
+    }
+
+    @Test
+    public void testOversubscription() {
+        // Each schedule uses 60% of the heap
+        final int numElements = elementsForHeapFraction(0.3);
+
+        float[] a0 = new float[numElements];
+        float[] b0 = new float[numElements];
+        float[] a1 = new float[numElements];
+        float[] b1 = new float[numElements];
+        Arrays.fill(a0, 1);
+        Arrays.fill(a1, 10);
+
+        TaskSchedule s0 = new TaskSchedule("s0") //
+                .task("t0", TestHeapEviction::scale, a0, b0) //
+                .streamOut(b0);
+
+        TaskSchedule s1 = new TaskSchedule("s1") //
+                .task("t0", TestHeapEviction::scale, a1, b1) //
+                .streamOut(b1);
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            Arrays.fill(b0, 0);
+            Arrays.fill(b1, 0);
+            s0.execute();
+            s1.execute();
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(2.0f, b0[i], 0.001f);
+                assertEquals(20.0f, b1[i], 0.001f);
+            }
+        }
+    }
+
+    @Test
+    public void testSpillModifiedObjects() {
+        // Each schedule uses 60% of the heap
+        final int numElements = elementsForHeapFraction(0.6);
+
+        float[] a0 = new float[numElements];
+        float[] a1 = new float[numElements];
+
+        // The result of s0 is only on the device: evicting it must copy it back
+        TaskSchedule s0 = new TaskSchedule("s0") //
+                .task("t0", TestHeapEviction::addOne, a0);
+
+        TaskSchedule s1 = new TaskSchedule("s1") //
+                .task("t0", TestHeapEviction::addOne, a1) //
+                .streamOut(a1);
+
+        s0.execute();
+        s1.execute();
+        s0.execute();
+        s0.syncObject(a0);
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(2.0f, a0[i], 0.001f);
+            assertEquals(1.0f, a1[i], 0.001f);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.mm;
+
+import static org.junit.Assert.assertEquals;
+import static uk.ac.manchester.tornado.api.runtime.TornadoRuntime.getTornadoRuntime;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Tests that objects allocated before the device heap is reset do not release
+ * the memory of the objects allocated after it.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.mm.TestHeapReset
+ * </code>
+ */
+public class TestHeapReset extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 4096;
+
+    public static void scale(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = input[i] * 2;
+        }
+    }
+
+    public static void addOne(float[] array) {
+        for (@Parallel int i = 0; i < array.length; i++) {
+            array[i] = array[i] + 1;
+        }
+    }
+
+    @Test
+    public void testFreeAfterReset() {
+        float[] a0 = new float[NUM_ELEMENTS];
+        float[] b0 = new float[NUM_ELEMENTS];
+        float[] a1 = new float[NUM_ELEMENTS];
+        float[] a2 = new float[NUM_ELEMENTS];
+        float[] b2 = new float[NUM_ELEMENTS];
+        Arrays.fill(a0, 1);
+        Arrays.fill(a2, 100);
+
+        TaskSchedule s0 = new TaskSchedule("s0") //
+                .task("t0", TestHeapReset::scale, a0, b0) //
+                .streamOut(b0);
+        s0.execute();
+
+        getTornadoRuntime().getDefaultDevice().reset();
+
+        // The result of s1 is only on the device, in the memory that s0 used
+        TaskSchedule s1 = new TaskSchedule("s1") //
+                .task("t0", TestHeapReset::addOne, a1);
+        s1.execute();
+
+        // The objects of s0 were allocated before the reset: nothing is released
+        s0.freeDeviceMemory();
+
+        TaskSchedule s2 = new TaskSchedule("s2") //
+                .streamIn(a2) //
+                .task("t0", TestHeapReset::scale, a2, b2) //
+                .streamOut(b2);
+        s2.execute();
+
+        s1.execute();
+        s1.syncObject(a1);
+
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(2.0f, a1[i], 0.001f);
+            assertEquals(200.0f, b2[i], 0.001f);
+        }
+    }
+}
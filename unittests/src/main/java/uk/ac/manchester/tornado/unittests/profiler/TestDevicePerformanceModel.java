@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.manchester.tornado.unittests.profiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.runtime.profiler.DevicePerformanceModel;
+
+/**
+ * Tests of the performance model of the dynamic reconfiguration. The models are
+ * trained with synthetic execution times, so these tests run on the host in a
+ * temporary directory and do not need a device.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.profiler.TestDevicePerformanceModel
+ * </code>
+ */
+public class TestDevicePerformanceModel {
+
+    private static final int NUM_FEATURES = 11;
+    private static final int MIN_SAMPLES = 10;
+    private static final double MAX_ERROR = 0.1;
+    private static final String POLICY = "PERFORMANCE";
+    private static final String[] DEVICES = { "cpu", "gpu" };
+
+    private static final long SMALL = 1 << 10;
+    private static final long LARGE = 1 << 28;
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("tornado-device-model");
+        file = directory.resolve("device-model.properties");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static double[] features(long size) {
+        double[] features = new double[NUM_FEATURES];
+        features[0] = 1.0;
+        features[1] = Math.log1p(size);
+        return features;
+    }
+
+    /**
+     * The CPU has no launch overhead but its time grows linearly with the size.
+     * The GPU has a large overhead and its time grows with the square root of
+     * the size, so it is only faster for large sizes.
+     */
+    private static long time(String device, long size) {
+        final double x = Math.log1p(size);
+        return Math.round(device.equals("cpu") ? Math.exp(2 + x) : Math.exp(10 + 0.5 * x));
+    }
+
+    private static void train(DevicePerformanceModel model, int samples) {
+        for (int i = 0; i < samples; i++) {
+            final long size = 1L << (4 + (i * 7) % 25);
+            for (String device : DEVICES) {
+                model.train(POLICY, device, features(size), time(device, size));
+            }
+        }
+    }
+
+    private List<Path> listDirectory() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Stores trained models and then changes one property, as other versions or
+     * a broken write would do.
+     */
+    private void saveTrainedModel(String key, String value) throws IOException {
+        DevicePerformanceModel model = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+        train(model, 4 * MIN_SAMPLES);
+        model.save();
+
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(file)) {
+            properties.load(stream);
+        }
+        properties.setProperty(key, value);
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            properties.store(stream, null);
+        }
+    }
+
+    @Test
+    public void testConvergence() {
+        DevicePerformanceModel model = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+        assertEquals(-1, model.selectDevice(POLICY, DEVICES, features(SMALL)));
+
+        // Not enough samples yet
+        train(model, MIN_SAMPLES - 1);
+        assertEquals(-1, model.selectDevice(POLICY, DEVICES, features(SMALL)));
+
+        train(model, 4 * MIN_SAMPLES);
+        assertEquals(0, model.selectDevice(POLICY, DEVICES, features(SMALL)));
+        assertEquals(1, model.selectDevice(POLICY, DEVICES, features(LARGE)));
+        assertFalse(model.isInaccurate(POLICY, "cpu"));
+        assertFalse(model.isInaccurate(POLICY, "gpu"));
+
+        // Models of other policies are independent
+        assertEquals(-1, model.selectDevice("LATENCY", DEVICES, features(SMALL)));
+    }
+
+    @Test
+    public void testAccuracyGate() {
+        DevicePerformanceModel model = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+        train(model, 4 * MIN_SAMPLES);
+
+        // The times of the GPU stop depending on the features
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            model.train(POLICY, "gpu", features(SMALL), (i % 2 == 0) ? 10 : 10_000_000);
+        }
+        assertTrue(model.isInaccurate(POLICY, "gpu"));
+        assertFalse(model.isInaccurate(POLICY, "cpu"));
+        assertEquals(-1, model.selectDevice(POLICY, DEVICES, features(SMALL)));
+
+        // Devices without a model are never inaccurate, but cannot be selected
+        assertFalse(model.isInaccurate(POLICY, "fpga"));
+        assertEquals(-1, model.selectDevice(POLICY, new String[] { "cpu", "fpga" }, features(SMALL)));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        DevicePerformanceModel model = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+
+        // Nothing is written until the models are trained
+        model.save();
+        assertFalse(Files.exists(file));
+
+        train(model, 4 * MIN_SAMPLES);
+        model.save();
+        assertEquals(Collections.singletonList(file), listDirectory());
+
+        DevicePerformanceModel reloaded = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+        reloaded.load();
+        assertEquals(0, reloaded.selectDevice(POLICY, DEVICES, features(SMALL)));
+        assertEquals(1, reloaded.selectDevice(POLICY, DEVICES, features(LARGE)));
+
+        // A missing file has no models
+        DevicePerformanceModel empty = new DevicePerformanceModel(directory.resolve("missing.properties"), MIN_SAMPLES, MAX_ERROR);
+        empty.load();
+        assertEquals(-1, empty.selectDevice(POLICY, DEVICES, features(SMALL)));
+    }
+
+    @Test
+    public void testFailedSaveLeavesNoTemporaryFile() throws IOException {
+        // The rename fails because the destination is a non-empty directory
+        Files.createDirectories(file);
+        Files.createFile(file.resolve("entry"));
+
+        DevicePerformanceModel model = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+        train(model, MIN_SAMPLES);
+        model.save();
+        assertEquals(Collections.singletonList(file), listDirectory());
+        assertTrue(Files.isDirectory(file));
+    }
+
+    @Test
+    public void testIncompatibleVersion() throws IOException {
+        saveTrainedModel("features", "3");
+
+        DevicePerformanceModel reloaded = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+        reloaded.load();
+        assertEquals(-1, reloaded.selectDevice(POLICY, DEVICES, features(SMALL)));
+    }
+
+    @Test
+    public void testMalformedModel() throws IOException {
+        saveTrainedModel(POLICY + ":gpu.xty", "1,2,3");
+
+        // Only the malformed model is discarded
+        DevicePerformanceModel reloaded = new DevicePerformanceModel(file, MIN_SAMPLES, MAX_ERROR);
+        reloaded.load();
+        assertEquals(-1, reloaded.selectDevice(POLICY, DEVICES, features(SMALL)));
+        assertEquals(0, reloaded.selectDevice(POLICY, new String[] { "cpu" }, features(LARGE)));
+    }
+}
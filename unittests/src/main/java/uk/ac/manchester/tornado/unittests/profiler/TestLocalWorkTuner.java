@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.profiler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.runtime.profiler.LocalWorkTuner;
+
+/**
+ * Tests of the table of tuned local work sizes. The tuner only works with the
+ * execution times given to it, so these tests run on the host in a temporary
+ * directory and do not need a device.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.profiler.TestLocalWorkTuner
+ * </code>
+ */
+public class TestLocalWorkTuner {
+
+    private static final int SAMPLES = 2;
+    private static final long[][] CANDIDATES = { { 64 }, { 128 }, { 256 } };
+    private static final String KEY = LocalWorkTuner.getKey("vectorAdd", "device", 1, new long[] { 4096 });
+
+    // Once a kernel is tuned, the candidates are not needed anymore
+    private static final Supplier<long[][]> NO_CANDIDATES = () -> {
+        throw new AssertionError("the kernel should be tuned");
+    };
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("tornado-local-work");
+        file = directory.resolve("local-work.properties");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Writes a table as other versions or other processes would do.
+     */
+    private void writeTable(String version, String... entries) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("version", version);
+        for (int i = 0; i < entries.length; i += 2) {
+            properties.setProperty(entries[i], entries[i + 1]);
+        }
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            properties.store(stream, null);
+        }
+    }
+
+    private static void tune(LocalWorkTuner tuner, long[] times) {
+        for (int i = 0; i < CANDIDATES.length; i++) {
+            for (int sample = 0; sample < SAMPLES; sample++) {
+                final long[] localWork = tuner.selectLocalWork(KEY, () -> CANDIDATES);
+                assertArrayEquals(CANDIDATES[i], localWork);
+                tuner.record(KEY, localWork, times[i] + sample);
+            }
+        }
+    }
+
+    @Test
+    public void testKeyBuckets() {
+        // Global sizes are rounded down to a power of two
+        assertEquals("k@dev@1:512", LocalWorkTuner.getKey("k", "dev", 1, new long[] { 1000 }));
+        assertEquals("k@dev@1:1024", LocalWorkTuner.getKey("k", "dev", 1, new long[] { 1024 }));
+        assertEquals(LocalWorkTuner.getKey("k", "dev", 1, new long[] { 600 }), LocalWorkTuner.getKey("k", "dev", 1, new long[] { 1023 }));
+        assertEquals("k@dev@1:1", LocalWorkTuner.getKey("k", "dev", 1, new long[] { 0 }));
+
+        // Only the dimensions in use are part of the key
+        assertEquals("k@dev@2:512x2", LocalWorkTuner.getKey("k", "dev", 2, new long[] { 1000, 3, 77 }));
+        assertNotEquals(LocalWorkTuner.getKey("k", "dev", 2, new long[] { 1000, 3 }), LocalWorkTuner.getKey("k", "dev", 1, new long[] { 1000, 3 }));
+        assertNotEquals(LocalWorkTuner.getKey("k", "dev0", 1, new long[] { 1000 }), LocalWorkTuner.getKey("k", "dev1", 1, new long[] { 1000 }));
+    }
+
+    @Test
+    public void testCandidateProgression() {
+        LocalWorkTuner tuner = new LocalWorkTuner(file, SAMPLES);
+        assertArrayEquals(CANDIDATES[0], tuner.selectLocalWork(KEY, () -> CANDIDATES));
+        assertTrue(tuner.isTuning(KEY));
+
+        // Each candidate is measured SAMPLES times
+        tuner.record(KEY, CANDIDATES[0], 300);
+        assertArrayEquals(CANDIDATES[0], tuner.selectLocalWork(KEY, () -> CANDIDATES));
+
+        // Times of another local work do not count
+        tuner.record(KEY, CANDIDATES[2], 1);
+        assertArrayEquals(CANDIDATES[0], tuner.selectLocalWork(KEY, () -> CANDIDATES));
+
+        tuner.record(KEY, CANDIDATES[0], 200);
+        assertArrayEquals(CANDIDATES[1], tuner.selectLocalWork(KEY, () -> CANDIDATES));
+
+        tuner.record(KEY, CANDIDATES[1], 100);
+        tuner.record(KEY, CANDIDATES[1], 150);
+        tuner.record(KEY, CANDIDATES[2], 400);
+        assertTrue(tuner.isTuning(KEY));
+        tuner.record(KEY, CANDIDATES[2], 500);
+
+        // The fastest execution of each candidate is compared
+        assertFalse(tuner.isTuning(KEY));
+        assertArrayEquals(CANDIDATES[1], tuner.selectLocalWork(KEY, NO_CANDIDATES));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        LocalWorkTuner tuner = new LocalWorkTuner(file, SAMPLES);
+        tune(tuner, new long[] { 300, 200, 100 });
+        assertTrue(Files.exists(file));
+
+        // No temporary file is left behind
+        try (Stream<Path> paths = Files.list(directory)) {
+            assertEquals(1, paths.count());
+        }
+
+        LocalWorkTuner other = new LocalWorkTuner(file, SAMPLES);
+        other.loadTable();
+        assertFalse(other.isTuning(KEY));
+        assertArrayEquals(CANDIDATES[2], other.selectLocalWork(KEY, NO_CANDIDATES));
+    }
+
+    @Test
+    public void testMergeWithOtherProcesses() {
+        final String otherKey = LocalWorkTuner.getKey("vectorMul", "device", 1, new long[] { 4096 });
+        LocalWorkTuner first = new LocalWorkTuner(file, 1);
+        LocalWorkTuner second = new LocalWorkTuner(file, 1);
+
+        // Each tuner saves one kernel, the second one after the first
+        for (long[] candidate : CANDIDATES) {
+            first.record(KEY, first.selectLocalWork(KEY, () -> CANDIDATES), candidate[0]);
+        }
+        for (long[] candidate : CANDIDATES) {
+            second.record(otherKey, second.selectLocalWork(otherKey, () -> CANDIDATES), 1000 - candidate[0]);
+        }
+
+        LocalWorkTuner reader = new LocalWorkTuner(file, 1);
+        reader.loadTable();
+        assertArrayEquals(CANDIDATES[0], reader.selectLocalWork(KEY, NO_CANDIDATES));
+        assertArrayEquals(CANDIDATES[2], reader.selectLocalWork(otherKey, NO_CANDIDATES));
+    }
+
+    @Test
+    public void testIncompatibleVersion() throws IOException {
+        writeTable("0", KEY, "32");
+
+        LocalWorkTuner tuner = new LocalWorkTuner(file, SAMPLES);
+        tuner.loadTable();
+        assertArrayEquals(CANDIDATES[0], tuner.selectLocalWork(KEY, () -> CANDIDATES));
+        assertTrue(tuner.isTuning(KEY));
+    }
+
+    @Test
+    public void testMalformedEntry() throws IOException {
+        final String otherKey = LocalWorkTuner.getKey("vectorMul", "device", 1, new long[] { 4096 });
+        writeTable("1", KEY, "64,abc", otherKey, "128");
+
+        LocalWorkTuner tuner = new LocalWorkTuner(file, SAMPLES);
+        tuner.loadTable();
+        assertArrayEquals(CANDIDATES[0], tuner.selectLocalWork(KEY, () -> CANDIDATES));
+        assertTrue(tuner.isTuning(KEY));
+        assertArrayEquals(new long[] { 128 }, tuner.selectLocalWork(otherKey, NO_CANDIDATES));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DFloat;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing task-schedules compiled in the background
+ * ({@code <schedule>.compile.async}). The first executions run as sequential
+ * Java and the following ones on the device, so the results must be the same
+ * in every iteration.
+ */
+public class TestAsyncCompilation extends TornadoTestBase {
+
+    private static final int ITERATIONS = 200;
+
+    public static void saxpy(float alpha, float[] x, float[] y, float[] z) {
+        for (@Parallel int i = 0; i < z.length; i++) {
+            z[i] = alpha * x[i] + y[i];
+        }
+    }
+
+    public static void increment(int[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] + 1;
+        }
+    }
+
+    /**
+     * Object allocation is not supported on the device, so the background
+     * compilation bails out.
+     */
+    public static void scaleWithAllocation(float[] a) {
+        Matrix2DFloat copy = new Matrix2DFloat(1, a.length);
+        for (@Parallel int i = 0; i < a.length; i++) {
+            copy.set(0, i, a[i]);
+            a[i] = copy.get(0, i) * 2;
+        }
+    }
+
+    @Test
+    public void testAsyncCompilation() {
+        final int numElements = 4096;
+        float[] x = new float[numElements];
+        float[] y = new float[numElements];
+        float[] z = new float[numElements];
+
+        System.setProperty("async0.compile.async", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("async0")
+                .streamIn(x, y)
+                .task("t0", TestAsyncCompilation::saxpy, 2.0f, x, y, z)
+                .streamOut(z);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final float value = iteration;
+            IntStream.range(0, numElements).forEach(i -> {
+                x[i] = value;
+                y[i] = i;
+            });
+
+            ts.execute();
+
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(2.0f * value + i, z[i], 0.01f);
+            }
+        }
+
+        System.setProperty("async0.compile.async", "False");
+    }
+
+    @Test
+    public void testAsyncCompilationInOut() {
+        final int numElements = 1024;
+        int[] a = new int[numElements];
+
+        System.setProperty("async1.compile.async", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("async1")
+                .streamIn(a)
+                .task("t0", TestAsyncCompilation::increment, a)
+                .streamOut(a);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            ts.execute();
+        }
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(ITERATIONS, a[i]);
+        }
+
+        System.setProperty("async1.compile.async", "False");
+    }
+
+    @Test
+    public void testSwapToDeviceCode() throws InterruptedException {
+        final int numElements = 1024;
+        final long timeoutNanos = 60_000_000_000L;
+        int[] a = new int[numElements];
+
+        System.setProperty("async2.compile.async", "True");
+        System.setProperty("tornado.profiler", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("async2")
+                .streamIn(a)
+                .task("t0", TestAsyncCompilation::increment, a)
+                .streamOut(a);
+        //@formatter:on
+
+        // Only the execution that swaps to the device code reports the compile time
+        int executions = 0;
+        boolean swapped = false;
+        final long start = System.nanoTime();
+        while (!swapped && System.nanoTime() - start < timeoutNanos) {
+            ts.execute();
+            executions++;
+            swapped = ts.getCompileTime() > 0;
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(executions, a[i]);
+            }
+            Thread.sleep(10);
+        }
+
+        System.setProperty("tornado.profiler", "False");
+        System.setProperty("async2.compile.async", "False");
+
+        assertTrue("The device code was not installed", swapped);
+
+        // The next executions run on the device
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            ts.execute();
+            executions++;
+        }
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(executions, a[i]);
+        }
+    }
+
+    @Test
+    public void testBailoutWhileCompiling() throws InterruptedException {
+        final int numElements = 256;
+        float[] a = new float[numElements];
+        Arrays.fill(a, 1);
+
+        System.setProperty("async3.compile.async", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("async3")
+                .streamIn(a)
+                .task("t0", TestAsyncCompilation::scaleWithAllocation, a)
+                .streamOut(a);
+        //@formatter:on
+
+        // The schedule keeps running the sequential code after the bailout
+        float expected = 1;
+        for (int iteration = 0; iteration < 20; iteration++) {
+            ts.execute();
+            expected *= 2;
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(expected, a[i], 0.001f);
+            }
+            Thread.sleep(50);
+        }
+
+        System.setProperty("async3.compile.async", "False");
+    }
+}
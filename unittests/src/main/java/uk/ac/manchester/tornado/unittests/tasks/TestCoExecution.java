@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing task-schedules co-executed by the device and the host
+ * ({@code <schedule>.coexecution}). The split between the device and the host
+ * changes across iterations, so the results are checked in every iteration.
+ */
+public class TestCoExecution extends TornadoTestBase {
+
+    private static final int ITERATIONS = 50;
+
+    public static void saxpy(float alpha, float[] x, float[] y, float[] z) {
+        for (@Parallel int i = 0; i < z.length; i++) {
+            z[i] = alpha * x[i] + y[i];
+        }
+    }
+
+    public static void increment(int[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] + 1;
+        }
+    }
+
+    public static void reverse(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = input[output.length - 1 - i];
+        }
+    }
+
+    @Test
+    public void testCoExecution() {
+        final int numElements = 8192;
+        float[] x = new float[numElements];
+        float[] y = new float[numElements];
+        float[] z = new float[numElements];
+
+        System.setProperty("coexec0.coexecution", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("coexec0")
+                .streamIn(x, y)
+                .task("t0", TestCoExecution::saxpy, 2.0f, x, y, z)
+                .streamOut(z);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final float value = iteration;
+            IntStream.range(0, numElements).forEach(i -> {
+                x[i] = value;
+                y[i] = i;
+            });
+
+            ts.execute();
+
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(2.0f * value + i, z[i], 0.01f);
+            }
+        }
+
+        System.setProperty("coexec0.coexecution", "False");
+    }
+
+    @Test
+    public void testCoExecutionInOut() {
+        final int numElements = 4096;
+        int[] a = new int[numElements];
+
+        System.setProperty("coexec1.coexecution", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("coexec1")
+                .streamIn(a)
+                .task("t0", TestCoExecution::increment, a)
+                .streamOut(a);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            ts.execute();
+        }
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(ITERATIONS, a[i]);
+        }
+
+        System.setProperty("coexec1.coexecution", "False");
+    }
+
+    @Test
+    public void testCoExecutionInputNotIndexedByLoop() {
+        final int numElements = 4096;
+        float[] input = new float[numElements];
+        float[] output = new float[numElements];
+        IntStream.range(0, numElements).forEach(i -> input[i] = i);
+
+        System.setProperty("coexec2.coexecution", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("coexec2")
+                .streamIn(input)
+                .task("t0", TestCoExecution::reverse, input, output)
+                .streamOut(output);
+        //@formatter:on
+
+        // The device reads the second half of the input
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Arrays.fill(output, -1);
+            ts.execute();
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(numElements - 1 - i, output[i], 0.01f);
+            }
+        }
+
+        System.setProperty("coexec2.coexecution", "False");
+    }
+}
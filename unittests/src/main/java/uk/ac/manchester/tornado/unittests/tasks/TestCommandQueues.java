@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing task-schedules that share objects when their commands use wait
+ * lists. Pipelined batches and {@code tornado.opencl.multiqueue.enable} submit
+ * transfers and kernels to different queues, and the commands of one
+ * task-schedule must not overlap with the commands of the previous one.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V -J"-Dtornado.opencl.multiqueue.enable=True" uk.ac.manchester.tornado.unittests.tasks.TestCommandQueues
+ * </code>
+ */
+public class TestCommandQueues extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 1024 * 1024;
+    private static final int ITERATIONS = 10;
+
+    public static void addOne(float[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] + 1;
+        }
+    }
+
+    public static void scale(float[] a, float[] b) {
+        for (@Parallel int i = 0; i < b.length; i++) {
+            b[i] = a[i] * 2;
+        }
+    }
+
+    @Test
+    public void testSchedulesSharingAnArray() {
+        float[] a = new float[NUM_ELEMENTS];
+        float[] b = new float[NUM_ELEMENTS];
+
+        //@formatter:off
+        TaskSchedule s0 = new TaskSchedule("queues0")
+                .streamIn(a)
+                .task("t0", TestCommandQueues::addOne, a)
+                .streamOut(a);
+        TaskSchedule s1 = new TaskSchedule("queues1")
+                .streamIn(a)
+                .task("t0", TestCommandQueues::scale, a, b)
+                .streamOut(b);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Arrays.fill(a, iteration);
+            s0.execute();
+            s1.execute();
+            for (int i = 0; i < NUM_ELEMENTS; i++) {
+                assertEquals(iteration + 1, a[i], 0.0f);
+                assertEquals(2 * (iteration + 1), b[i], 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedScheduleSharingAnArray() {
+        float[] a = new float[NUM_ELEMENTS];
+        float[] b = new float[NUM_ELEMENTS];
+
+        // The pipelined batches move the transfers to their own queues, while the
+        // other task-schedule does not use wait lists
+        TornadoRuntime.setProperty("queues3.batch.pipeline", "2");
+
+        try {
+            //@formatter:off
+            TaskSchedule s0 = new TaskSchedule("queues2")
+                    .streamIn(a)
+                    .task("t0", TestCommandQueues::addOne, a)
+                    .streamOut(a);
+            TaskSchedule s1 = new TaskSchedule("queues3")
+                    .batch("1MB")
+                    .streamIn(a)
+                    .task("t0", TestCommandQueues::scale, a, b)
+                    .streamOut(b);
+            //@formatter:on
+
+            for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                Arrays.fill(a, iteration);
+                s0.execute();
+                s1.execute();
+                s0.execute();
+                for (int i = 0; i < NUM_ELEMENTS; i++) {
+                    assertEquals(iteration + 2, a[i], 0.0f);
+                    assertEquals(2 * (iteration + 1), b[i], 0.0f);
+                }
+            }
+        } finally {
+            System.clearProperty("queues3.batch.pipeline");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.TornadoDriver;
+import uk.ac.manchester.tornado.api.TornadoRuntimeCI;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.annotations.Reduce;
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.enums.TornadoVMBackend;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+import uk.ac.manchester.tornado.unittests.tools.Exceptions.UnsupportedConfigurationException;
+
+/**
+ * Testing the tasks that run on the host CPU with the Java driver. Tasks with a
+ * {@link Parallel} loop are split into chunks for the workers of a fork/join
+ * pool, {@link Reduce} parameters are combined from partial results, and the
+ * other tasks run sequentially.
+ *
+ * How to run?
+ *
+ * <code>
+ *     tornado-test.py -V uk.ac.manchester.tornado.unittests.tasks.TestJavaDevice
+ * </code>
+ */
+public class TestJavaDevice extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 100_003;
+
+    public static void vectorAdd(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    public static void reduceAdd(int[] input, @Reduce int[] result) {
+        result[0] = 0;
+        for (@Parallel int i = 0; i < input.length; i++) {
+            result[0] += input[i];
+        }
+    }
+
+    public static void reduceMax(float[] input, @Reduce float[] result) {
+        result[0] = Float.MIN_VALUE;
+        for (@Parallel int i = 0; i < input.length; i++) {
+            result[0] = Math.max(result[0], input[i]);
+        }
+    }
+
+    /**
+     * The loop is not the last statement of the method, so the task runs
+     * sequentially.
+     */
+    public static void prefixSum(int[] input, int[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = input[i];
+        }
+        for (int i = 1; i < output.length; i++) {
+            output[i] += output[i - 1];
+        }
+    }
+
+    private static TornadoDevice getJavaDevice() {
+        final TornadoRuntimeCI runtime = TornadoRuntime.getTornadoRuntime();
+        for (int i = 0; i < runtime.getNumDrivers(); i++) {
+            final TornadoDriver driver = runtime.getDriver(i);
+            if (driver.getDeviceCount() > 0 && driver.getDefaultDevice().getTornadoVMBackend() == TornadoVMBackend.JAVA) {
+                return driver.getDefaultDevice();
+            }
+        }
+        throw new UnsupportedConfigurationException("The Java driver is not available. Build TornadoVM with the java-backend profile");
+    }
+
+    @Test
+    public void testParallel() {
+        final TornadoDevice device = getJavaDevice();
+        int[] a = new int[NUM_ELEMENTS];
+        int[] b = new int[NUM_ELEMENTS];
+        int[] c = new int[NUM_ELEMENTS];
+        Arrays.setAll(a, i -> i);
+        Arrays.setAll(b, i -> 2 * i);
+
+        TaskSchedule ts = new TaskSchedule("java0") //
+                .task("t0", TestJavaDevice::vectorAdd, a, b, c) //
+                .streamOut(c);
+        ts.mapAllTo(device);
+
+        // The chunk size adapts to the previous launch
+        for (int iteration = 0; iteration < 3; iteration++) {
+            Arrays.fill(c, 0);
+            ts.execute();
+            for (int i = 0; i < NUM_ELEMENTS; i++) {
+                assertEquals(3 * i, c[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testReduceAdd() {
+        final TornadoDevice device = getJavaDevice();
+        int[] input = new int[NUM_ELEMENTS];
+        int[] result = new int[1];
+        Arrays.setAll(input, i -> i % 100);
+
+        TaskSchedule ts = new TaskSchedule("java1") //
+                .task("t0", TestJavaDevice::reduceAdd, input, result) //
+                .streamOut(result);
+        ts.mapAllTo(device);
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            ts.execute();
+            assertEquals(IntStream.of(input).sum(), result[0]);
+        }
+    }
+
+    @Test
+    public void testReduceMax() {
+        final TornadoDevice device = getJavaDevice();
+        float[] input = new float[NUM_ELEMENTS];
+        float[] result = new float[1];
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            input[i] = (i * 7919) % NUM_ELEMENTS;
+        }
+
+        TaskSchedule ts = new TaskSchedule("java2") //
+                .task("t0", TestJavaDevice::reduceMax, input, result) //
+                .streamOut(result);
+        ts.mapAllTo(device);
+        ts.execute();
+
+        assertEquals(NUM_ELEMENTS - 1, result[0], 0.0f);
+    }
+
+    @Test
+    public void testSequentialFallback() {
+        final TornadoDevice device = getJavaDevice();
+        int[] input = new int[NUM_ELEMENTS];
+        int[] output = new int[NUM_ELEMENTS];
+        Arrays.fill(input, 1);
+
+        TaskSchedule ts = new TaskSchedule("java3") //
+                .task("t0", TestJavaDevice::prefixSum, input, output) //
+                .streamOut(output);
+        ts.mapAllTo(device);
+        ts.execute();
+
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(i + 1, output[i]);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.common.ArrayRange;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the copies of ranges of arrays with
+ * {@code streamIn(array, range)} and {@code streamOut(array, range)}.
+ */
+public class TestRangeTransfers extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 4096;
+
+    public static void scale(float[] a, float[] b) {
+        for (@Parallel int i = 0; i < b.length; i++) {
+            b[i] = a[i] * 2.0f;
+        }
+    }
+
+    @Test
+    public void testStreamInRange() {
+        float[] a = new float[NUM_ELEMENTS];
+        float[] b = new float[NUM_ELEMENTS];
+        Arrays.fill(a, 1.0f);
+
+        final int from = 100;
+        final int to = 356;
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("range0")
+                .streamIn(a, new ArrayRange(from, to))
+                .task("t0", TestRangeTransfers::scale, a, b)
+                .streamOut(b);
+        //@formatter:on
+
+        // The first execution copies the whole array
+        ts.execute();
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(2.0f, b[i], 0.001f);
+        }
+
+        for (int iteration = 0; iteration < 5; iteration++) {
+            for (int i = from; i < to; i++) {
+                a[i] = iteration;
+            }
+            ts.execute();
+            for (int i = 0; i < NUM_ELEMENTS; i++) {
+                final float expected = (i >= from && i < to) ? iteration * 2.0f : 2.0f;
+                assertEquals(expected, b[i], 0.001f);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamOutRange() {
+        float[] a = new float[NUM_ELEMENTS];
+        float[] b = new float[NUM_ELEMENTS];
+        Arrays.fill(a, 3.0f);
+        Arrays.fill(b, -1.0f);
+
+        final int from = 1024;
+        final int to = 2048;
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("range1")
+                .streamIn(a)
+                .task("t0", TestRangeTransfers::scale, a, b)
+                .streamOut(b, new ArrayRange(from, to));
+        //@formatter:on
+
+        ts.execute();
+
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            final float expected = (i >= from && i < to) ? 6.0f : -1.0f;
+            assertEquals(expected, b[i], 0.001f);
+        }
+    }
+
+    /**
+     * An empty range would be copied as the whole array, which would overwrite
+     * the host data in a stream-out.
+     */
+    @Test(expected = TornadoRuntimeException.class)
+    public void testEmptyRangeIsRejected() {
+        float[] a = new float[NUM_ELEMENTS];
+        float[] b = new float[NUM_ELEMENTS];
+
+        //@formatter:off
+        new TaskSchedule("range2")
+                .streamIn(a)
+                .task("t0", TestRangeTransfers::scale, a, b)
+                .streamOut(b, new ArrayRange(16, 16));
+        //@formatter:on
+    }
+}
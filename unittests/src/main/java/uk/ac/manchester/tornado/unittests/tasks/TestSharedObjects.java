@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the reuse of device copies written by other task-schedules
+ * ({@code <schedule>.objects.share}). The consumer schedules below read an
+ * object that the producer never copies back to the host, so they only see the
+ * right values if the device copy is shared.
+ */
+public class TestSharedObjects extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 2048;
+
+    public static void scale(int[] a, int[] b) {
+        for (@Parallel int i = 0; i < b.length; i++) {
+            b[i] = a[i] * 2;
+        }
+    }
+
+    public static void addOne(int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = b[i] + 1;
+        }
+    }
+
+    @Test
+    public void testPipelineOfSchedules() {
+        int[] a = new int[NUM_ELEMENTS];
+        int[] b = new int[NUM_ELEMENTS];
+        int[] c = new int[NUM_ELEMENTS];
+        Arrays.setAll(a, i -> i);
+
+        System.setProperty("share1.objects.share", "True");
+
+        //@formatter:off
+        TaskSchedule producer = new TaskSchedule("share0")
+                .streamIn(a)
+                .task("t0", TestSharedObjects::scale, a, b);
+        TaskSchedule consumer = new TaskSchedule("share1")
+                .streamIn(b)
+                .task("t0", TestSharedObjects::addOne, b, c)
+                .streamOut(c);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            producer.execute();
+            consumer.execute();
+            for (int i = 0; i < NUM_ELEMENTS; i++) {
+                assertEquals(2 * i + 1, c[i]);
+                // b is never copied back to the host
+                assertEquals(0, b[i]);
+            }
+        }
+
+        System.setProperty("share1.objects.share", "False");
+    }
+
+    @Test
+    public void testMarkDirtyInvalidatesSharedCopy() {
+        int[] a = new int[NUM_ELEMENTS];
+        int[] b = new int[NUM_ELEMENTS];
+        int[] c = new int[NUM_ELEMENTS];
+        Arrays.fill(a, 5);
+
+        System.setProperty("share3.objects.share", "True");
+
+        //@formatter:off
+        TaskSchedule producer = new TaskSchedule("share2")
+                .streamIn(a)
+                .task("t0", TestSharedObjects::scale, a, b);
+        TaskSchedule consumer = new TaskSchedule("share3")
+                .streamIn(b)
+                .task("t0", TestSharedObjects::addOne, b, c)
+                .streamOut(c);
+        //@formatter:on
+
+        producer.execute();
+        consumer.execute();
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(11, c[i]);
+        }
+
+        // The host copy is newer than the device copy written by the producer
+        Arrays.fill(b, 100);
+        consumer.markDirty(b);
+        consumer.execute();
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(101, c[i]);
+        }
+
+        System.setProperty("share3.objects.share", "False");
+    }
+
+    @Test
+    public void testWriteBackOnFree() {
+        int[] a = new int[NUM_ELEMENTS];
+        int[] b = new int[NUM_ELEMENTS];
+        Arrays.setAll(a, i -> i);
+
+        System.setProperty("share4.objects.share", "True");
+
+        //@formatter:off
+        TaskSchedule producer = new TaskSchedule("share4")
+                .streamIn(a)
+                .task("t0", TestSharedObjects::scale, a, b);
+        //@formatter:on
+
+        producer.execute();
+        // The device holds the only up-to-date copy of b, so it is copied back
+        // before the device memory is released
+        producer.freeDeviceMemory();
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(2 * i, b[i]);
+        }
+
+        System.setProperty("share4.objects.share", "False");
+    }
+}
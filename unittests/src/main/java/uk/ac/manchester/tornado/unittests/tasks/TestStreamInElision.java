@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the elision of stream-in transfers of objects that have not changed
+ * on the host ({@code <schedule>.streamin.elision}). Skipping a transfer must
+ * never change the results.
+ */
+public class TestStreamInElision extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 2048;
+
+    public static void add(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    public static void increment(int[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] + 1;
+        }
+    }
+
+    @Test
+    public void testDirtyTracking() {
+        int[] a = new int[NUM_ELEMENTS];
+        int[] b = new int[NUM_ELEMENTS];
+        int[] c = new int[NUM_ELEMENTS];
+        Arrays.fill(a, 1);
+        Arrays.fill(b, 2);
+
+        System.setProperty("elision0.streamin.elision", "dirty");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("elision0")
+                .streamIn(a, b)
+                .task("t0", TestStreamInElision::add, a, b, c)
+                .streamOut(c);
+        //@formatter:on
+
+        ts.execute();
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(3, c[i]);
+        }
+
+        // Unchanged inputs can be elided
+        ts.execute();
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(3, c[i]);
+        }
+
+        Arrays.fill(a, 10);
+        ts.markDirty(a);
+        ts.execute();
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(12, c[i]);
+        }
+
+        System.setProperty("elision0.streamin.elision", "none");
+    }
+
+    @Test
+    public void testChecksum() {
+        int[] a = new int[NUM_ELEMENTS];
+        int[] b = new int[NUM_ELEMENTS];
+        int[] c = new int[NUM_ELEMENTS];
+        Arrays.fill(a, 1);
+        Arrays.fill(b, 2);
+
+        System.setProperty("elision1.streamin.elision", "checksum");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("elision1")
+                .streamIn(a, b)
+                .task("t0", TestStreamInElision::add, a, b, c)
+                .streamOut(c);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < 10; iteration++) {
+            // Only one element changes, no markDirty is needed
+            a[NUM_ELEMENTS / 3] = iteration;
+            ts.execute();
+            for (int i = 0; i < NUM_ELEMENTS; i++) {
+                final int expected = (i == NUM_ELEMENTS / 3) ? iteration + 2 : 3;
+                assertEquals(expected, c[i]);
+            }
+        }
+
+        System.setProperty("elision1.streamin.elision", "none");
+    }
+
+    @Test
+    public void testWrittenOnDevice() {
+        int[] a = new int[NUM_ELEMENTS];
+        int[] b = new int[NUM_ELEMENTS];
+        int[] c = new int[NUM_ELEMENTS];
+
+        System.setProperty("elision2.streamin.elision", "dirty");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("elision2")
+                .streamIn(a, b)
+                .task("t0", TestStreamInElision::increment, a)
+                .task("t1", TestStreamInElision::add, a, b, c)
+                .streamOut(c);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < 10; iteration++) {
+            // The host copy of a does not change, but the device copy is written
+            // by the kernel, so it has to be transferred again
+            ts.execute();
+            for (int i = 0; i < NUM_ELEMENTS; i++) {
+                assertEquals(1, c[i]);
+            }
+        }
+
+        System.setProperty("elision2.streamin.elision", "none");
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2013-2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing task-schedules with task fusion ({@code <schedule>.fusion}).
+ * Element-wise tasks that pass arrays to each other run in a single kernel, so
+ * the results must be the same as running them one after the other.
+ */
+public class TestTaskFusion extends TornadoTestBase {
+
+    private static final int ITERATIONS = 10;
+
+    public static void scale(float[] a, float[] tmp) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            tmp[i] = a[i] * 2.0f;
+        }
+    }
+
+    public static void addOne(float[] tmp, float[] b) {
+        for (@Parallel int i = 0; i < b.length; i++) {
+            b[i] = tmp[i] + 1.0f;
+        }
+    }
+
+    public static void saxpy(float alpha, float[] x, float[] y, float[] z) {
+        for (@Parallel int i = 0; i < z.length; i++) {
+            z[i] = alpha * x[i] + y[i];
+        }
+    }
+
+    public static void rotate(float[] tmp, float[] b) {
+        for (@Parallel int i = 0; i < b.length; i++) {
+            b[i] = tmp[(i + 1) % tmp.length];
+        }
+    }
+
+    @Test
+    public void testProducerConsumer() {
+        final int numElements = 4096;
+        float[] a = new float[numElements];
+        float[] tmp = new float[numElements];
+        float[] b = new float[numElements];
+
+        System.setProperty("fusion0.fusion", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("fusion0")
+                .streamIn(a)
+                .task("t0", TestTaskFusion::scale, a, tmp)
+                .task("t1", TestTaskFusion::addOne, tmp, b)
+                .streamOut(b);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final float value = iteration;
+            IntStream.range(0, numElements).forEach(i -> a[i] = value + i);
+
+            ts.execute();
+
+            for (int i = 0; i < numElements; i++) {
+                assertEquals((value + i) * 2.0f + 1.0f, b[i], 0.01f);
+            }
+        }
+
+        System.setProperty("fusion0.fusion", "False");
+    }
+
+    @Test
+    public void testChainOfTasks() {
+        final int numElements = 2048;
+        float[] x = new float[numElements];
+        float[] y = new float[numElements];
+        float[] z = new float[numElements];
+        float[] w = new float[numElements];
+
+        IntStream.range(0, numElements).forEach(i -> {
+            x[i] = i;
+            y[i] = 1.0f;
+        });
+
+        System.setProperty("fusion1.fusion", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("fusion1")
+                .streamIn(x, y)
+                .task("t0", TestTaskFusion::saxpy, 2.0f, x, y, z)
+                .task("t1", TestTaskFusion::saxpy, 3.0f, z, x, w)
+                .task("t2", TestTaskFusion::addOne, w, z)
+                .streamOut(z, w);
+        //@formatter:on
+
+        ts.execute();
+
+        for (int i = 0; i < numElements; i++) {
+            final float expectedW = 3.0f * (2.0f * i + 1.0f) + i;
+            assertEquals(expectedW, w[i], 0.01f);
+            assertEquals(expectedW + 1.0f, z[i], 0.01f);
+        }
+
+        System.setProperty("fusion1.fusion", "False");
+    }
+
+    @Test
+    public void testNotFusible() {
+        final int numElements = 1024;
+        float[] a = new float[numElements];
+        float[] tmp = new float[numElements];
+        float[] b = new float[numElements];
+
+        IntStream.range(0, numElements).forEach(i -> a[i] = i);
+
+        System.setProperty("fusion2.fusion", "True");
+
+        // The consumer reads an element written by another thread of the producer
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("fusion2")
+                .streamIn(a)
+                .task("t0", TestTaskFusion::scale, a, tmp)
+                .task("t1", TestTaskFusion::rotate, tmp, b)
+                .streamOut(b);
+        //@formatter:on
+
+        ts.execute();
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(a[(i + 1) % numElements] * 2.0f, b[i], 0.01f);
+        }
+
+        System.setProperty("fusion2.fusion", "False");
+    }
+}